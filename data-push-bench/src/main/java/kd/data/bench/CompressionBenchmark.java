@@ -0,0 +1,132 @@
+package kd.data.bench;
+
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.CompressionUtil;
+import kd.data.core.utils.DirectBufferPool;
+import kd.data.core.utils.RowCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批次压缩/解压吞吐
+ * 每次操作处理一个批次，附加计数器 rawMB 按原始行编码字节数累计，即输出中的 MB/s
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:50
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+    @Param({"NONE", "SNAPPY", "LZ4", "ZSTD"})
+    public String codec;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private BlockCodec blockCodec;
+    private List<Row> batch;
+    private byte[] frame;
+    private double rawMB;
+
+    /**
+     * 每次操作处理的原始数据量，JMH 按时间归一化为速率
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public double rawMB;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawMB = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        blockCodec = BlockCodec.of(codec);
+        batch = rows(batchSize, 42);
+        frame = CompressionUtil.compressBatch(batch, blockCodec);
+        rawMB = rawLength(batch) / 1_000_000.0;
+    }
+
+    @Benchmark
+    public byte[] compress(Bytes bytes) {
+        bytes.rawMB += rawMB;
+        return CompressionUtil.compressBatch(batch, blockCodec);
+    }
+
+    @Benchmark
+    public List<Row> decompress(Bytes bytes) {
+        bytes.rawMB += rawMB;
+        return CompressionUtil.decompressBatch(frame, Row.class);
+    }
+
+    /**
+     * 行编码后的原始字节数
+     */
+    static int rawLength(List<Row> batch) {
+        ByteBuffer raw = RowCodec.encode(batch);
+        try {
+            return raw.remaining();
+        } finally {
+            DirectBufferPool.release(raw);
+        }
+    }
+
+    /**
+     * 模拟业务表记录：自增主键、枚举型状态、有限取值的字符串、金额与时间
+     */
+    static List<Row> rows(int count, long seed) {
+        Random random = new Random(seed);
+        String[] cities = {"北京", "上海", "广州", "深圳", "杭州", "成都", "武汉", "西安"};
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            row.id = 1_000_000L + i;
+            row.status = random.nextInt(4);
+            row.customer = "customer-" + random.nextInt(5000);
+            row.city = cities[random.nextInt(cities.length)];
+            row.amount = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            row.remark = random.nextInt(10) == 0 ? null : "order remark " + random.nextInt(100);
+            row.createdAt = base.plusSeconds(i * 3L + random.nextInt(3));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public static class Row {
+        public long id;
+        public int status;
+        public String customer;
+        public String city;
+        public BigDecimal amount;
+        public String remark;
+        public LocalDateTime createdAt;
+    }
+}
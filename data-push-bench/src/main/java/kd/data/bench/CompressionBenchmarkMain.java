@@ -0,0 +1,56 @@
+package kd.data.bench;
+
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.CompressionUtil;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 运行压缩基准并汇总每种算法的 MB/s 与压缩率
+ * 命令行参数与 JMH 一致（如 -p batchSize=5000 -f 2），默认只运行 {@link CompressionBenchmark}
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:50
+ */
+public class CompressionBenchmarkMain {
+
+    private static final String RAW_MB = "rawMB";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cli)
+                .include(cli.getIncludes().isEmpty() ? CompressionBenchmark.class.getSimpleName() : ".*")
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-12s %-8s %10s %12s %10s%n", "benchmark", "codec", "batchSize", "MB/s", "ratio");
+        for (RunResult run : results) {
+            String codec = run.getParams().getParam("codec");
+            int batchSize = Integer.parseInt(run.getParams().getParam("batchSize"));
+            String method = run.getParams().getBenchmark();
+            method = method.substring(method.lastIndexOf('.') + 1);
+            Result<?> mb = run.getSecondaryResults().get(RAW_MB);
+            System.out.printf("%-12s %-8s %10d %12.1f %10.2f%n", method, codec, batchSize,
+                    mb == null ? Double.NaN : mb.getScore(), ratio(BlockCodec.of(codec), batchSize));
+        }
+    }
+
+    /**
+     * 原始行编码字节数 / 压缩帧字节数（含帧头）
+     */
+    private static double ratio(BlockCodec codec, int batchSize) {
+        List<CompressionBenchmark.Row> batch = CompressionBenchmark.rows(batchSize, 42);
+        return (double) CompressionBenchmark.rawLength(batch) / CompressionUtil.compressBatch(batch, codec).length;
+    }
+}
@@ -0,0 +1,342 @@
+package kd.data.core.coordinator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并写入检查点的协调器
+ * 每个键只在内存中保留最新检查点，每 flushIntervalMs 或累计 flushBatches 次更新后，
+ * 将全部待写检查点经 {@link DistributedCoordinator#saveCheckpoints} 一次往返写入；
+ * 分片结束与任务结束时由调用方强制写入。锁、分片队列及其余操作直接委托。
+ * 带租约的检查点在写入时若租约已丢失则丢弃，其余按租约的防护令牌写入，被拒绝（锁已被接手）时标记租约丢失，
+ * 不覆盖接手节点的进度。
+ * 写入间隔即进程崩溃后检查点最多落后的时间窗口，期间的批次会在续传时重复处理
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:10
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class CoalescingCheckpointCoordinator implements DistributedCoordinator, ShardQueueCoordinator, Closeable {
+
+    private final String name;
+    private final DistributedCoordinator delegate;
+    private final long flushIntervalMs;
+    private final int flushBatches;
+
+    /** 待写入的最新检查点 */
+    private final Map<String, Pending> dirty = new ConcurrentHashMap<>();
+    /** 正在写入的检查点，写入完成前读取仍以其为准 */
+    private volatile Map<String, String> flushing = Collections.emptyMap();
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    public CoalescingCheckpointCoordinator(String name, DistributedCoordinator delegate,
+                                           long flushIntervalMs, int flushBatches) {
+        this.name = name;
+        this.delegate = delegate;
+        this.flushIntervalMs = Math.max(10, flushIntervalMs);
+        this.flushBatches = Math.max(1, flushBatches);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        closed = false;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-flusher-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Checkpoint writer {} started, flush every {} ms or {} updates", name, flushIntervalMs, flushBatches);
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, int timeoutSeconds) {
+        return delegate.tryLock(lockKey, timeoutSeconds);
+    }
+
+    @Override
+    public long tryLockFenced(String lockKey, int timeoutSeconds) {
+        return delegate.tryLockFenced(lockKey, timeoutSeconds);
+    }
+
+    /**
+     * 尚未写入的检查点比协调器中的新
+     */
+    @Override
+    public Map<String, LockGrant> tryLockAll(Collection<String> lockKeys, int timeoutSeconds) {
+        Map<String, LockGrant> granted = delegate.tryLockAll(lockKeys, timeoutSeconds);
+        Map<String, LockGrant> result = new LinkedHashMap<>(granted.size() * 2);
+        granted.forEach((lockKey, grant) -> {
+            String pending = pendingCheckpoint(lockKey);
+            result.put(lockKey, pending == null ? grant
+                    : new LockGrant(lockKey, grant.getFencingToken(), pending));
+        });
+        return result;
+    }
+
+    @Override
+    public void unlock(String lockKey) {
+        delegate.unlock(lockKey);
+    }
+
+    @Override
+    public boolean renewLock(String lockKey, int timeoutSeconds) {
+        return delegate.renewLock(lockKey, timeoutSeconds);
+    }
+
+    @Override
+    public Set<String> renewLocks(Collection<String> lockKeys, int timeoutSeconds) {
+        return delegate.renewLocks(lockKeys, timeoutSeconds);
+    }
+
+    /**
+     * 只更新内存中的最新值；未启动或已关闭时同步写入
+     */
+    @Override
+    public void saveCheckpoint(String key, String checkpoint) {
+        saveCheckpoint(key, checkpoint, null);
+    }
+
+    /**
+     * 同 {@link #saveCheckpoint(String, String)}，写入时租约已丢失则丢弃
+     */
+    @Override
+    public boolean saveCheckpoint(String key, String checkpoint, LockLease lease) {
+        if (lease != null && lease.isLost()) {
+            return false;
+        }
+        ScheduledExecutorService current = scheduler;
+        if (closed || current == null) {
+            flushLock.lock();
+            try {
+                dirty.remove(key);
+                return delegate.saveCheckpoint(key, checkpoint, lease);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        dirty.put(key, new Pending(checkpoint, lease));
+        if (pendingUpdates.incrementAndGet() >= flushBatches) {
+            pendingUpdates.set(0);
+            try {
+                current.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void saveCheckpoints(Map<String, String> checkpoints) {
+        checkpoints.forEach(this::saveCheckpoint);
+    }
+
+    @Override
+    public String loadCheckpoint(String key) {
+        String checkpoint = pendingCheckpoint(key);
+        return checkpoint != null ? checkpoint : delegate.loadCheckpoint(key);
+    }
+
+    private String pendingCheckpoint(String key) {
+        Pending pending = dirty.get(key);
+        return pending != null ? pending.checkpoint : flushing.get(key);
+    }
+
+    @Override
+    public void deleteCheckpoint(String key) {
+        flushLock.lock();
+        try {
+            dirty.remove(key);
+            delegate.deleteCheckpoint(key);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsShardQueue() {
+        return delegate instanceof ShardQueueCoordinator && ((ShardQueueCoordinator) delegate).supportsShardQueue();
+    }
+
+    @Override
+    public int initShardQueue(String queueKey, int shardCount) {
+        return shardQueue().initShardQueue(queueKey, shardCount);
+    }
+
+    @Override
+    public int claimShard(String queueKey, String lockKeyPrefix, int leaseSeconds) {
+        return shardQueue().claimShard(queueKey, lockKeyPrefix, leaseSeconds);
+    }
+
+    @Override
+    public void completeShard(String queueKey, int shardId) {
+        shardQueue().completeShard(queueKey, shardId);
+    }
+
+    @Override
+    public void returnShard(String queueKey, int shardId) {
+        shardQueue().returnShard(queueKey, shardId);
+    }
+
+    @Override
+    public int remainingShards(String queueKey) {
+        return shardQueue().remainingShards(queueKey);
+    }
+
+    /**
+     * 调用方须先确认 {@link #supportsShardQueue()}
+     */
+    private ShardQueueCoordinator shardQueue() {
+        if (!(delegate instanceof ShardQueueCoordinator)) {
+            throw new IllegalStateException("Coordinator " + delegate.getClass().getSimpleName()
+                    + " does not support shard queue");
+        }
+        return (ShardQueueCoordinator) delegate;
+    }
+
+    @Override
+    public void watchShardStatus(int shardId, ShardStatusListener listener) {
+        delegate.watchShardStatus(shardId, listener);
+    }
+
+    @Override
+    public void unWatchShardStatus(int shardId) {
+        delegate.unWatchShardStatus(shardId);
+    }
+
+    /**
+     * 立即写入全部待写检查点，租约已丢失的丢弃；失败时未被更新值覆盖的检查点放回待写并抛出异常
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            pendingUpdates.set(0);
+            Map<String, Pending> taken = new HashMap<>(dirty.size() * 2);
+            Map<String, String> batch = new HashMap<>(dirty.size() * 2);
+            Map<String, FencedCheckpoint> fenced = new HashMap<>();
+            for (Map.Entry<String, Pending> entry : dirty.entrySet()) {
+                String key = entry.getKey();
+                Pending pending = entry.getValue();
+                if (!dirty.remove(key, pending)) {
+                    continue;
+                }
+                if (pending.lease != null && pending.lease.isLost()) {
+                    log.warn("Checkpoint writer {} dropped {} = {}, lock {} lost",
+                            name, key, pending.checkpoint, pending.lease.getLockKey());
+                    continue;
+                }
+                taken.put(key, pending);
+                batch.put(key, pending.checkpoint);
+                if (pending.lease != null) {
+                    fenced.put(key, new FencedCheckpoint(pending.checkpoint, pending.lease.getFencingToken()));
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushing = batch;
+            try {
+                if (fenced.size() < batch.size()) {
+                    Map<String, String> plain = new HashMap<>(batch);
+                    plain.keySet().removeAll(fenced.keySet());
+                    delegate.saveCheckpoints(plain);
+                }
+                if (!fenced.isEmpty()) {
+                    for (String key : delegate.saveFencedCheckpoints(fenced)) {
+                        // 其他节点已以更大的令牌写入：本节点已失去该分片
+                        LockLease lease = taken.get(key).lease;
+                        lease.markLost();
+                        log.warn("Checkpoint writer {} rejected {} = {}, lock {} taken over",
+                                name, key, fenced.get(key).getCheckpoint(), lease.getLockKey());
+                    }
+                }
+                log.debug("Checkpoint writer {} flushed {} checkpoints", name, batch.size());
+            } catch (RuntimeException e) {
+                taken.forEach(dirty::putIfAbsent);
+                throw e;
+            } finally {
+                flushing = Collections.emptyMap();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 丢弃租约下仍未写入的检查点（释放锁前写入失败时调用），释放后不再以旧持有者身份写入
+     */
+    public void discard(LockLease lease) {
+        flushLock.lock();
+        try {
+            dirty.entrySet().removeIf(entry -> {
+                if (entry.getValue().lease != lease) {
+                    return false;
+                }
+                log.warn("Checkpoint writer {} discarded unwritten {} = {} of released lock {}",
+                        name, entry.getKey(), entry.getValue().checkpoint, lease.getLockKey());
+                return true;
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Checkpoint writer {} flush failed, will retry: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 停止定时写入并写入剩余检查点，之后的更新同步写入
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+        flush();
+    }
+
+    /** 待写检查点及其所属分片的锁租约 */
+    private static final class Pending {
+        final String checkpoint;
+        final LockLease lease;
+
+        Pending(String checkpoint, LockLease lease) {
+            this.checkpoint = checkpoint;
+            this.lease = lease;
+        }
+    }
+}
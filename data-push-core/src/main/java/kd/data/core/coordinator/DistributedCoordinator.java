@@ -1,5 +1,12 @@
 package kd.data.core.coordinator;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 分布式协调器接口
  * @author gaozw
@@ -8,6 +15,9 @@ package kd.data.core.coordinator;
 @SuppressWarnings("unused")
 public interface DistributedCoordinator {
 
+    /** 未获取到锁 */
+    long NOT_ACQUIRED = -1L;
+
     /**
      * 尝试获取分布式锁
      * @param lockKey 锁的键
@@ -17,7 +27,35 @@ public interface DistributedCoordinator {
     boolean tryLock(String lockKey, int timeoutSeconds);
 
     /**
-     * 释放分布式锁
+     * 尝试获取分布式锁并返回防护令牌（fencing token）
+     * 同一锁键每次成功获取的令牌单调递增，写入端可据此拒绝已失去锁的旧持有者
+     * @param lockKey 锁的键
+     * @param timeoutSeconds 锁的超时时间(秒)
+     * @return 防护令牌，未获取到返回 {@link #NOT_ACQUIRED}；不支持令牌的协调器获取成功时返回 0
+     */
+    default long tryLockFenced(String lockKey, int timeoutSeconds) {
+        return tryLock(lockKey, timeoutSeconds) ? 0L : NOT_ACQUIRED;
+    }
+
+    /**
+     * 批量获取锁并读取与锁键同名的检查点，支持的协调器在一次往返内完成
+     * @param lockKeys 锁的键
+     * @param timeoutSeconds 锁的超时时间(秒)
+     * @return 获取成功的锁键到授予结果，未获取的锁键不在结果中
+     */
+    default Map<String, LockGrant> tryLockAll(Collection<String> lockKeys, int timeoutSeconds) {
+        Map<String, LockGrant> granted = new LinkedHashMap<>();
+        for (String lockKey : lockKeys) {
+            long fencingToken = tryLockFenced(lockKey, timeoutSeconds);
+            if (fencingToken != NOT_ACQUIRED) {
+                granted.put(lockKey, new LockGrant(lockKey, fencingToken, loadCheckpoint(lockKey)));
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * 释放分布式锁，只释放本节点持有的锁
      * @param lockKey 锁的键
      */
     void unlock(String lockKey);
@@ -29,6 +67,45 @@ public interface DistributedCoordinator {
      */
     void saveCheckpoint(String key, String checkpoint);
 
+    /**
+     * 以分片锁租约保存检查点，租约已丢失（锁被其他节点接手或已过期）时不写入，
+     * 否则按租约的防护令牌写入
+     * @param lease 检查点所属分片的锁租约，为 null 时直接写入
+     * @return 是否写入
+     */
+    default boolean saveCheckpoint(String key, String checkpoint, LockLease lease) {
+        if (lease == null) {
+            saveCheckpoint(key, checkpoint);
+            return true;
+        }
+        if (lease.isLost()) {
+            return false;
+        }
+        return saveFencedCheckpoints(Collections.singletonMap(key,
+                new FencedCheckpoint(checkpoint, lease.getFencingToken()))).isEmpty();
+    }
+
+    /**
+     * 按防护令牌批量保存检查点：支持的协调器为每个检查点记录已见的最大令牌，
+     * 令牌小于已见值（锁已被其他节点接手并写入过）时拒绝写入
+     * @param checkpoints 检查点键到带令牌的检查点
+     * @return 被拒绝的检查点键；不支持令牌的协调器直接写入并返回空集合
+     */
+    default Set<String> saveFencedCheckpoints(Map<String, FencedCheckpoint> checkpoints) {
+        Map<String, String> values = new LinkedHashMap<>(checkpoints.size() * 2);
+        checkpoints.forEach((key, fenced) -> values.put(key, fenced.getCheckpoint()));
+        saveCheckpoints(values);
+        return Collections.emptySet();
+    }
+
+    /**
+     * 批量保存检查点，支持的协调器在一次往返内写入
+     * @param checkpoints 检查点键到检查点值
+     */
+    default void saveCheckpoints(Map<String, String> checkpoints) {
+        checkpoints.forEach(this::saveCheckpoint);
+    }
+
     /**
      * 加载检查点
      * @param key 检查点键
@@ -46,6 +123,22 @@ public interface DistributedCoordinator {
 
     default boolean renewLock(String lockKey, int timeoutSeconds) { return false; }
 
+    /**
+     * 批量续期，支持的协调器在一次往返内完成
+     * @param lockKeys 锁的键
+     * @param timeoutSeconds 锁的超时时间(秒)
+     * @return 续期被拒绝（锁已不存在或不属于本节点）的锁键；协调器不可用时抛出异常
+     */
+    default Set<String> renewLocks(Collection<String> lockKeys, int timeoutSeconds) {
+        Set<String> rejected = new HashSet<>();
+        for (String lockKey : lockKeys) {
+            if (!renewLock(lockKey, timeoutSeconds)) {
+                rejected.add(lockKey);
+            }
+        }
+        return rejected;
+    }
+
     /**
      * 监听分片状态变化
      * @param shardId 分片ID
@@ -0,0 +1,27 @@
+package kd.data.core.coordinator;
+
+/**
+ * 带防护令牌的检查点：写入者持有分片锁时的令牌，协调器据此拒绝已失去锁的旧持有者
+ *
+ * @author gaozw
+ * @date 2026/10/20 00:05
+ */
+@SuppressWarnings("unused")
+public final class FencedCheckpoint {
+
+    private final String checkpoint;
+    private final long fencingToken;
+
+    public FencedCheckpoint(String checkpoint, long fencingToken) {
+        this.checkpoint = checkpoint;
+        this.fencingToken = fencingToken;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+}
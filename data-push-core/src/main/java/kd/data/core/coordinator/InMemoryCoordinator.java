@@ -1,59 +1,115 @@
 package kd.data.core.coordinator;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 基于内存 用于测试
+ * 存储在同一 JVM 内共享，每个实例模拟一个节点：锁记录持有者标识，只有持有者可以续期和释放，
+ * 过期的锁可被其他实例获取，每次获取返回单调递增的防护令牌
  *
  * @author gaozw
  * @date 2025/8/27 10:49
  */
 
-public class InMemoryCoordinator  implements DistributedCoordinator {
+public class InMemoryCoordinator  implements DistributedCoordinator, ShardQueueCoordinator {
 
 
     private static final String LOCK_PREFIX     = "sync:memory:lock:";
     private static final String CHECKPOINT_PREFIX = "sync:memory:checkpoint:";
     private static final Map<String, String> checkpointStore = new ConcurrentHashMap<>();
+    /** 检查点已见的最大防护令牌 */
+    private static final Map<String, Long> checkpointFenceStore = new ConcurrentHashMap<>();
     private static final Map<String, LockEntry> lockStore = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> fenceStore = new ConcurrentHashMap<>();
+    private static final Map<String, ShardQueue> queueStore = new HashMap<>();
+
+    /** 本实例的持有者标识 */
+    private final String ownerId = UUID.randomUUID().toString();
 
     private static class LockEntry {
-        final ReentrantLock lock = new ReentrantLock();
-        final AtomicLong expirationTime = new AtomicLong(0);
-        final AtomicReference<Thread> ownerThread = new AtomicReference<>();
+        final String owner;
+        final long fence;
+        final long expirationTime;
+
+        LockEntry(String owner, long fence, long expirationTime) {
+            this.owner = owner;
+            this.fence = fence;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean expired(long now) {
+            return expirationTime <= now;
+        }
+    }
+
+    /** 分片工作队列，访问时以 queueStore 为锁 */
+    private static class ShardQueue {
+        final int total;
+        final Deque<Integer> pending = new ArrayDeque<>();
+        /** 处理中分片及领取（或上次确认锁仍存在）的时间 */
+        final Map<Integer, Long> claimed = new HashMap<>();
+
+        ShardQueue(int total) {
+            this.total = total;
+            for (int i = 0; i < total; i++) {
+                pending.addLast(i);
+            }
+        }
     }
 
     @Override
     public boolean tryLock(String lockKey, int timeoutSeconds) {
+        return tryLockFenced(lockKey, timeoutSeconds) != NOT_ACQUIRED;
+    }
+
+    /**
+     * 锁不存在或已过期时获取，已被持有（包括本实例持有）时不可重入，与 Redis 的 NX 语义一致
+     */
+    @Override
+    public long tryLockFenced(String lockKey, int timeoutSeconds) {
         String key = LOCK_PREFIX + lockKey;
-        LockEntry entry = lockStore.computeIfAbsent(key, k -> new LockEntry());
+        long now = System.currentTimeMillis();
+        long[] acquired = {NOT_ACQUIRED};
+        lockStore.compute(key, (k, current) -> {
+            if (current != null && !current.expired(now)) {
+                return current;
+            }
+            long fence = fenceStore.computeIfAbsent(k, f -> new AtomicLong()).incrementAndGet();
+            acquired[0] = fence;
+            return new LockEntry(ownerId, fence, now + TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        });
+        return acquired[0];
+    }
 
-        try {
-            boolean acquired = entry.lock.tryLock(timeoutSeconds, TimeUnit.SECONDS);
-            if (acquired) {
-                entry.expirationTime.set(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds));
-                entry.ownerThread.set(Thread.currentThread());
+    @Override
+    public Map<String, LockGrant> tryLockAll(Collection<String> lockKeys, int timeoutSeconds) {
+        Map<String, LockGrant> granted = new LinkedHashMap<>();
+        for (String lockKey : lockKeys) {
+            long fencingToken = tryLockFenced(lockKey, timeoutSeconds);
+            if (fencingToken != NOT_ACQUIRED) {
+                granted.put(lockKey, new LockGrant(lockKey, fencingToken,
+                        checkpointStore.get(CHECKPOINT_PREFIX + lockKey)));
             }
-            return acquired;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
         }
+        return granted;
     }
 
     @Override
     public void unlock(String lockKey) {
-        String key = LOCK_PREFIX + lockKey;
-        LockEntry entry = lockStore.get(key);
-        if (entry != null && entry.lock.isHeldByCurrentThread()) {
-            entry.ownerThread.set(null);
-            entry.lock.unlock();
-        }
+        lockStore.computeIfPresent(LOCK_PREFIX + lockKey,
+                (k, entry) -> entry.owner.equals(ownerId) ? null : entry);
     }
 
     @Override
@@ -61,6 +117,27 @@ public class InMemoryCoordinator  implements DistributedCoordinator {
         checkpointStore.put(CHECKPOINT_PREFIX + key, checkpoint);
     }
 
+    @Override
+    public Set<String> saveFencedCheckpoints(Map<String, FencedCheckpoint> checkpoints) {
+        Set<String> rejected = new HashSet<>();
+        checkpoints.forEach((key, fenced) -> {
+            String storeKey = CHECKPOINT_PREFIX + key;
+            boolean[] accepted = {false};
+            checkpointFenceStore.compute(storeKey, (k, seen) -> {
+                if (seen != null && fenced.getFencingToken() < seen) {
+                    return seen;
+                }
+                checkpointStore.put(storeKey, fenced.getCheckpoint());
+                accepted[0] = true;
+                return fenced.getFencingToken();
+            });
+            if (!accepted[0]) {
+                rejected.add(key);
+            }
+        });
+        return rejected;
+    }
+
     @Override
     public String loadCheckpoint(String key) {
         return checkpointStore.get(CHECKPOINT_PREFIX + key);
@@ -71,14 +148,89 @@ public class InMemoryCoordinator  implements DistributedCoordinator {
         checkpointStore.remove(CHECKPOINT_PREFIX + key);
     }
 
+    /**
+     * 按持有者比较后续期，可在任意线程调用
+     */
     @Override
     public boolean renewLock(String lockKey, int timeoutSeconds) {
-        String key = LOCK_PREFIX + lockKey;
-        LockEntry entry = lockStore.get(key);
-        if (entry != null && entry.ownerThread.get() == Thread.currentThread()) {
-            entry.expirationTime.set(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds));
-            return true;
+        long now = System.currentTimeMillis();
+        LockEntry renewed = lockStore.computeIfPresent(LOCK_PREFIX + lockKey, (k, entry) ->
+                entry.owner.equals(ownerId) && !entry.expired(now)
+                        ? new LockEntry(ownerId, entry.fence, now + TimeUnit.SECONDS.toMillis(timeoutSeconds))
+                        : entry);
+        return renewed != null && renewed.owner.equals(ownerId) && !renewed.expired(now);
+    }
+
+    @Override
+    public int initShardQueue(String queueKey, int shardCount) {
+        synchronized (queueStore) {
+            return queueStore.computeIfAbsent(queueKey, k -> new ShardQueue(shardCount)).total;
+        }
+    }
+
+    @Override
+    public int claimShard(String queueKey, String lockKeyPrefix, int leaseSeconds) {
+        long now = System.currentTimeMillis();
+        synchronized (queueStore) {
+            ShardQueue queue = queueStore.get(queueKey);
+            if (queue == null) {
+                return -1;
+            }
+            long staleBefore = now - TimeUnit.SECONDS.toMillis(leaseSeconds);
+            for (Iterator<Map.Entry<Integer, Long>> it = queue.claimed.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Long> entry = it.next();
+                if (entry.getValue() > staleBefore) {
+                    continue;
+                }
+                LockEntry lock = lockStore.get(LOCK_PREFIX + lockKeyPrefix + entry.getKey());
+                if (lock == null || lock.expired(now)) {
+                    it.remove();
+                    queue.pending.addLast(entry.getKey());
+                } else {
+                    entry.setValue(now);
+                }
+            }
+            Integer shardId = queue.pending.pollFirst();
+            if (shardId == null) {
+                return -1;
+            }
+            queue.claimed.put(shardId, now);
+            return shardId;
+        }
+    }
+
+    @Override
+    public void completeShard(String queueKey, int shardId) {
+        synchronized (queueStore) {
+            ShardQueue queue = queueStore.get(queueKey);
+            if (queue != null) {
+                queue.claimed.remove(shardId);
+            }
+        }
+    }
+
+    @Override
+    public void returnShard(String queueKey, int shardId) {
+        synchronized (queueStore) {
+            ShardQueue queue = queueStore.get(queueKey);
+            if (queue != null && queue.claimed.remove(shardId) != null) {
+                queue.pending.addLast(shardId);
+            }
+        }
+    }
+
+    @Override
+    public int remainingShards(String queueKey) {
+        synchronized (queueStore) {
+            ShardQueue queue = queueStore.get(queueKey);
+            if (queue == null) {
+                return 0;
+            }
+            int remaining = queue.pending.size() + queue.claimed.size();
+            if (remaining == 0) {
+                queueStore.remove(queueKey);
+            }
+            return remaining;
         }
-        return false;
     }
 }
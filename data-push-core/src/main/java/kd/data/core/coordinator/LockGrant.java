@@ -0,0 +1,36 @@
+package kd.data.core.coordinator;
+
+/**
+ * 批量获取锁的结果：防护令牌与获取时读取的检查点
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:50
+ */
+@SuppressWarnings("unused")
+public final class LockGrant {
+
+    private final String lockKey;
+    private final long fencingToken;
+    private final String checkpoint;
+
+    public LockGrant(String lockKey, long fencingToken, String checkpoint) {
+        this.lockKey = lockKey;
+        this.fencingToken = fencingToken;
+        this.checkpoint = checkpoint;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * 与锁键同名的检查点，不存在时为 null
+     */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+}
@@ -0,0 +1,54 @@
+package kd.data.core.coordinator;
+
+/**
+ * 分片锁租约
+ * 由 {@link LockRenewalService} 统一续期；续期被拒绝或连续失败直到锁可能过期时标记为丢失，
+ * 持有者应在批次边界检查并停止处理，避免与接手的节点重复写入
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:30
+ */
+@SuppressWarnings("unused")
+public final class LockLease {
+
+    private final String lockKey;
+    private final long fencingToken;
+    private volatile long expiresAt;
+    private volatile boolean lost;
+
+    LockLease(String lockKey, long fencingToken, long expiresAt) {
+        this.lockKey = lockKey;
+        this.fencingToken = fencingToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    /**
+     * 获取锁时的防护令牌，同一锁键后获取者的令牌更大；协调器不支持时为 0
+     */
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * 锁是否已丢失（被其他节点接手或已过期）
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    void renewed(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    void markLost() {
+        this.lost = true;
+    }
+}
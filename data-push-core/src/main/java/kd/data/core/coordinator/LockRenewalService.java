@@ -0,0 +1,133 @@
+package kd.data.core.coordinator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁续期服务
+ * 同一协调器上持有的全部分片锁由一个守护线程统一续期，每个周期通过
+ * {@link DistributedCoordinator#renewLocks} 一次批量续期（Redis 为流水线）。
+ * 锁已不属于本节点时租约立即标记为丢失；协调器不可用时保留租约重试，直到下一周期前锁可能过期才标记丢失
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:30
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class LockRenewalService implements Closeable {
+
+    private final String name;
+    private final DistributedCoordinator coordinator;
+    private final int timeoutSeconds;
+    private final int intervalSeconds;
+
+    private final Map<String, LockLease> leases = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public LockRenewalService(String name, DistributedCoordinator coordinator, int timeoutSeconds, int intervalSeconds) {
+        // 验证时间配置合理性
+        if (intervalSeconds <= 0 || intervalSeconds >= timeoutSeconds * 0.75) {
+            throw new IllegalArgumentException("续期间隔必须小于锁超时时间的75%");
+        }
+        this.name = name;
+        this.coordinator = coordinator;
+        this.timeoutSeconds = timeoutSeconds;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lock-renewal-" + name);
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler((thread, ex) ->
+                    log.error("Thread {} failed: {}", thread.getName(), ex.getMessage()));
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::renewAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 登记刚获取的锁，由服务续期直至注销
+     * @param fencingToken {@link DistributedCoordinator#tryLockFenced} 返回的防护令牌
+     */
+    public LockLease register(String lockKey, long fencingToken) {
+        LockLease lease = new LockLease(lockKey, fencingToken,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        leases.put(lockKey, lease);
+        return lease;
+    }
+
+    /**
+     * 注销租约，须在释放锁之前调用
+     */
+    public void unregister(LockLease lease) {
+        if (lease != null) {
+            leases.remove(lease.getLockKey(), lease);
+        }
+    }
+
+    public int getHeldLocks() {
+        return leases.size();
+    }
+
+    private void renewAll() {
+        if (leases.isEmpty()) {
+            return;
+        }
+        List<LockLease> batch = new ArrayList<>(leases.values());
+        List<String> lockKeys = new ArrayList<>(batch.size());
+        for (LockLease lease : batch) {
+            lockKeys.add(lease.getLockKey());
+        }
+        long now = System.currentTimeMillis();
+        Set<String> rejected;
+        try {
+            rejected = coordinator.renewLocks(lockKeys, timeoutSeconds);
+        } catch (Exception e) {
+            log.warn("Lock renewal of {} locks failed: {}", lockKeys.size(), e.getMessage());
+            // 下一周期前可能过期的锁视为丢失
+            long nextTick = now + TimeUnit.SECONDS.toMillis(intervalSeconds);
+            for (LockLease lease : batch) {
+                if (lease.getExpiresAt() <= nextTick) {
+                    lose(lease, "may expire before next renewal");
+                }
+            }
+            return;
+        }
+        long expiresAt = now + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        for (LockLease lease : batch) {
+            if (rejected.contains(lease.getLockKey())) {
+                lose(lease, "renewal rejected");
+            } else {
+                lease.renewed(expiresAt);
+            }
+        }
+    }
+
+    private void lose(LockLease lease, String reason) {
+        lease.markLost();
+        leases.remove(lease.getLockKey(), lease);
+        log.error("锁续期失败: {} ({}), shard will stop", lease.getLockKey(), reason);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        leases.clear();
+    }
+}
@@ -1,16 +1,31 @@
 package kd.data.core.coordinator;
+import io.lettuce.core.Range;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
-import io.lettuce.core.SetArgs;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.ZAddArgs;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import io.lettuce.core.cluster.RedisClusterClient;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
 import kd.data.core.exception.SyncException;
 import lombok.extern.slf4j.Slf4j;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -20,9 +35,65 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @SuppressWarnings("unused")
-public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
+public class  RedisCoordinator implements DistributedCoordinator, ShardQueueCoordinator, AutoCloseable{
     private static final String LOCK_PREFIX     = "sync:redis:lock:";
     private static final String CHECKPOINT_PREFIX = "sync:redis:checkpoint:";
+    /** 检查点已见最大令牌的键后缀，键为 {检查点键}:fence，与检查点在同一槽位 */
+    private static final String CHECKPOINT_FENCE_SUFFIX = ":fence";
+    private static final String FENCE_PREFIX = "sync:redis:fence:";
+    private static final String QUEUE_PREFIX = "sync:redis:queue:";
+
+    /** KEYS: 锁、令牌计数；ARGV: 节点标识、超时秒数；返回令牌，已被持有返回 -1 */
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 1 then return -1 end "
+            + "local fence = redis.call('incr', KEYS[2]) "
+            + "redis.call('set', KEYS[1], ARGV[1] .. ':' .. fence, 'EX', tonumber(ARGV[2])) "
+            + "return fence";
+    /** KEYS: 锁；ARGV: 持有者值 */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0";
+    /** KEYS: 锁；ARGV: 持有者值、超时秒数 */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('expire', KEYS[1], tonumber(ARGV[2])) end return 0";
+    /** KEYS: 检查点、检查点已见最大令牌；ARGV: 检查点值、令牌；令牌小于已见值时拒绝并返回 0 */
+    private static final String FENCED_SAVE_SCRIPT =
+            "local seen = tonumber(redis.call('get', KEYS[2]) or '0') "
+            + "local fence = tonumber(ARGV[2]) "
+            + "if fence < seen then return 0 end "
+            + "if fence > seen then redis.call('set', KEYS[2], ARGV[2]) end "
+            + "redis.call('set', KEYS[1], ARGV[1]) "
+            + "return 1";
+    /** KEYS: 分片总数、待处理列表；ARGV: 分片数；队列已存在时返回已有总数 */
+    private static final String QUEUE_INIT_SCRIPT =
+            "local total = redis.call('get', KEYS[1]) "
+            + "if total then return tonumber(total) end "
+            + "local n = tonumber(ARGV[1]) "
+            + "redis.call('set', KEYS[1], n) "
+            + "local i = 0 "
+            + "while i < n do "
+            + "local last = math.min(i + 1000, n) - 1 "
+            + "local ids = {} "
+            + "for s = i, last do ids[#ids + 1] = s end "
+            + "redis.call('rpush', KEYS[2], unpack(ids)) "
+            + "i = last + 1 "
+            + "end "
+            + "return n";
+    /** KEYS: 待处理列表、处理中集合；ARGV: 当前时间；无待处理返回 -1 */
+    private static final String QUEUE_CLAIM_SCRIPT =
+            "local s = redis.call('lpop', KEYS[1]) "
+            + "if not s then return -1 end "
+            + "redis.call('zadd', KEYS[2], ARGV[1], s) "
+            + "return tonumber(s)";
+    /** KEYS: 处理中集合、待处理列表；ARGV: 分片ID；仍在处理中时移回待处理 */
+    private static final String QUEUE_RETURN_SCRIPT =
+            "if redis.call('zrem', KEYS[1], ARGV[1]) == 1 then "
+            + "redis.call('rpush', KEYS[2], ARGV[1]) return 1 end return 0";
+    /** KEYS: 分片总数、待处理列表、处理中集合；全部完成时删除队列 */
+    private static final String QUEUE_REMAINING_SCRIPT =
+            "local n = redis.call('llen', KEYS[2]) + redis.call('zcard', KEYS[3]) "
+            + "if n == 0 then redis.call('del', KEYS[1], KEYS[2], KEYS[3]) end "
+            + "return n";
 
     private static final String NODE_SEPARATOR = "[,，;；:：]";
 
@@ -33,6 +104,13 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
     private final boolean isCluster;
     private final RedisCommands<String, String> syncCmd;
     private final RedisAdvancedClusterCommands<String, String> clusterCmd;
+    /** 本协调器实例的持有者标识 */
+    private final String ownerId = UUID.randomUUID().toString();
+    /** 本节点持有的锁及其值（持有者标识:防护令牌） */
+    private final Map<String, String> heldLocks = new ConcurrentHashMap<>();
+    /** 异步命令不等待上一条应答即写出，用于批量操作的流水线 */
+    private final RedisAsyncCommands<String, String> asyncCmd;
+    private final RedisAdvancedClusterAsyncCommands<String, String> clusterAsyncCmd;
 
     /**
      * 单机Redis构造器
@@ -60,7 +138,9 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
         this.redisClient = RedisClient.create(redisUri);
         this.connection = ((RedisClient) redisClient).connect();
         this.syncCmd = ((StatefulRedisConnection<String, String>) connection).sync();
+        this.asyncCmd = ((StatefulRedisConnection<String, String>) connection).async();
         this.clusterCmd = null;
+        this.clusterAsyncCmd = null;
     }
 
     /**
@@ -94,7 +174,9 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
         this.redisClient = RedisClusterClient.create(redisUris);
         this.connection = ((RedisClusterClient) redisClient).connect();
         this.clusterCmd = ((StatefulRedisClusterConnection<String, String>) connection).sync();
+        this.clusterAsyncCmd = ((StatefulRedisClusterConnection<String, String>) connection).async();
         this.syncCmd = null;
+        this.asyncCmd = null;
     }
 
     /**
@@ -114,33 +196,94 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
 
     @Override
     public boolean tryLock(String lockKey, int timeoutSeconds) {
-        String key = LOCK_PREFIX + lockKey;
+        return tryLockFenced(lockKey, timeoutSeconds) != NOT_ACQUIRED;
+    }
+
+    /**
+     * 锁不存在时递增防护令牌并以“节点标识:令牌”为值加锁，两步在同一脚本内原子完成
+     */
+    @Override
+    public long tryLockFenced(String lockKey, int timeoutSeconds) {
         try {
-            if (isCluster) {
-                return "OK".equals(clusterCmd.set(key, "locked",
-                        SetArgs.Builder.nx().ex(timeoutSeconds)));
-            } else {
-                return "OK".equals(syncCmd.set(key, "locked",
-                        SetArgs.Builder.nx().ex(timeoutSeconds)));
+            Long fence = eval(ACQUIRE_SCRIPT, new String[]{lockKey(lockKey), fenceKey(lockKey)},
+                    ownerId, String.valueOf(timeoutSeconds));
+            if (fence == null || fence < 0) {
+                return NOT_ACQUIRED;
             }
+            heldLocks.put(lockKey, ownerId + ":" + fence);
+            return fence;
         } catch (Exception e) {
             // 记录日志
-            log.error("redis tryLock error key {} {}",key,e.getMessage(),e);
-            return false;
+            log.error("redis tryLock error key {} {}",lockKey,e.getMessage(),e);
+            return NOT_ACQUIRED;
         }
     }
 
+    /**
+     * 每个锁键的加锁脚本与检查点 GET 先流水线写出再统一等待应答；同一节点上按写出顺序执行，
+     * 检查点在加锁之后读取
+     */
     @Override
-    public void unlock(String lockKey) {
-        String key = LOCK_PREFIX + lockKey;
-        try {
+    public Map<String, LockGrant> tryLockAll(Collection<String> lockKeys, int timeoutSeconds) {
+        String timeout = String.valueOf(timeoutSeconds);
+        Map<String, RedisFuture<Long>> fences = new LinkedHashMap<>(lockKeys.size() * 2);
+        Map<String, RedisFuture<String>> checkpoints = new LinkedHashMap<>(lockKeys.size() * 2);
+        for (String lockKey : lockKeys) {
+            String[] keys = {lockKey(lockKey), fenceKey(lockKey)};
+            String checkpointKey = CHECKPOINT_PREFIX + lockKey;
             if (isCluster) {
-                clusterCmd.del(key);
+                fences.put(lockKey, clusterAsyncCmd.eval(ACQUIRE_SCRIPT, ScriptOutputType.INTEGER, keys, ownerId, timeout));
+                checkpoints.put(lockKey, clusterAsyncCmd.get(checkpointKey));
             } else {
-                syncCmd.del(key);
+                fences.put(lockKey, asyncCmd.eval(ACQUIRE_SCRIPT, ScriptOutputType.INTEGER, keys, ownerId, timeout));
+                checkpoints.put(lockKey, asyncCmd.get(checkpointKey));
+            }
+        }
+        Map<String, LockGrant> granted = new LinkedHashMap<>();
+        for (Map.Entry<String, RedisFuture<Long>> reply : fences.entrySet()) {
+            String lockKey = reply.getKey();
+            try {
+                Long fence = reply.getValue().get(10, TimeUnit.SECONDS);
+                if (fence == null || fence < 0) {
+                    continue;
+                }
+                heldLocks.put(lockKey, ownerId + ":" + fence);
+                granted.put(lockKey, new LockGrant(lockKey, fence,
+                        checkpoints.get(lockKey).get(10, TimeUnit.SECONDS)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                releaseAll(granted.keySet());
+                throw new SyncException("Interrupted while acquiring locks", e);
+            } catch (ExecutionException | TimeoutException e) {
+                // 加锁结果未知的锁由超时释放；已获取但检查点读取失败的锁立即释放
+                log.error("redis tryLockAll error key {} {}",lockKey,e.getMessage(),e);
+                unlock(lockKey);
+            }
+        }
+        return granted;
+    }
+
+    private void releaseAll(Collection<String> lockKeys) {
+        for (String lockKey : lockKeys) {
+            unlock(lockKey);
+        }
+    }
+
+    /**
+     * 只删除本节点持有的锁，锁过期后被其他节点获取时不受影响
+     */
+    @Override
+    public void unlock(String lockKey) {
+        String owner = heldLocks.remove(lockKey);
+        if (owner == null) {
+            return;
+        }
+        try {
+            if (eval(RELEASE_SCRIPT, new String[]{lockKey(lockKey)}, owner) == 0L) {
+                log.warn("redis unlock skipped, lock {} is no longer owned by this node", lockKey);
             }
         } catch (Exception e) {
-            // 记录日志
+            log.error("redis unlock error key {} {}",lockKey,e.getMessage(),e);
         }
     }
 
@@ -158,6 +301,62 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
         }
     }
 
+    /**
+     * MSET 一次写入，集群模式下由客户端按槽位拆分后并行下发
+     */
+    @Override
+    public void saveCheckpoints(Map<String, String> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        Map<String, String> values = new LinkedHashMap<>(checkpoints.size() * 2);
+        checkpoints.forEach((key, checkpoint) -> values.put(CHECKPOINT_PREFIX + key, checkpoint));
+        try {
+            if (isCluster) {
+                clusterCmd.mset(values);
+            } else {
+                syncCmd.mset(values);
+            }
+        } catch (Exception e) {
+            log.error("redis saveCheckpoints error keys {} {}",checkpoints.keySet(),e.getMessage(),e);
+            throw new SyncException("Failed to save checkpoints", e);
+        }
+    }
+
+    /**
+     * 每个检查点一次比较令牌并写入的脚本，先流水线写出再统一等待应答
+     */
+    @Override
+    public Set<String> saveFencedCheckpoints(Map<String, FencedCheckpoint> checkpoints) {
+        Map<String, RedisFuture<Long>> replies = new LinkedHashMap<>(checkpoints.size() * 2);
+        checkpoints.forEach((key, fenced) -> {
+            String checkpointKey = CHECKPOINT_PREFIX + key;
+            String[] keys = {checkpointKey, checkpointFenceKey(checkpointKey)};
+            String[] args = {fenced.getCheckpoint(), String.valueOf(fenced.getFencingToken())};
+            replies.put(key, isCluster
+                    ? clusterAsyncCmd.eval(FENCED_SAVE_SCRIPT, ScriptOutputType.INTEGER, keys, args)
+                    : asyncCmd.eval(FENCED_SAVE_SCRIPT, ScriptOutputType.INTEGER, keys, args));
+        });
+        Set<String> rejected = new HashSet<>();
+        try {
+            for (Map.Entry<String, RedisFuture<Long>> reply : replies.entrySet()) {
+                if (Long.valueOf(0L).equals(reply.getValue().get(10, TimeUnit.SECONDS))) {
+                    rejected.add(reply.getKey());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while saving checkpoints", e);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("redis saveFencedCheckpoints error keys {} {}",checkpoints.keySet(),e.getMessage(),e);
+            throw new SyncException("Failed to save checkpoints", e);
+        }
+        if (!rejected.isEmpty()) {
+            log.warn("redis checkpoints {} rejected, written by a newer lock holder", rejected);
+        }
+        return rejected;
+    }
+
     @Override
     public String loadCheckpoint(String key) {
         try {
@@ -187,20 +386,174 @@ public class  RedisCoordinator implements DistributedCoordinator,AutoCloseable{
     }
 
     @Override
-    public boolean renewLock(String lockKey, int timeoutSeconds) {
-        String key = LOCK_PREFIX + lockKey;
+    public int initShardQueue(String queueKey, int shardCount) {
+        try {
+            return eval(QUEUE_INIT_SCRIPT, new String[]{queueKey(queueKey, "total"), queueKey(queueKey, "pending")},
+                    String.valueOf(shardCount)).intValue();
+        } catch (Exception e) {
+            log.error("redis initShardQueue error queue {} {}",queueKey,e.getMessage(),e);
+            throw new SyncException("Failed to init shard queue", e);
+        }
+    }
+
+    /**
+     * 处理中分片的分值为领取时间（或上次确认锁仍存在的时间）；超过租约的分片流水线检查分片锁，
+     * 锁已失效的放回待处理，仍存在的刷新分值
+     */
+    @Override
+    public int claimShard(String queueKey, String lockKeyPrefix, int leaseSeconds) {
+        String pending = queueKey(queueKey, "pending");
+        String claimed = queueKey(queueKey, "claimed");
+        long now = System.currentTimeMillis();
+        try {
+            List<String> stale = isCluster
+                    ? clusterCmd.zrangebyscore(claimed, Range.create(0L, now - TimeUnit.SECONDS.toMillis(leaseSeconds)))
+                    : syncCmd.zrangebyscore(claimed, Range.create(0L, now - TimeUnit.SECONDS.toMillis(leaseSeconds)));
+            if (!stale.isEmpty()) {
+                Map<String, RedisFuture<Long>> locks = new LinkedHashMap<>(stale.size() * 2);
+                for (String shardId : stale) {
+                    String key = lockKey(lockKeyPrefix + shardId);
+                    locks.put(shardId, isCluster ? clusterAsyncCmd.exists(key) : asyncCmd.exists(key));
+                }
+                for (Map.Entry<String, RedisFuture<Long>> lock : locks.entrySet()) {
+                    if (Long.valueOf(0L).equals(lock.getValue().get(10, TimeUnit.SECONDS))) {
+                        if (eval(QUEUE_RETURN_SCRIPT, new String[]{claimed, pending}, lock.getKey()) == 1L) {
+                            log.warn("Shard {} of {} lease expired, returned to queue", lock.getKey(), queueKey);
+                        }
+                    } else if (isCluster) {
+                        clusterCmd.zadd(claimed, ZAddArgs.Builder.xx(), now, lock.getKey());
+                    } else {
+                        syncCmd.zadd(claimed, ZAddArgs.Builder.xx(), now, lock.getKey());
+                    }
+                }
+            }
+            return eval(QUEUE_CLAIM_SCRIPT, new String[]{pending, claimed}, String.valueOf(now)).intValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while claiming shard", e);
+        } catch (Exception e) {
+            log.error("redis claimShard error queue {} {}",queueKey,e.getMessage(),e);
+            throw new SyncException("Failed to claim shard", e);
+        }
+    }
+
+    @Override
+    public void completeShard(String queueKey, int shardId) {
         try {
             if (isCluster) {
-                return clusterCmd.expire(key, timeoutSeconds);
+                clusterCmd.zrem(queueKey(queueKey, "claimed"), String.valueOf(shardId));
             } else {
-                return syncCmd.expire(key, timeoutSeconds);
+                syncCmd.zrem(queueKey(queueKey, "claimed"), String.valueOf(shardId));
             }
+        } catch (Exception e) {
+            log.error("redis completeShard error queue {} {}",queueKey,e.getMessage(),e);
+            throw new SyncException("Failed to complete shard", e);
+        }
+    }
+
+    @Override
+    public void returnShard(String queueKey, int shardId) {
+        try {
+            eval(QUEUE_RETURN_SCRIPT, new String[]{queueKey(queueKey, "claimed"), queueKey(queueKey, "pending")},
+                    String.valueOf(shardId));
+        } catch (Exception e) {
+            // 放回失败时由租约过期回收
+            log.error("redis returnShard error queue {} {}",queueKey,e.getMessage(),e);
+        }
+    }
+
+    @Override
+    public int remainingShards(String queueKey) {
+        try {
+            return eval(QUEUE_REMAINING_SCRIPT, new String[]{queueKey(queueKey, "total"),
+                    queueKey(queueKey, "pending"), queueKey(queueKey, "claimed")}).intValue();
+        } catch (Exception e) {
+            log.error("redis remainingShards error queue {} {}",queueKey,e.getMessage(),e);
+            throw new SyncException("Failed to read shard queue", e);
+        }
+    }
+
+    @Override
+    public boolean renewLock(String lockKey, int timeoutSeconds) {
+        String owner = heldLocks.get(lockKey);
+        if (owner == null) {
+            return false;
+        }
+        try {
+            return eval(RENEW_SCRIPT, new String[]{lockKey(lockKey)}, owner, String.valueOf(timeoutSeconds)) == 1L;
         } catch (Exception e) {
             log.error("redis renewLock error {}",e.getMessage(),e);
             return false;
         }
     }
 
+    /**
+     * 全部比较续期脚本先流水线写出再统一等待应答
+     */
+    @Override
+    public Set<String> renewLocks(Collection<String> lockKeys, int timeoutSeconds) {
+        Map<String, RedisFuture<Long>> replies = new LinkedHashMap<>(lockKeys.size() * 2);
+        Set<String> rejected = new HashSet<>();
+        String timeout = String.valueOf(timeoutSeconds);
+        for (String lockKey : lockKeys) {
+            String owner = heldLocks.get(lockKey);
+            if (owner == null) {
+                rejected.add(lockKey);
+                continue;
+            }
+            String[] keys = {lockKey(lockKey)};
+            replies.put(lockKey, isCluster
+                    ? clusterAsyncCmd.eval(RENEW_SCRIPT, ScriptOutputType.INTEGER, keys, owner, timeout)
+                    : asyncCmd.eval(RENEW_SCRIPT, ScriptOutputType.INTEGER, keys, owner, timeout));
+        }
+        try {
+            for (Map.Entry<String, RedisFuture<Long>> reply : replies.entrySet()) {
+                if (!Long.valueOf(1L).equals(reply.getValue().get(10, TimeUnit.SECONDS))) {
+                    rejected.add(reply.getKey());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while renewing locks", e);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("redis renewLocks error {}",e.getMessage(),e);
+            throw new SyncException("Failed to renew locks", e);
+        }
+        return rejected;
+    }
+
+    /**
+     * 锁键与令牌键使用相同的哈希标签，集群模式下落在同一槽位，可在一个脚本内操作
+     */
+    private static String lockKey(String lockKey) {
+        return LOCK_PREFIX + "{" + lockKey + "}";
+    }
+
+    private static String fenceKey(String lockKey) {
+        return FENCE_PREFIX + "{" + lockKey + "}";
+    }
+
+    /**
+     * 以检查点键为哈希标签，集群模式下与检查点在同一槽位（检查点键本身不含哈希标签）
+     */
+    private static String checkpointFenceKey(String checkpointKey) {
+        return "{" + checkpointKey + "}" + CHECKPOINT_FENCE_SUFFIX;
+    }
+
+    /**
+     * 同一队列的键使用相同的哈希标签
+     */
+    private static String queueKey(String queueKey, String part) {
+        return QUEUE_PREFIX + "{" + queueKey + "}:" + part;
+    }
+
+    private Long eval(String script, String[] keys, String... args) {
+        if (isCluster) {
+            return clusterCmd.eval(script, ScriptOutputType.INTEGER, keys, args);
+        }
+        return syncCmd.eval(script, ScriptOutputType.INTEGER, keys, args);
+    }
+
     /** 关闭资源 */
     @Override
     public void close() {
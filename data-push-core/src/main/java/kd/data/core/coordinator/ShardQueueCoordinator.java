@@ -0,0 +1,50 @@
+package kd.data.core.coordinator;
+
+/**
+ * 分片工作队列
+ * 支持队列的协调器实现此接口，节点从队列领取分片而非逐分片抢锁；队列中的分片仍由分片锁保护
+ *
+ * @author gaozw
+ * @date 2026/10/20 10:40
+ */
+@SuppressWarnings("unused")
+public interface ShardQueueCoordinator {
+
+    /**
+     * 是否可用（包装其他协调器时取决于被包装者）
+     */
+    default boolean supportsShardQueue() {
+        return true;
+    }
+
+    /**
+     * 初始化分片工作队列：首个节点写入 0..shardCount-1，之后加入的节点沿用已有队列
+     * @param queueKey 队列键（任务ID）
+     * @param shardCount 本节点计算的分片数
+     * @return 队列实际的分片总数
+     */
+    int initShardQueue(String queueKey, int shardCount);
+
+    /**
+     * 领取一个待处理分片。领取前把处理中超过 leaseSeconds 且分片锁已失效的分片放回待处理
+     * @param lockKeyPrefix 分片锁键前缀，锁键为前缀加分片ID
+     * @param leaseSeconds 分片租约（即分片锁超时）
+     * @return 分片ID，暂无待处理分片返回 -1
+     */
+    int claimShard(String queueKey, String lockKeyPrefix, int leaseSeconds);
+
+    /**
+     * 分片完成，移出队列（须在释放分片锁前调用）
+     */
+    void completeShard(String queueKey, int shardId);
+
+    /**
+     * 分片未完成（失败或未能加锁），放回待处理
+     */
+    void returnShard(String queueKey, int shardId);
+
+    /**
+     * 待处理与处理中的分片数，为 0 时删除队列（之后再启动的任务重新初始化并从检查点续传）
+     */
+    int remainingShards(String queueKey);
+}
@@ -0,0 +1,172 @@
+package kd.data.core.core;
+
+import kd.data.core.model.SyncConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应批大小（AIMD）
+ * 同一任务的所有分片共享：整批写入延迟低于目标时加性增大，延迟超标或被限流时减半（一个目标延迟窗口内只减一次）。
+ * 另按抽样估算的行字节数限制单批字节上限，行很宽时批次先按字节截断
+ *
+ * @author gaozw
+ * @date 2026/10/19 21:30
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class AdaptiveBatchSizer {
+
+    /** 每隔多少行抽样估算一次行大小 */
+    private static final int SAMPLE_INTERVAL = 64;
+    /** 行大小滑动平均的新样本权重 */
+    private static final double SAMPLE_WEIGHT = 0.1;
+    private static final int VALUE_OVERHEAD = 4;
+
+    private final int minSize;
+    private final int maxSize;
+    private final int increment;
+    private final long targetLatencyMs;
+    private final long maxBatchBytes;
+
+    private volatile int currentSize;
+    private volatile double avgRowBytes;
+    private final AtomicLong sampled = new AtomicLong();
+    /** 实体类为任务动态生成，字段缓存随任务释放 */
+    private final Map<Class<?>, List<Field>> fieldCache = new ConcurrentHashMap<>();
+    private long lastDecreaseNanos;
+
+    public AdaptiveBatchSizer(SyncConfig config) {
+        this.minSize = Math.max(1, config.getMinBatchSize());
+        this.maxSize = Math.max(minSize, config.getMaxBatchSize());
+        this.increment = Math.max(1, config.getBatchSizeIncrement());
+        this.targetLatencyMs = Math.max(1, config.getTargetBatchLatencyMs());
+        this.maxBatchBytes = Math.max(1, config.getMaxBatchBytes());
+        this.currentSize = Math.min(maxSize, Math.max(minSize, config.getBatchSize()));
+    }
+
+    public int getCurrentSize() {
+        return currentSize;
+    }
+
+    public long getEstimatedRowBytes() {
+        return (long) avgRowBytes;
+    }
+
+    /**
+     * 当前批次是否已满（行数或估算字节数达到上限）
+     */
+    public boolean isFull(int rows, long bytes) {
+        return rows >= currentSize || bytes >= maxBatchBytes;
+    }
+
+    /**
+     * 估算行字节数：每 SAMPLE_INTERVAL 行实测一次，其余使用滑动平均
+     */
+    public long estimate(Object row) {
+        double avg = avgRowBytes;
+        if (avg > 0 && sampled.getAndIncrement() % SAMPLE_INTERVAL != 0) {
+            return (long) avg;
+        }
+        long bytes = measure(row);
+        avgRowBytes = avg <= 0 ? bytes : avg + (bytes - avg) * SAMPLE_WEIGHT;
+        return bytes;
+    }
+
+    /**
+     * 批次写入完成反馈
+     * @param rows 批次行数（只有满批的低延迟才增大，避免分片尾部小批次误导）
+     * @param latencyMs 从发送到目标确认的耗时
+     */
+    public synchronized void onBatchComplete(int rows, long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            decrease("latency " + latencyMs + " ms");
+        } else if (rows >= currentSize && currentSize < maxSize) {
+            currentSize = Math.min(maxSize, currentSize + increment);
+        }
+    }
+
+    /**
+     * 目标端限流或过载
+     */
+    public synchronized void onRejected() {
+        decrease("target rejected batch");
+    }
+
+    private void decrease(String reason) {
+        long now = System.nanoTime();
+        // 减半后已在途的批次仍会反馈旧的高延迟，一个目标延迟窗口内只减一次
+        if (lastDecreaseNanos != 0 && now - lastDecreaseNanos < TimeUnit.MILLISECONDS.toNanos(targetLatencyMs)) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        int previous = currentSize;
+        currentSize = Math.max(minSize, currentSize / 2);
+        if (currentSize != previous) {
+            log.info("Batch size {} -> {} ({})", previous, currentSize, reason);
+        }
+    }
+
+    private long measure(Object row) {
+        if (row == null) {
+            return VALUE_OVERHEAD;
+        }
+        long bytes = 0;
+        for (Field field : fields(row.getClass())) {
+            try {
+                bytes += field.getName().length() + VALUE_OVERHEAD + valueBytes(field.get(row));
+            } catch (IllegalAccessException e) {
+                bytes += VALUE_OVERHEAD;
+            }
+        }
+        return Math.max(1, bytes);
+    }
+
+    private static long valueBytes(Object value) {
+        if (value == null) {
+            return VALUE_OVERHEAD;
+        }
+        if (value instanceof CharSequence) {
+            // 只在抽样行上编码，开销可忽略
+            return value.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).precision() + 2;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 8;
+        }
+        if (value instanceof Date) {
+            return 24;
+        }
+        return value.toString().length();
+    }
+
+    private List<Field> fields(Class<?> type) {
+        return fieldCache.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+}
@@ -1,5 +1,16 @@
 package kd.data.core.core;
+import kd.data.core.coordinator.CoalescingCheckpointCoordinator;
 import kd.data.core.coordinator.DistributedCoordinator;
+import kd.data.core.coordinator.LockGrant;
+import kd.data.core.coordinator.LockLease;
+import kd.data.core.coordinator.LockRenewalService;
+import kd.data.core.coordinator.ShardQueueCoordinator;
+import kd.data.core.customer.BatchConsumerService;
+import kd.data.core.customer.CheckpointAwareConsumer;
+import kd.data.core.customer.LoadContext;
+import kd.data.core.customer.LoadLifecycleAware;
+import kd.data.core.customer.TargetProgressAware;
+import kd.data.core.deadletter.DeadLetterStore;
 import kd.data.core.send.DataAccessor;
 import kd.data.core.model.enums.Status;
 import kd.data.core.exception.SyncException;
@@ -10,11 +21,14 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.constraints.NotNull;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
@@ -32,6 +46,12 @@ import java.util.function.Consumer;
 @Slf4j
 public class BigDataSyncTool<T> {
 
+    /** 批量加锁每次往返的最大分片数 */
+    private static final int LOCK_BATCH_SIZE = 1000;
+    /** 逐分片加锁模式下锁超时为续期间隔的倍数，节点失效后其分片在该时间内可被接手 */
+    private static final int LOCK_TIMEOUT_RENEWALS = 3;
+    /** 任务级锁的持有超时与最长等待时间（秒） */
+    private static final int TASK_LOCK_SECONDS = 60;
 
     @Setter
     private Runnable onCompleteCallback;
@@ -42,9 +62,33 @@ public class BigDataSyncTool<T> {
     private final DataAccessor<T> dataAccessor;
     private final Consumer<List<T>> batchConsumer;
     private final DistributedCoordinator coordinator;
-    @Getter
+    /** 合并写入检查点时为 coordinator 本身，否则为空 */
+    private final CoalescingCheckpointCoordinator checkpointWriter;
+    /** 本任务持有的全部分片锁统一续期 */
+    private final LockRenewalService lockRenewalService;
+    /** 从协调器的分片工作队列领取分片时为 coordinator 本身，否则为空 */
+    private final ShardQueueCoordinator shardQueue;
+    /** 队列模式下本节点各分片的失败次数 */
+    private final Map<Integer, AtomicInteger> shardAttempts = new ConcurrentHashMap<>();
+    /** 已按窗口获取、尚未开始处理的分片锁 */
+    private final Map<Integer, PrelockedShard> prelockedShards = new ConcurrentHashMap<>();
+
+    private static final class PrelockedShard {
+        final LockLease lease;
+        final LockGrant grant;
+
+        PrelockedShard(LockLease lease, LockGrant grant) {
+            this.lease = lease;
+            this.grant = grant;
+        }
+    }
     private final SyncStats stats = new SyncStats();
     private final ExecutorService executor;
+    @Getter
+    private final DeadLetterStore deadLetterStore;
+    private final CircuitBreaker circuitBreaker;
+    /** 分片数确定后按需创建 */
+    private volatile ConcurrencyTuner concurrencyTuner;
 
     private final String taskId;
 
@@ -56,13 +100,56 @@ public class BigDataSyncTool<T> {
         this.config = config;
         this.dataAccessor = dataAccessor;
         this.batchConsumer = batchConsumer;
-        this.coordinator = coordinator;
+        this.checkpointWriter = config.getCheckpointFlushIntervalMs() > 0
+                ? new CoalescingCheckpointCoordinator(taskId, coordinator,
+                        config.getCheckpointFlushIntervalMs(), config.getCheckpointFlushBatches())
+                : null;
+        this.coordinator = checkpointWriter != null ? checkpointWriter : coordinator;
+        this.shardQueue = config.isShardQueueEnabled() && this.coordinator instanceof ShardQueueCoordinator
+                && ((ShardQueueCoordinator) this.coordinator).supportsShardQueue()
+                ? (ShardQueueCoordinator) this.coordinator : null;
+        if (config.isShardQueueEnabled() && shardQueue == null) {
+            log.warn("Coordinator {} does not support shard queue, falling back to per-shard locking",
+                    coordinator.getClass().getSimpleName());
+        }
+        // 队列模式下分片锁即租约，超时较短以便尽快回收失效节点的分片
+        this.lockRenewalService = shardQueue != null
+                ? new LockRenewalService(taskId, this.coordinator, config.getShardLeaseSeconds(),
+                        Math.max(1, config.getShardLeaseSeconds() / 3))
+                : new LockRenewalService(taskId, this.coordinator,
+                        shardLockSeconds(), config.getLockRenewInterval());
+        this.deadLetterStore = new DeadLetterStore(Paths.get(config.getDeadLetterDir()), taskId);
+        this.circuitBreaker = config.isCircuitBreakerEnabled()
+                ? new CircuitBreaker(taskId, config.getCircuitFailureThreshold(),
+                        config.getCircuitOpenMs(), config.getCircuitMaxOpenMs())
+                : null;
+
+        // 多目标扇出时各目标进度与分片检查点存放在同一协调器
+        if (batchConsumer instanceof TargetProgressAware) {
+            ((TargetProgressAware) batchConsumer).bindProgressStore(this.coordinator);
+        }
 
         dataAccessor.init(config);
         this.executor = createExecutor();
     }
 
 
+    public SyncStats getStats() {
+        if (batchConsumer instanceof BatchConsumerService) {
+            stats.getTargetBytesSent().putAll(((BatchConsumerService<?>) batchConsumer).getBytesSent());
+            stats.getTargetRecordsWritten().putAll(((BatchConsumerService<?>) batchConsumer).getRecordsWritten());
+        }
+        if (circuitBreaker != null) {
+            stats.getCircuitBreakerTrips().set(circuitBreaker.getTrips());
+        }
+        ConcurrencyTuner tuner = concurrencyTuner;
+        if (tuner != null) {
+            stats.getActiveShardLimit().set(tuner.getLimit());
+            stats.getThroughputRecordsPerSec().set((long) tuner.getThroughput());
+        }
+        return stats;
+    }
+
     public void startCallBackSync() {
         try {
             startSync();
@@ -81,6 +168,8 @@ public class BigDataSyncTool<T> {
         stats.setStartTime(startTime);
         stats.setStatus(Status.RUNNING);
         stats.setTaskId(taskId);
+        boolean loadStarted = false;
+        LoadContext loadContext = null;
         try {
             long totalRecords = dataAccessor.countRecords();
             stats.setTotalRecords(totalRecords);
@@ -92,20 +181,45 @@ public class BigDataSyncTool<T> {
             }
 
             int shardCount = calculateShardCount(totalRecords);
+            if (shardQueue != null) {
+                // 加入已有队列时沿用其分片数，各节点的分片边界保持一致
+                shardCount = shardQueue.initShardQueue(taskId, shardCount);
+            }
             stats.setShardCount(shardCount);
 
             log.info("Starting sync of {} records using {} shards", totalRecords, shardCount);
 
-            ShardProcessor<T> shardProcessor = new ShardProcessor<>(config, batchConsumer, stats,coordinator);
+            // 目标端加载前准备（如关闭索引刷新），结束时在 finally 中恢复
+            if (batchConsumer instanceof LoadLifecycleAware) {
+                loadStarted = true;
+                loadContext = new TaskLoadContext(shardCount);
+                ((LoadLifecycleAware) batchConsumer).beforeLoad(loadContext);
+            }
+
+            if (checkpointWriter != null) {
+                checkpointWriter.start();
+            }
+            lockRenewalService.start();
+
+            if (config.isAutoTuneConcurrency()) {
+                concurrencyTuner = createConcurrencyTuner(shardCount);
+                concurrencyTuner.start();
+            }
+
+            ShardProcessor<T> shardProcessor = new ShardProcessor<>(config, batchConsumer, stats, coordinator,
+                    deadLetterStore, circuitBreaker, concurrencyTuner);
 
             List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-            for (int shardId = 0; shardId < shardCount; shardId++) {
-                final int currentShard = shardId;
-                futures.add(CompletableFuture.runAsync(
-                        () -> processShard(currentShard, shardCount, shardProcessor),
-                        executor
-                ));
+            final int totalShards = shardCount;
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getGlobalTimeout());
+            if (shardQueue != null) {
+                int workers = Math.max(1, Math.min(config.getCorePoolSize(), totalShards));
+                for (int i = 0; i < workers; i++) {
+                    futures.add(CompletableFuture.runAsync(() -> pullShards(totalShards, shardProcessor), executor));
+                }
+            } else {
+                futures.addAll(processShardWindows(totalShards, shardProcessor, deadline));
             }
 
             CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
@@ -113,7 +227,11 @@ public class BigDataSyncTool<T> {
                         log.warn("Global completion exception", ex);
                         throw new SyncException("Global completion exception",ex);
                     })
-                    .get(config.getGlobalTimeout(), TimeUnit.SECONDS);
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (stats.getAbandonedShards().get() > 0) {
+                throw new SyncException(stats.getAbandonedShards().get() + " shards failed after "
+                        + config.getShardMaxAttempts() + " attempts");
+            }
 
         } catch (TimeoutException e) {
             stats.setStatus(Status.TIMEOUT);
@@ -134,7 +252,19 @@ public class BigDataSyncTool<T> {
             throw new SyncException("Sync failed", e);
         }finally {
             executor.shutdown();
+            if (concurrencyTuner != null) {
+                concurrencyTuner.close();
+            }
+            releasePrelockedShards();
+            lockRenewalService.close();
+            closeCheckpointWriter();
             dataAccessor.close();
+            if (loadStarted) {
+                // 队列模式下失败的分片会重试，以是否有分片放弃为准
+                boolean success = !userStopped && stats.getStatus() == Status.RUNNING
+                        && (shardQueue != null ? stats.getAbandonedShards().get() == 0 : stats.getFailedShards().get() == 0);
+                ((LoadLifecycleAware) batchConsumer).afterLoad(loadContext, success);
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             stats.setDuration(duration);
@@ -156,143 +286,286 @@ public class BigDataSyncTool<T> {
     }
 
 
-    private void processShard(int shardId, int totalShards, ShardProcessor<T> processor) {
+    /**
+     * 从分片工作队列循环领取分片，直到队列中没有待处理与处理中的分片；
+     * 其他节点仍在处理时继续轮询，以便接手租约过期的分片。
+     * 分片失败不结束本工作线程：放回队列稍后重试，本节点失败达到上限后移出队列；协调器暂时不可用时等待后重试
+     */
+    private void pullShards(int totalShards, ShardProcessor<T> processor) {
+        while (!userStopped) {
+            int shardId;
+            try {
+                shardId = shardQueue.claimShard(taskId, lockKeyPrefix(), config.getShardLeaseSeconds());
+                if (shardId >= 0 && processQueuedShard(shardId, totalShards, processor)) {
+                    continue;
+                }
+                if (shardId < 0 && shardQueue.remainingShards(taskId) == 0) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.warn("Shard queue of {} unavailable, retry after {} ms: {}",
+                        taskId, config.getShardQueuePollMs(), e.getMessage());
+            }
+            try {
+                Thread.sleep(config.getShardQueuePollMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SyncException("Interrupted while polling shard queue", e);
+            }
+        }
+    }
+
+    /**
+     * @return 是否处理完成；失败时放回队列或在达到重试上限后移出队列
+     */
+    private boolean processQueuedShard(int shardId, int totalShards, ShardProcessor<T> processor) {
+        try {
+            return processShard(shardId, totalShards, processor);
+        } catch (Exception e) {
+            int attempts = shardAttempts.computeIfAbsent(shardId, k -> new AtomicInteger()).incrementAndGet();
+            if (attempts < config.getShardMaxAttempts()) {
+                log.warn("Shard {} failed (attempt {}/{}), returned to queue: {}",
+                        shardId, attempts, config.getShardMaxAttempts(), e.getMessage());
+                shardQueue.returnShard(taskId, shardId);
+            } else {
+                log.error("Shard {} failed {} times, removed from queue and resumes from its checkpoint next run",
+                        shardId, attempts, e);
+                stats.abandonShard();
+                shardQueue.completeShard(taskId, shardId);
+            }
+            return false;
+        }
+    }
+
+    private String lockKeyPrefix() {
+        return taskId + ":" + "shard_";
+    }
+
+    /**
+     * 分片完成标记，与分片检查点一起写入，供判断任务全部分片是否完成
+     */
+    private String completionKey(int shardId) {
+        return taskId + ":done:shard_" + shardId;
+    }
+
+    /**
+     * @return 是否获取到分片锁并处理完成
+     */
+    private boolean processShard(int shardId, int totalShards, ShardProcessor<T> processor) {
 
 
-        String lockKey = taskId +":"+"shard_" + shardId;
+        String lockKey = lockKeyPrefix() + shardId;
 
-        if (!coordinator.tryLock(lockKey, config.getLockTimeout())) {
+        long fencingToken = coordinator.tryLockFenced(lockKey,
+                shardQueue != null ? config.getShardLeaseSeconds() : shardLockSeconds());
+        if (fencingToken == DistributedCoordinator.NOT_ACQUIRED) {
+            if (shardQueue != null) {
+                log.warn("Shard {} still locked by a previous holder, returned to queue", shardId);
+                shardQueue.returnShard(taskId, shardId);
+                return false;
+            }
             log.error("Shard {} skipped (already processing) ", shardId);
             stats.incrementSkippedShards();
-            return;
+            return false;
         }
 
-        LockRenewalService renewalService = null;
-        try {
-            // 启动带生命周期的续期服务
-            renewalService = new LockRenewalService(coordinator, lockKey, config);
-            renewalService.start();
+        return runShard(shardId, totalShards, processor, lockRenewalService.register(lockKey, fencingToken), null);
+    }
+
+    /**
+     * 分窗口加锁并处理：每个窗口的分片数约等于空闲的执行线程数，一次往返获取锁并读取检查点后提交处理；
+     * 分片结束（完成、失败或被跳过）归还槽位，再获取下一窗口。未轮到的分片不提前持有锁，
+     * 其他节点可以领取，本节点失效时也只有正在处理的分片需要等待锁超时
+     * @return 已提交分片的处理结果
+     */
+    private List<CompletableFuture<Void>> processShardWindows(int totalShards, ShardProcessor<T> processor,
+                                                              long deadline)
+            throws InterruptedException, TimeoutException {
+        Semaphore slots = new Semaphore(Math.max(1, Math.min(config.getCorePoolSize(), totalShards)));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int next = 0;
+        while (next < totalShards && !userStopped) {
+            if (!slots.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Timed out waiting for free shard slots");
+            }
+            int held = 1 + slots.drainPermits();
+            int window = Math.min(held, Math.min(LOCK_BATCH_SIZE, totalShards - next));
+            slots.release(held - window);
+
+            List<Integer> locked = lockWindow(next, window);
+            next += window;
+            // 未获取到锁的分片不占用槽位
+            slots.release(window - locked.size());
+            for (int shardId : locked) {
+                final int currentShard = shardId;
+                try {
+                    futures.add(CompletableFuture
+                            .runAsync(() -> processPrelockedShard(currentShard, totalShards, processor), executor)
+                            .whenComplete((v, ex) -> slots.release()));
+                } catch (RejectedExecutionException e) {
+                    // 已停止：未提交的分片锁在结束时统一释放
+                    log.warn("Shard {} not submitted, sync is stopping", currentShard);
+                    return futures;
+                }
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 一次往返获取连续若干分片的锁并读取检查点，已被其他节点持有的分片跳过
+     * @return 获取到锁的分片ID
+     */
+    private List<Integer> lockWindow(int firstShard, int count) {
+        List<String> lockKeys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lockKeys.add(lockKeyPrefix() + (firstShard + i));
+        }
+        Map<String, LockGrant> grants = coordinator.tryLockAll(lockKeys, shardLockSeconds());
+        List<Integer> locked = new ArrayList<>(grants.size());
+        for (int i = 0; i < count; i++) {
+            int id = firstShard + i;
+            LockGrant grant = grants.get(lockKeys.get(i));
+            if (grant == null) {
+                log.error("Shard {} skipped (already processing) ", id);
+                stats.incrementSkippedShards();
+                continue;
+            }
+            LockLease lease = lockRenewalService.register(grant.getLockKey(), grant.getFencingToken());
+            prelockedShards.put(id, new PrelockedShard(lease, grant));
+            locked.add(id);
+        }
+        return locked;
+    }
+
+    /**
+     * 逐分片加锁模式的锁超时：持有期间定期续期，不超过配置的锁超时
+     */
+    private int shardLockSeconds() {
+        return Math.min(config.getLockTimeout(), Math.max(1, config.getLockRenewInterval()) * LOCK_TIMEOUT_RENEWALS);
+    }
+
+    private boolean processPrelockedShard(int shardId, int totalShards, ShardProcessor<T> processor) {
+        // 任务已结束时锁已释放，不再处理
+        PrelockedShard prelocked = prelockedShards.remove(shardId);
+        if (prelocked == null) {
+            return false;
+        }
+        return runShard(shardId, totalShards, processor, prelocked.lease, prelocked.grant);
+    }
+
+    /**
+     * 释放未开始处理的分片锁（任务失败、超时或停止时）
+     */
+    private void releasePrelockedShards() {
+        for (Integer shardId : new ArrayList<>(prelockedShards.keySet())) {
+            PrelockedShard prelocked = prelockedShards.remove(shardId);
+            if (prelocked == null) {
+                continue;
+            }
+            lockRenewalService.unregister(prelocked.lease);
+            try {
+                coordinator.unlock(prelocked.lease.getLockKey());
+            } catch (Exception e) {
+                log.warn("Release unprocessed shard {} failed: {}", shardId, e.getMessage());
+            }
+        }
+    }
 
-            String checkpoint = coordinator.loadCheckpoint(lockKey);
+    /**
+     * 在已持有锁的前提下处理分片，结束时释放锁
+     * @param grant 批量加锁时读取的检查点，为空时从协调器读取
+     */
+    private boolean runShard(int shardId, int totalShards, ShardProcessor<T> processor,
+                             LockLease lease, LockGrant grant) {
+        String lockKey = lease.getLockKey();
+        try {
+            String checkpoint = loadCheckpoint(lockKey, grant);
             log.info("Processing shard {} from checkpoint: {}", shardId, checkpoint);
 
-            processor.processShard(lockKey,shardId, totalShards, checkpoint, dataAccessor);
+            processor.processShard(lockKey,shardId, totalShards, checkpoint, dataAccessor, lease);
+            // 有目标在本分片中途被摘除时分片失败，不推进分片检查点
+            if (batchConsumer instanceof TargetProgressAware) {
+                ((TargetProgressAware) batchConsumer).finishShard(lockKey);
+            }
+            if (lease.isLost()) {
+                throw new SyncException("Shard lock lost before completion: " + lockKey);
+            }
             String maxCheckpointInShard = dataAccessor.getMaxCheckpointInShard(shardId, totalShards);
-            coordinator.saveCheckpoint(lockKey, maxCheckpointInShard);
+            if (!coordinator.saveCheckpoint(lockKey, maxCheckpointInShard, lease)
+                    || !coordinator.saveCheckpoint(completionKey(shardId), maxCheckpointInShard, lease)) {
+                throw new SyncException("Shard lock lost before completion: " + lockKey);
+            }
+            // 分片完成前强制写入，确认完成的分片不会因崩溃而重做
+            if (checkpointWriter != null) {
+                checkpointWriter.flush();
+            }
+            if (shardQueue != null) {
+                shardQueue.completeShard(taskId, shardId);
+            }
             log.info("Shard {} completed", shardId);
+            return true;
         } catch (Throwable e) {
             log.error("Shard {} failed: {}", shardId, e.getMessage());
             stats.failShard();
+            // 队列模式下由领取方决定放回还是移出队列
             throw new SyncException("Shard processing failed: " + shardId, e);
         } finally {
             // 先停止续期再释放锁（关键顺序！）
-            if (renewalService != null) {
-                renewalService.stop();
+            lockRenewalService.unregister(lease);
+            if (batchConsumer instanceof CheckpointAwareConsumer) {
+                ((CheckpointAwareConsumer) batchConsumer).releaseShard(lockKey);
             }
+            // 释放锁前写入已确认的进度，接手的节点从最新检查点续传；锁已丢失时本分片的待写检查点在写入时丢弃
+            flushCheckpointsQuietly(shardId, lease);
             coordinator.unlock(lockKey);
         }
     }
 
-
-    // 封装续期服务
-    private static class LockRenewalService {
-        private final ScheduledExecutorService scheduler;
-        private final LockRenewalTask task;
-
-        private final SyncConfig config;
-
-        public LockRenewalService(DistributedCoordinator coordinator,
-                                  String lockKey,
-                                  SyncConfig config) {
-            this.config = config;
-            //1. 使用自定义线程工厂
-            this.scheduler = new ScheduledThreadPoolExecutor(1,getFactory(lockKey));
-
-            //2.设置拒绝策略
-            ((ScheduledThreadPoolExecutor) this.scheduler).setRejectedExecutionHandler(
-                    new ThreadPoolExecutor.CallerRunsPolicy());
-
-            // 3. 添加取消策略（// 及时移除已取消任务）
-            ((ScheduledThreadPoolExecutor) this.scheduler).setRemoveOnCancelPolicy(true);
-
-            this.task = new LockRenewalTask(coordinator, lockKey, config);
-
+    private void flushCheckpointsQuietly(int shardId, LockLease lease) {
+        if (checkpointWriter == null) {
+            return;
         }
-
-        private static ThreadFactory getFactory(String lockKey) {
-            return new ThreadFactory() {
-                private final AtomicInteger counter = new AtomicInteger(0);
-
-                @Override
-                public Thread newThread(Runnable r) {
-                    if (r == null) {
-                        throw new SyncException("Runnable cannot be null");
-                    }
-                    Thread t = new Thread(r, "lock-renewal-" + lockKey + "-" + counter.incrementAndGet());
-                    t.setDaemon(true);  // 守护线程
-                    t.setUncaughtExceptionHandler((thread, ex) ->
-                            log.error("Thread {} failed: {}", thread.getName(), ex.getMessage()));
-                    return t;
-                }
-            };
+        try {
+            checkpointWriter.flush();
+        } catch (Exception e) {
+            log.warn("Shard {} checkpoint flush before unlock failed: {}", shardId, e.getMessage());
+            checkpointWriter.discard(lease);
         }
+    }
 
-        public void start() {
-            // 验证时间配置合理性
-            if (config.getLockRenewInterval() >= config.getLockTimeout() * 0.75) {
-                throw new IllegalArgumentException("续期间隔必须小于锁超时时间的75%");
-            }
-
-            scheduler.scheduleAtFixedRate(
-                    task,
-                    config.getLockRenewInterval(),
-                    config.getLockRenewInterval(),
-                    TimeUnit.SECONDS
-            );
+    private void closeCheckpointWriter() {
+        if (checkpointWriter == null) {
+            return;
         }
-
-        public void stop() {
-            scheduler.shutdownNow(); // 立即中断任务
-            try {
-                if (!scheduler.awaitTermination(3, TimeUnit.SECONDS)) {
-                    log.warn("Lock renewal thread shutdown timeout for {}", task.lockKey);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Interrupted while stopping lock renewal");
-            }
+        try {
+            checkpointWriter.close();
+        } catch (Exception e) {
+            log.error("Checkpoint flush on shutdown failed: {}", e.getMessage(), e);
         }
     }
 
-    // 续期任务增加中断处理
-    private static class LockRenewalTask implements Runnable {
-        private final DistributedCoordinator coordinator;
-        private final String lockKey;
-        private final SyncConfig config;
-
-        public LockRenewalTask(DistributedCoordinator coordinator,
-                               String lockKey, SyncConfig config) {
-            this.coordinator = coordinator;
-            this.lockKey = lockKey;
-            this.config = config;
+    /**
+     * 目标端持有检查点时以目标端为准（与数据原子提交），否则使用批量加锁时读取的检查点或读取协调器；
+     * 多目标扇出时从最慢目标的进度续传
+     */
+    private String loadCheckpoint(String lockKey, LockGrant grant) {
+        String checkpoint;
+        if (batchConsumer instanceof CheckpointAwareConsumer
+                && ((CheckpointAwareConsumer) batchConsumer).ownsCheckpoint()) {
+            checkpoint = ((CheckpointAwareConsumer) batchConsumer).loadCheckpoint(lockKey);
+        } else if (grant != null) {
+            checkpoint = grant.getCheckpoint();
+        } else {
+            checkpoint = coordinator.loadCheckpoint(lockKey);
         }
-
-        @Override
-        public void run() {
-            try {
-                if (Thread.interrupted()) {
-                    // 响应中断
-                    return;
-                }
-                if (!coordinator.renewLock(lockKey, config.getLockTimeout())) {
-                    log.error("锁续期失败: {}", lockKey);
-                }
-            } catch (Exception e) {
-                log.error("续期任务异常", e);
-            }
+        if (batchConsumer instanceof TargetProgressAware) {
+            checkpoint = ((TargetProgressAware) batchConsumer).resumeCheckpoint(lockKey, checkpoint);
         }
+        return checkpoint;
     }
 
+
     private int calculateShardCount(long totalRecords) {
         long recordsPerShard = Math.max(1, config.getRecordsPerShard());
 
@@ -334,6 +607,16 @@ public class BigDataSyncTool<T> {
         return (int) (upper / neededPerShard);
     }
 
+    /**
+     * 分片在核心线程上运行（队列未满前不会扩容），并发上限不超过核心线程数与分片数
+     */
+    private ConcurrencyTuner createConcurrencyTuner(int shardCount) {
+        int max = config.getMaxActiveShards() > 0 ? config.getMaxActiveShards() : config.getCorePoolSize();
+        max = Math.max(1, Math.min(max, shardCount));
+        return new ConcurrencyTuner(taskId, config.getInitialActiveShards(), config.getMinActiveShards(),
+                max, config.getConcurrencyTuneIntervalMs());
+    }
+
     private ExecutorService createExecutor() {
         return new ThreadPoolExecutor(
                 config.getCorePoolSize(),
@@ -356,6 +639,94 @@ public class BigDataSyncTool<T> {
         log.info("============================");
     }
 
+    /**
+     * 任务级加载上下文：任务状态与任务锁存放在协调器，各节点按同一任务ID共享
+     */
+    private final class TaskLoadContext implements LoadContext {
+
+        private final int shardCount;
+
+        TaskLoadContext(int shardCount) {
+            this.shardCount = shardCount;
+        }
+
+        @Override
+        public String getTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public int getShardCount() {
+            return shardCount;
+        }
+
+        @Override
+        public <R> R withTaskLock(String name, Supplier<R> action) {
+            String lockKey = taskId + ":lock:" + name;
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TASK_LOCK_SECONDS);
+            while (!coordinator.tryLock(lockKey, TASK_LOCK_SECONDS)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new SyncException("Timed out waiting for task lock: " + lockKey);
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SyncException("Interrupted while waiting for task lock: " + lockKey, e);
+                }
+            }
+            try {
+                return action.get();
+            } finally {
+                coordinator.unlock(lockKey);
+            }
+        }
+
+        @Override
+        public String getTaskValue(String name) {
+            return coordinator.loadCheckpoint(taskKey(name));
+        }
+
+        @Override
+        public void setTaskValue(String name, String value) {
+            if (value == null) {
+                coordinator.deleteCheckpoint(taskKey(name));
+            } else {
+                coordinator.saveCheckpoint(taskKey(name), value);
+            }
+            if (checkpointWriter != null) {
+                checkpointWriter.flush();
+            }
+        }
+
+        @Override
+        public void resetShardProgress() {
+            for (int shardId = 0; shardId < shardCount; shardId++) {
+                String lockKey = lockKeyPrefix() + shardId;
+                coordinator.deleteCheckpoint(lockKey);
+                coordinator.deleteCheckpoint(completionKey(shardId));
+                if (batchConsumer instanceof TargetProgressAware) {
+                    ((TargetProgressAware) batchConsumer).resetProgress(lockKey);
+                }
+            }
+            log.info("Task {} shard progress reset ({} shards)", taskId, shardCount);
+        }
+
+        @Override
+        public boolean allShardsCompleted() {
+            for (int shardId = 0; shardId < shardCount; shardId++) {
+                if (coordinator.loadCheckpoint(completionKey(shardId)) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String taskKey(String name) {
+            return taskId + ":state:" + name;
+        }
+    }
+
     static class SyncThreadFactory implements ThreadFactory {
         private final AtomicInteger counter = new AtomicInteger(0);
 
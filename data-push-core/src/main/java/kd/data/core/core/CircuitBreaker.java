@@ -0,0 +1,160 @@
+package kd.data.core.core;
+
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 目标端熔断器
+ * 同一任务的所有分片共享：连续瞬时失败达到阈值后打开，打开期间所有分片等待而不是各自重试；
+ * 打开时间到后只放行一个试探批次，成功则关闭，失败则以抖动后的更长时间再次打开
+ *
+ * @author gaozw
+ * @date 2026/10/19 21:10
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class CircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+    private final long maxOpenMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicLong trips = new AtomicLong();
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    /** 连续打开次数，决定下一次打开时长 */
+    private int openCount;
+    private long openUntilNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs, long maxOpenMs) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = Math.max(1, openMs);
+        this.maxOpenMs = Math.max(this.openMs, maxOpenMs);
+    }
+
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * 等待放行：关闭时直接返回；打开时等待到期后争取试探资格，试探进行中则等待其结果
+     * @param deadlineNanos 最晚等待到的时间点（System.nanoTime）
+     */
+    public void awaitPermission(long deadlineNanos) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (state == State.CLOSED) {
+                    return;
+                }
+                if (state == State.OPEN && now - openUntilNanos >= 0) {
+                    state = State.HALF_OPEN;
+                }
+                if (state == State.HALF_OPEN && !probeInFlight) {
+                    probeInFlight = true;
+                    log.info("Circuit {} half-open, sending trial batch", name);
+                    return;
+                }
+                long remaining = deadlineNanos - now;
+                if (remaining <= 0) {
+                    throw new SyncException("Timed out waiting for circuit " + name + " to close");
+                }
+                long wait = state == State.OPEN ? Math.min(remaining, openUntilNanos - now) : remaining;
+                changed.awaitNanos(Math.max(1, wait));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for circuit " + name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                log.info("Circuit {} closed after successful trial batch", name);
+                state = State.CLOSED;
+                openCount = 0;
+                probeInFlight = false;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次瞬时失败
+     */
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                open();
+            } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 试探方未得到结果就放弃（如确定性失败）时归还试探资格
+     */
+    public void releaseProbe() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probeInFlight) {
+                probeInFlight = false;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTrips() {
+        return trips.get();
+    }
+
+    private void open() {
+        long base = Math.min(maxOpenMs, openMs << Math.min(openCount, 20));
+        // 抖动避免各任务同一时刻恢复请求
+        long duration = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        openCount++;
+        consecutiveFailures = 0;
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+        trips.incrementAndGet();
+        log.warn("Circuit {} opened for {} ms, all shards pause", name, duration);
+        changed.signalAll();
+    }
+}
@@ -0,0 +1,240 @@
+package kd.data.core.core;
+
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分片并发自调
+ * 分片每读取并发送一个批次前需获得许可，许可上限即同时处理的分片数。
+ * 周期性统计已确认记录吞吐与源端读取、目标端写入的平均延迟，爬山调整上限：
+ * 吞吐提升则沿当前方向继续；吞吐下降或延迟明显恶化则反向；增加分片不再提升吞吐时回退一步并保持，
+ * 保持若干周期后再向上试探，以适应负载变化
+ *
+ * @author gaozw
+ * @date 2026/10/19 21:50
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class ConcurrencyTuner implements Closeable {
+
+    /** 吞吐变化超过该比例才视为提升或下降 */
+    private static final double MIN_GAIN = 0.05;
+    /** 延迟超过上一周期该倍数视为恶化 */
+    private static final double LATENCY_TOLERANCE = 1.5;
+    /** 保持多少个周期后向上试探 */
+    private static final int HOLD_ROUNDS = 6;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long intervalMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int limit;
+    private int active;
+
+    private final LongAdder ackedRecords = new LongAdder();
+    private final LongAdder sourceMs = new LongAdder();
+    private final LongAdder sourceSamples = new LongAdder();
+    private final LongAdder targetMs = new LongAdder();
+    private final LongAdder targetSamples = new LongAdder();
+
+    /** 以下仅在调节线程中访问 */
+    private double lastThroughput = -1;
+    private double lastSourceLatency;
+    private double lastTargetLatency;
+    private int direction = 1;
+    private int holdRounds;
+    private volatile double throughput;
+
+    private ScheduledExecutorService scheduler;
+
+    public ConcurrencyTuner(String name, int initialLimit, int minLimit, int maxLimit, long intervalMs) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.intervalMs = Math.max(100, intervalMs);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "concurrency-tuner-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tuneSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Concurrency tuner {} started with {} active shards, range [{}, {}]", name, limit, minLimit, maxLimit);
+    }
+
+    /**
+     * 获取处理许可，超过当前上限时阻塞
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            while (active >= limit) {
+                released.await();
+            }
+            active++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for shard concurrency permit", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 未超过当前上限时获取许可，不阻塞
+     * @return 是否获得许可
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (active >= limit) {
+                return false;
+            }
+            active++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            active = Math.max(0, active - 1);
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 源端读取一个批次的耗时
+     */
+    public void recordSourceLatency(long ms) {
+        sourceMs.add(ms);
+        sourceSamples.increment();
+    }
+
+    /**
+     * 目标端确认一个批次
+     */
+    public void recordTargetBatch(int records, long ms) {
+        ackedRecords.add(records);
+        targetMs.add(ms);
+        targetSamples.increment();
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 最近一个周期的吞吐（记录/秒）
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    private void tuneSafely() {
+        try {
+            tune();
+        } catch (Exception e) {
+            log.warn("Concurrency tuning of {} failed: {}", name, e.getMessage());
+        }
+    }
+
+    private void tune() {
+        long records = ackedRecords.sumThenReset();
+        double sourceLatency = average(sourceMs.sumThenReset(), sourceSamples.sumThenReset());
+        double targetLatency = average(targetMs.sumThenReset(), targetSamples.sumThenReset());
+        if (records == 0) {
+            // 无进展（如熔断等待）时不据此调整
+            return;
+        }
+        double current = records * 1000.0 / intervalMs;
+        throughput = current;
+        if (lastThroughput < 0) {
+            remember(current, sourceLatency, targetLatency);
+            move(direction);
+            return;
+        }
+
+        boolean latencyWorse = worse(sourceLatency, lastSourceLatency) || worse(targetLatency, lastTargetLatency);
+        if (current > lastThroughput * (1 + MIN_GAIN) && !latencyWorse) {
+            holdRounds = 0;
+            move(direction);
+        } else if (current < lastThroughput * (1 - MIN_GAIN) || latencyWorse) {
+            holdRounds = 0;
+            direction = -direction;
+            move(direction);
+        } else if (direction > 0) {
+            // 增加分片不再提升吞吐：回退并保持
+            direction = -1;
+            move(direction);
+        } else if (++holdRounds >= HOLD_ROUNDS) {
+            holdRounds = 0;
+            direction = 1;
+            move(direction);
+        }
+        remember(current, sourceLatency, targetLatency);
+    }
+
+    private void move(int step) {
+        lock.lock();
+        try {
+            int previous = limit;
+            limit = Math.min(maxLimit, Math.max(minLimit, limit + step));
+            if (limit != previous) {
+                log.info("Concurrency of {}: {} -> {} active shards ({} records/s)",
+                        name, previous, limit, String.format("%.0f", throughput));
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remember(double current, double sourceLatency, double targetLatency) {
+        lastThroughput = current;
+        lastSourceLatency = sourceLatency;
+        lastTargetLatency = targetLatency;
+    }
+
+    private static boolean worse(double latency, double previous) {
+        return previous > 0 && latency > previous * LATENCY_TOLERANCE;
+    }
+
+    private static double average(long total, long samples) {
+        return samples == 0 ? 0 : (double) total / samples;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -2,14 +2,30 @@ package kd.data.core.core;
 
 
 import kd.data.core.coordinator.DistributedCoordinator;
+import kd.data.core.coordinator.LockLease;
+import kd.data.core.customer.AsyncBatchConsumer;
+import kd.data.core.customer.CheckpointAwareConsumer;
+import kd.data.core.customer.CompressedBatch;
+import kd.data.core.customer.CompressedBatchConsumer;
+import kd.data.core.deadletter.DeadLetterStore;
 import kd.data.core.send.DataAccessor;
 import kd.data.core.exception.SyncException;
 import kd.data.core.model.SyncConfig;
+import kd.data.core.model.SyncContext;
 import kd.data.core.model.SyncStats;
-import kd.data.core.utils.CompressionUtil;
+import kd.data.core.model.enums.Status;
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.FailureClassifier;
 import lombok.extern.slf4j.Slf4j;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 /**
  * 分片处理器
@@ -25,29 +41,104 @@ public class ShardProcessor<T> {
     private final SyncStats stats;
 
     private final DistributedCoordinator distributedCoordinator;
-
-
+    /** 重试耗尽批次的死信存储，为空时仅记录日志 */
+    private final DeadLetterStore deadLetterStore;
+    /** 所有分片共享的目标端熔断器，为空时不熔断 */
+    private final CircuitBreaker circuitBreaker;
+    /** 所有分片共享的自适应批大小控制，为空时使用固定 batchSize */
+    private final AdaptiveBatchSizer batchSizer;
+    /** 所有分片共享的并发自调，为空时分片不受限 */
+    private final ConcurrencyTuner concurrencyTuner;
+    /** 检查点由目标端随数据原子提交，协调器不再逐批保存 */
+    private final boolean targetOwnsCheckpoint;
+    /** 超过压缩阈值的批次压缩后发送，在途期间只保留压缩字节 */
+    private final boolean compressBatches;
+    private final BlockCodec compressionCodec;
 
     public ShardProcessor(SyncConfig config,
                           Consumer<List<T>> batchConsumer,
                           SyncStats stats,
                           DistributedCoordinator distributedCoordinator) {
+        this(config, batchConsumer, stats, distributedCoordinator, null, null, null);
+    }
+
+    public ShardProcessor(SyncConfig config,
+                          Consumer<List<T>> batchConsumer,
+                          SyncStats stats,
+                          DistributedCoordinator distributedCoordinator,
+                          DeadLetterStore deadLetterStore,
+                          CircuitBreaker circuitBreaker,
+                          ConcurrencyTuner concurrencyTuner) {
         this.config = config;
+        this.deadLetterStore = deadLetterStore;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyTuner = concurrencyTuner;
+        this.batchSizer = config.isAdaptiveBatchSize() ? new AdaptiveBatchSizer(config) : null;
         this.batchConsumer = batchConsumer;
         this.stats = stats;
         this.distributedCoordinator = distributedCoordinator;
+        this.targetOwnsCheckpoint = batchConsumer instanceof CheckpointAwareConsumer
+                && ((CheckpointAwareConsumer) batchConsumer).ownsCheckpoint();
+        this.compressBatches = config.isUseCompression() && batchConsumer instanceof CompressedBatchConsumer;
+        this.compressionCodec = BlockCodec.of(config.getCompressionCodec());
+        if (config.isUseCompression() && !compressBatches) {
+            log.warn("Consumer {} does not accept compressed batches, compression disabled",
+                    batchConsumer.getClass().getSimpleName());
+        }
     }
 
     public void processShard(String lockKey,int shardId, int totalShards,
                              String checkpoint, DataAccessor<T> dataAccessor) {
+        processShard(lockKey, shardId, totalShards, checkpoint, dataAccessor, null);
+    }
+
+    /**
+     * @param lease 分片锁租约，丢失后在批次边界停止处理且不再推进检查点
+     */
+    public void processShard(String lockKey,int shardId, int totalShards,
+                             String checkpoint, DataAccessor<T> dataAccessor, LockLease lease) {
         long startTime = System.currentTimeMillis();
         stats.startShard(shardId);
 
-        try (DataAccessor.Cursor<T> cursor = dataAccessor.openCursor(shardId, totalShards, checkpoint)) {
-            List<T> buffer = new ArrayList<>(config.getBatchSize());
+        // 已发送未确认的批次，按发送顺序确认并推进检查点
+        Deque<PendingBatch<T>> inFlight = new ArrayDeque<>();
+
+        // 写入器通过线程上下文获取分片与批次检查点（事务型目标需要）
+        SyncContext context = new SyncContext(dataAccessor.getClass().getSimpleName());
+        context.setAttribute(SyncContext.LOCK_KEY, lockKey);
+        context.setAttribute(SyncContext.SHARD_ID, shardId);
+        if (lease != null) {
+            context.setAttribute(SyncContext.LOCK_LEASE, lease);
+            context.setAttribute(SyncContext.FENCING_TOKEN, lease.getFencingToken());
+        }
+        SyncContext.setCurrent(context);
+
+        // 并发许可按批次获取：读满并发送一个批次后归还，调低上限时多余分片在批次边界让出。
+        // 等待许可期间关闭游标，不占用源端连接与服务端游标，获得许可后从已发送的位置重新打开
+        boolean permitted = false;
+        DataAccessor.Cursor<T> cursor = null;
+        String resumeFrom = checkpoint;
+        try {
+            List<T> buffer = new ArrayList<>(batchCapacity());
+            long bufferBytes = 0;
             int recordsProcessed = 0;
+            long readStart = 0;
 
-            while (cursor.hasNext()) {
+            while (true) {
+                if (concurrencyTuner != null && !permitted) {
+                    if (!concurrencyTuner.tryAcquire()) {
+                        cursor = closeCursor(cursor);
+                        concurrencyTuner.acquire();
+                    }
+                    permitted = true;
+                    readStart = System.currentTimeMillis();
+                }
+                if (cursor == null) {
+                    cursor = dataAccessor.openCursor(shardId, totalShards, resumeFrom);
+                }
+                if (!cursor.hasNext()) {
+                    break;
+                }
                 T re = cursor.next();
                 stats.incrementScannedRecords();
 
@@ -57,96 +148,426 @@ public class ShardProcessor<T> {
                 }
 
                 buffer.add(re);
+                if (batchSizer != null) {
+                    bufferBytes += batchSizer.estimate(re);
+                }
 
-                if (buffer.size() >= config.getBatchSize()) {
-                    processBatch(buffer, shardId);
+                if (isBatchFull(buffer.size(), bufferBytes)) {
+                    if (concurrencyTuner != null) {
+                        concurrencyTuner.recordSourceLatency(System.currentTimeMillis() - readStart);
+                    }
+                    resumeFrom = dataAccessor.getRecordId(re);
+                    dispatchBatch(lockKey, shardId, buffer, resumeFrom, inFlight, dataAccessor);
                     recordsProcessed += buffer.size();
-                    buffer.clear();
-                    updateCheckpoint(lockKey, re, dataAccessor);
+                    // 在途批次仍持有旧缓冲区，需新建而非 clear
+                    buffer = new ArrayList<>(batchCapacity());
+                    bufferBytes = 0;
+                    if (permitted) {
+                        concurrencyTuner.release();
+                        permitted = false;
+                    }
                 }
             }
 
             if (!buffer.isEmpty()) {
-                processBatch(buffer, shardId);
+                dispatchBatch(lockKey, shardId, buffer,
+                        dataAccessor.getRecordId(buffer.get(buffer.size() - 1)), inFlight, dataAccessor);
                 recordsProcessed += buffer.size();
-                updateCheckpoint(lockKey, buffer.get(buffer.size() - 1), dataAccessor);
             }
 
+            // 等待全部在途批次确认
+            completeInFlight(lockKey, shardId, inFlight, 0, dataAccessor);
+
             stats.completeShard(shardId);
             log.info("handler::recordsProcessed:{}",recordsProcessed);
         } catch (Throwable e) {
             stats.failShard();
             log.error("processShard error {}",e.getMessage(),e);
             throw new SyncException("Shard processing failed: " + shardId, e);
+        } finally {
+            closeCursor(cursor);
+            if (permitted) {
+                concurrencyTuner.release();
+            }
+            SyncContext.clear();
         }
     }
 
-    private void processBatch(List<T> batch, int shardId) {
-        long startTime = System.currentTimeMillis();
+    /**
+     * @return 始终为 null，便于置空游标引用
+     */
+    private DataAccessor.Cursor<T> closeCursor(DataAccessor.Cursor<T> cursor) {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (Exception e) {
+                log.warn("Close cursor failed: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 分发批次：异步消费者进入在途窗口，否则同步处理后立即推进检查点
+     */
+    private void dispatchBatch(String lockKey, int shardId, List<T> batch, String checkpoint,
+                               Deque<PendingBatch<T>> inFlight, DataAccessor<T> dataAccessor) {
+        ensureLeaseHeld(lockKey);
+        // 熔断未关闭时不再异步发送，改为同步等待放行（试探批次需立即得到结果）
+        boolean paused = circuitBreaker != null && !circuitBreaker.isClosed();
+        if (!(batchConsumer instanceof AsyncBatchConsumer) || paused) {
+            // 保证检查点单调推进：先确认之前的在途批次
+            completeInFlight(lockKey, shardId, inFlight, 0, dataAccessor);
+            processBatch(batch, shardId, checkpoint, dataAccessor);
+            updateCheckpoint(lockKey, checkpoint);
+            return;
+        }
 
+        CompletableFuture<Void> future;
+        CompressedBatch<T> compressed = null;
+        int size = batch.size();
+        long sentAt = System.currentTimeMillis();
+        try {
+            bindBatchCheckpoint(checkpoint);
+            if (compressBatches && size > config.getCompressionThreshold()) {
+                compressed = ((CompressedBatchConsumer<T>) batchConsumer).compress(batch, compressionCodec);
+                stats.recordCompressedBatch(compressed.getRawBytes(), compressed.getPayload().length);
+                future = ((CompressedBatchConsumer<T>) batchConsumer).acceptCompressedAsync(compressed);
+            } else {
+                future = ((AsyncBatchConsumer<T>) batchConsumer).acceptAsync(batch);
+            }
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        if (batchSizer != null || concurrencyTuner != null) {
+            // 以目标确认时刻计算延迟，不受分片线程何时检查在途队列影响
+            future.whenComplete((v, ex) -> feedbackBatch(size, sentAt, ex));
+        }
+        // 压缩后的批次不再持有原始记录，重试或转入死信时再解压
+        inFlight.addLast(compressed != null
+                ? new PendingBatch<>(null, compressed, checkpoint, sentAt, future)
+                : new PendingBatch<>(batch, null, checkpoint, sentAt, future));
+        completeInFlight(lockKey, shardId, inFlight, Math.max(1, config.getMaxInFlightBatches()), dataAccessor);
+    }
 
-        if (config.isUseCompression() && batch.size() > config.getCompressionThreshold()) {
-            byte[] compressedBatch = CompressionUtil.compressBatch(batch);
-            processCompressedBatch(compressedBatch, shardId);
-        } else {
-            processBatchWithRetry(batch,shardId);
+    /**
+     * 按顺序确认在途批次：已完成的队首批次总是出队；在途数超过 limit 时阻塞等待队首
+     * 失败批次转入同步重试，重试耗尽时抛出异常使分片失败
+     */
+    private void completeInFlight(String lockKey, int shardId, Deque<PendingBatch<T>> inFlight, int limit,
+                                  DataAccessor<T> dataAccessor) {
+        while (!inFlight.isEmpty()) {
+            PendingBatch<T> head = inFlight.peekFirst();
+            if (inFlight.size() <= limit && !head.future.isDone()) {
+                return;
+            }
+            inFlight.pollFirst();
+
+            Exception failure = awaitBatch(head);
+            if (failure != null) {
+                processBatchWithRetry(head.records(), shardId, head.checkpoint, failure, dataAccessor);
+            } else if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+
+            stats.incrementProcessedRecords(head.size());
+            stats.recordBatchTime(shardId, System.currentTimeMillis() - head.startTime);
+            updateCheckpoint(lockKey, head.checkpoint);
+        }
+    }
+
+    private Exception awaitBatch(PendingBatch<T> pending) {
+        try {
+            pending.future.get(config.getShardTimeout(), TimeUnit.SECONDS);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for batch ack", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof Exception ? (Exception) cause : new SyncException(cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            return e;
         }
+    }
+
+    private void processBatch(List<T> batch, int shardId, String checkpoint, DataAccessor<T> dataAccessor) {
+        long startTime = System.currentTimeMillis();
+
+        // 同步写入不跨批次持有数据，无需压缩
+        processBatchWithRetry(batch, shardId, checkpoint, null, dataAccessor);
+        feedbackBatch(batch.size(), startTime, null);
 
         stats.incrementProcessedRecords(batch.size());
         stats.recordBatchTime(shardId, System.currentTimeMillis() - startTime);
     }
 
-    private void processBatchWithRetry(List<T> batch, int shardId) {
+    /**
+     * 带重试的同步处理
+     * 瞬时失败由共享熔断器计数，不消耗重试次数：熔断打开期间分片等待放行，直到 shardTimeout 仍未恢复才失败；
+     * 任务停止、线程中断或分片锁丢失时立即放弃重试（不写死信，检查点未推进，下次运行重新处理）
+     * @param checkpoint 批次提交后应推进到的检查点
+     * @param previousFailure 已发生的首次失败（异步确认失败时传入），为空表示尚未尝试
+     */
+    private void processBatchWithRetry(List<T> batch, int shardId, String checkpoint, Exception previousFailure,
+                                       DataAccessor<T> dataAccessor) {
         int retryCount = 0;
-        boolean success = false;
         long backoff = config.getRetryInitialDelay();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getShardTimeout());
+        Exception failure = previousFailure;
+        if (failure != null) {
+            recordOutcome(failure);
+        }
 
-        while (!success && retryCount <= config.getMaxRetries()) {
+        while (true) {
+            if (failure != null && config.isIsolatePoisonRecords() && FailureClassifier.isDeterministic(failure)) {
+                // 确定性失败重试无效：拆分批次写入正常记录，只隔离出错记录
+                log.warn("Batch failed deterministically (shard {}), bisecting {} records: {}",
+                        shardId, batch.size(), failure.getMessage());
+                bisect(batch, shardId, checkpoint, failure, dataAccessor, new int[1]);
+                return;
+            }
+            if (failure != null) {
+                stats.incrementRetryCount();
+                if (circuitBreaker != null && FailureClassifier.isTransient(failure)) {
+                    log.warn("Batch failed transiently (shard {}), waiting for target: {}", shardId, failure.getMessage());
+                    if (System.nanoTime() - deadline >= 0) {
+                        handleFailedBatch(batch, shardId, checkpoint, failure);
+                        throw new SyncException("Batch still failing after shard timeout", failure);
+                    }
+                } else {
+                    retryCount++;
+                    log.error("Batch processing failed (shard {}), retry {}/{}",
+                            shardId, retryCount, config.getMaxRetries(), failure);
+                    if (retryCount > config.getMaxRetries()) {
+                        handleFailedBatch(batch, shardId, checkpoint, failure);
+                        throw new SyncException("Batch processing failed after retries", failure);
+                    }
+                }
+
+                ensureRetryable(shardId);
+                waitForRetry(jitter(backoff));
+                backoff = Math.min(config.getRetryMaxDelay(), (long) (backoff * config.getRetryBackoffFactor()));
+            }
+            if (circuitBreaker != null) {
+                try {
+                    circuitBreaker.awaitPermission(deadline);
+                } catch (SyncException e) {
+                    handleFailedBatch(batch, shardId, checkpoint, failure != null ? failure : e);
+                    throw e;
+                }
+            }
             try {
+                bindBatchCheckpoint(checkpoint);
                 batchConsumer.accept(batch);
-                success = true;
-            } catch (Exception e) {
-                retryCount++;
-                stats.incrementRetryCount();
-                log.error("Batch processing failed (shard {}), retry {}/{}",
-                        shardId, retryCount, config.getMaxRetries(), e);
-                if (retryCount > config.getMaxRetries()) {
-                    handleFailedBatch(batch,shardId);
-                    throw new SyncException("Batch processing failed after retries", e);
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess();
                 }
+                return;
+            } catch (Exception e) {
+                failure = e;
+                recordOutcome(e);
+            }
+        }
+    }
 
-                waitForRetry(backoff);
-                backoff *= (long) config.getRetryBackoffFactor();
+    /**
+     * 二分写入：成功的一半直接完成，失败的一半继续拆分直到单条记录并转入死信；
+     * 拆分过程中出现瞬时失败时该部分回到正常退避重试。前半部分以其末条记录为检查点，保证检查点单调推进
+     * @param isolated 本批次已隔离的记录数，超过上限说明并非个别坏记录，放弃拆分
+     */
+    private void bisect(List<T> batch, int shardId, String checkpoint, Exception failure,
+                        DataAccessor<T> dataAccessor, int[] isolated) {
+        if (batch.size() == 1) {
+            if (++isolated[0] > config.getMaxPoisonRecordsPerBatch()) {
+                throw new SyncException("Too many rejected records in one batch (shard " + shardId
+                        + "), giving up isolation", failure);
             }
+            quarantine(batch, shardId, checkpoint, failure);
+            return;
+        }
+        int mid = batch.size() / 2;
+        List<T> first = batch.subList(0, mid);
+        List<T> second = batch.subList(mid, batch.size());
+        writeHalf(first, shardId, dataAccessor.getRecordId(first.get(mid - 1)), dataAccessor, isolated);
+        writeHalf(second, shardId, checkpoint, dataAccessor, isolated);
+    }
+
+    private void writeHalf(List<T> half, int shardId, String checkpoint, DataAccessor<T> dataAccessor,
+                           int[] isolated) {
+        try {
+            bindBatchCheckpoint(checkpoint);
+            batchConsumer.accept(half);
+        } catch (Exception e) {
+            if (FailureClassifier.isDeterministic(e)) {
+                bisect(half, shardId, checkpoint, e, dataAccessor, isolated);
+            } else {
+                processBatchWithRetry(half, shardId, checkpoint, e, dataAccessor);
+            }
+        }
+    }
+
+    private void quarantine(List<T> record, int shardId, String checkpoint, Exception failure) {
+        log.error("Record isolated (shard {}, checkpoint {}): {}", shardId, checkpoint, failure.getMessage());
+        stats.incrementQuarantinedRecords();
+        if (deadLetterStore == null) {
+            return;
+        }
+        try {
+            deadLetterStore.append(shardId, checkpoint, record, failure);
+            stats.recordDeadLetter(record.size());
+        } catch (Exception e) {
+            log.error("Write dead letter failed (shard {}): {}", shardId, e.getMessage(), e);
+        }
+    }
+
+    private boolean isBatchFull(int rows, long bytes) {
+        return batchSizer != null ? batchSizer.isFull(rows, bytes) : rows >= config.getBatchSize();
+    }
+
+    private int batchCapacity() {
+        return batchSizer != null ? batchSizer.getCurrentSize() : config.getBatchSize();
+    }
+
+    /**
+     * 目标端确认反馈：调整批大小，并计入并发自调的吞吐与写入延迟
+     */
+    private void feedbackBatch(int rows, long sentAt, Throwable failure) {
+        long latency = System.currentTimeMillis() - sentAt;
+        if (concurrencyTuner != null && failure == null) {
+            concurrencyTuner.recordTargetBatch(rows, latency);
+        }
+        if (batchSizer == null) {
+            return;
+        }
+        if (failure == null) {
+            batchSizer.onBatchComplete(rows, latency);
+        } else if (FailureClassifier.isTransient(failure)) {
+            batchSizer.onRejected();
+        }
+        stats.recordBatchSize(batchSizer.getCurrentSize(), batchSizer.getEstimatedRowBytes());
+    }
+
+    /**
+     * 瞬时失败计入熔断；其它失败说明目标端可达，只归还试探资格
+     */
+    private void recordOutcome(Exception failure) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (FailureClassifier.isTransient(failure)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.releaseProbe();
+        }
+    }
+
+    /**
+     * 退避时间加随机抖动，避免各分片同时重试
+     */
+    private static long jitter(long backoff) {
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private void updateCheckpoint(String lockKey, String checkpoint) {
+        if (targetOwnsCheckpoint) {
+            return;
+        }
+        ensureLeaseHeld(lockKey);
+        if (!distributedCoordinator.saveCheckpoint(lockKey, checkpoint, currentLease())) {
+            throw new SyncException("Shard lock lost, stop processing: " + lockKey);
         }
     }
 
-    private void processCompressedBatch(byte[] compressedBatch, int shardId) {
-        // 这里需要特殊处理压缩数据的消费者
-        // 示例：batchConsumer.accept(Collections.singletonList(compressedBatch))
-        log.info("Processing compressed batch of size {} bytes for shard {}",
-                compressedBatch.length, shardId);
+    private static LockLease currentLease() {
+        SyncContext context = SyncContext.getCurrent();
+        Object lease = context == null ? null : context.getAttribute(SyncContext.LOCK_LEASE);
+        return lease instanceof LockLease ? (LockLease) lease : null;
     }
 
-    private void updateCheckpoint(String lockKey, T re, DataAccessor<T> dataAccessor) {
-        String checkpoint = dataAccessor.getRecordId(re);
-        distributedCoordinator.saveCheckpoint(lockKey,checkpoint);
+    /**
+     * 锁已被其他节点接手时停止本分片，避免重复写入与覆盖对方检查点
+     */
+    private static void ensureLeaseHeld(String lockKey) {
+        LockLease lease = currentLease();
+        if (lease != null && lease.isLost()) {
+            throw new SyncException("Shard lock lost, stop processing: " + lockKey);
+        }
+    }
+
+    private void bindBatchCheckpoint(String checkpoint) {
+        SyncContext context = SyncContext.getCurrent();
+        if (context != null) {
+            context.setAttribute(SyncContext.BATCH_CHECKPOINT, checkpoint);
+        }
     }
 
     private boolean shouldFilter(T re,DataAccessor<T> dataAccessor) {
         return !dataAccessor.getFilterKey(re).isEmpty();
     }
 
+    /**
+     * 重试等待前检查任务是否仍可继续
+     */
+    private void ensureRetryable(int shardId) {
+        if (stats.getStatus() == Status.STOPPED || Thread.currentThread().isInterrupted()) {
+            throw new SyncException("Sync stopped, abandon retry of shard " + shardId);
+        }
+        LockLease lease = currentLease();
+        if (lease != null && lease.isLost()) {
+            throw new SyncException("Shard lock lost, abandon retry of shard " + shardId);
+        }
+    }
+
     private void waitForRetry(long millis) {
         try {
             Thread.sleep(millis);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting to retry batch", e);
         }
     }
 
-    private void handleFailedBatch(List<T> batch, int shardId) {
+    private void handleFailedBatch(List<T> batch, int shardId, String checkpoint, Exception failure) {
         log.error("Batch failed after retries (shard {}), size: {}", shardId, batch.size());
-        stats.addFailedBatch(batch);
+        if (deadLetterStore == null) {
+            return;
+        }
+        try {
+            deadLetterStore.append(shardId, checkpoint, batch, failure);
+            stats.recordDeadLetter(batch.size());
+        } catch (Exception e) {
+            // 死信写入失败不掩盖原始错误，分片照常失败
+            log.error("Write dead letter failed (shard {}): {}", shardId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在途批次
+     */
+    private static final class PendingBatch<T> {
+        private final List<T> batch;
+        private final CompressedBatch<T> compressed;
+        private final String checkpoint;
+        private final long startTime;
+        private final CompletableFuture<Void> future;
+
+        PendingBatch(List<T> batch, CompressedBatch<T> compressed, String checkpoint, long startTime,
+                     CompletableFuture<Void> future) {
+            this.batch = batch;
+            this.compressed = compressed;
+            this.checkpoint = checkpoint;
+            this.startTime = startTime;
+            this.future = future;
+        }
+
+        List<T> records() {
+            return batch != null ? batch : compressed.decode();
+        }
+
+        int size() {
+            return batch != null ? batch.size() : compressed.size();
+        }
     }
 }
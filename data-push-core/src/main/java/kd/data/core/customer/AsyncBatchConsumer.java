@@ -0,0 +1,22 @@
+package kd.data.core.customer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 支持异步确认的批处理消费者
+ * 分片处理器据此流水线发送批次，仅在批次确认后推进检查点
+ *
+ * @author gaozw
+ * @date 2026/10/19 9:26
+ */
+public interface AsyncBatchConsumer<T> extends Consumer<List<T>> {
+
+    /**
+     * 异步消费一个批次
+     * @param batch 批次数据
+     * @return 所有目标确认后完成的 Future
+     */
+    CompletableFuture<Void> acceptAsync(List<T> batch);
+}
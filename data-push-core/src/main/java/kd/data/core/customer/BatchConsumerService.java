@@ -1,31 +1,76 @@
 package kd.data.core.customer;
 
+import kd.data.core.coordinator.DistributedCoordinator;
 import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.CheckpointingConnector;
+import kd.data.core.customer.target.CompressedBatchWriter;
+import kd.data.core.customer.target.SharedConnectorPool;
 import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetLoadHook;
 import kd.data.core.customer.target.TargetWriter;
 import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetWriteException;
+import kd.data.core.model.SyncContext;
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.CheckpointUtils;
+import kd.data.core.utils.FailureClassifier;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 /**
  *
  * 通用批处理消费者服务
  * 支持多目标路由、数据转换、异常处理
+ * 共享连接器以租约形式注册，任务结束 close 时归还而非直接关闭
+ * 多目标时扇出：每个目标一条独立通道并行写入，各自记录分片进度，
+ * 某目标失败时从该分片摘除、其余健康目标继续，分片结束时再整体标记失败。
+ * 压缩批次按各写入器能力原样发送或解压后写入
  * @author gaozw
  * @date 2025/7/23 17:57
  */
 @SuppressWarnings("unused")
 @Slf4j
-public class BatchConsumerService<T> implements Consumer<List<T>> {
+public class BatchConsumerService<T> implements CompressedBatchConsumer<T>, CheckpointAwareConsumer, LoadLifecycleAware,
+        TargetProgressAware, Closeable {
+
+    private static final int DEFAULT_LANE_CAPACITY = 4;
+    private static final int DEFAULT_LANE_MAX_RETRIES = 3;
+    private static final long DEFAULT_LANE_RETRY_BACKOFF_MS = 200L;
 
     @Getter
     private final ConsumerMetadata metadata;
     private final Map<String, TargetConnector> connectors = new HashMap<>();
     private final Map<String, TargetWriter<T>> writers = new HashMap<>();
+    private final Map<String, SharedConnectorPool.Lease<?>> leases = new HashMap<>();
+    private final Map<String, TargetLoadHook> loadHooks = new HashMap<>();
+    /** 扇出通道，首批数据到达时按已注册目标创建 */
+    private volatile Map<String, TargetLane<T>> lanes;
+    private volatile DistributedCoordinator progressStore;
+    /** 每个目标上单个分片允许排队的批次数 */
+    @Setter
+    private int laneCapacity = DEFAULT_LANE_CAPACITY;
+    /** 扇出时单个目标瞬时失败的重试次数，耗尽后才摘除该目标 */
+    @Setter
+    private int laneMaxRetries = DEFAULT_LANE_MAX_RETRIES;
+    @Setter
+    private long laneRetryBackoffMs = DEFAULT_LANE_RETRY_BACKOFF_MS;
 
     public BatchConsumerService(Class<T> entityType) {
         this.metadata = new ConsumerMetadata(entityType);
@@ -33,26 +78,401 @@ public class BatchConsumerService<T> implements Consumer<List<T>> {
 
     @Override
     public void accept(List<T> batch) {
-        writers.forEach((targetId, writer) -> {
+        if (isFanOut()) {
             try {
-                TargetConnector connector = connectors.get(targetId);
-                if (connector == null) {
-                    throw new SyncException("No connector for target: " + targetId);
+                fanOutAsync(batch, true).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof SyncException ? (SyncException) e.getCause()
+                        : new SyncException("Fan-out write failed", e.getCause());
+            }
+            return;
+        }
+        writers.forEach((targetId, writer) -> write(targetId, writer, batch));
+    }
+
+    /**
+     * 只同步写入指定目标（死信回放到当初失败的目标），未指定时同 {@link #accept(List)}
+     */
+    public void accept(List<T> batch, Collection<String> targetIds) {
+        if (targetIds == null || targetIds.isEmpty()) {
+            accept(batch);
+            return;
+        }
+        for (String targetId : targetIds) {
+            TargetWriter<T> writer = writers.get(targetId);
+            if (writer == null) {
+                throw new SyncException("No writer for target: " + targetId);
+            }
+            write(targetId, writer, batch);
+        }
+    }
+
+    private void write(String targetId, TargetWriter<T> writer, List<T> batch) {
+        try {
+            TargetConnector connector = connectors.get(targetId);
+            if (connector == null) {
+                throw new SyncException("No connector for target: " + targetId);
+            }
+            writer.write(batch, connector, metadata);
+        } catch (Exception e) {
+            log.error("Failed to write batch to {}: {}", targetId, e.getMessage(),e);
+            throw new TargetWriteException(Collections.singletonList(targetId), e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptAsync(List<T> batch) {
+        if (isFanOut()) {
+            return fanOutAsync(batch, false);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(writers.size());
+        writers.forEach((targetId, writer) -> futures.add(writeAsync(targetId, writer, batch)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 全部写入器都能原样发送 NDJSON 且元数据覆盖记录全部字段（解压无损）时直接编码为请求体，否则编码为二进制行
+     */
+    @Override
+    public CompressedBatch<T> compress(List<T> batch, BlockCodec codec) {
+        if (!batch.isEmpty() && canPassThroughNdjson(batch.get(0).getClass())) {
+            return CompressedBatch.ndjson(batch, metadata);
+        }
+        return CompressedBatch.rows(batch, codec);
+    }
+
+    private boolean canPassThroughNdjson(Class<?> recordType) {
+        if (writers.isEmpty() || !writers.values().stream().allMatch(writer -> writer instanceof CompressedBatchWriter
+                && ((CompressedBatchWriter<T>) writer).passthroughFormat() == CompressedBatch.Format.NDJSON_GZIP)) {
+            return false;
+        }
+        Set<String> mapped = new HashSet<>();
+        metadata.getFields().forEach(field -> mapped.add(field.getFieldName()));
+        for (Class<?> type = recordType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic() && !mapped.contains(field.getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> acceptCompressedAsync(CompressedBatch<T> batch) {
+        if (isFanOut()) {
+            return fanOut((lane, lockKey, context) -> lane.submit(lockKey, batch, context, false));
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(writers.size());
+        writers.forEach((targetId, writer) -> futures.add(writeAsync(targetId,
+                connector -> CompressedBatchWriter.write(writer, batch, connector, metadata))));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> writeAsync(String targetId, TargetWriter<T> writer, List<T> batch) {
+        return writeAsync(targetId, connector -> {
+            if (writer instanceof AsyncTargetWriter) {
+                return ((AsyncTargetWriter<T>) writer).writeAsync(batch, connector, metadata);
+            }
+            writer.write(batch, connector, metadata);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private CompletableFuture<Void> writeAsync(String targetId,
+                                               Function<TargetConnector, CompletableFuture<Void>> write) {
+        try {
+            TargetConnector connector = connectors.get(targetId);
+            if (connector == null) {
+                throw new SyncException("No connector for target: " + targetId);
+            }
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            write.apply(connector).whenComplete((v, ex) -> {
+                if (ex == null) {
+                    result.complete(null);
+                } else {
+                    log.error("Failed to write batch to {}: {}", targetId, ex.getMessage(), ex);
+                    result.completeExceptionally(new TargetWriteException(Collections.singletonList(targetId), ex));
                 }
-                writer.write(batch, connector, metadata);
+            });
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to write batch to {}: {}", targetId, e.getMessage(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new TargetWriteException(Collections.singletonList(targetId), e));
+            return failed;
+        }
+    }
+
+    private boolean isFanOut() {
+        return writers.size() > 1;
+    }
+
+    private CompletableFuture<Void> fanOutAsync(List<T> batch, boolean retry) {
+        return fanOut((lane, lockKey, context) -> lane.submit(lockKey, batch, context, retry));
+    }
+
+    /**
+     * 各目标通道并行写入；目标在通道内重试耗尽后，只要分片上还有健康目标即被摘除而批次视为成功。
+     * 确定性失败（与记录相关）不摘除，批次失败交由分片处理器拆分隔离坏记录，已写入的目标按检查点跳过；
+     * 全部目标失败时批次失败（交由分片处理器重试）
+     */
+    private CompletableFuture<Void> fanOut(LaneSubmission<T> submission) {
+        String key = SyncContext.currentAttribute(SyncContext.LOCK_KEY);
+        String lockKey = key == null ? "" : key;
+        SyncContext current = SyncContext.getCurrent();
+        SyncContext snapshot = current == null ? null : current.copy();
+
+        Map<String, TargetLane<T>> targetLanes = lanes();
+        Map<String, CompletableFuture<Void>> results = new LinkedHashMap<>();
+        targetLanes.forEach((targetId, lane) -> results.put(targetId, submission.submit(lane, lockKey, snapshot)));
+
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0]))
+                .handle((v, ex) -> {
+                    Map<String, Throwable> failed = new LinkedHashMap<>();
+                    results.forEach((targetId, future) -> {
+                        if (future.isCompletedExceptionally()) {
+                            failed.put(targetId, causeOf(future));
+                        }
+                    });
+                    if (failed.isEmpty()) {
+                        return null;
+                    }
+                    synchronized (this) {
+                        boolean healthy = targetLanes.entrySet().stream()
+                                .anyMatch(e -> !failed.containsKey(e.getKey()) && !e.getValue().isDetached(lockKey));
+                        boolean deterministic = failed.values().stream().anyMatch(FailureClassifier::isDeterministic);
+                        if (healthy && !deterministic) {
+                            failed.forEach((targetId, cause) -> targetLanes.get(targetId).detach(lockKey, cause));
+                            return null;
+                        }
+                    }
+                    Throwable first = failed.values().iterator().next();
+                    log.error("Failed to write batch to {}: {}", failed.keySet(), first.getMessage(), first);
+                    throw new CompletionException(new TargetWriteException(failed.keySet(), first));
+                });
+    }
+
+    private static Throwable causeOf(CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private Map<String, TargetLane<T>> lanes() {
+        Map<String, TargetLane<T>> current = lanes;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (lanes == null) {
+                Map<String, TargetLane<T>> created = new LinkedHashMap<>();
+                writers.forEach((targetId, writer) -> {
+                    TargetConnector connector = connectors.get(targetId);
+                    if (connector == null) {
+                        throw new SyncException("No connector for target: " + targetId);
+                    }
+                    TargetLane<T> lane = new TargetLane<>(targetId, writer, connector, metadata, laneCapacity,
+                            laneMaxRetries, laneRetryBackoffMs);
+                    lane.bindProgressStore(progressStore);
+                    created.put(targetId, lane);
+                });
+                lanes = created;
+            }
+            return lanes;
+        }
+    }
+
+    @Override
+    public void bindProgressStore(DistributedCoordinator coordinator) {
+        this.progressStore = coordinator;
+        Map<String, TargetLane<T>> current = lanes;
+        if (current != null) {
+            current.values().forEach(lane -> lane.bindProgressStore(coordinator));
+        }
+    }
+
+    /**
+     * 扇出时从最慢目标的进度续传，较快目标会跳过已覆盖的批次
+     */
+    @Override
+    public String resumeCheckpoint(String lockKey, String shardCheckpoint) {
+        if (!isFanOut() || progressStore == null) {
+            return shardCheckpoint;
+        }
+        String resume = null;
+        boolean fromStart = false;
+        // 逐个加载以设置各目标的已覆盖上限，任一目标无进度即需从头开始
+        for (TargetLane<T> lane : lanes().values()) {
+            String checkpoint = lane.loadCheckpoint(lockKey);
+            if (checkpoint == null) {
+                fromStart = true;
+            } else {
+                resume = resume == null ? checkpoint : CheckpointUtils.min(resume, checkpoint);
+            }
+        }
+        if (fromStart) {
+            return null;
+        }
+        return resume;
+    }
+
+    @Override
+    public void finishShard(String lockKey) {
+        Map<String, TargetLane<T>> current = lanes;
+        if (current == null) {
+            return;
+        }
+        for (Map.Entry<String, TargetLane<T>> entry : current.entrySet()) {
+            Throwable cause = entry.getValue().detachedCause(lockKey);
+            if (cause != null) {
+                throw new SyncException("Target " + entry.getKey() + " was detached from " + lockKey
+                        + ", other targets completed: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    @Override
+    public void resetProgress(String lockKey) {
+        if (!isFanOut() || progressStore == null) {
+            return;
+        }
+        lanes().values().forEach(lane -> lane.resetProgress(lockKey));
+    }
+
+    @Override
+    public boolean ownsCheckpoint() {
+        return !connectors.isEmpty() && connectors.values().stream()
+                .allMatch(c -> c instanceof CheckpointingConnector && ((CheckpointingConnector) c).ownsCheckpoint());
+    }
+
+    @Override
+    public String loadCheckpoint(String lockKey) {
+        for (TargetConnector connector : connectors.values()) {
+            if (connector instanceof CheckpointingConnector && ((CheckpointingConnector) connector).ownsCheckpoint()) {
+                return ((CheckpointingConnector) connector).loadCheckpoint(lockKey);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void releaseShard(String lockKey) {
+        Map<String, TargetLane<T>> current = lanes;
+        if (current != null) {
+            current.values().forEach(lane -> lane.releaseShard(lockKey));
+        }
+        connectors.values().forEach(connector -> {
+            if (connector instanceof CheckpointingConnector) {
+                try {
+                    ((CheckpointingConnector) connector).releaseShard(lockKey);
+                } catch (Exception e) {
+                    log.warn("Failed to release shard {} on {}: {}", lockKey, connector.getType(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void beforeLoad(LoadContext context) {
+        loadHooks.forEach((targetId, hook) -> hook.beforeLoad(context, connectors.get(targetId), metadata));
+    }
+
+    @Override
+    public void afterLoad(LoadContext context, boolean success) {
+        loadHooks.forEach((targetId, hook) -> {
+            try {
+                hook.afterLoad(context, connectors.get(targetId), metadata, success);
             } catch (Exception e) {
-                log.error("Failed to write batch to {}: {}", targetId, e.getMessage(),e);
-                throw new SyncException("Failed to write batch to "+ targetId ,e);
+                log.error("Load hook failed on {}: {}", targetId, e.getMessage(), e);
             }
         });
     }
 
+    /**
+     * 手动恢复各目标端加载钩子遗留的状态（任务未运行时调用）
+     */
+    public void recoverLoadHooks() {
+        loadHooks.forEach((targetId, hook) -> hook.recover(connectors.get(targetId), metadata));
+    }
+
     public void registerConnector(String targetId, TargetConnector connector) {
         connectors.put(targetId, connector);
     }
 
+    /**
+     * 注册共享连接器租约
+     */
+    public void registerConnector(String targetId, SharedConnectorPool.Lease<?> lease) {
+        connectors.put(targetId, lease.get());
+        leases.put(targetId, lease);
+    }
+
     public void registerWriter(String targetId, TargetWriter<T> writer) {
         writers.put(targetId, writer);
     }
 
+    public void registerLoadHook(String targetId, TargetLoadHook hook) {
+        loadHooks.put(targetId, hook);
+    }
+
+    /**
+     * 各目标已发送字节数
+     */
+    public Map<String, Long> getBytesSent() {
+        Map<String, Long> result = new HashMap<>(writers.size());
+        writers.forEach((targetId, writer) -> result.put(targetId, writer.getBytesSent()));
+        return result;
+    }
+
+    /**
+     * 各目标已写入记录数（仅扇出时统计）
+     */
+    public Map<String, Long> getRecordsWritten() {
+        Map<String, TargetLane<T>> current = lanes;
+        Map<String, Long> result = new HashMap<>();
+        if (current != null) {
+            current.forEach((targetId, lane) -> result.put(targetId, lane.getRecordsWritten()));
+        }
+        return result;
+    }
+
+    /**
+     * 任务结束：关闭扇出通道，归还共享连接器，关闭独占连接器
+     */
+    @Override
+    public void close() {
+        Map<String, TargetLane<T>> current = lanes;
+        if (current != null) {
+            current.values().forEach(TargetLane::close);
+            lanes = null;
+        }
+        connectors.forEach((targetId, connector) -> {
+            try {
+                SharedConnectorPool.Lease<?> lease = leases.get(targetId);
+                if (lease != null) {
+                    lease.close();
+                } else {
+                    connector.close();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to close connector {}: {}", targetId, e.getMessage());
+            }
+        });
+        leases.clear();
+    }
+
+    /**
+     * 向单个通道提交批次
+     */
+    @FunctionalInterface
+    private interface LaneSubmission<T> {
+        CompletableFuture<Void> submit(TargetLane<T> lane, String lockKey, SyncContext context);
+    }
+
 }
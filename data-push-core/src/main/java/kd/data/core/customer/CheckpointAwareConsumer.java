@@ -0,0 +1,29 @@
+package kd.data.core.customer;
+
+/**
+ * 感知检查点归属的消费者
+ * 目标端与数据原子提交检查点时，由消费者代替协调器提供续传检查点
+ *
+ * @author gaozw
+ * @date 2026/10/19 11:24
+ */
+public interface CheckpointAwareConsumer {
+
+    /**
+     * 是否由目标端持有检查点
+     */
+    boolean ownsCheckpoint();
+
+    /**
+     * 读取目标端检查点
+     * @param lockKey 分片锁键
+     * @return 检查点，不存在返回 null
+     */
+    String loadCheckpoint(String lockKey);
+
+    /**
+     * 分片处理结束
+     * @param lockKey 分片锁键
+     */
+    void releaseShard(String lockKey);
+}
@@ -0,0 +1,173 @@
+package kd.data.core.customer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.exception.SyncException;
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.CompressionUtil;
+import kd.data.core.utils.ReflectionUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩批次
+ * 在途与扇出队列中只持有压缩字节，写入前才解压还原为原记录类型。两种格式：
+ * 二进制行（{@link CompressionUtil}，保留记录全部字段）；全部写入器都能原样发送且元数据覆盖记录全部字段时，
+ * 使用 gzip 压缩的 NDJSON（每行一个以目标字段名为键的文档，与 http 目标 ndjson 请求体一致）
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:10
+ */
+@SuppressWarnings("unused")
+public final class CompressedBatch<T> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    /** 数值按 Long/BigDecimal 读取，毫秒时间戳与精确小数不失真 */
+    private static final ObjectMapper READER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_LONG_FOR_INTS)
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    /**
+     * 压缩格式
+     */
+    public enum Format {
+        ROWS, NDJSON_GZIP
+    }
+
+    private final Format format;
+    private final byte[] payload;
+    private final int size;
+    private final long rawBytes;
+    private final Class<?> recordType;
+    private final ConsumerMetadata metadata;
+
+    private CompressedBatch(Format format, byte[] payload, int size, long rawBytes, Class<?> recordType,
+                            ConsumerMetadata metadata) {
+        this.format = format;
+        this.payload = payload;
+        this.size = size;
+        this.rawBytes = rawBytes;
+        this.recordType = recordType;
+        this.metadata = metadata;
+    }
+
+    /**
+     * 编码为二进制行并按块压缩
+     */
+    public static <T> CompressedBatch<T> rows(List<T> batch, BlockCodec codec) {
+        byte[] frame = CompressionUtil.compressBatch(batch, codec);
+        return new CompressedBatch<>(Format.ROWS, frame, batch.size(), CompressionUtil.rawLength(frame),
+                batch.isEmpty() ? null : batch.get(0).getClass(), null);
+    }
+
+    /**
+     * 按元数据编码为 gzip 压缩的 NDJSON，要求元数据覆盖记录的全部字段（解压时按字段名还原）
+     */
+    public static <T> CompressedBatch<T> ndjson(List<T> batch, ConsumerMetadata metadata) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, batch.size() * 32));
+        long raw = 0;
+        try (OutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+            for (T item : batch) {
+                byte[] doc = OBJECT_MAPPER.writeValueAsBytes(toDocument(item, metadata));
+                gzip.write(doc);
+                gzip.write('\n');
+                raw += doc.length + 1;
+            }
+        } catch (IOException e) {
+            throw new SyncException("Compress batch failed: " + e.getMessage(), e);
+        }
+        return new CompressedBatch<>(Format.NDJSON_GZIP, out.toByteArray(), batch.size(), raw,
+                batch.isEmpty() ? null : batch.get(0).getClass(), metadata);
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 解压后的字节数
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * 解压还原为实体列表，每次调用重新解码，调用方用完即可释放
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> decode() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        if (format == Format.ROWS) {
+            return CompressionUtil.decompressBatch(payload, (Class<T>) recordType);
+        }
+        Map<String, String> fieldNames = new LinkedHashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            fieldNames.put(field.getEffectiveTargetName(), field.getFieldName());
+        }
+        List<T> records = new ArrayList<>(size);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(payload)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> document = READER.readValue(line, Map.class);
+                T entity = (T) recordType.getDeclaredConstructor().newInstance();
+                document.forEach((name, value) -> {
+                    String fieldName = fieldNames.get(name);
+                    if (fieldName != null) {
+                        ReflectionUtils.setFieldValue(entity, fieldName, value);
+                    }
+                });
+                records.add(entity);
+            }
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new SyncException("Decompress batch failed: " + e.getMessage(), e);
+        }
+        return records;
+    }
+
+    /**
+     * 日期写为毫秒，java.time 类型写为 ISO 字符串，解码时按字段类型转换
+     */
+    private static Map<String, Object> toDocument(Object item, ConsumerMetadata metadata) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            Object value = ReflectionUtils.getFieldValue(item, field.getFieldName());
+            if (value instanceof Date) {
+                value = ((Date) value).getTime();
+            } else if (value instanceof TemporalAccessor) {
+                value = value.toString();
+            }
+            document.put(field.getEffectiveTargetName(), value);
+        }
+        return document;
+    }
+}
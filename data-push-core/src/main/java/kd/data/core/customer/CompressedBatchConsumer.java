@@ -0,0 +1,28 @@
+package kd.data.core.customer;
+
+import kd.data.core.utils.BlockCodec;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 支持压缩批次的消费者
+ * 分片处理器对超过压缩阈值的批次先压缩再发送，在途期间只保留压缩字节，重试或转入死信时才解压
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:10
+ */
+public interface CompressedBatchConsumer<T> extends AsyncBatchConsumer<T> {
+
+    /**
+     * 压缩批次，由消费者按写入器能力选择格式
+     * @param codec 二进制行格式使用的块压缩算法
+     */
+    CompressedBatch<T> compress(List<T> batch, BlockCodec codec);
+
+    /**
+     * 异步消费压缩批次
+     * @return 所有目标确认后完成的 Future
+     */
+    CompletableFuture<Void> acceptCompressedAsync(CompressedBatch<T> batch);
+}
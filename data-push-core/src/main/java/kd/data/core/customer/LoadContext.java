@@ -0,0 +1,45 @@
+package kd.data.core.customer;
+
+import java.util.function.Supplier;
+
+/**
+ * 任务级加载上下文
+ * 同一任务可能在多个节点上同时运行，加载钩子通过协调器在节点间约定任务级状态（如重建索引的目标索引）、
+ * 重置分片进度并判断全部分片是否已完成
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:40
+ */
+public interface LoadContext {
+
+    String getTaskId();
+
+    int getShardCount();
+
+    /**
+     * 持有任务级分布式锁执行（跨节点互斥）
+     * @param name 锁名，任务内唯一
+     */
+    <R> R withTaskLock(String name, Supplier<R> action);
+
+    /**
+     * 读取任务级状态
+     */
+    String getTaskValue(String name);
+
+    /**
+     * 写入任务级状态并立即持久化
+     * @param value 为 null 时删除
+     */
+    void setTaskValue(String name, String value);
+
+    /**
+     * 删除任务全部分片的检查点、目标进度与完成标记，下次处理从头开始
+     */
+    void resetShardProgress();
+
+    /**
+     * 任务的全部分片（含其他节点处理的）是否均已完成
+     */
+    boolean allShardsCompleted();
+}
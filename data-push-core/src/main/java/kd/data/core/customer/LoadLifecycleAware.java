@@ -0,0 +1,24 @@
+package kd.data.core.customer;
+
+/**
+ * 感知整次加载生命周期的消费者
+ * 同步引擎在分片开始前、全部分片结束（含失败）后各调用一次
+ *
+ * @author gaozw
+ * @date 2026/10/19 15:02
+ */
+public interface LoadLifecycleAware {
+
+    /**
+     * 加载开始前（分片数已确定、尚未处理任何分片）
+     * @param context 任务级加载上下文
+     */
+    void beforeLoad(LoadContext context);
+
+    /**
+     * 加载结束后（成功、失败或停止）
+     * @param context 任务级加载上下文
+     * @param success 本节点处理的分片是否全部成功
+     */
+    void afterLoad(LoadContext context, boolean success);
+}
@@ -0,0 +1,390 @@
+package kd.data.core.customer;
+
+import kd.data.core.coordinator.DistributedCoordinator;
+import kd.data.core.coordinator.LockLease;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.CheckpointingConnector;
+import kd.data.core.customer.target.CompressedBatchWriter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetWriter;
+import kd.data.core.exception.SyncException;
+import kd.data.core.model.SyncContext;
+import kd.data.core.utils.CheckpointUtils;
+import kd.data.core.utils.FailureClassifier;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 单个目标的扇出通道
+ * 每个分片在本目标上有独立的串行队列（保证同一分片批次按序写入、按序推进检查点），
+ * 队列容量有界，满时阻塞分片线程形成背压；写入在通道线程上执行并传递分片上下文，
+ * 压缩批次在队列中保持压缩，轮到写入时才按写入器能力原样发送或解压。
+ * 瞬时失败在本通道内指数退避重试，不影响其他目标；确定性失败不重试，交由分片处理器拆分批次隔离坏记录。
+ * 某批次最终失败后本分片后续批次快速失败且不再推进检查点，直到重试前排空队列并清除失败状态
+ *
+ * @author gaozw
+ * @date 2026/10/19 19:50
+ */
+@Slf4j
+class TargetLane<T> implements Closeable {
+
+    private static final String PROGRESS_SEPARATOR = ":";
+    private static final long MAX_RETRY_BACKOFF_MS = 10_000L;
+
+    private final String targetId;
+    private final TargetWriter<T> writer;
+    private final TargetConnector connector;
+    private final ConsumerMetadata metadata;
+    private final int capacity;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final ExecutorService executor;
+    /** 退避重试调度，不占用通道线程 */
+    private final ScheduledExecutorService retryScheduler;
+    private final Map<String, ShardState> shards = new ConcurrentHashMap<>();
+    private final LongAdder recordsWritten = new LongAdder();
+    private volatile DistributedCoordinator progressStore;
+
+    /**
+     * @param maxRetries 瞬时失败在本通道内的重试次数，耗尽后批次失败（可被摘除）
+     * @param retryBackoffMs 首次重试等待时间，之后按倍数增长
+     */
+    TargetLane(String targetId, TargetWriter<T> writer, TargetConnector connector,
+               ConsumerMetadata metadata, int capacity, int maxRetries, long retryBackoffMs) {
+        this.targetId = targetId;
+        this.writer = writer;
+        this.connector = connector;
+        this.metadata = metadata;
+        this.capacity = Math.max(1, capacity);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fan-out-" + targetId + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fan-out-retry-" + targetId);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void bindProgressStore(DistributedCoordinator coordinator) {
+        this.progressStore = coordinator;
+    }
+
+    /**
+     * 目标端与数据原子提交检查点时以目标端为准，不再写协调器
+     */
+    private boolean ownsCheckpoint() {
+        return connector instanceof CheckpointingConnector && ((CheckpointingConnector) connector).ownsCheckpoint();
+    }
+
+    /**
+     * 读取本目标在分片上的检查点，并作为跳过已覆盖批次的上限
+     * @return 检查点，无进度返回 null
+     */
+    String loadCheckpoint(String lockKey) {
+        String checkpoint;
+        if (ownsCheckpoint()) {
+            checkpoint = ((CheckpointingConnector) connector).loadCheckpoint(lockKey);
+        } else {
+            DistributedCoordinator store = progressStore;
+            checkpoint = store == null ? null : store.loadCheckpoint(progressKey(lockKey));
+        }
+        shard(lockKey).covered = checkpoint;
+        return checkpoint;
+    }
+
+    /**
+     * 删除本目标在分片上的进度（目标端自行保存检查点时不处理）
+     */
+    void resetProgress(String lockKey) {
+        DistributedCoordinator store = progressStore;
+        if (!ownsCheckpoint() && store != null) {
+            store.deleteCheckpoint(progressKey(lockKey));
+        }
+    }
+
+    /**
+     * 提交批次
+     * @param context 分片上下文快照（含锁键与批次检查点）
+     * @param retry 是否为重试：先排空队列再清除失败状态
+     * @return 本目标按序完成的结果，已摘除或已覆盖的批次直接完成
+     */
+    CompletableFuture<Void> submit(String lockKey, List<T> batch, SyncContext context, boolean retry) {
+        return enqueue(lockKey, batch.size(), () -> {
+            if (writer instanceof AsyncTargetWriter) {
+                return ((AsyncTargetWriter<T>) writer).writeAsync(batch, connector, metadata);
+            }
+            writer.write(batch, connector, metadata);
+            return CompletableFuture.completedFuture(null);
+        }, context, retry);
+    }
+
+    /**
+     * 提交压缩批次
+     */
+    CompletableFuture<Void> submit(String lockKey, CompressedBatch<T> batch, SyncContext context, boolean retry) {
+        return enqueue(lockKey, batch.size(),
+                () -> CompressedBatchWriter.write(writer, batch, connector, metadata), context, retry);
+    }
+
+    private CompletableFuture<Void> enqueue(String lockKey, int size, Supplier<CompletableFuture<Void>> write,
+                                            SyncContext context, boolean retry) {
+        ShardState shard = shard(lockKey);
+        String checkpoint = batchCheckpoint(context);
+        if (shard.detachedCause != null || CheckpointUtils.isCovered(checkpoint, shard.covered)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            if (retry && shard.failure != null) {
+                // 等待本分片全部在途批次完成，失败状态不会再被旧批次改写
+                shard.permits.acquire(capacity);
+                shard.permits.release(capacity);
+                shard.failure = null;
+            }
+            shard.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for target lane: " + targetId, e);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        shard.execute(() -> run(shard, size, write, context, checkpoint, result));
+        return result;
+    }
+
+    private void run(ShardState shard, int size, Supplier<CompletableFuture<Void>> writeBatch, SyncContext context,
+                     String checkpoint, CompletableFuture<Void> result) {
+        CompletableFuture<Void> write;
+        Throwable failure = shard.failure;
+        if (failure != null) {
+            // 之前的批次已失败，后续批次不再写入
+            write = new CompletableFuture<>();
+            write.completeExceptionally(failure);
+        } else {
+            write = attempt(writeBatch, context, 0);
+        }
+
+        // 异步写入可能乱序完成，按提交顺序处理结果
+        CompletableFuture<Throwable> outcome = write.handle((v, ex) -> ex);
+        shard.tail = shard.tail
+                .thenCompose(v -> outcome)
+                .thenAccept(ex -> complete(shard, size, checkpoint, lease(context), ex, result))
+                .exceptionally(ex -> {
+                    log.error("Target lane {} completion failed: {}", targetId, ex.getMessage(), ex);
+                    return null;
+                });
+    }
+
+    /**
+     * 写入一次，瞬时失败时在重试调度线程上退避后重写（携带同一分片上下文）
+     */
+    private CompletableFuture<Void> attempt(Supplier<CompletableFuture<Void>> writeBatch, SyncContext context,
+                                            int attempt) {
+        CompletableFuture<Void> write;
+        SyncContext.setCurrent(context);
+        try {
+            write = writeBatch.get();
+        } catch (Throwable e) {
+            write = new CompletableFuture<>();
+            write.completeExceptionally(e);
+        } finally {
+            SyncContext.clear();
+        }
+        return write.handle((v, ex) -> ex).thenCompose(ex -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Throwable cause = unwrap(ex);
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            if (attempt >= maxRetries || FailureClassifier.isDeterministic(cause)) {
+                result.completeExceptionally(cause);
+                return result;
+            }
+            long delay = backoff(attempt);
+            log.warn("Target {} write failed, retry {}/{} after {} ms: {}",
+                    targetId, attempt + 1, maxRetries, delay, cause.getMessage());
+            try {
+                retryScheduler.schedule(() -> attempt(writeBatch, context, attempt + 1).whenComplete((v, retryEx) -> {
+                    if (retryEx == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(unwrap(retryEx));
+                    }
+                }), delay, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                result.completeExceptionally(cause);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 指数退避加随机抖动
+     */
+    private long backoff(int attempt) {
+        long base = Math.min(MAX_RETRY_BACKOFF_MS, retryBackoffMs << Math.min(attempt, 20));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private void complete(ShardState shard, int size, String checkpoint, LockLease lease, Throwable error,
+                          CompletableFuture<Void> result) {
+        shard.permits.release();
+        if (error == null && shard.failure == null) {
+            shard.covered = checkpoint;
+            recordsWritten.add(size);
+            saveProgress(shard.lockKey, checkpoint, lease);
+            result.complete(null);
+            return;
+        }
+        Throwable cause = error != null ? unwrap(error) : shard.failure;
+        if (shard.failure == null) {
+            shard.failure = cause;
+        }
+        result.completeExceptionally(cause);
+    }
+
+    private void saveProgress(String lockKey, String checkpoint, LockLease lease) {
+        DistributedCoordinator store = progressStore;
+        if (store == null || checkpoint == null || ownsCheckpoint()) {
+            return;
+        }
+        try {
+            // 分片锁已丢失时不写入，不覆盖接手节点的进度
+            store.saveCheckpoint(progressKey(lockKey), checkpoint, lease);
+        } catch (Exception e) {
+            // 进度落后只会导致续传时重复写入
+            log.warn("Save progress of {} on {} failed: {}", targetId, lockKey, e.getMessage());
+        }
+    }
+
+    boolean isDetached(String lockKey) {
+        ShardState shard = shards.get(lockKey);
+        return shard != null && shard.detachedCause != null;
+    }
+
+    Throwable detachedCause(String lockKey) {
+        ShardState shard = shards.get(lockKey);
+        return shard == null ? null : shard.detachedCause;
+    }
+
+    /**
+     * 摘除分片上的本目标：后续批次跳过，检查点停留在最后成功的批次
+     */
+    void detach(String lockKey, Throwable cause) {
+        ShardState shard = shard(lockKey);
+        if (shard.detachedCause != null) {
+            // 已摘除前在途的批次同样失败
+            return;
+        }
+        shard.detachedCause = cause;
+        log.error("Target {} detached from {} after {} retries, healthy targets continue: {}",
+                targetId, lockKey, maxRetries, cause.getMessage());
+    }
+
+    void releaseShard(String lockKey) {
+        shards.remove(lockKey);
+    }
+
+    long getRecordsWritten() {
+        return recordsWritten.sum();
+    }
+
+    @Override
+    public void close() {
+        retryScheduler.shutdownNow();
+        executor.shutdownNow();
+        shards.clear();
+    }
+
+    private ShardState shard(String lockKey) {
+        return shards.computeIfAbsent(lockKey, ShardState::new);
+    }
+
+    private String progressKey(String lockKey) {
+        return lockKey + PROGRESS_SEPARATOR + targetId;
+    }
+
+    private static LockLease lease(SyncContext context) {
+        Object lease = context == null ? null : context.getAttribute(SyncContext.LOCK_LEASE);
+        return lease instanceof LockLease ? (LockLease) lease : null;
+    }
+
+    private static String batchCheckpoint(SyncContext context) {
+        Object value = context == null ? null : context.getAttribute(SyncContext.BATCH_CHECKPOINT);
+        return value == null ? null : value.toString();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * 分片在本目标上的状态与串行队列
+     */
+    private final class ShardState {
+        private final String lockKey;
+        private final Semaphore permits = new Semaphore(capacity);
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        /** 本目标已完成的最大检查点（续传时为已保存的进度） */
+        private volatile String covered;
+        private volatile Throwable failure;
+        private volatile Throwable detachedCause;
+        private volatile CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        ShardState(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        /**
+         * 串行执行：同一时刻只有一个任务在运行，按入队顺序执行
+         */
+        void execute(Runnable task) {
+            queue.offer(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                while ((task = queue.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                draining.set(false);
+                // 释放标志与入队之间的竞争：可能有新任务未被调度
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package kd.data.core.customer;
+
+import kd.data.core.coordinator.DistributedCoordinator;
+
+/**
+ * 按目标记录进度的消费者（多目标扇出）
+ * 每个目标独立保存分片检查点，续传从最慢目标开始，已覆盖的批次对领先目标跳过
+ *
+ * @author gaozw
+ * @date 2026/10/19 19:45
+ */
+public interface TargetProgressAware {
+
+    /**
+     * 绑定保存目标检查点的协调器
+     */
+    void bindProgressStore(DistributedCoordinator coordinator);
+
+    /**
+     * 计算分片续传检查点
+     * @param lockKey 分片锁键
+     * @param shardCheckpoint 分片级检查点
+     * @return 实际开始读取的检查点
+     */
+    String resumeCheckpoint(String lockKey, String shardCheckpoint);
+
+    /**
+     * 分片读取完成，存在被摘除的目标时抛出异常，使分片按失败处理（健康目标已写完）
+     * @param lockKey 分片锁键
+     */
+    void finishShard(String lockKey);
+
+    /**
+     * 删除各目标在分片上的进度
+     * @param lockKey 分片锁键
+     */
+    void resetProgress(String lockKey);
+}
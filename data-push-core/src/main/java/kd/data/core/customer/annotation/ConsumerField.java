@@ -25,6 +25,6 @@ public @interface ConsumerField {
         TIMESTAMP,  // 时间戳字段
         VERSION,     // 版本字段
 
-        KEY        // KAFKA key
+        KEY        // KAFKA key / RabbitMQ routing key / Redis key
     }
 }
@@ -0,0 +1,18 @@
+package kd.data.core.customer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * rabbitmq 交换机
+ * @author gaozw
+ * @date 2026/10/19 16:20
+ */
+@SuppressWarnings("unused")
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RabbitMqExchange {
+    String value();
+}
@@ -0,0 +1,18 @@
+package kd.data.core.customer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * redis 键前缀（键为 前缀:KEY字段值）
+ * @author gaozw
+ * @date 2026/10/19 18:05
+ */
+@SuppressWarnings("unused")
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RedisKeyPrefix {
+    String value();
+}
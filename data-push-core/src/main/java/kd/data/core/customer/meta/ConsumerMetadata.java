@@ -23,14 +23,26 @@ public class ConsumerMetadata {
     private String tableName;
     private String indexName;
     private String topicName;
+    private String exchangeName;
+    private String keyPrefix;
     private String keyField;
     private final List<ConsumerFieldModel> fields = new ArrayList<>();
+    /** 实际写入的物理索引（重建索引模式下指向新版本索引），为空时写入 indexName */
+    private volatile String writeIndexName;
 
     public ConsumerMetadata(Class<?> entityType) {
         this.entityType = entityType;
         parseAnnotations();
     }
 
+    public String getWriteIndexName() {
+        return writeIndexName != null ? writeIndexName : indexName;
+    }
+
+    public void setWriteIndexName(String writeIndexName) {
+        this.writeIndexName = writeIndexName;
+    }
+
     private void parseAnnotations() {
         // 解析目标类型
         if (entityType.isAnnotationPresent(ConsumerTarget.class)) {
@@ -56,6 +68,16 @@ public class ConsumerMetadata {
             this.topicName = annotation.value();
         }
 
+        if (entityType.isAnnotationPresent(RabbitMqExchange.class)) {
+            RabbitMqExchange annotation = entityType.getAnnotation(RabbitMqExchange.class);
+            this.exchangeName = annotation.value();
+        }
+
+        if (entityType.isAnnotationPresent(RedisKeyPrefix.class)) {
+            RedisKeyPrefix annotation = entityType.getAnnotation(RedisKeyPrefix.class);
+            this.keyPrefix = annotation.value();
+        }
+
         // 解析字段注解
         for (Field field : entityType.getDeclaredFields()) {
             if (field.isAnnotationPresent(ConsumerField.class)) {
@@ -64,7 +86,8 @@ public class ConsumerMetadata {
                 fields.add(new ConsumerFieldModel(
                         field.getName(),
                         annotation.value(),
-                        annotation.role().name()
+                        annotation.role().name(),
+                        field.getType()
                 ));
                 if (annotation.role() == ConsumerField.FieldRole.KEY) {
                     this.keyField = field.getName();
@@ -86,10 +109,25 @@ public class ConsumerMetadata {
 
         private final String role;
 
+        /** 目标实体字段类型，用于派生二进制格式的 schema */
+        private final Class<?> javaType;
+
         public ConsumerFieldModel(String fieldName, String targetName, String role) {
+            this(fieldName, targetName, role, Object.class);
+        }
+
+        public ConsumerFieldModel(String fieldName, String targetName, String role, Class<?> javaType) {
             this.fieldName = fieldName;
             this.targetName = targetName;
             this.role = role;
+            this.javaType = javaType;
+        }
+
+        /**
+         * 目标字段名，未配置时使用原始字段名
+         */
+        public String getEffectiveTargetName() {
+            return (targetName == null || targetName.isEmpty()) ? fieldName : targetName;
         }
     }
 }
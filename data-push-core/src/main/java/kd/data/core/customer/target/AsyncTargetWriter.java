@@ -0,0 +1,39 @@
+package kd.data.core.customer.target;
+
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.exception.SyncException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步目标写入器接口
+ * 返回的 Future 在本批次全部数据被目标端确认后才完成，失败时异常完成
+ * @author gaozw
+ * @date 2026/10/19 9:20
+ */
+@SuppressWarnings("unused")
+public interface AsyncTargetWriter<T> extends TargetWriter<T> {
+
+    CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata);
+
+    /**
+     * 同步写入：等待本批次确认
+     */
+    @Override
+    default void write(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        try {
+            writeAsync(batch, connector, metadata).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for batch ack", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SyncException) {
+                throw (SyncException) cause;
+            }
+            throw new SyncException("Batch write failed: " + cause.getMessage(), cause);
+        }
+    }
+}
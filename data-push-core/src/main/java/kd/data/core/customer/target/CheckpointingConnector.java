@@ -0,0 +1,31 @@
+package kd.data.core.customer.target;
+
+/**
+ * 可与数据原子提交检查点的目标连接器
+ * 启用时目标端检查点为准，分片续传从目标端读取，协调器不再逐批保存检查点
+ *
+ * @author gaozw
+ * @date 2026/10/19 11:20
+ */
+public interface CheckpointingConnector {
+
+    /**
+     * 当前配置下是否由目标端持有检查点
+     */
+    boolean ownsCheckpoint();
+
+    /**
+     * 读取分片在目标端已提交的检查点
+     * @param lockKey 分片锁键
+     * @return 检查点，不存在返回 null
+     */
+    String loadCheckpoint(String lockKey);
+
+    /**
+     * 分片处理结束，释放分片独占的资源
+     * @param lockKey 分片锁键
+     */
+    default void releaseShard(String lockKey) {
+        // 默认空实现
+    }
+}
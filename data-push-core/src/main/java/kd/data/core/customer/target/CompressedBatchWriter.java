@@ -0,0 +1,45 @@
+package kd.data.core.customer.target;
+
+import kd.data.core.customer.CompressedBatch;
+import kd.data.core.customer.meta.ConsumerMetadata;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 可直接发送压缩批次的写入器（线路格式与压缩批次一致，无需解压重新编码）
+ * @author gaozw
+ * @date 2026/10/19 22:10
+ */
+@SuppressWarnings("unused")
+public interface CompressedBatchWriter<T> extends TargetWriter<T> {
+
+    /**
+     * 该批次能否原样发送（如单请求大小限制内），否则由调用方解压后按普通批次写入
+     */
+    boolean acceptsCompressed(CompressedBatch<T> batch);
+
+    /**
+     * 可原样发送的压缩格式，为空表示总需解压
+     */
+    default CompressedBatch.Format passthroughFormat() {
+        return null;
+    }
+
+    CompletableFuture<Void> writeCompressedAsync(CompressedBatch<T> batch, TargetConnector connector,
+                                                 ConsumerMetadata metadata);
+
+    /**
+     * 写入压缩批次：支持的写入器原样发送，其余解压后写入
+     */
+    static <T> CompletableFuture<Void> write(TargetWriter<T> writer, CompressedBatch<T> batch,
+                                             TargetConnector connector, ConsumerMetadata metadata) {
+        if (writer instanceof CompressedBatchWriter && ((CompressedBatchWriter<T>) writer).acceptsCompressed(batch)) {
+            return ((CompressedBatchWriter<T>) writer).writeCompressedAsync(batch, connector, metadata);
+        }
+        if (writer instanceof AsyncTargetWriter) {
+            return ((AsyncTargetWriter<T>) writer).writeAsync(batch.decode(), connector, metadata);
+        }
+        writer.write(batch.decode(), connector, metadata);
+        return CompletableFuture.completedFuture(null);
+    }
+}
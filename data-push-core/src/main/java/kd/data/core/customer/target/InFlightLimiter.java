@@ -0,0 +1,97 @@
+package kd.data.core.customer.target;
+
+import kd.data.core.exception.SyncException;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 在途流量限制器
+ * 同时限制已发送未确认的记录数和字节数，超出上限时阻塞发送方形成背压
+ *
+ * @author gaozw
+ * @date 2026/10/19 9:12
+ */
+@SuppressWarnings("unused")
+public class InFlightLimiter {
+
+    @Getter
+    private final long maxRecords;
+    @Getter
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private long inFlightRecords;
+    private long inFlightBytes;
+
+    public InFlightLimiter(long maxRecords, long maxBytes) {
+        this.maxRecords = Math.max(1, maxRecords);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * 申请一条记录的在途额度
+     * 当前无在途数据时总是放行，避免单条超大记录永久阻塞
+     * @param bytes 记录字节数
+     * @param timeoutMs 最长等待时间
+     */
+    public void acquire(int bytes, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (inFlightRecords > 0
+                    && (inFlightRecords + 1 > maxRecords || inFlightBytes + bytes > maxBytes)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SyncException("Timed out waiting for in-flight capacity, records="
+                            + inFlightRecords + ", bytes=" + inFlightBytes);
+                }
+                released.awaitNanos(remaining);
+            }
+            inFlightRecords++;
+            inFlightBytes += bytes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for in-flight capacity", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还一条记录的在途额度
+     * @param bytes 记录字节数
+     */
+    public void release(int bytes) {
+        lock.lock();
+        try {
+            inFlightRecords = Math.max(0, inFlightRecords - 1);
+            inFlightBytes = Math.max(0, inFlightBytes - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightRecords() {
+        lock.lock();
+        try {
+            return inFlightRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package kd.data.core.customer.target;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 目标连接器共享池
+ * 按集群配置键复用连接器（Kafka 生产者、ES 客户端均线程安全），引用计数管理生命周期，
+ * 最后一个任务归还租约时关闭连接器
+ *
+ * @author gaozw
+ * @date 2026/10/19 13:05
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class SharedConnectorPool {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * 租用连接器，不存在时由 factory 创建
+     * @param key 集群配置键，相同键的任务共享同一连接器
+     * @param factory 连接器工厂
+     */
+    public synchronized <C extends TargetConnector> Lease<C> acquire(String key, Supplier<C> factory) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(factory.get());
+            entries.put(key, entry);
+            log.info("Shared connector created: {}", entry.connector.getType());
+        }
+        entry.refCount++;
+        @SuppressWarnings("unchecked")
+        C connector = (C) entry.connector;
+        return new Lease<>(this, key, connector);
+    }
+
+    private void release(String key) {
+        TargetConnector toClose = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return;
+            }
+            if (--entry.refCount <= 0) {
+                entries.remove(key);
+                toClose = entry.connector;
+            }
+        }
+        // 关闭可能阻塞（等待发送缓冲区清空），放在锁外执行
+        if (toClose != null) {
+            try {
+                toClose.close();
+                log.info("Shared connector closed: {}", toClose.getType());
+            } catch (Exception e) {
+                log.warn("Close shared connector failed: {}", toClose.getType(), e);
+            }
+        }
+    }
+
+    /**
+     * 当前共享的连接器数量
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 连接器当前引用数
+     */
+    public synchronized int refCount(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? 0 : entry.refCount;
+    }
+
+    private static final class Entry {
+        private final TargetConnector connector;
+        private int refCount;
+
+        Entry(TargetConnector connector) {
+            this.connector = connector;
+        }
+    }
+
+    /**
+     * 连接器租约，关闭即归还（幂等）
+     */
+    public static final class Lease<C extends TargetConnector> implements Closeable {
+        private final SharedConnectorPool pool;
+        private final String key;
+        private final C connector;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(SharedConnectorPool pool, String key, C connector) {
+            this.pool = pool;
+            this.key = key;
+            this.connector = connector;
+        }
+
+        public C get() {
+            return connector;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                pool.release(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package kd.data.core.customer.target;
+
+import kd.data.core.customer.LoadContext;
+import kd.data.core.customer.meta.ConsumerMetadata;
+
+/**
+ * 目标端加载钩子
+ * 用于加载前后调整目标端状态（如索引刷新、副本设置）；同一任务在每个参与节点上各调用一次，
+ * 需要任务级一次性动作时通过上下文在节点间协调
+ *
+ * @author gaozw
+ * @date 2026/10/19 15:04
+ */
+public interface TargetLoadHook {
+
+    void beforeLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata);
+
+    /**
+     * @param success 本节点处理的分片是否全部成功
+     */
+    void afterLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata, boolean success);
+
+    /**
+     * 手动恢复进程崩溃等原因未能在 afterLoad 中还原的目标端状态，默认无操作
+     */
+    default void recover(TargetConnector connector, ConsumerMetadata metadata) {
+    }
+}
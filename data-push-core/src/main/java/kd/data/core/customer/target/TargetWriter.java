@@ -13,4 +13,11 @@ import java.util.List;
 public interface TargetWriter<T> {
 
     void write(List<T> batch, TargetConnector connector, ConsumerMetadata metadata);
+
+    /**
+     * 已成功写入目标端的字节数（写入器按任务创建，即任务级统计）
+     */
+    default long getBytesSent() {
+        return 0L;
+    }
 }
@@ -0,0 +1,35 @@
+package kd.data.core.customer.target.impl.es;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 可复用的 bulk 请求体缓冲区
+ * 直接暴露底层数组，发送时无需再复制
+ *
+ * @author gaozw
+ * @date 2026/10/19 14:10
+ */
+class BulkBuffer extends ByteArrayOutputStream {
+
+    BulkBuffer(int initialSize) {
+        super(initialSize);
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * 截断到指定长度
+     */
+    void truncate(int length) {
+        count = Math.min(count, Math.max(0, length));
+    }
+
+    /**
+     * 追加本缓冲区以外的字节区间
+     */
+    void append(byte[] src, int offset, int length) {
+        write(src, offset, length);
+    }
+}
@@ -11,7 +11,9 @@ import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.core.query.IndexQuery;
 import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * es 写入
@@ -21,6 +23,8 @@ import java.util.*;
  */
 public class ElasticsearchWriter<T> implements TargetWriter<T> {
 
+    /** 已写入的文档源字节数 */
+    private final LongAdder bytesSent = new LongAdder();
 
     public ElasticsearchWriter() {
         // 默认空构造
@@ -32,13 +36,17 @@ public class ElasticsearchWriter<T> implements TargetWriter<T> {
     @Override
     public void write(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
         ElasticsearchOperations operations = getOperations(connector);
-        String indexName = metadata.getIndexName();
+        String indexName = metadata.getWriteIndexName();
 
         // 准备批量索引请求
         List<IndexQuery> indexQueries = new ArrayList<>(batch.size());
+        long batchBytes = 0;
         for (T item : batch) {
+            // 预先转换文档源，便于统计发送字节数（bulkIndex 不再重复转换）
+            String source = operations.getElasticsearchConverter().mapObject(item).toJson();
+            batchBytes += source.getBytes(StandardCharsets.UTF_8).length;
             IndexQueryBuilder builder = new IndexQueryBuilder()
-                    .withObject(item);
+                    .withSource(source);
 
             // 安全处理ID：仅当ID存在时才设置
             String id = extractId(item, metadata);
@@ -52,9 +60,15 @@ public class ElasticsearchWriter<T> implements TargetWriter<T> {
         // 执行批量索引
         if (!indexQueries.isEmpty()) {
             operations.bulkIndex(indexQueries, IndexCoordinates.of(indexName));
+            bytesSent.add(batchBytes);
         }
     }
 
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
     private static ElasticsearchOperations getOperations(TargetConnector connector) {
         if (!(connector instanceof EsTargetConnector)) {
             throw new IllegalArgumentException("Invalid connector type. Expected ElasticsearchConnector");
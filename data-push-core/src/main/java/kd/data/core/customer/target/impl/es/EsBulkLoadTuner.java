@@ -0,0 +1,419 @@
+package kd.data.core.customer.target.impl.es;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kd.data.core.customer.LoadContext;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetLoadHook;
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * es 批量加载索引调优
+ * 加载前将目标索引切换为 refresh_interval=-1、number_of_replicas=0，结束后（含失败）恢复原设置、
+ * 强制 refresh 并可选 force-merge；原设置先持久化到状态索引，进程崩溃后下次运行或手动 restore 仍可恢复。
+ * 多节点同时加载同一索引时，状态文档记录持有者列表（乐观并发控制更新），只有最后一个持有者结束时才恢复；
+ * 持有者以租约登记并由心跳续约，崩溃进程遗留的持有者过期后在其他持有者登记/注销时清除，
+ * 也可通过 {@link #recover} 手动恢复（各节点时钟偏差需远小于租约时长）
+ *
+ * @author gaozw
+ * @date 2026/10/19 15:10
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class EsBulkLoadTuner implements TargetLoadHook {
+
+    /** 保存原始设置的状态索引 */
+    public static final String STATE_INDEX = "data-push-bulk-tuning";
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    private static final String HOLDERS = "holders";
+    private static final String HOLDER_ID = "id";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final int STATUS_CONFLICT = 409;
+    private static final int MAX_CAS_ATTEMPTS = 20;
+
+    /** 本进程标识，与任务ID组成持有者 */
+    private static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    /** 默认持有者租约时长 */
+    public static final long DEFAULT_LEASE_MS = 300_000L;
+
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-bulk-tuning-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** force-merge 目标段数，0 表示不合并 */
+    private final int forceMergeSegments;
+    /** 持有者租约时长，心跳按三分之一周期续约 */
+    private final long leaseMillis;
+    /** 索引|持有者 -> 心跳任务 */
+    private final Map<String, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<>();
+
+    public EsBulkLoadTuner(int forceMergeSegments) {
+        this(forceMergeSegments, DEFAULT_LEASE_MS);
+    }
+
+    public EsBulkLoadTuner(int forceMergeSegments, long leaseMillis) {
+        this.forceMergeSegments = forceMergeSegments;
+        this.leaseMillis = Math.max(3_000L, leaseMillis);
+    }
+
+    @Override
+    public void beforeLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata) {
+        String index = metadata.getIndexName();
+        RestClient client = getClient(connector);
+        try {
+            JsonNode current = getSettings(client, index);
+            if (current == null) {
+                log.warn("Index {} does not exist, bulk load tuning skipped", index);
+                return;
+            }
+            String holder = holderId(context.getTaskId());
+            int holders = acquire(client, index, holder, current);
+            startHeartbeat(client, index, holder);
+
+            ObjectNode settings = objectMapper.createObjectNode();
+            settings.put(REFRESH_INTERVAL, "-1");
+            settings.put(NUMBER_OF_REPLICAS, 0);
+            putSettings(client, index, settings);
+            log.info("Index {} switched to bulk load settings (refresh disabled, no replicas), holders: {}",
+                    index, holders);
+        } catch (IOException e) {
+            throw new SyncException("Bulk load tuning failed for index " + index, e);
+        }
+    }
+
+    @Override
+    public void afterLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata, boolean success) {
+        String index = metadata.getIndexName();
+        RestClient client = getClient(connector);
+        String holder = holderId(context.getTaskId());
+        stopHeartbeat(index, holder);
+        try {
+            VersionedState last = release(client, index, holder);
+            if (last != null) {
+                restoreSettings(client, index, last, success && forceMergeSegments > 0);
+            }
+        } catch (IOException e) {
+            throw new SyncException("Restore settings failed for index " + index, e);
+        }
+    }
+
+    /**
+     * 手动恢复：忽略持有者列表直接恢复原设置，不执行 force-merge
+     */
+    @Override
+    public void recover(TargetConnector connector, ConsumerMetadata metadata) {
+        restore(getClient(connector), metadata.getIndexName(), false);
+    }
+
+    /**
+     * 恢复索引原设置（可单独调用以修复崩溃遗留，忽略持有者列表）
+     * @param forceMerge 是否执行 force-merge
+     */
+    public void restore(RestClient client, String index, boolean forceMerge) {
+        try {
+            VersionedState state = loadState(client, index);
+            if (state != null) {
+                restoreSettings(client, index, state, forceMerge);
+            }
+        } catch (IOException e) {
+            throw new SyncException("Restore settings failed for index " + index, e);
+        }
+    }
+
+    /**
+     * 登记持有者并清除过期持有者；首个持有者记录原设置，已有状态（其他节点加载中或上次崩溃）时保留真正的原始设置
+     * @return 登记后的持有者数
+     */
+    private int acquire(RestClient client, String index, String holder, JsonNode current) throws IOException {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            long now = System.currentTimeMillis();
+            VersionedState state = loadState(client, index);
+            if (state == null) {
+                ObjectNode created = objectMapper.createObjectNode();
+                created.put("index", index);
+                created.set(REFRESH_INTERVAL, current.get(REFRESH_INTERVAL));
+                created.set(NUMBER_OF_REPLICAS, current.get(NUMBER_OF_REPLICAS));
+                addHolder(created.putArray(HOLDERS), holder, now);
+                if (createState(client, index, created)) {
+                    return 1;
+                }
+                continue;
+            }
+            ArrayNode holders = holders(state.source);
+            int stale = prune(holders, holder, now);
+            addHolder(holders, holder, now);
+            if (updateState(client, index, state)) {
+                if (stale > 0) {
+                    log.warn("Index {} dropped {} expired bulk load holder(s)", index, stale);
+                }
+                return holders.size();
+            }
+        }
+        throw new SyncException("Concurrent updates of bulk tuning state for index " + index);
+    }
+
+    /**
+     * 续约本进程持有者；状态已被恢复（手动 recover）时不再登记
+     */
+    private void renew(RestClient client, String index, String holder) throws IOException {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            long now = System.currentTimeMillis();
+            VersionedState state = loadState(client, index);
+            if (state == null) {
+                return;
+            }
+            ArrayNode holders = holders(state.source);
+            prune(holders, holder, now);
+            addHolder(holders, holder, now);
+            if (updateState(client, index, state)) {
+                return;
+            }
+        }
+        throw new SyncException("Concurrent updates of bulk tuning state for index " + index);
+    }
+
+    /**
+     * 注销持有者并清除过期持有者；最后一个持有者先将列表置空再恢复，期间加入的节点会使后续删除冲突而保留状态
+     * @return 最后一个持有者时返回置空后的状态，否则 null
+     */
+    private VersionedState release(RestClient client, String index, String holder) throws IOException {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            VersionedState state = loadState(client, index);
+            if (state == null) {
+                return null;
+            }
+            ArrayNode holders = holders(state.source);
+            prune(holders, holder, System.currentTimeMillis());
+            if (updateState(client, index, state)) {
+                if (holders.size() > 0) {
+                    log.info("Index {} still loading by {} holder(s), settings kept", index, holders.size());
+                    return null;
+                }
+                // 重新读取以取得置空后的版本；其间已有新持有者加入则交由其恢复
+                VersionedState emptied = loadState(client, index);
+                return emptied != null && holders(emptied.source).size() == 0 ? emptied : null;
+            }
+        }
+        throw new SyncException("Concurrent updates of bulk tuning state for index " + index);
+    }
+
+    /**
+     * 原设置缺省时置 null，恢复为集群默认值
+     */
+    private void restoreSettings(RestClient client, String index, VersionedState state, boolean forceMerge)
+            throws IOException {
+        ObjectNode settings = objectMapper.createObjectNode();
+        settings.set(REFRESH_INTERVAL, state.source.get(REFRESH_INTERVAL));
+        settings.set(NUMBER_OF_REPLICAS, state.source.get(NUMBER_OF_REPLICAS));
+        putSettings(client, index, settings);
+
+        client.performRequest(new Request("POST", "/" + index + "/_refresh"));
+        if (forceMerge) {
+            Request merge = new Request("POST", "/" + index + "/_forcemerge");
+            merge.addParameter("max_num_segments", String.valueOf(forceMergeSegments));
+            client.performRequest(merge);
+        }
+        Request delete = new Request("DELETE", "/" + STATE_INDEX + "/_doc/" + index);
+        withVersion(delete, state);
+        if (!conditional(client, delete)) {
+            log.warn("Index {} picked up a new bulk load holder during restore, state kept", index);
+            return;
+        }
+        log.info("Index {} settings restored{}", index, forceMerge ? " and force-merged" : "");
+    }
+
+    /**
+     * @return 扁平化的设置，索引不存在返回 null
+     */
+    private JsonNode getSettings(RestClient client, String index) throws IOException {
+        Request request = new Request("GET", "/" + index + "/_settings/" + REFRESH_INTERVAL + "," + NUMBER_OF_REPLICAS);
+        request.addParameter("flat_settings", "true");
+        try {
+            JsonNode body = read(client.performRequest(request));
+            JsonNode settings = body.path(index).path("settings");
+            if (settings.isMissingNode() && body.size() > 0) {
+                // 传入的是别名时返回的是物理索引名
+                settings = body.elements().next().path("settings");
+            }
+            ObjectNode result = objectMapper.createObjectNode();
+            result.set(REFRESH_INTERVAL, settings.has(REFRESH_INTERVAL) ? settings.get(REFRESH_INTERVAL) : null);
+            result.set(NUMBER_OF_REPLICAS, settings.has(NUMBER_OF_REPLICAS) ? settings.get(NUMBER_OF_REPLICAS) : null);
+            return result;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void putSettings(RestClient client, String index, ObjectNode settings) throws IOException {
+        Request request = new Request("PUT", "/" + index + "/_settings");
+        request.setEntity(new NStringEntity(objectMapper.writeValueAsString(settings), ContentType.APPLICATION_JSON));
+        client.performRequest(request);
+    }
+
+    private VersionedState loadState(RestClient client, String index) throws IOException {
+        try {
+            JsonNode doc = read(client.performRequest(new Request("GET", "/" + STATE_INDEX + "/_doc/" + index)));
+            if (!doc.path("found").asBoolean()) {
+                return null;
+            }
+            return new VersionedState((ObjectNode) doc.get("_source"),
+                    doc.path("_seq_no").asLong(), doc.path("_primary_term").asLong());
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private boolean createState(RestClient client, String index, ObjectNode state) throws IOException {
+        Request request = new Request("PUT", "/" + STATE_INDEX + "/_create/" + index);
+        request.addParameter("refresh", "true");
+        request.setEntity(new NStringEntity(objectMapper.writeValueAsString(state), ContentType.APPLICATION_JSON));
+        return conditional(client, request);
+    }
+
+    private boolean updateState(RestClient client, String index, VersionedState state) throws IOException {
+        Request request = new Request("PUT", "/" + STATE_INDEX + "/_doc/" + index);
+        request.addParameter("refresh", "true");
+        withVersion(request, state);
+        request.setEntity(new NStringEntity(objectMapper.writeValueAsString(state.source), ContentType.APPLICATION_JSON));
+        return conditional(client, request);
+    }
+
+    private static void withVersion(Request request, VersionedState state) {
+        request.addParameter("if_seq_no", String.valueOf(state.seqNo));
+        request.addParameter("if_primary_term", String.valueOf(state.primaryTerm));
+    }
+
+    /**
+     * @return 版本冲突返回 false
+     */
+    private static boolean conditional(RestClient client, Request request) throws IOException {
+        try {
+            client.performRequest(request);
+            return true;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == STATUS_CONFLICT) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private ArrayNode holders(ObjectNode source) {
+        JsonNode holders = source.get(HOLDERS);
+        if (holders instanceof ArrayNode) {
+            return (ArrayNode) holders;
+        }
+        return source.putArray(HOLDERS);
+    }
+
+    private void addHolder(ArrayNode holders, String holder, long now) {
+        holders.addObject().put(HOLDER_ID, holder).put(EXPIRES_AT, now + leaseMillis);
+    }
+
+    /**
+     * 移除指定持有者与租约已过期的持有者（旧版本的纯文本持有者视为过期）
+     * @return 移除的过期持有者数
+     */
+    private static int prune(ArrayNode holders, String holder, long now) {
+        int stale = 0;
+        for (int i = holders.size() - 1; i >= 0; i--) {
+            JsonNode node = holders.get(i);
+            if (holder.equals(node.path(HOLDER_ID).asText())) {
+                holders.remove(i);
+            } else if (node.path(EXPIRES_AT).asLong() <= now) {
+                holders.remove(i);
+                stale++;
+            }
+        }
+        return stale;
+    }
+
+    private void startHeartbeat(RestClient client, String index, String holder) {
+        long period = leaseMillis / 3;
+        ScheduledFuture<?> previous = heartbeats.put(index + "|" + holder, HEARTBEAT.scheduleWithFixedDelay(() -> {
+            try {
+                renew(client, index, holder);
+            } catch (Exception e) {
+                log.warn("Failed to renew bulk load holder {} on index {}: {}", holder, index, e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void stopHeartbeat(String index, String holder) {
+        ScheduledFuture<?> heartbeat = heartbeats.remove(index + "|" + holder);
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private static String holderId(String taskId) {
+        return taskId + "@" + INSTANCE_ID;
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static RestClient getClient(TargetConnector connector) {
+        if (!(connector instanceof EsTargetConnector)) {
+            throw new IllegalArgumentException("Invalid connector type. Expected ElasticsearchConnector");
+        }
+        EsTargetConnector esConnector = (EsTargetConnector) connector;
+        if (!esConnector.isConnected()) {
+            esConnector.connect();
+        }
+        return esConnector.getLowLevelClient();
+    }
+
+    /**
+     * 状态文档及其版本（用于条件更新）
+     */
+    private static class VersionedState {
+        final ObjectNode source;
+        final long seqNo;
+        final long primaryTerm;
+
+        VersionedState(ObjectNode source, long seqNo, long primaryTerm) {
+            this.source = source;
+            this.seqNo = seqNo;
+            this.primaryTerm = primaryTerm;
+        }
+    }
+}
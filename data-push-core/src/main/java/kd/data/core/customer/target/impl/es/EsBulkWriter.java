@@ -0,0 +1,412 @@
+package kd.data.core.customer.target.impl.es;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.customer.annotation.ConsumerField;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.InFlightLimiter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetRejectedException;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * es 流式 bulk 写入
+ * 文档按字段映射直接序列化进可复用的 NDJSON 缓冲区，按字节数切分 bulk 请求；
+ * 解析逐条响应：429 与 5xx 的文档退避重试；映射等确定性错误使批次失败，由分片二分隔离坏记录并转入死信；
+ * 请求异步发出，同一连接器（集群）上的在途请求数与字节数受全局上限约束，
+ * 批次 Future 在其全部 bulk 请求确认后完成
+ *
+ * @author gaozw
+ * @date 2026/10/19 14:15
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class EsBulkWriter<T> implements AsyncTargetWriter<T> {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final byte NEWLINE = '\n';
+    private static final int MAX_POOLED_BUFFERS = 16;
+    private static final DateTimeFormatter DATE_TIME_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private final int maxBulkBytes;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    /** 等待全局在途配额的超时 */
+    private final long acquireTimeoutMs;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** 已完成请求的缓冲区，供后续请求复用 */
+    private final Queue<BulkBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferPoolSize = new AtomicInteger();
+    private final LongAdder bytesSent = new LongAdder();
+
+    public EsBulkWriter() {
+        this(10 * 1024 * 1024, 5, 200);
+    }
+
+    public EsBulkWriter(int maxBulkBytes, int maxRetries, long retryBackoffMs) {
+        this(maxBulkBytes, maxRetries, retryBackoffMs, 60_000L);
+    }
+
+    public EsBulkWriter(int maxBulkBytes, int maxRetries, long retryBackoffMs, long acquireTimeoutMs) {
+        this.maxBulkBytes = Math.max(1024, maxBulkBytes);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        if (batch == null || batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        EsTargetConnector esConnector = getConnector(connector);
+        String indexName = metadata.getWriteIndexName();
+        ConsumerMetadata.ConsumerFieldModel idField = findIdField(metadata);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            BulkChunk<T> chunk = new BulkChunk<>(borrowBuffer());
+            for (T item : batch) {
+                int start = chunk.buffer.size();
+                writeItem(chunk.buffer, item, indexName, idField, metadata);
+
+                if (chunk.buffer.size() > maxBulkBytes && !chunk.items.isEmpty()) {
+                    // 超出字节上限：当前文档移入下一个请求，已满的请求立即发出
+                    BulkChunk<T> next = new BulkChunk<>(borrowBuffer());
+                    next.buffer.append(chunk.buffer.array(), start, chunk.buffer.size() - start);
+                    chunk.buffer.truncate(start);
+                    futures.add(dispatch(esConnector, indexName, chunk));
+                    chunk = next;
+                    start = 0;
+                }
+                chunk.add(item, start);
+            }
+            futures.add(dispatch(esConnector, indexName, chunk));
+        } catch (RuntimeException e) {
+            // 已发出的请求自行完成并归还额度，本批次整体失败
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            futures.add(failed);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * 发出一个 bulk 请求：先申请全局在途额度（请求数/字节数，超限阻塞形成背压），
+     * 请求最终完成（含重试）后归还额度与缓冲区
+     */
+    private CompletableFuture<Void> dispatch(EsTargetConnector connector, String indexName, BulkChunk<T> chunk) {
+        int bytes = chunk.buffer.size();
+        InFlightLimiter limiter = connector.getBulkLimiter();
+        limiter.acquire(bytes, acquireTimeoutMs);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.whenComplete((v, ex) -> {
+            limiter.release(bytes);
+            returnBuffer(chunk.buffer);
+        });
+        send(connector, indexName, chunk, 0, retryBackoffMs, future);
+        return future;
+    }
+
+    private void send(EsTargetConnector connector, String indexName, BulkChunk<T> chunk,
+                      int attempt, long backoff, CompletableFuture<Void> future) {
+        Request request = new Request("POST", "/_bulk");
+        request.setEntity(new NByteArrayEntity(chunk.buffer.array(), 0, chunk.buffer.size(), NDJSON));
+        try {
+            // 低级客户端按节点轮询分发请求
+            connector.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    try {
+                        List<Integer> rejected = parseResponse(response, indexName, chunk.items);
+                        bytesSent.add(chunk.buffer.size());
+                        retryOrComplete(connector, indexName, chunk, rejected, attempt, backoff, future);
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (e instanceof ResponseException && ((ResponseException) e).getResponse()
+                            .getStatusLine().getStatusCode() == STATUS_TOO_MANY_REQUESTS) {
+                        // 整个请求被拒绝
+                        retryOrComplete(connector, indexName, chunk, chunk.allIndexes(), attempt, backoff, future);
+                    } else {
+                        future.completeExceptionally(new SyncException(
+                                "Bulk request to " + indexName + " failed: " + e.getMessage(), e));
+                    }
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(new SyncException("Bulk request to " + indexName + " failed: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 被拒绝的文档抽取为新请求，在重试调度线程上退避重发（不阻塞 I/O 线程）
+     */
+    private void retryOrComplete(EsTargetConnector connector, String indexName, BulkChunk<T> chunk,
+                                 List<Integer> rejected, int attempt, long backoff, CompletableFuture<Void> future) {
+        if (rejected.isEmpty()) {
+            future.complete(null);
+            return;
+        }
+        if (attempt >= maxRetries) {
+            future.completeExceptionally(new SyncException("Bulk rejected by " + indexName + " after "
+                    + maxRetries + " retries, pending docs: " + rejected.size()));
+            return;
+        }
+        log.warn("Bulk to {} rejected {} docs, retry {}/{} after {} ms",
+                indexName, rejected.size(), attempt + 1, maxRetries, backoff);
+        BulkChunk<T> retryChunk = chunk.subset(rejected);
+        try {
+            connector.getRetryScheduler().schedule(
+                    () -> send(connector, indexName, retryChunk, attempt + 1, Math.min(backoff * 2, 30_000L), future),
+                    backoff, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            future.completeExceptionally(new SyncException("Bulk retry scheduling failed: " + indexName, e));
+        }
+    }
+
+    private BulkBuffer borrowBuffer() {
+        BulkBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return new BulkBuffer(1 << 20);
+        }
+        bufferPoolSize.decrementAndGet();
+        buffer.reset();
+        return buffer;
+    }
+
+    private void returnBuffer(BulkBuffer buffer) {
+        // 超大缓冲区不回收，避免长期占用内存
+        if (buffer.array().length <= 2L * maxBulkBytes && bufferPoolSize.get() < MAX_POOLED_BUFFERS) {
+            bufferPoolSize.incrementAndGet();
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * 解析 bulk 响应：errors=false 时直接返回；否则逐条检查状态
+     * @return 需重试的文档下标
+     * @throws SyncException 存在确定性拒绝且未配置失败接收器
+     */
+    private List<Integer> parseResponse(Response response, String indexName, List<T> items) {
+        List<Integer> rejected = new ArrayList<>();
+        try (InputStream in = response.getEntity().getContent();
+             JsonParser parser = jsonFactory.createParser(in)) {
+            parser.setCodec(objectMapper);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SyncException("Unexpected bulk response from " + indexName);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("errors".equals(name) && value == JsonToken.VALUE_FALSE) {
+                    return rejected;
+                }
+                if ("items".equals(name)) {
+                    JsonNode itemsNode = parser.readValueAsTree();
+                    collectItemErrors(itemsNode, indexName, items, rejected);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new SyncException("Failed to parse bulk response from " + indexName, e);
+        }
+        return rejected;
+    }
+
+    private void collectItemErrors(JsonNode itemsNode, String indexName, List<T> items, List<Integer> rejected) {
+        int failed = 0;
+        int firstStatus = 0;
+        String firstReason = null;
+        for (int i = 0; i < itemsNode.size() && i < items.size(); i++) {
+            JsonNode result = itemsNode.get(i).elements().next();
+            int status = result.path("status").asInt();
+            if (status < 300) {
+                continue;
+            }
+            if (status == STATUS_TOO_MANY_REQUESTS || status >= 500) {
+                rejected.add(i);
+                continue;
+            }
+            JsonNode error = result.path("error");
+            String reason = status + " " + error.path("type").asText() + ": " + error.path("reason").asText();
+            if (failed++ == 0) {
+                firstStatus = status;
+                firstReason = reason;
+            }
+        }
+        if (failed > 0) {
+            // 携带 4xx 状态码，按确定性失败拆分批次；文档带 _id 时重发幂等
+            throw new TargetRejectedException("Bulk to " + indexName + " rejected " + failed + " records: " + firstReason,
+                    firstStatus, failed);
+        }
+    }
+
+    /**
+     * 写入一条 index 操作：动作行 + 文档行
+     */
+    private void writeItem(BulkBuffer out, T item, String indexName,
+                           ConsumerMetadata.ConsumerFieldModel idField, ConsumerMetadata metadata) {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("index");
+            gen.writeStringField("_index", indexName);
+            if (idField != null) {
+                Object id = ReflectionUtils.getFieldValue(item, idField.getFieldName());
+                if (id != null) {
+                    gen.writeStringField("_id", id.toString());
+                }
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+            gen.flush();
+            out.write(NEWLINE);
+
+            gen.writeStartObject();
+            for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+                gen.writeFieldName(field.getEffectiveTargetName());
+                writeValue(gen, ReflectionUtils.getFieldValue(item, field.getFieldName()));
+            }
+            gen.writeEndObject();
+            gen.flush();
+            out.write(NEWLINE);
+        } catch (IOException e) {
+            throw new SyncException("Failed to serialize document for " + indexName, e);
+        }
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof String) {
+            gen.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            gen.writeNumber(((Number) value).longValue());
+        } else if (value instanceof BigDecimal) {
+            gen.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            gen.writeNumber((BigInteger) value);
+        } else if (value instanceof Number) {
+            gen.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            gen.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            // es 默认日期格式支持 epoch_millis
+            gen.writeNumber(((Date) value).getTime());
+        } else if (value instanceof LocalDateTime) {
+            // 固定毫秒精度，兼容 date_hour_minute_second_millis 与默认格式
+            gen.writeString(DATE_TIME_MILLIS.format((LocalDateTime) value));
+        } else if (value instanceof TemporalAccessor) {
+            // LocalDate 等的 ISO 格式符合 strict_date_optional_time
+            gen.writeString(value.toString());
+        } else {
+            gen.writeString(value.toString());
+        }
+    }
+
+    private static ConsumerMetadata.ConsumerFieldModel findIdField(ConsumerMetadata metadata) {
+        return metadata.getFields().stream()
+                .filter(f -> Objects.equals(f.getRole(), ConsumerField.FieldRole.ID.name()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static EsTargetConnector getConnector(TargetConnector connector) {
+        if (!(connector instanceof EsTargetConnector)) {
+            throw new IllegalArgumentException("Invalid connector type. Expected ElasticsearchConnector");
+        }
+        EsTargetConnector esConnector = (EsTargetConnector) connector;
+        if (!esConnector.isConnected()) {
+            esConnector.connect();
+        }
+        return esConnector;
+    }
+
+    /**
+     * 一个 bulk 请求：请求体及其中各文档的起始偏移
+     */
+    private static final class BulkChunk<T> {
+        private final BulkBuffer buffer;
+        private final List<T> items = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+
+        BulkChunk(BulkBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void add(T item, int offset) {
+            items.add(item);
+            offsets.add(offset);
+        }
+
+        List<Integer> allIndexes() {
+            List<Integer> all = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                all.add(i);
+            }
+            return all;
+        }
+
+        /**
+         * 复制指定文档组成新的请求
+         */
+        BulkChunk<T> subset(List<Integer> indexes) {
+            BulkChunk<T> sub = new BulkChunk<>(new BulkBuffer(buffer.size()));
+            for (int idx : indexes) {
+                int from = offsets.get(idx);
+                int to = idx + 1 < offsets.size() ? offsets.get(idx + 1) : buffer.size();
+                sub.add(items.get(idx), sub.buffer.size());
+                sub.buffer.append(buffer.array(), from, to - from);
+            }
+            return sub;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package kd.data.core.customer.target.impl.es;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由目标实体的 es 字段注解派生索引 mapping
+ * Auto 类型字段不写入 mapping，交由动态映射处理
+ *
+ * @author gaozw
+ * @date 2026/10/19 15:48
+ */
+public final class EsIndexMappings {
+
+    private EsIndexMappings() {}
+
+    /**
+     * @return {"properties": {...}}
+     */
+    public static ObjectNode fromEntity(Class<?> entityType) {
+        ObjectNode mappings = JsonNodeFactory.instance.objectNode();
+        ObjectNode properties = mappings.putObject("properties");
+
+        for (java.lang.reflect.Field field : entityType.getDeclaredFields()) {
+            Field annotation = field.getAnnotation(Field.class);
+            if (annotation == null || annotation.type() == FieldType.Auto) {
+                continue;
+            }
+            String name = !annotation.name().isEmpty() ? annotation.name()
+                    : !annotation.value().isEmpty() ? annotation.value() : field.getName();
+
+            ObjectNode property = properties.putObject(name);
+            property.put("type", annotation.type().getMappedName());
+            if (annotation.type() == FieldType.Date || annotation.type() == FieldType.Date_Nanos) {
+                String format = dateFormat(annotation);
+                if (format != null) {
+                    property.put("format", format);
+                }
+            }
+            if (!annotation.analyzer().isEmpty()) {
+                property.put("analyzer", annotation.analyzer());
+            }
+            if (!annotation.searchAnalyzer().isEmpty()) {
+                property.put("search_analyzer", annotation.searchAnalyzer());
+            }
+        }
+        return mappings;
+    }
+
+    /**
+     * 写入器以 epoch 毫秒写出 java.util.Date，因此显式格式总是追加 epoch_millis；
+     * 仍需识别旧注解中已废弃的 none/custom 取值并跳过
+     */
+    @SuppressWarnings("deprecation")
+    private static String dateFormat(Field annotation) {
+        List<String> formats = new ArrayList<>();
+        for (DateFormat df : annotation.format()) {
+            if (df != DateFormat.none && df != DateFormat.custom) {
+                formats.add(df.name());
+            }
+        }
+        for (String pattern : annotation.pattern()) {
+            if (!pattern.isEmpty()) {
+                formats.add(pattern);
+            }
+        }
+        if (formats.isEmpty()) {
+            return null;
+        }
+        formats.add("epoch_millis");
+        return String.join("||", formats);
+    }
+}
@@ -0,0 +1,274 @@
+package kd.data.core.customer.target.impl.es;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kd.data.core.customer.LoadContext;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetLoadHook;
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * es 零停机重建索引
+ * 以 @EsIndex 名称作为别名：加载前创建新版本物理索引 name_vN（mapping 由字段注解派生，刷新关闭、无副本），
+ * 写入器改写新索引；全部分片成功后恢复副本与刷新，并在一次 _aliases 请求中原子切换别名，可选删除旧索引。
+ * 同一任务的多个节点通过任务锁约定同一个新索引：首个节点创建新索引并清空任务的分片检查点（全量加载不从旧进度续传），
+ * 其余节点加入写入；每个节点结束时检查任务全部分片是否完成，由最后完成的节点执行一次切换。
+ * 未完成时新索引与分片进度保留，重新运行从检查点续写同一新索引，线上别名不受影响
+ *
+ * @author gaozw
+ * @date 2026/10/19 15:55
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class EsReindexHook implements TargetLoadHook {
+
+    private static final String VERSION_SEPARATOR = "_v";
+    /** 任务级状态名前缀，值为本轮重建的新索引 */
+    private static final String STATE_PREFIX = "es-reindex:";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean deleteOldIndex;
+    private final int replicas;
+
+    /** 本次加载的别名与新索引 */
+    private String alias;
+    private String newIndex;
+
+    /**
+     * @param deleteOldIndex 切换后是否删除旧索引
+     * @param replicas 切换前恢复的副本数
+     */
+    public EsReindexHook(boolean deleteOldIndex, int replicas) {
+        this.deleteOldIndex = deleteOldIndex;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public void beforeLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata) {
+        RestClient client = getClient(connector);
+        String target = metadata.getIndexName();
+        String stateName = STATE_PREFIX + target;
+        String index = context.withTaskLock(stateName, () -> {
+            try {
+                String agreed = context.getTaskValue(stateName);
+                if (agreed != null && indexExists(client, agreed)) {
+                    log.info("Reindex joined: alias {} -> new index {}", target, agreed);
+                    return agreed;
+                }
+                String created = createIndex(client, target, metadata);
+                // 新索引为空，旧检查点指向的进度已写入旧索引，必须从头加载
+                context.resetShardProgress();
+                context.setTaskValue(stateName, created);
+                return created;
+            } catch (IOException e) {
+                throw new SyncException("Create reindex target failed for " + target, e);
+            }
+        });
+        this.alias = target;
+        this.newIndex = index;
+        metadata.setWriteIndexName(index);
+    }
+
+    @Override
+    public void afterLoad(LoadContext context, TargetConnector connector, ConsumerMetadata metadata, boolean success) {
+        if (newIndex == null) {
+            return;
+        }
+        String index = newIndex;
+        try {
+            if (!success) {
+                log.warn("Reindex incomplete on this node, new index {} kept for resume, alias {} unchanged",
+                        index, alias);
+                return;
+            }
+            RestClient client = getClient(connector);
+            String stateName = STATE_PREFIX + alias;
+            context.withTaskLock(stateName, () -> {
+                if (!index.equals(context.getTaskValue(stateName))) {
+                    // 其他节点已完成切换
+                    return null;
+                }
+                if (!context.allShardsCompleted()) {
+                    log.info("Reindex into {} waits for shards on other nodes, alias {} unchanged", index, alias);
+                    return null;
+                }
+                try {
+                    finish(client, index);
+                } catch (IOException e) {
+                    throw new SyncException("Finish reindex failed for " + alias, e);
+                }
+                context.setTaskValue(stateName, null);
+                log.info("Reindex completed: alias {} now points to {}", alias, index);
+                return null;
+            });
+        } finally {
+            metadata.setWriteIndexName(null);
+            newIndex = null;
+        }
+    }
+
+    /**
+     * 创建新版本索引，别名名称被物理索引占用时须允许删除旧索引
+     */
+    private String createIndex(RestClient client, String target, ConsumerMetadata metadata) throws IOException {
+        if (isConcreteIndex(client, target) && !deleteOldIndex) {
+            throw new SyncException("Index " + target + " is a concrete index; enable old index deletion "
+                    + "to replace it with an alias");
+        }
+        String index = target + VERSION_SEPARATOR + nextVersion(client, target);
+
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode settings = body.putObject("settings");
+        settings.put("index.number_of_replicas", 0);
+        settings.put("index.refresh_interval", "-1");
+        body.set("mappings", EsIndexMappings.fromEntity(metadata.getEntityType()));
+
+        Request request = new Request("PUT", "/" + index);
+        request.setEntity(new NStringEntity(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON));
+        client.performRequest(request);
+        log.info("Reindex started: alias {} -> new index {}", target, index);
+        return index;
+    }
+
+    /**
+     * 恢复副本与刷新后切换别名
+     */
+    private void finish(RestClient client, String index) throws IOException {
+        ObjectNode settings = objectMapper.createObjectNode();
+        settings.put("index.number_of_replicas", replicas);
+        settings.putNull("index.refresh_interval");
+        Request put = new Request("PUT", "/" + index + "/_settings");
+        put.setEntity(new NStringEntity(objectMapper.writeValueAsString(settings), ContentType.APPLICATION_JSON));
+        client.performRequest(put);
+        client.performRequest(new Request("POST", "/" + index + "/_refresh"));
+
+        swapAlias(client, index);
+    }
+
+    /**
+     * 原子切换别名：移除旧指向（或删除同名物理索引）并指向新索引；旧指向在切换时解析
+     */
+    private void swapAlias(RestClient client, String index) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode actions = body.putArray("actions");
+        if (isConcreteIndex(client, alias)) {
+            actions.addObject().putObject("remove_index").put("index", alias);
+        } else {
+            for (String old : resolveAlias(client, alias)) {
+                if (deleteOldIndex) {
+                    actions.addObject().putObject("remove_index").put("index", old);
+                } else {
+                    ObjectNode remove = actions.addObject().putObject("remove");
+                    remove.put("index", old);
+                    remove.put("alias", alias);
+                }
+            }
+        }
+        ObjectNode add = actions.addObject().putObject("add");
+        add.put("index", index);
+        add.put("alias", alias);
+
+        Request request = new Request("POST", "/_aliases");
+        request.setEntity(new NStringEntity(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON));
+        client.performRequest(request);
+    }
+
+    private boolean indexExists(RestClient client, String index) throws IOException {
+        try {
+            // 低级客户端对 HEAD 请求的 404 不抛异常
+            return client.performRequest(new Request("HEAD", "/" + index)).getStatusLine().getStatusCode() == 200;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isConcreteIndex(RestClient client, String name) throws IOException {
+        try {
+            JsonNode body = read(client.performRequest(new Request("GET", "/" + name + "/_settings")));
+            // 别名返回物理索引名，同名键存在说明是物理索引
+            return body.has(name);
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private List<String> resolveAlias(RestClient client, String name) throws IOException {
+        List<String> indices = new ArrayList<>();
+        try {
+            JsonNode body = read(client.performRequest(new Request("GET", "/_alias/" + name)));
+            body.fieldNames().forEachRemaining(indices::add);
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() != 404) {
+                throw e;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * 已有版本号最大值 + 1（包括未挂别名的遗留版本）
+     */
+    private int nextVersion(RestClient client, String name) throws IOException {
+        Request request = new Request("GET", "/_cat/indices/" + name + VERSION_SEPARATOR + "*");
+        request.addParameter("format", "json");
+        request.addParameter("h", "index");
+        int max = 0;
+        Pattern pattern = Pattern.compile(Pattern.quote(name + VERSION_SEPARATOR) + "(\\d+)");
+        try {
+            JsonNode rows = read(client.performRequest(request));
+            Iterator<JsonNode> it = rows.elements();
+            while (it.hasNext()) {
+                Matcher m = pattern.matcher(it.next().path("index").asText());
+                if (m.matches()) {
+                    max = Math.max(max, Integer.parseInt(m.group(1)));
+                }
+            }
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() != 404) {
+                throw e;
+            }
+        }
+        return max + 1;
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private static RestClient getClient(TargetConnector connector) {
+        if (!(connector instanceof EsTargetConnector)) {
+            throw new IllegalArgumentException("Invalid connector type. Expected ElasticsearchConnector");
+        }
+        EsTargetConnector esConnector = (EsTargetConnector) connector;
+        if (!esConnector.isConnected()) {
+            esConnector.connect();
+        }
+        return esConnector.getLowLevelClient();
+    }
+}
@@ -1,25 +1,32 @@
 package kd.data.core.customer.target.impl.es;
 
+import kd.data.core.customer.target.InFlightLimiter;
 import kd.data.core.customer.target.TargetConnector;
 import kd.data.core.customer.target.targetenums.TargetEnums;
 import kd.data.core.exception.SyncException;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.elasticsearch.client.RestClient;
 import org.springframework.data.elasticsearch.client.ClientConfiguration;
 import org.springframework.data.elasticsearch.client.RestClients;
+import org.springframework.data.elasticsearch.client.RestClients.RestClientConfigurationCallback;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.cluster.ClusterHealth;
 import javax.net.ssl.SSLContext;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 
 
 /**
  * es
+ * bulk 请求由底层客户端在 clusterNodes 间轮询分发，同一连接器上的在途请求数与字节数受全局上限约束
  *
  * @author gaozw
  * @date 2025/8/1 13:12
@@ -29,13 +36,20 @@ import java.util.stream.Collectors;
 public class EsTargetConnector implements TargetConnector {
 
 
-    private ElasticsearchOperations elasticsearchOperations;
+    private volatile ElasticsearchOperations elasticsearchOperations;
+    /** 底层 REST 客户端，关闭它即释放高级客户端共用的 I/O 线程与连接池 */
+    private RestClient restClient;
     private final List<String> clusterNodes;
     private final int connectTimeout;
     private final int socketTimeout;
     private final String username;
     private final String password;
     private final boolean disableSslVerification;
+    private final int maxConcurrentBulks;
+    /** 全局在途 bulk 请求限制（记录数即请求数） */
+    private final InFlightLimiter bulkLimiter;
+    @Getter(AccessLevel.NONE)
+    private ScheduledExecutorService retryScheduler;
 
     private EsTargetConnector(Builder builder) {
         this.clusterNodes = builder.clusterNodes;
@@ -44,10 +58,12 @@ public class EsTargetConnector implements TargetConnector {
         this.username = builder.username;
         this.password = builder.password;
         this.disableSslVerification = builder.disableSslVerification;
+        this.maxConcurrentBulks = Math.max(1, builder.maxConcurrentBulks);
+        this.bulkLimiter = new InFlightLimiter(maxConcurrentBulks, builder.maxInFlightBytes);
     }
 
     @Override
-    public void connect() throws SyncException {
+    public synchronized void connect() throws SyncException {
         if (isConnected()) {
             return;
         }
@@ -92,7 +108,12 @@ public class EsTargetConnector implements TargetConnector {
             // 5. 设置超时和认证
             configBuilder = configBuilder
                     .withConnectTimeout(connectTimeout)
-                    .withSocketTimeout(socketTimeout);
+                    .withSocketTimeout(socketTimeout)
+                    .withClientConfigurer(RestClientConfigurationCallback.from(httpClientBuilder ->
+                            // 连接数不少于并发 bulk 数，避免请求在连接池排队
+                            httpClientBuilder
+                                    .setMaxConnPerRoute(Math.max(10, maxConcurrentBulks))
+                                    .setMaxConnTotal(Math.max(30, maxConcurrentBulks * 2))));
 
             if (username != null && !username.isEmpty()) {
                 String pwd = (password != null) ? password : "";
@@ -100,12 +121,13 @@ public class EsTargetConnector implements TargetConnector {
             }
 
             ClientConfiguration clientConfiguration = configBuilder.build();
-            this.elasticsearchOperations = new ElasticsearchRestTemplate(
-                    RestClients.create(clientConfiguration).rest()
-            );
+            RestClients.ElasticsearchRestClient clients = RestClients.create(clientConfiguration);
+            this.restClient = clients.lowLevelRest();
+            this.elasticsearchOperations = new ElasticsearchRestTemplate(clients.rest());
 
             // 6. 验证连接
             if (!isClusterAvailable()) {
+                close();
                 throw new SyncException("Elasticsearch cluster health check failed");
             }
         } catch (Exception e) {
@@ -195,15 +217,52 @@ public class EsTargetConnector implements TargetConnector {
         }
     }
 
+    /**
+     * 底层 REST 客户端，用于直接发送 bulk 等原始请求
+     */
+    public RestClient getLowLevelClient() {
+        RestClient client = this.restClient;
+        if (client == null) {
+            throw new SyncException("Elasticsearch connector is not connected");
+        }
+        return client;
+    }
+
+    /**
+     * bulk 重试调度线程（退避等待不占用 I/O 线程）
+     */
+    public synchronized ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "es-bulk-retry");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return retryScheduler;
+    }
+
     @Override
     public boolean isConnected() {
         return elasticsearchOperations != null;
     }
 
     @Override
-    public void close() {
-        // Spring 会自动管理客户端，这里只需清空引用
+    public synchronized void close() {
+        // 客户端由连接器自行创建，需显式关闭释放 I/O 线程与连接池
         elasticsearchOperations = null;
+        if (restClient != null) {
+            try {
+                restClient.close();
+            } catch (Exception e) {
+                // 忽略关闭异常
+            }
+            restClient = null;
+        }
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+            retryScheduler = null;
+        }
     }
 
     @Override
@@ -221,6 +280,8 @@ public class EsTargetConnector implements TargetConnector {
         private String username;
         private String password;
         private boolean disableSslVerification = true;
+        private int maxConcurrentBulks = 4;
+        private long maxInFlightBytes = 64L * 1024 * 1024;
 
         public Builder clusterNodes(List<String> nodes) {
             this.clusterNodes = nodes;
@@ -257,6 +318,16 @@ public class EsTargetConnector implements TargetConnector {
             return this;
         }
 
+        public Builder maxConcurrentBulks(int maxConcurrentBulks) {
+            this.maxConcurrentBulks = maxConcurrentBulks;
+            return this;
+        }
+
+        public Builder maxInFlightBytes(long maxInFlightBytes) {
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+
         public EsTargetConnector build() {
             return new EsTargetConnector(this);
         }
@@ -0,0 +1,46 @@
+package kd.data.core.customer.target.impl.es.properties;
+
+/**
+ * es属性
+ *
+ * @author gaozw
+ * @date 2026/10/19 14:06
+ */
+public class EsProperties {
+
+    private EsProperties(){}
+
+    /* ========== 连接 ========== */
+    public static final String CLUSTER_NODES           = "clusterNodes";
+    public static final String USERNAME                = "username";
+    public static final String PASSWORD                = "password";
+
+    /* ========== Bulk 写入 ========== */
+    public static final String BULK_MAX_BYTES          = "bulk-max-bytes";
+    public static final String BULK_MAX_RETRIES        = "bulk-max-retries";
+    public static final String BULK_RETRY_BACKOFF_MS   = "bulk-retry-backoff-ms";
+    public static final String BULK_MAX_CONCURRENT     = "bulk-max-concurrent";
+    public static final String BULK_MAX_IN_FLIGHT_BYTES = "bulk-max-in-flight-bytes";
+
+    /* ========== 批量加载调优 ========== */
+    public static final String BULK_LOAD_TUNING        = "bulk-load-tuning";
+    public static final String BULK_LOAD_FORCE_MERGE_SEGMENTS = "bulk-load-force-merge-segments";
+
+    /* ========== 重建索引（别名切换） ========== */
+    public static final String REINDEX                 = "reindex";
+    public static final String REINDEX_DELETE_OLD      = "reindex-delete-old";
+    public static final String REINDEX_REPLICAS        = "reindex-replicas";
+
+    /* ========== 默认值 ========== */
+    public static final String DEFAULT_CLUSTER_NODES   = "localhost:9200";
+    public static final String DEFAULT_BULK_MAX_BYTES  = "10485760";
+    public static final String DEFAULT_BULK_MAX_RETRIES = "5";
+    public static final String DEFAULT_BULK_RETRY_BACKOFF_MS = "200";
+    public static final String DEFAULT_BULK_MAX_CONCURRENT = "4";
+    public static final String DEFAULT_BULK_MAX_IN_FLIGHT_BYTES = "67108864";
+    public static final String DEFAULT_BULK_LOAD_TUNING = "false";
+    public static final String DEFAULT_BULK_LOAD_FORCE_MERGE_SEGMENTS = "0";
+    public static final String DEFAULT_REINDEX         = "false";
+    public static final String DEFAULT_REINDEX_DELETE_OLD = "false";
+    public static final String DEFAULT_REINDEX_REPLICAS = "1";
+}
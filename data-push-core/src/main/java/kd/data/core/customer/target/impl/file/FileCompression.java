@@ -0,0 +1,58 @@
+package kd.data.core.customer.target.impl.file;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文件压缩方式
+ *
+ * @author gaozw
+ * @date 2026/10/19 17:08
+ */
+public enum FileCompression {
+
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    FileCompression(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 包装输出流，关闭返回的流即写完压缩尾部
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdOutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    public static FileCompression of(String name) {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        for (FileCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported file compression: " + name);
+    }
+}
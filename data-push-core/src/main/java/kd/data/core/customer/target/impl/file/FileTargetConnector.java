@@ -0,0 +1,117 @@
+package kd.data.core.customer.target.impl.file;
+
+import kd.data.core.customer.target.CheckpointingConnector;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.impl.file.properties.FileProperties;
+import kd.data.core.customer.target.targetenums.TargetEnums;
+import kd.data.core.exception.SyncException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件目标
+ * 每个分片写入独立目录 base-path/taskId/shard_N 下的滚动文件，分片间无共享写状态；
+ * 检查点随文件提交落在分片目录中，续传以文件侧检查点为准
+ *
+ * @author gaozw
+ * @date 2026/10/19 17:30
+ */
+@Slf4j
+@Getter
+@SuppressWarnings("unused")
+public class FileTargetConnector implements TargetConnector, CheckpointingConnector {
+
+    private final Path basePath;
+    private final FileCompression compression;
+    private final long maxFileBytes;
+    private final String delimiter;
+
+    private final Map<String, RollingShardFile> shards = new ConcurrentHashMap<>();
+    private volatile boolean isConnected = false;
+
+    public FileTargetConnector(Properties configProperties) {
+        this.basePath = Paths.get(configProperties.getProperty(FileProperties.BASE_PATH, FileProperties.DEFAULT_BASE_PATH));
+        this.compression = FileCompression.of(configProperties.getProperty(FileProperties.COMPRESSION,
+                FileProperties.DEFAULT_COMPRESSION));
+        this.maxFileBytes = Long.parseLong(configProperties.getProperty(FileProperties.MAX_FILE_BYTES,
+                FileProperties.DEFAULT_MAX_FILE_BYTES));
+        this.delimiter = configProperties.getProperty(FileProperties.DELIMITER, FileProperties.DEFAULT_DELIMITER);
+    }
+
+    @Override
+    public synchronized void connect() throws SyncException {
+        if (isConnected) {
+            return;
+        }
+        try {
+            Files.createDirectories(basePath);
+            isConnected = true;
+        } catch (IOException e) {
+            throw new SyncException("Create output directory failed: " + basePath, e);
+        }
+    }
+
+    /**
+     * 分片的滚动文件，首次访问时恢复分片目录
+     */
+    RollingShardFile shard(String lockKey) {
+        return shards.computeIfAbsent(lockKey,
+                key -> new RollingShardFile(shardDir(key), compression, maxFileBytes));
+    }
+
+    /**
+     * 分片目录：锁键 taskId:shard_N 映射为 taskId/shard_N
+     */
+    Path shardDir(String lockKey) {
+        Path dir = basePath;
+        for (String part : lockKey.split(":")) {
+            dir = dir.resolve(part);
+        }
+        return dir;
+    }
+
+    @Override
+    public boolean ownsCheckpoint() {
+        return true;
+    }
+
+    @Override
+    public String loadCheckpoint(String lockKey) {
+        connect();
+        return shard(lockKey).getCheckpoint();
+    }
+
+    @Override
+    public void releaseShard(String lockKey) {
+        RollingShardFile file = shards.remove(lockKey);
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    @Override
+    public String getType() {
+        return TargetEnums.FILE.name();
+    }
+
+    @Override
+    public void close() {
+        // 正常流程下分片结束时已提交；残留的未提交文件丢弃，下次从文件侧检查点续传
+        shards.values().forEach(RollingShardFile::abort);
+        shards.clear();
+        isConnected = false;
+    }
+}
@@ -0,0 +1,167 @@
+package kd.data.core.customer.target.impl.file;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetWriter;
+import kd.data.core.exception.SyncException;
+import kd.data.core.model.SyncContext;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件写入（CSV，按连接器配置压缩）
+ * 在分片线程上执行：由线程上下文的锁键定位分片文件，批次先完整编码再追加，
+ * 编码失败不会污染文件；表头与 _schema.json 由 ConsumerMetadata 字段派生
+ *
+ * @author gaozw
+ * @date 2026/10/19 17:40
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class FileTargetWriter<T> implements TargetWriter<T> {
+
+    static final String SCHEMA_FILE = "_schema.json";
+    private static final DateTimeFormatter DATE_TIME_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongAdder bytesSent = new LongAdder();
+    /** 已写出 schema 的任务目录 */
+    private final Set<Path> schemaWritten = ConcurrentHashMap.newKeySet();
+    private volatile byte[] header;
+
+    @Override
+    public void write(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        if (!(connector instanceof FileTargetConnector)) {
+            throw new IllegalArgumentException("文件写入器需要文件连接器");
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        String lockKey = SyncContext.currentAttribute(SyncContext.LOCK_KEY);
+        if (lockKey == null) {
+            throw new SyncException("File target requires a shard context");
+        }
+        FileTargetConnector fileConnector = (FileTargetConnector) connector;
+        if (!fileConnector.isConnected()) {
+            fileConnector.connect();
+        }
+        String delimiter = fileConnector.getDelimiter();
+        writeSchemaIfAbsent(fileConnector, fileConnector.shardDir(lockKey).getParent(), metadata);
+
+        ByteArrayOutputStream rows = new ByteArrayOutputStream(batch.size() * 128);
+        StringBuilder line = new StringBuilder(256);
+        for (T item : batch) {
+            line.setLength(0);
+            boolean first = true;
+            for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+                if (!first) {
+                    line.append(delimiter);
+                }
+                first = false;
+                appendValue(line, ReflectionUtils.getFieldValue(item, field.getFieldName()), delimiter);
+            }
+            line.append('\n');
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            rows.write(bytes, 0, bytes.length);
+        }
+
+        byte[] encoded = rows.toByteArray();
+        fileConnector.shard(lockKey).write(header(metadata, delimiter), encoded,
+                SyncContext.currentAttribute(SyncContext.BATCH_CHECKPOINT));
+        bytesSent.add(encoded.length);
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    private byte[] header(ConsumerMetadata metadata, String delimiter) {
+        if (header == null) {
+            StringBuilder sb = new StringBuilder();
+            for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+                if (sb.length() > 0) {
+                    sb.append(delimiter);
+                }
+                appendValue(sb, field.getEffectiveTargetName(), delimiter);
+            }
+            header = sb.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return header;
+    }
+
+    /**
+     * 写出字段 schema（名称、Java 类型、格式信息），供下游建表
+     */
+    private void writeSchemaIfAbsent(FileTargetConnector connector, Path dir, ConsumerMetadata metadata) {
+        if (schemaWritten.contains(dir)) {
+            return;
+        }
+        ObjectNode schema = objectMapper.createObjectNode();
+        schema.put("format", "csv");
+        schema.put("compression", connector.getCompression().name().toLowerCase());
+        schema.put("delimiter", connector.getDelimiter());
+        schema.put("header", true);
+        ArrayNode fields = schema.putArray("fields");
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            ObjectNode node = fields.addObject();
+            node.put("name", field.getEffectiveTargetName());
+            node.put("type", field.getJavaType().getSimpleName());
+            node.put("role", field.getRole());
+        }
+        try {
+            Files.createDirectories(dir);
+            // 各分片线程写出相同内容，临时文件名带线程ID避免互相覆盖
+            Path tmp = dir.resolve(SCHEMA_FILE + "." + Thread.currentThread().getId() + ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(os, schema);
+            }
+            Files.move(tmp, dir.resolve(SCHEMA_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            schemaWritten.add(dir);
+        } catch (IOException e) {
+            throw new SyncException("Write schema failed: " + dir, e);
+        }
+    }
+
+    /**
+     * RFC 4180 转义：含分隔符、引号或换行的值加引号，内部引号加倍
+     */
+    private static void appendValue(StringBuilder sb, Object value, String delimiter) {
+        if (value == null) {
+            return;
+        }
+        String text;
+        if (value instanceof Date) {
+            text = DATE_TIME_MILLIS.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault()));
+        } else if (value instanceof LocalDateTime) {
+            text = DATE_TIME_MILLIS.format((LocalDateTime) value);
+        } else {
+            text = value.toString();
+        }
+        if (text.contains(delimiter) || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            sb.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            sb.append(text);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package kd.data.core.customer.target.impl.file;
+
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分片滚动文件
+ * 仅由所属分片线程访问，无需加锁。数据先写入隐藏的 .inprogress 临时文件，
+ * 达到大小阈值或分片结束时 fsync 后原子重命名为 part-NNNNN 文件，
+ * 再原子替换 _checkpoint（记录最后提交的文件、序号与其末批检查点）。
+ * 加载时删除临时文件与序号大于检查点的孤儿文件（重命名后、写检查点前崩溃），保证文件与检查点一致
+ *
+ * @author gaozw
+ * @date 2026/10/19 17:12
+ */
+@Slf4j
+class RollingShardFile {
+
+    static final String CHECKPOINT_FILE = "_checkpoint";
+    private static final String IN_PROGRESS_SUFFIX = ".inprogress";
+    private static final Pattern PART_PATTERN = Pattern.compile("part-(\\d+)\\..*");
+
+    private static final String KEY_CHECKPOINT = "checkpoint";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_SEQUENCE = "sequence";
+
+    private final Path dir;
+    private final FileCompression compression;
+    private final long maxFileBytes;
+
+    /** 最后提交的文件序号与检查点 */
+    private long sequence;
+    private String checkpoint;
+
+    /** 当前打开的文件 */
+    private Path inProgress;
+    private CountingOutputStream counting;
+    private OutputStream out;
+    private String pendingCheckpoint;
+    /** 写入出错后临时文件已丢弃，分片后续写入一律失败，由上层从已提交检查点重跑 */
+    private boolean broken;
+
+    RollingShardFile(Path dir, FileCompression compression, long maxFileBytes) {
+        this.dir = dir;
+        this.compression = compression;
+        this.maxFileBytes = maxFileBytes;
+        recover();
+    }
+
+    String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 追加一个已编码的批次，文件大小达到阈值时在批次边界提交
+     * @param header 新文件的表头
+     * @param rows 批次编码后的行
+     * @param batchCheckpoint 批次检查点
+     */
+    void write(byte[] header, byte[] rows, String batchCheckpoint) {
+        if (broken) {
+            throw new SyncException("Shard file " + dir + " was aborted after a write failure");
+        }
+        try {
+            if (out == null) {
+                open(header);
+            }
+            out.write(rows);
+            pendingCheckpoint = batchCheckpoint;
+            // 压缩流内部有缓冲，按已落盘字节近似判断
+            if (counting.count >= maxFileBytes) {
+                commit();
+            }
+        } catch (IOException e) {
+            abort();
+            broken = true;
+            throw new SyncException("Write shard file failed: " + dir, e);
+        }
+    }
+
+    /**
+     * 提交当前文件：写完压缩尾部、fsync、原子重命名，然后更新检查点
+     */
+    void commit() throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.close();
+        out = null;
+        try (FileChannel channel = FileChannel.open(inProgress, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        long next = sequence + 1;
+        String fileName = partName(next);
+        Files.move(inProgress, dir.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+        inProgress = null;
+
+        saveCheckpoint(next, fileName, pendingCheckpoint);
+        this.sequence = next;
+        this.checkpoint = pendingCheckpoint;
+        log.info("Committed {} ({} bytes), checkpoint {}", dir.resolve(fileName), counting.count, checkpoint);
+    }
+
+    /**
+     * 分片结束：提交已写入的数据并释放文件
+     */
+    void close() {
+        if (broken) {
+            return;
+        }
+        try {
+            commit();
+        } catch (IOException e) {
+            abort();
+            throw new SyncException("Commit shard file failed: " + dir, e);
+        }
+    }
+
+    /**
+     * 丢弃未提交的临时文件
+     */
+    void abort() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Close aborted file failed: {}", e.getMessage());
+            }
+            out = null;
+        }
+        if (inProgress != null) {
+            try {
+                Files.deleteIfExists(inProgress);
+            } catch (IOException e) {
+                log.warn("Delete in-progress file {} failed: {}", inProgress, e.getMessage());
+            }
+            inProgress = null;
+        }
+    }
+
+    private void open(byte[] header) throws IOException {
+        this.inProgress = dir.resolve("." + partName(sequence + 1) + IN_PROGRESS_SUFFIX);
+        OutputStream file = Files.newOutputStream(inProgress,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.counting = new CountingOutputStream(file);
+        // 批次整块写入，无需额外缓冲
+        this.out = compression.wrap(counting);
+        out.write(header);
+    }
+
+    private String partName(long seq) {
+        return String.format("part-%05d.csv%s", seq, compression.getExtension());
+    }
+
+    /**
+     * 读取检查点并清理未提交文件
+     */
+    private void recover() {
+        try {
+            Files.createDirectories(dir);
+            Path file = dir.resolve(CHECKPOINT_FILE);
+            if (Files.exists(file)) {
+                Properties props = new Properties();
+                try (InputStream in = Files.newInputStream(file)) {
+                    props.load(in);
+                }
+                this.sequence = Long.parseLong(props.getProperty(KEY_SEQUENCE, "0"));
+                this.checkpoint = props.getProperty(KEY_CHECKPOINT);
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path path : files) {
+                    String name = path.getFileName().toString();
+                    Matcher m = PART_PATTERN.matcher(name);
+                    if (name.endsWith(IN_PROGRESS_SUFFIX)
+                            || (m.matches() && Long.parseLong(m.group(1)) > sequence)) {
+                        Files.delete(path);
+                        log.warn("Removed uncommitted shard file {}", path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new SyncException("Recover shard directory failed: " + dir, e);
+        }
+    }
+
+    private void saveCheckpoint(long seq, String fileName, String value) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(KEY_SEQUENCE, String.valueOf(seq));
+        props.setProperty(KEY_FILE, fileName);
+        if (value != null) {
+            props.setProperty(KEY_CHECKPOINT, value);
+        }
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            props.store(os, null);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 统计写入底层文件的字节数
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package kd.data.core.customer.target.impl.file.properties;
+
+/**
+ * 文件目标属性
+ *
+ * @author gaozw
+ * @date 2026/10/19 17:05
+ */
+public class FileProperties {
+
+    private FileProperties(){}
+
+    /* ========== 输出 ========== */
+    public static final String BASE_PATH               = "base-path";
+    public static final String COMPRESSION             = "compression";
+    public static final String MAX_FILE_BYTES          = "max-file-bytes";
+    public static final String DELIMITER               = "delimiter";
+
+    /* ========== 默认值 ========== */
+    public static final String DEFAULT_BASE_PATH       = "./data-push-export";
+    public static final String DEFAULT_COMPRESSION     = "gzip";
+    public static final String DEFAULT_MAX_FILE_BYTES  = "134217728";
+    public static final String DEFAULT_DELIMITER       = ",";
+}
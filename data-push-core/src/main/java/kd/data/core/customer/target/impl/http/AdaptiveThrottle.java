@@ -0,0 +1,54 @@
+package kd.data.core.customer.target.impl.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应限速
+ * 同一端点的所有发送方共享：收到 429/503 时按 Retry-After 暂停并成倍拉大请求间隔，
+ * 之后每次成功按比例缩小间隔，逐步恢复到全速
+ *
+ * @author gaozw
+ * @date 2026/10/19 18:55
+ */
+class AdaptiveThrottle {
+
+    private static final long MIN_STEP_MS = 50;
+    /** 每次成功保留的间隔比例 */
+    private static final double DECAY = 0.75;
+
+    private final long maxDelayMs;
+
+    private long pausedUntilNanos;
+    private long delayMs;
+
+    AdaptiveThrottle(long maxDelayMs) {
+        this.maxDelayMs = Math.max(MIN_STEP_MS, maxDelayMs);
+    }
+
+    /**
+     * 端点要求降速
+     * @param retryAfterMs Retry-After 指定的等待时间，未指定为 -1
+     * @return 本次应等待的毫秒数
+     */
+    synchronized long onThrottled(long retryAfterMs) {
+        delayMs = Math.min(maxDelayMs, Math.max(MIN_STEP_MS, delayMs * 2));
+        long waitMs = Math.min(maxDelayMs, Math.max(retryAfterMs, delayMs));
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs));
+        return waitMs;
+    }
+
+    synchronized void onSuccess() {
+        delayMs = (long) (delayMs * DECAY);
+        if (delayMs < MIN_STEP_MS / 5) {
+            delayMs = 0;
+        }
+    }
+
+    /**
+     * 发送前应等待的毫秒数：剩余暂停时间 + 当前请求间隔
+     */
+    synchronized long currentDelayMs() {
+        long pausedMs = TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime());
+        return Math.max(0, pausedMs) + delayMs;
+    }
+}
@@ -0,0 +1,144 @@
+package kd.data.core.customer.target.impl.http;
+
+import kd.data.core.customer.target.InFlightLimiter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.impl.http.properties.HttpProperties;
+import kd.data.core.customer.target.targetenums.TargetEnums;
+import kd.data.core.exception.SyncException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * http
+ * 长连接池异步客户端，连接数与在途请求数一致；同一端点共享在途限制与自适应限速
+ *
+ * @author gaozw
+ * @date 2026/10/19 19:02
+ */
+@Slf4j
+@Getter
+@SuppressWarnings("unused")
+public class HttpTargetConnector implements TargetConnector {
+
+    private static final String HEADER_SEPARATOR = ";";
+
+    private final String url;
+    private final Map<String, String> headers;
+    private final int connectTimeoutMs;
+    private final int socketTimeoutMs;
+    private final int maxConcurrent;
+    /** 在途请求限制（记录数即请求数） */
+    private final InFlightLimiter requestLimiter;
+    @Getter(AccessLevel.PACKAGE)
+    private final AdaptiveThrottle throttle;
+
+    private volatile CloseableHttpAsyncClient client;
+    @Getter(AccessLevel.NONE)
+    private ScheduledExecutorService retryScheduler;
+
+    public HttpTargetConnector(Properties configProperties) {
+        this.url = configProperties.getProperty(HttpProperties.URL);
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("HTTP target url must not be empty");
+        }
+        this.headers = parseHeaders(configProperties.getProperty(HttpProperties.HEADERS));
+        this.connectTimeoutMs = Integer.parseInt(configProperties.getProperty(HttpProperties.CONNECT_TIMEOUT_MS,
+                HttpProperties.DEFAULT_CONNECT_TIMEOUT_MS));
+        this.socketTimeoutMs = Integer.parseInt(configProperties.getProperty(HttpProperties.SOCKET_TIMEOUT_MS,
+                HttpProperties.DEFAULT_SOCKET_TIMEOUT_MS));
+        this.maxConcurrent = Math.max(1, Integer.parseInt(configProperties.getProperty(HttpProperties.MAX_CONCURRENT,
+                HttpProperties.DEFAULT_MAX_CONCURRENT)));
+        this.requestLimiter = new InFlightLimiter(maxConcurrent, Long.parseLong(configProperties.getProperty(
+                HttpProperties.MAX_IN_FLIGHT_BYTES, HttpProperties.DEFAULT_MAX_IN_FLIGHT_BYTES)));
+        this.throttle = new AdaptiveThrottle(Long.parseLong(configProperties.getProperty(HttpProperties.MAX_BACKOFF_MS,
+                HttpProperties.DEFAULT_MAX_BACKOFF_MS)));
+    }
+
+    private static Map<String, String> parseHeaders(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String header : value.split(HEADER_SEPARATOR)) {
+            int idx = header.indexOf(':');
+            if (idx > 0) {
+                result.put(header.substring(0, idx).trim(), header.substring(idx + 1).trim());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void connect() throws SyncException {
+        if (isConnected()) {
+            return;
+        }
+        try {
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(connectTimeoutMs)
+                    .setConnectionRequestTimeout(socketTimeoutMs)
+                    .setSocketTimeout(socketTimeoutMs)
+                    .build();
+            CloseableHttpAsyncClient created = HttpAsyncClients.custom()
+                    .setDefaultRequestConfig(requestConfig)
+                    // 并发请求数受限流器约束，连接池与之等大即可保持长连接复用
+                    .setMaxConnPerRoute(maxConcurrent)
+                    .setMaxConnTotal(maxConcurrent)
+                    .build();
+            created.start();
+            this.client = created;
+        } catch (Exception e) {
+            throw new SyncException("HTTP client start failed: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "http-target-retry");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return retryScheduler;
+    }
+
+    @Override
+    public boolean isConnected() {
+        CloseableHttpAsyncClient current = client;
+        return current != null && current.isRunning();
+    }
+
+    @Override
+    public String getType() {
+        return TargetEnums.HTTP.name();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("Close HTTP client failed: {}", e.getMessage());
+            }
+            client = null;
+        }
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+            retryScheduler = null;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package kd.data.core.customer.target.impl.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.customer.CompressedBatch;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.CompressedBatchWriter;
+import kd.data.core.customer.target.InFlightLimiter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetRejectedException;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * http 写入
+ * 批次编码为 JSON 数组或 NDJSON 请求体（超过单请求字节上限时拆分），可选 gzip，经长连接池异步发送；
+ * ndjson + gzip 时压缩批次即为请求体，不超过单请求上限时原样发送。
+ * 429/503 按 Retry-After 在连接器级自适应降速后重发，其它 5xx 与 I/O 错误指数退避重发，
+ * 4xx 视为确定性拒绝直接失败；重试在写入器内完成，不占用分片处理器的整批重试
+ *
+ * @author gaozw
+ * @date 2026/10/19 19:15
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class HttpTargetWriter<T> implements AsyncTargetWriter<T>, CompressedBatchWriter<T> {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int STATUS_SERVICE_UNAVAILABLE = 503;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongAdder bytesSent = new LongAdder();
+    private final boolean ndjson;
+    private final boolean gzip;
+    private final int maxRequestBytes;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long maxBackoffMs;
+    private final long acquireTimeoutMs;
+
+    public HttpTargetWriter(String format, boolean gzip, int maxRequestBytes,
+                            int maxRetries, long retryBackoffMs, long maxBackoffMs) {
+        this(format, gzip, maxRequestBytes, maxRetries, retryBackoffMs, maxBackoffMs, 60_000L);
+    }
+
+    public HttpTargetWriter(String format, boolean gzip, int maxRequestBytes,
+                            int maxRetries, long retryBackoffMs, long maxBackoffMs, long acquireTimeoutMs) {
+        this.ndjson = FORMAT_NDJSON.equalsIgnoreCase(format);
+        this.gzip = gzip;
+        this.maxRequestBytes = Math.max(1024, maxRequestBytes);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        this.maxBackoffMs = Math.max(this.retryBackoffMs, maxBackoffMs);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        if (!(connector instanceof HttpTargetConnector)) {
+            throw new IllegalArgumentException("HTTP写入器需要HTTP连接器");
+        }
+        if (batch == null || batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpTargetConnector httpConnector = (HttpTargetConnector) connector;
+        if (!httpConnector.isConnected()) {
+            httpConnector.connect();
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            ByteArrayOutputStream body = newBody();
+            int records = 0;
+            for (T item : batch) {
+                byte[] doc = toJson(item, metadata);
+                if (records > 0 && body.size() + doc.length + 2 > maxRequestBytes) {
+                    futures.add(dispatch(httpConnector, finish(body), records));
+                    body = newBody();
+                    records = 0;
+                }
+                if (!ndjson && records > 0) {
+                    body.write(',');
+                }
+                body.write(doc, 0, doc.length);
+                if (ndjson) {
+                    body.write('\n');
+                }
+                records++;
+            }
+            futures.add(dispatch(httpConnector, finish(body), records));
+        } catch (RuntimeException e) {
+            // 已发出的请求自行完成并归还额度，本批次整体失败
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            futures.add(failed);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    @Override
+    public boolean acceptsCompressed(CompressedBatch<T> batch) {
+        return batch.getFormat() == passthroughFormat() && batch.getRawBytes() <= maxRequestBytes;
+    }
+
+    @Override
+    public CompressedBatch.Format passthroughFormat() {
+        return ndjson && gzip ? CompressedBatch.Format.NDJSON_GZIP : null;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeCompressedAsync(CompressedBatch<T> batch, TargetConnector connector,
+                                                        ConsumerMetadata metadata) {
+        if (!(connector instanceof HttpTargetConnector)) {
+            throw new IllegalArgumentException("HTTP写入器需要HTTP连接器");
+        }
+        if (batch.size() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpTargetConnector httpConnector = (HttpTargetConnector) connector;
+        if (!httpConnector.isConnected()) {
+            httpConnector.connect();
+        }
+        return dispatch(httpConnector, batch.getPayload(), batch.size());
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    private ByteArrayOutputStream newBody() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(Math.min(maxRequestBytes, 1 << 20));
+        if (!ndjson) {
+            body.write('[');
+        }
+        return body;
+    }
+
+    /**
+     * 结束请求体，需要时整体压缩一次（重试复用压缩结果）
+     */
+    private byte[] finish(ByteArrayOutputStream body) {
+        if (!ndjson) {
+            body.write(']');
+        }
+        if (!gzip) {
+            return body.toByteArray();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.size() / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            body.writeTo(out);
+        } catch (IOException e) {
+            throw new SyncException("Gzip request body failed", e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * 发出一个请求：按当前限速等待后申请在途额度（超限阻塞形成背压），最终完成（含重试）后归还额度
+     */
+    private CompletableFuture<Void> dispatch(HttpTargetConnector connector, byte[] body, int records) {
+        pace(connector.getThrottle().currentDelayMs());
+        InFlightLimiter limiter = connector.getRequestLimiter();
+        limiter.acquire(body.length, acquireTimeoutMs);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.whenComplete((v, ex) -> limiter.release(body.length));
+        send(connector, body, records, 0, future);
+        return future;
+    }
+
+    private void send(HttpTargetConnector connector, byte[] body, int records, int attempt,
+                      CompletableFuture<Void> future) {
+        HttpPost post = new HttpPost(connector.getUrl());
+        connector.getHeaders().forEach(post::setHeader);
+        ByteArrayEntity entity = new ByteArrayEntity(body, ndjson ? NDJSON : ContentType.APPLICATION_JSON);
+        if (gzip) {
+            entity.setContentEncoding("gzip");
+        }
+        post.setEntity(entity);
+        try {
+            connector.getClient().execute(post, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    int status = response.getStatusLine().getStatusCode();
+                    String reason = status + " " + response.getStatusLine().getReasonPhrase();
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    if (status >= 200 && status < 300) {
+                        connector.getThrottle().onSuccess();
+                        bytesSent.add(body.length);
+                        future.complete(null);
+                    } else if (status == STATUS_TOO_MANY_REQUESTS || status == STATUS_SERVICE_UNAVAILABLE) {
+                        long waitMs = connector.getThrottle().onThrottled(retryAfterMs(response));
+                        retry(connector, body, records, attempt, waitMs, reason, future);
+                    } else if (status >= 500) {
+                        retry(connector, body, records, attempt, backoff(attempt), reason, future);
+                    } else {
+                        future.completeExceptionally(new TargetRejectedException("HTTP target " + connector.getUrl()
+                                + " rejected " + records + " records: " + reason, status, records));
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    retry(connector, body, records, attempt, backoff(attempt), e.getMessage(), future);
+                }
+
+                @Override
+                public void cancelled() {
+                    future.completeExceptionally(new SyncException("HTTP request to " + connector.getUrl() + " cancelled"));
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(new SyncException("HTTP request to " + connector.getUrl() + " failed: "
+                    + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 在重试调度线程上延迟重发（不阻塞 I/O 线程），仍占用原在途额度
+     */
+    private void retry(HttpTargetConnector connector, byte[] body, int records, int attempt, long delayMs,
+                       String reason, CompletableFuture<Void> future) {
+        if (attempt >= maxRetries) {
+            future.completeExceptionally(new SyncException("HTTP target " + connector.getUrl() + " failed after "
+                    + maxRetries + " retries: " + reason));
+            return;
+        }
+        log.warn("HTTP target {} returned {}, retry {}/{} after {} ms",
+                connector.getUrl(), reason, attempt + 1, maxRetries, delayMs);
+        try {
+            connector.getRetryScheduler().schedule(() -> send(connector, body, records, attempt + 1, future),
+                    delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            future.completeExceptionally(new SyncException("HTTP retry scheduling failed: " + connector.getUrl(), e));
+        }
+    }
+
+    /**
+     * 指数退避加随机抖动
+     */
+    private long backoff(int attempt) {
+        long base = Math.min(maxBackoffMs, retryBackoffMs << Math.min(attempt, 20));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    /**
+     * 解析 Retry-After（秒数或 HTTP 日期），缺失或无法解析返回 -1
+     */
+    private static long retryAfterMs(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    private static void pace(long delayMs) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while throttled", e);
+        }
+    }
+
+    private byte[] toJson(T item, ConsumerMetadata metadata) {
+        Map<String, Object> document = new HashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            document.put(field.getEffectiveTargetName(), ReflectionUtils.getFieldValue(item, field.getFieldName()));
+        }
+        try {
+            return objectMapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new SyncException("JSON序列化失败: " + e.getMessage(), e);
+        }
+    }
+}
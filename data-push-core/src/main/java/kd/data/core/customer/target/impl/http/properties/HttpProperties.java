@@ -0,0 +1,44 @@
+package kd.data.core.customer.target.impl.http.properties;
+
+/**
+ * http属性
+ *
+ * @author gaozw
+ * @date 2026/10/19 18:50
+ */
+public class HttpProperties {
+
+    private HttpProperties(){}
+
+    /* ========== 连接 ========== */
+    public static final String URL                     = "url";
+    /** 额外请求头，格式 name:value，多个以分号分隔 */
+    public static final String HEADERS                 = "headers";
+    public static final String CONNECT_TIMEOUT_MS      = "connect-timeout-ms";
+    public static final String SOCKET_TIMEOUT_MS       = "socket-timeout-ms";
+    public static final String MAX_CONCURRENT          = "max-concurrent";
+    public static final String MAX_IN_FLIGHT_BYTES     = "max-in-flight-bytes";
+
+    /* ========== 请求体 ========== */
+    /** json-array 或 ndjson */
+    public static final String FORMAT                  = "format";
+    public static final String GZIP                    = "gzip";
+    public static final String MAX_REQUEST_BYTES       = "max-request-bytes";
+
+    /* ========== 重试与限速 ========== */
+    public static final String MAX_RETRIES             = "max-retries";
+    public static final String RETRY_BACKOFF_MS        = "retry-backoff-ms";
+    public static final String MAX_BACKOFF_MS          = "max-backoff-ms";
+
+    /* ========== 默认值 ========== */
+    public static final String DEFAULT_CONNECT_TIMEOUT_MS = "5000";
+    public static final String DEFAULT_SOCKET_TIMEOUT_MS = "60000";
+    public static final String DEFAULT_MAX_CONCURRENT  = "4";
+    public static final String DEFAULT_MAX_IN_FLIGHT_BYTES = "67108864";
+    public static final String DEFAULT_FORMAT          = "json-array";
+    public static final String DEFAULT_GZIP            = "false";
+    public static final String DEFAULT_MAX_REQUEST_BYTES = "5242880";
+    public static final String DEFAULT_MAX_RETRIES     = "8";
+    public static final String DEFAULT_RETRY_BACKOFF_MS = "500";
+    public static final String DEFAULT_MAX_BACKOFF_MS  = "60000";
+}
@@ -0,0 +1,186 @@
+package kd.data.core.customer.target.impl.kafka;
+
+import kd.data.core.exception.SyncException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Kafka 检查点主题（compact）
+ * 检查点消息 key 为分片锁键，value 为检查点，与业务数据在同一事务中提交；
+ * 续传时以 read_committed 隔离级别追读到末尾，取每个分片的最新值
+ *
+ * @author gaozw
+ * @date 2026/10/19 11:35
+ */
+@Slf4j
+class KafkaCheckpointTopic {
+
+    private static final Duration LOAD_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    @Getter
+    private final String topic;
+    private final Properties clientProps;
+    private final Map<String, String> checkpoints = new ConcurrentHashMap<>();
+    private KafkaConsumer<String, String> consumer;
+    private List<TopicPartition> partitions = Collections.emptyList();
+
+    KafkaCheckpointTopic(String topic, Properties producerProps) {
+        this.topic = topic;
+        this.clientProps = extractClientProps(producerProps);
+    }
+
+    /**
+     * 仅保留连接与安全配置，供 AdminClient/Consumer 使用
+     */
+    private static Properties extractClientProps(Properties producerProps) {
+        Properties props = new Properties();
+        for (String name : producerProps.stringPropertyNames()) {
+            if ("bootstrap.servers".equals(name) || name.startsWith("security.")
+                    || name.startsWith("sasl.") || name.startsWith("ssl.")) {
+                props.put(name, producerProps.getProperty(name));
+            }
+        }
+        return props;
+    }
+
+    /**
+     * 确保检查点主题存在且为 compact 策略
+     */
+    void ensureCreated() {
+        try (AdminClient admin = AdminClient.create(clientProps)) {
+            NewTopic newTopic = new NewTopic(topic, Optional.empty(), Optional.empty())
+                    .configs(Collections.singletonMap(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT));
+            admin.createTopics(Collections.singletonList(newTopic)).all().get(30, TimeUnit.SECONDS);
+            log.info("Created checkpoint topic {}", topic);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TopicExistsException)) {
+                throw new SyncException("Failed to create checkpoint topic: " + topic, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while creating checkpoint topic: " + topic, e);
+        } catch (Exception e) {
+            throw new SyncException("Failed to create checkpoint topic: " + topic, e);
+        }
+    }
+
+    /**
+     * 读取分片检查点：每次续传都追读到当前已提交末尾，
+     * 其他节点在本节点首次加载之后提交的检查点也能读到
+     */
+    String get(String lockKey) {
+        catchUp();
+        return checkpoints.get(lockKey);
+    }
+
+    /**
+     * 事务提交成功后同步本地视图
+     */
+    void committed(String lockKey, String checkpoint) {
+        checkpoints.put(lockKey, checkpoint);
+    }
+
+    /**
+     * 长驻 consumer 从上次位置增量读取至各分区当前 LSO（read_committed 下的 endOffsets）
+     */
+    private synchronized void catchUp() {
+        try {
+            if (consumer == null) {
+                consumer = openConsumer();
+            }
+            if (partitions.isEmpty()) {
+                return;
+            }
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions, LOAD_TIMEOUT);
+            long deadline = System.currentTimeMillis() + LOAD_TIMEOUT.toMillis();
+            int applied = 0;
+            while (!reachedEnd(consumer, endOffsets)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new SyncException("Timed out loading checkpoint topic: " + topic);
+                }
+                for (ConsumerRecord<String, String> rec : consumer.poll(POLL_TIMEOUT)) {
+                    if (rec.key() == null) {
+                        continue;
+                    }
+                    if (rec.value() == null) {
+                        checkpoints.remove(rec.key());
+                    } else {
+                        checkpoints.put(rec.key(), rec.value());
+                    }
+                    applied++;
+                }
+            }
+            if (applied > 0) {
+                log.debug("Applied {} checkpoint records from topic {}", applied, topic);
+            }
+        } catch (SyncException e) {
+            closeConsumer();
+            throw e;
+        } catch (Exception e) {
+            closeConsumer();
+            throw new SyncException("Failed to load checkpoint topic: " + topic, e);
+        }
+    }
+
+    private KafkaConsumer<String, String> openConsumer() {
+        Properties props = new Properties();
+        props.putAll(clientProps);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        KafkaConsumer<String, String> created = new KafkaConsumer<>(props);
+        List<PartitionInfo> infos = created.partitionsFor(topic, LOAD_TIMEOUT);
+        partitions = infos == null ? Collections.emptyList() : infos.stream()
+                .map(p -> new TopicPartition(p.topic(), p.partition()))
+                .collect(Collectors.toList());
+        created.assign(partitions);
+        created.seekToBeginning(partitions);
+        // 重新从头读取，丢弃可能已过期的本地视图
+        checkpoints.clear();
+        return created;
+    }
+
+    private void closeConsumer() {
+        if (consumer != null) {
+            try {
+                consumer.close();
+            } catch (Exception e) {
+                log.warn("Close checkpoint consumer failed: {}", topic, e);
+            }
+            consumer = null;
+        }
+    }
+
+    synchronized void close() {
+        closeConsumer();
+    }
+
+    private static boolean reachedEnd(KafkaConsumer<String, String> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,34 +1,69 @@
 package kd.data.core.customer.target.impl.kafka;
 
+import kd.data.core.customer.target.CheckpointingConnector;
+import kd.data.core.customer.target.InFlightLimiter;
 import kd.data.core.customer.target.TargetConnector;
 import kd.data.core.customer.target.impl.kafka.properties.KafkaProperties;
 import kd.data.core.customer.target.targetenums.TargetEnums;
 import kd.data.core.exception.SyncException;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * kafka
+ * 事务模式下每个分片独占一个事务生产者（transactional.id 由分片锁键派生），
+ * 数据与分片检查点在同一事务中提交，检查点以 Kafka 侧 compact 主题为准
  *
  * @author gaozw
  * @date 2025/8/1 11:18
  */
+@Slf4j
 @Getter
 @SuppressWarnings("unused")
-public class KafkaTargetConnector implements TargetConnector {
+public class KafkaTargetConnector implements TargetConnector, CheckpointingConnector {
 
+    private static final String TRANSACTIONAL_ID_PREFIX = "data-push-";
 
     private Producer<String, byte[]> producer;
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
     private final Properties kafkaProps;
+    /** 生产者级别的在途上限，所有分片线程共享 */
+    private final InFlightLimiter inFlightLimiter;
+    /** 事务模式：数据与检查点原子提交 */
+    private final boolean transactional;
+    private final KafkaCheckpointTopic checkpointTopic;
+    /** 分片锁键 -> 事务生产者 */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Producer<String, byte[]>> transactionalProducers = new ConcurrentHashMap<>();
 
     public KafkaTargetConnector(Properties configProperties) {
         this.kafkaProps = createProducerProperties(configProperties);
+        this.inFlightLimiter = new InFlightLimiter(
+                Long.parseLong(configProperties.getProperty(KafkaProperties.PRODUCER_MAX_IN_FLIGHT_RECORDS,
+                        KafkaProperties.DEFAULT_MAX_IN_FLIGHT_RECORDS)),
+                Long.parseLong(configProperties.getProperty(KafkaProperties.PRODUCER_MAX_IN_FLIGHT_BYTES,
+                        KafkaProperties.DEFAULT_MAX_IN_FLIGHT_BYTES)));
+        this.transactional = Boolean.parseBoolean(configProperties.getProperty(
+                KafkaProperties.PRODUCER_TRANSACTIONAL, KafkaProperties.DEFAULT_TRANSACTIONAL));
+        if (transactional) {
+            kafkaProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+            kafkaProps.put(ProducerConfig.ACKS_CONFIG, "all");
+            kafkaProps.put(ProducerConfig.TRANSACTION_TIMEOUT_CONFIG, configProperties.getProperty(
+                    KafkaProperties.PRODUCER_TRANSACTION_TIMEOUT_MS, KafkaProperties.DEFAULT_TRANSACTION_TIMEOUT_MS));
+            this.checkpointTopic = new KafkaCheckpointTopic(configProperties.getProperty(
+                    KafkaProperties.CHECKPOINT_TOPIC, KafkaProperties.DEFAULT_CHECKPOINT_TOPIC), kafkaProps);
+        } else {
+            this.checkpointTopic = null;
+        }
     }
 
     /**
@@ -77,15 +112,81 @@ public class KafkaTargetConnector implements TargetConnector {
 
 
     @Override
-    public void connect() throws SyncException {
+    public synchronized void connect() throws SyncException {
+        if (isConnected) {
+            return;
+        }
         try {
-            this.producer = new KafkaProducer<>(kafkaProps);
+            if (transactional) {
+                checkpointTopic.ensureCreated();
+            } else {
+                this.producer = new KafkaProducer<>(kafkaProps);
+            }
             this.isConnected = true;
+        } catch (SyncException e) {
+            throw e;
         } catch (Exception e) {
             throw new SyncException("Kafka connection failed", e);
         }
     }
 
+    /**
+     * 获取分片的事务生产者，首次获取时初始化事务（同时隔离同一 transactional.id 的旧实例）
+     */
+    Producer<String, byte[]> getTransactionalProducer(String lockKey) {
+        return transactionalProducers.computeIfAbsent(lockKey, k -> {
+            Properties props = new Properties();
+            props.putAll(kafkaProps);
+            props.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, TRANSACTIONAL_ID_PREFIX + k);
+            KafkaProducer<String, byte[]> txProducer = new KafkaProducer<>(props);
+            try {
+                txProducer.initTransactions();
+            } catch (RuntimeException e) {
+                txProducer.close();
+                throw new SyncException("Kafka transaction init failed: " + k, e);
+            }
+            return txProducer;
+        });
+    }
+
+    /**
+     * 丢弃分片的事务生产者（被隔离或中止失败后不可复用）
+     */
+    void discardTransactionalProducer(String lockKey) {
+        Producer<String, byte[]> txProducer = transactionalProducers.remove(lockKey);
+        if (txProducer != null) {
+            try {
+                txProducer.close();
+            } catch (Exception e) {
+                log.warn("Close transactional producer failed: {}", lockKey, e);
+            }
+        }
+    }
+
+    void onCheckpointCommitted(String lockKey, String checkpoint) {
+        checkpointTopic.committed(lockKey, checkpoint);
+    }
+
+    @Override
+    public boolean ownsCheckpoint() {
+        return transactional;
+    }
+
+    @Override
+    public String loadCheckpoint(String lockKey) {
+        if (!transactional) {
+            return null;
+        }
+        // 先 initTransactions 隔离旧持有者并结束其未决事务，LSO 推进后再读取才是最终检查点
+        getTransactionalProducer(lockKey);
+        return checkpointTopic.get(lockKey);
+    }
+
+    @Override
+    public void releaseShard(String lockKey) {
+        discardTransactionalProducer(lockKey);
+    }
+
     @Override
     public boolean isConnected() {
         return isConnected;
@@ -97,10 +198,16 @@ public class KafkaTargetConnector implements TargetConnector {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        for (String lockKey : transactionalProducers.keySet()) {
+            discardTransactionalProducer(lockKey);
+        }
         if (producer != null) {
             producer.close();
-            isConnected = false;
         }
+        if (checkpointTopic != null) {
+            checkpointTopic.close();
+        }
+        isConnected = false;
     }
 }
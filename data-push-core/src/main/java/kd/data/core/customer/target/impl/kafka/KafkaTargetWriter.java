@@ -1,138 +1,244 @@
 package kd.data.core.customer.target.impl.kafka;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.InFlightLimiter;
 import kd.data.core.customer.target.TargetConnector;
-import kd.data.core.customer.target.TargetWriter;
+import kd.data.core.customer.target.impl.kafka.format.JsonValueFormat;
+import kd.data.core.customer.target.impl.kafka.format.KafkaValueFormat;
 import kd.data.core.exception.SyncException;
+import kd.data.core.model.SyncContext;
 import kd.data.core.utils.ReflectionUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.kafka.clients.producer.RecordMetadata;
-import java.util.HashMap;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * kafka 适配器
+ * 每条消息异步发送，按批次跟踪确认结果；在途消息数/字节数受连接器限流器约束，
+ * 不再在每批次后 flush，批次 Future 在全部消息确认后完成，任一失败则异常完成；
+ * 事务模式下批次数据与分片检查点在同一事务内提交，提交完成即确认
  *
  * @author gaozw
  * @date 2025/8/1 11:22
  */
 @Slf4j
 @SuppressWarnings("unused")
-public class KafkaTargetWriter<T> implements TargetWriter<T> {
+public class KafkaTargetWriter<T> implements AsyncTargetWriter<T> {
 
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KafkaValueFormat valueFormat;
 
     private final boolean enableAsync;
     private final long timeoutMs;
+    /** 已确认的消息字节数 */
+    private final LongAdder bytesSent = new LongAdder();
 
     public KafkaTargetWriter() {
         this(true, 5000);
     }
 
     public KafkaTargetWriter(boolean enableAsync, long timeoutMs) {
+        this(enableAsync, timeoutMs, new JsonValueFormat());
+    }
+
+    public KafkaTargetWriter(boolean enableAsync, long timeoutMs, KafkaValueFormat valueFormat) {
         this.enableAsync = enableAsync;
         this.timeoutMs = timeoutMs;
+        this.valueFormat = valueFormat;
     }
 
     @Override
-    public void write(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+    public CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
         if (!(connector instanceof KafkaTargetConnector)) {
             throw new IllegalArgumentException("Kafka写入器需要Kafka连接器");
         }
 
-        Producer<String, byte[]> producer = ((KafkaTargetConnector) connector).getProducer();
+        KafkaTargetConnector kafkaConnector = (KafkaTargetConnector) connector;
         String targetTopic = metadata.getTopicName();
 
         if (batch == null || batch.isEmpty()) {
             log.warn("尝试写入空批次数据到主题: {}", targetTopic);
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (!kafkaConnector.isConnected()) {
+            kafkaConnector.connect();
+        }
+
+        if (kafkaConnector.isTransactional()) {
+            sendTransactional(batch, metadata, targetTopic, kafkaConnector);
+            return CompletableFuture.completedFuture(null);
         }
 
-        write(batch, metadata, targetTopic, producer);
+        BatchAck ack = send(batch, metadata, targetTopic, kafkaConnector);
+        if (!enableAsync) {
+            // 同步模式：返回前等待本批次全部确认
+            awaitAck(ack, targetTopic);
+        }
+        return ack.future;
     }
 
-    private void write(List<T> batch, ConsumerMetadata metadata, String targetTopic, Producer<String, byte[]> producer) {
+    private BatchAck send(List<T> batch, ConsumerMetadata metadata, String targetTopic,
+                          KafkaTargetConnector connector) {
+        Producer<String, byte[]> producer = connector.getProducer();
+        InFlightLimiter limiter = connector.getInFlightLimiter();
+        BatchAck ack = new BatchAck(batch.size());
+        String keyField = metadata.getKeyField();
+
         try {
             for (T item : batch) {
-                // 1. 创建映射文档（应用字段映射）
-                Map<String, Object> document = createMappedDocument(item, metadata);
+                if (ack.future.isDone()) {
+                    // 本批次已有消息失败，停止继续发送，交由上层重试
+                    break;
+                }
 
-                // 2. 转换为JSON字节
-                byte[] jsonBytes = objectMapper.writeValueAsBytes(document);
+                // 1. 按消息格式序列化（应用字段映射）
+                RecordHeaders headers = new RecordHeaders();
+                byte[] valueBytes = valueFormat.serialize(item, metadata, headers);
 
-                // 3. 提取键值
-                String keyField = metadata.getKeyField();
+                // 2. 提取键值
                 String key = (keyField == null) ? null
                         : String.valueOf(ReflectionUtils.getFieldValue(item, keyField));
 
-                // 4. 发送到Kafka
-                ProducerRecord<String, byte[]> re = new ProducerRecord<>(targetTopic, key, jsonBytes);
+                // 3. 申请在途额度，超出上限时阻塞
+                int size = valueBytes.length + (key == null ? 0 : key.getBytes(StandardCharsets.UTF_8).length);
+                limiter.acquire(size, timeoutMs);
 
-                if (enableAsync) {
-                    // 异步发送带回调
-                    producer.send(re, (meta, exception) -> {
+                // 4. 异步发送，回调中归还额度并汇总批次确认
+                try {
+                    producer.send(new ProducerRecord<>(targetTopic, null, key, valueBytes, headers), (meta, exception) -> {
+                        limiter.release(size);
                         if (exception != null) {
                             log.error("发送消息到Kafka失败, topic: {}, key: {}", targetTopic, key, exception);
+                            ack.fail(new SyncException("Kafka写入失败: " + exception.getMessage(), exception));
                         } else {
-                            log.debug("消息发送成功, topic: {}, partition: {}, offset: {}",
-                                    meta.topic(), meta.partition(), meta.offset());
+                            bytesSent.add(size);
+                            ack.success();
                         }
                     });
-                } else {
-                    // 同步发送
-                    Future<RecordMetadata> future = producer.send(re);
-                    future.get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (RuntimeException e) {
+                    limiter.release(size);
+                    throw e;
                 }
             }
+        } catch (RuntimeException e) {
+            log.error("kafka write error {}", e.getMessage(), e);
+            ack.fail(e instanceof SyncException ? e : new SyncException("Kafka写入失败: " + e.getMessage(), e));
+        }
 
-            // 5. 确保所有消息发送完成
-            producer.flush();
-            log.info("成功发送 {} 条消息到主题: {}", batch.size(), targetTopic);
+        ack.future.thenRun(() -> log.debug("成功发送 {} 条消息到主题: {}", batch.size(), targetTopic));
+        return ack;
+    }
+
+    /**
+     * 事务写入：开启事务 -> 发送批次 -> 写入分片检查点 -> 提交
+     * 死信回放时批次没有检查点，事务只包含数据
+     * 生产者被隔离或状态不可恢复时丢弃，下次使用重新 initTransactions
+     */
+    private void sendTransactional(List<T> batch, ConsumerMetadata metadata, String targetTopic,
+                                   KafkaTargetConnector connector) {
+        String lockKey = SyncContext.currentAttribute(SyncContext.LOCK_KEY);
+        String checkpoint = SyncContext.currentAttribute(SyncContext.BATCH_CHECKPOINT);
+        boolean replay = Boolean.parseBoolean(SyncContext.currentAttribute(SyncContext.REPLAY));
+        if (lockKey == null || (checkpoint == null && !replay)) {
+            throw new SyncException("Kafka事务写入缺少分片上下文, topic: " + targetTopic);
+        }
 
-        } catch (InterruptedException  | ExecutionException e) {
-            log.error("kafka write error {}",e.getMessage(),e);
+        Producer<String, byte[]> producer = connector.getTransactionalProducer(lockKey);
+        String keyField = metadata.getKeyField();
+        synchronized (producer) {
+            try {
+                producer.beginTransaction();
+                long txBytes = 0;
+                for (T item : batch) {
+                    RecordHeaders headers = new RecordHeaders();
+                    byte[] valueBytes = valueFormat.serialize(item, metadata, headers);
+                    String key = (keyField == null) ? null
+                            : String.valueOf(ReflectionUtils.getFieldValue(item, keyField));
+                    producer.send(new ProducerRecord<>(targetTopic, null, key, valueBytes, headers));
+                    txBytes += valueBytes.length + (key == null ? 0 : key.getBytes(StandardCharsets.UTF_8).length);
+                }
+                if (checkpoint != null) {
+                    producer.send(new ProducerRecord<>(connector.getCheckpointTopic().getTopic(),
+                            lockKey, checkpoint.getBytes(StandardCharsets.UTF_8)));
+                }
+                // 提交前会等待全部消息确认，任一失败则抛出异常
+                producer.commitTransaction();
+                if (checkpoint != null) {
+                    connector.onCheckpointCommitted(lockKey, checkpoint);
+                }
+                bytesSent.add(txBytes);
+                log.debug("事务提交 {} 条消息到主题: {}, checkpoint: {}", batch.size(), targetTopic, checkpoint);
+            } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+                connector.discardTransactionalProducer(lockKey);
+                throw new SyncException("Kafka事务生产者不可用: " + lockKey, e);
+            } catch (RuntimeException e) {
+                abort(producer, lockKey, connector);
+                throw e instanceof SyncException ? e : new SyncException("Kafka事务写入失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void abort(Producer<String, byte[]> producer, String lockKey, KafkaTargetConnector connector) {
+        try {
+            producer.abortTransaction();
+        } catch (Exception e) {
+            log.warn("Kafka事务中止失败，丢弃生产者: {}", lockKey, e);
+            connector.discardTransactionalProducer(lockKey);
+        }
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    private void awaitAck(BatchAck ack, String targetTopic) {
+        try {
+            ack.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new SyncException("Kafka写入失败: " + e.getMessage(), e);
-        } catch (JsonProcessingException | TimeoutException e) {
-            log.error("kafka write error {}",e.getMessage(),e);
-            throw new SyncException("Kafka写入失败: " + e.getMessage(), e);
+        } catch (ExecutionException e) {
+            // 失败已记录在 Future 中，由调用方处理
+            log.debug("kafka batch failed, topic: {}", targetTopic);
+        } catch (TimeoutException e) {
+            log.error("kafka write timeout, topic: {}", targetTopic);
+            ack.fail(new SyncException("Kafka写入超时: " + targetTopic, e));
         }
     }
 
     /**
-     * 创建映射文档 - 应用字段映射规则
+     * 批次确认跟踪：全部消息成功后完成，首个失败即异常完成
      */
-    private Map<String, Object> createMappedDocument(T item, ConsumerMetadata metadata) {
-        Map<String, Object> document = new HashMap<>();
+    private static final class BatchAck {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger pending;
 
-        // 遍历所有字段定义
-        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
-            try {
-                // 获取字段值
-                Object value = ReflectionUtils.getFieldValue(item, field.getFieldName());
-
-                // 确定目标字段名
-                String targetName = field.getTargetName();
-                if (targetName == null || targetName.isEmpty()) {
-                    targetName = field.getFieldName(); // 使用原始字段名
-                }
+        BatchAck(int size) {
+            this.pending = new AtomicInteger(size);
+        }
 
-                // 添加到文档
-                document.put(targetName, value);
-            } catch (Exception e) {
-                throw new SyncException("字段映射失败: " + field.getFieldName(), e);
+        void success() {
+            if (pending.decrementAndGet() == 0) {
+                future.complete(null);
             }
         }
 
-        return document;
+        void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
     }
 }
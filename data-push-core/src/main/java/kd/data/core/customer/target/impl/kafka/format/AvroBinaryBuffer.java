@@ -0,0 +1,94 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Avro 二进制编码缓冲区（按线程复用）
+ * 编码规则参见 Avro 规范：int/long 使用 zigzag 变长编码，float/double 小端，string/bytes 长度前缀
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:30
+ */
+final class AvroBinaryBuffer {
+
+    private byte[] buf;
+    private int pos;
+
+    AvroBinaryBuffer(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    void reset() {
+        pos = 0;
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        buf[pos++] = (byte) b;
+    }
+
+    /**
+     * 大端 4 字节整数（用于 schema id 前缀，不属于 Avro 编码）
+     */
+    void writeFixedInt(int v) {
+        ensureCapacity(4);
+        buf[pos++] = (byte) (v >>> 24);
+        buf[pos++] = (byte) (v >>> 16);
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) v;
+    }
+
+    void writeLong(long v) {
+        ensureCapacity(10);
+        long n = (v << 1) ^ (v >> 63);
+        while ((n & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        buf[pos++] = (byte) n;
+    }
+
+    void writeInt(int v) {
+        writeLong(v);
+    }
+
+    void writeBoolean(boolean v) {
+        writeByte(v ? 1 : 0);
+    }
+
+    void writeFloat(float v) {
+        int bits = Float.floatToRawIntBits(v);
+        ensureCapacity(4);
+        buf[pos++] = (byte) bits;
+        buf[pos++] = (byte) (bits >>> 8);
+        buf[pos++] = (byte) (bits >>> 16);
+        buf[pos++] = (byte) (bits >>> 24);
+    }
+
+    void writeDouble(double v) {
+        long bits = Double.doubleToRawLongBits(v);
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            buf[pos++] = (byte) (bits >>> (i * 8));
+        }
+    }
+
+    void writeString(String v) {
+        byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+        writeLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.impl.kafka.format.registry.SchemaRegistryClient;
+import kd.data.core.exception.SyncException;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avro 二进制格式
+ * schema 由消费者元数据（字段映射及目标字段类型）派生并注册到注册中心，
+ * 所有字段均为 ["null", type] 联合类型；schema id 以 Confluent 线格式前缀（0x0 + 4 字节 id）
+ * 或消息头携带，消息体不再重复字段名
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:40
+ */
+@Slf4j
+public class AvroValueFormat implements KafkaValueFormat {
+
+    public static final String NAME = "avro";
+
+    public static final String SCHEMA_ID_HEADER = "value.schema.id";
+
+    private static final byte MAGIC_BYTE = 0x0;
+
+    private final SchemaRegistryClient registryClient;
+    private final boolean schemaIdInHeader;
+    private final Map<Class<?>, CompiledSchema> compiledSchemas = new ConcurrentHashMap<>();
+    private final ThreadLocal<AvroBinaryBuffer> buffers = ThreadLocal.withInitial(() -> new AvroBinaryBuffer(512));
+
+    public AvroValueFormat(SchemaRegistryClient registryClient, boolean schemaIdInHeader) {
+        this.registryClient = registryClient;
+        this.schemaIdInHeader = schemaIdInHeader;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] serialize(Object item, ConsumerMetadata metadata, Headers headers) {
+        CompiledSchema schema = compiledSchemas.computeIfAbsent(metadata.getEntityType(), k -> compile(metadata));
+
+        AvroBinaryBuffer buffer = buffers.get();
+        buffer.reset();
+        if (schemaIdInHeader) {
+            headers.add(SCHEMA_ID_HEADER, schema.idBytes);
+        } else {
+            buffer.writeByte(MAGIC_BYTE);
+            buffer.writeFixedInt(schema.id);
+        }
+
+        for (FieldEncoder encoder : schema.encoders) {
+            encoder.encode(item, buffer);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 由字段映射派生 Avro schema 定义
+     */
+    public String deriveSchema(ConsumerMetadata metadata) {
+        ObjectNode record = JsonNodeFactory.instance.objectNode();
+        record.put("type", "record");
+        record.put("name", toAvroName(metadata.getTopicName() != null
+                ? metadata.getTopicName() : metadata.getEntityType().getSimpleName()));
+        if (metadata.getEntityType().getPackage() != null) {
+            record.put("namespace", metadata.getEntityType().getPackage().getName());
+        }
+
+        ArrayNode fields = record.putArray("fields");
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            AvroType type = AvroType.of(field.getJavaType());
+            ObjectNode fieldNode = fields.addObject();
+            fieldNode.put("name", toAvroName(field.getEffectiveTargetName()));
+            ArrayNode union = fieldNode.putArray("type");
+            union.add("null");
+            union.add(type.toSchemaNode());
+            fieldNode.putNull("default");
+        }
+        try {
+            return new ObjectMapper().writeValueAsString(record);
+        } catch (Exception e) {
+            throw new SyncException("Failed to build avro schema", e);
+        }
+    }
+
+    private CompiledSchema compile(ConsumerMetadata metadata) {
+        String schema = deriveSchema(metadata);
+        String subject = (metadata.getTopicName() != null
+                ? metadata.getTopicName() : metadata.getEntityType().getName()) + "-value";
+        int id = registryClient.register(subject, schema);
+        log.info("Avro schema registered, subject: {}, id: {}, schema: {}", subject, id, schema);
+
+        List<FieldEncoder> encoders = new ArrayList<>(metadata.getFields().size());
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            encoders.add(new FieldEncoder(field.getFieldName(), field.getJavaType(), AvroType.of(field.getJavaType())));
+        }
+        return new CompiledSchema(id, encoders);
+    }
+
+    static String toAvroName(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && c >= '0' && c <= '9');
+            if (i == 0 && c >= '0' && c <= '9') {
+                sb.append('_');
+                valid = true;
+            }
+            sb.append(valid ? c : '_');
+        }
+        return sb.length() == 0 ? "_" : sb.toString();
+    }
+
+    /**
+     * Java 类型到 Avro 类型的映射
+     * BigDecimal 的标度不固定，按字符串（toPlainString）编码以保证精度
+     */
+    enum AvroType {
+        STRING("string", null),
+        INT("int", null),
+        LONG("long", null),
+        FLOAT("float", null),
+        DOUBLE("double", null),
+        BOOLEAN("boolean", null),
+        DECIMAL_STRING("string", null),
+        DATE("int", "date"),
+        TIMESTAMP_MILLIS("long", "timestamp-millis"),
+        LOCAL_TIMESTAMP_MILLIS("long", "local-timestamp-millis");
+
+        private final String primitive;
+        private final String logicalType;
+
+        AvroType(String primitive, String logicalType) {
+            this.primitive = primitive;
+            this.logicalType = logicalType;
+        }
+
+        static AvroType of(Class<?> javaType) {
+            if (javaType == Long.class || javaType == long.class) {
+                return LONG;
+            } else if (javaType == Integer.class || javaType == int.class
+                    || javaType == Short.class || javaType == short.class
+                    || javaType == Byte.class || javaType == byte.class) {
+                return INT;
+            } else if (javaType == Double.class || javaType == double.class) {
+                return DOUBLE;
+            } else if (javaType == Float.class || javaType == float.class) {
+                return FLOAT;
+            } else if (javaType == Boolean.class || javaType == boolean.class) {
+                return BOOLEAN;
+            } else if (javaType == BigDecimal.class) {
+                return DECIMAL_STRING;
+            } else if (javaType == LocalDate.class) {
+                return DATE;
+            } else if (javaType == LocalDateTime.class) {
+                return LOCAL_TIMESTAMP_MILLIS;
+            } else if (Date.class.isAssignableFrom(javaType)) {
+                return TIMESTAMP_MILLIS;
+            }
+            return STRING;
+        }
+
+        JsonNode toSchemaNode() {
+            if (logicalType == null) {
+                return JsonNodeFactory.instance.textNode(primitive);
+            }
+            ObjectNode node = JsonNodeFactory.instance.objectNode();
+            node.put("type", primitive);
+            node.put("logicalType", logicalType);
+            return node;
+        }
+    }
+
+    private static final class CompiledSchema {
+        private final int id;
+        private final byte[] idBytes;
+        private final List<FieldEncoder> encoders;
+
+        CompiledSchema(int id, List<FieldEncoder> encoders) {
+            this.id = id;
+            this.idBytes = String.valueOf(id).getBytes(StandardCharsets.UTF_8);
+            this.encoders = encoders;
+        }
+    }
+
+    /**
+     * 单字段编码器：源记录字段值按目标字段类型转换后写入
+     */
+    private static final class FieldEncoder {
+        private final String fieldName;
+        private final Class<?> javaType;
+        private final AvroType type;
+
+        FieldEncoder(String fieldName, Class<?> javaType, AvroType type) {
+            this.fieldName = fieldName;
+            this.javaType = javaType;
+            this.type = type;
+        }
+
+        void encode(Object item, AvroBinaryBuffer out) {
+            Object value;
+            try {
+                value = ReflectionUtils.getFieldValue(item, fieldName);
+            } catch (Exception e) {
+                throw new SyncException("字段映射失败: " + fieldName, e);
+            }
+            if (value == null) {
+                // 联合类型分支 0: null
+                out.writeLong(0);
+                return;
+            }
+            out.writeLong(1);
+            switch (type) {
+                case INT:
+                    out.writeInt(((Number) ReflectionUtils.convertValue(value, Integer.class)).intValue());
+                    break;
+                case LONG:
+                    out.writeLong(((Number) ReflectionUtils.convertValue(value, Long.class)).longValue());
+                    break;
+                case FLOAT:
+                    out.writeFloat(((Number) ReflectionUtils.convertValue(value, Float.class)).floatValue());
+                    break;
+                case DOUBLE:
+                    out.writeDouble(((Number) ReflectionUtils.convertValue(value, Double.class)).doubleValue());
+                    break;
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) ReflectionUtils.convertValue(value, Boolean.class));
+                    break;
+                case DECIMAL_STRING:
+                    out.writeString(((BigDecimal) ReflectionUtils.convertValue(value, BigDecimal.class)).toPlainString());
+                    break;
+                case DATE:
+                    out.writeInt((int) ((LocalDate) ReflectionUtils.convertValue(value, LocalDate.class)).toEpochDay());
+                    break;
+                case LOCAL_TIMESTAMP_MILLIS:
+                    out.writeLong(((LocalDateTime) ReflectionUtils.convertValue(value, LocalDateTime.class))
+                            .toInstant(ZoneOffset.UTC).toEpochMilli());
+                    break;
+                case TIMESTAMP_MILLIS:
+                    out.writeLong(((Date) ReflectionUtils.convertValue(value, javaType)).getTime());
+                    break;
+                case STRING:
+                default:
+                    out.writeString(value.toString());
+                    break;
+            }
+        }
+    }
+}
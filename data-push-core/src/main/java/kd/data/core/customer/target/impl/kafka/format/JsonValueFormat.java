@@ -0,0 +1,57 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.exception.SyncException;
+import kd.data.core.utils.ReflectionUtils;
+import org.apache.kafka.common.header.Headers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON 格式（默认）
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:08
+ */
+public class JsonValueFormat implements KafkaValueFormat {
+
+    public static final String NAME = "json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] serialize(Object item, ConsumerMetadata metadata, Headers headers) {
+        try {
+            return objectMapper.writeValueAsBytes(createMappedDocument(item, metadata));
+        } catch (JsonProcessingException e) {
+            throw new SyncException("JSON序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 创建映射文档 - 应用字段映射规则
+     */
+    private Map<String, Object> createMappedDocument(Object item, ConsumerMetadata metadata) {
+        Map<String, Object> document = new HashMap<>();
+
+        // 遍历所有字段定义
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            try {
+                document.put(field.getEffectiveTargetName(),
+                        ReflectionUtils.getFieldValue(item, field.getFieldName()));
+            } catch (Exception e) {
+                throw new SyncException("字段映射失败: " + field.getFieldName(), e);
+            }
+        }
+
+        return document;
+    }
+}
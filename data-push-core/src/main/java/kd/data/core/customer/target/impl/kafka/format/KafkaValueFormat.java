@@ -0,0 +1,28 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import kd.data.core.customer.meta.ConsumerMetadata;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Kafka 消息值格式
+ * 负责将一条记录按字段映射序列化为消息体，可通过消息头附带格式信息（如 schema id）
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:05
+ */
+public interface KafkaValueFormat {
+
+    /**
+     * 格式名称（json / avro）
+     */
+    String name();
+
+    /**
+     * 序列化记录
+     * @param item 记录
+     * @param metadata 消费者元数据（字段映射）
+     * @param headers 当前消息的消息头，可追加
+     * @return 消息体字节
+     */
+    byte[] serialize(Object item, ConsumerMetadata metadata, Headers headers);
+}
@@ -0,0 +1,49 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import kd.data.core.customer.target.impl.kafka.format.registry.InMemorySchemaRegistryClient;
+import kd.data.core.customer.target.impl.kafka.format.registry.RestSchemaRegistryClient;
+import kd.data.core.customer.target.impl.kafka.format.registry.SchemaRegistryClient;
+import kd.data.core.customer.target.impl.kafka.properties.KafkaProperties;
+
+import java.util.Properties;
+
+/**
+ * 消息值格式工厂
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:52
+ */
+public final class KafkaValueFormats {
+
+    private static final String MOCK_SCHEME = "mock://";
+
+    private KafkaValueFormats() {}
+
+    /**
+     * 根据目标配置创建格式
+     * schema-registry-url 以 mock:// 开头时使用进程内注册中心
+     */
+    public static KafkaValueFormat create(Properties props) {
+        String format = props.getProperty(KafkaProperties.VALUE_FORMAT, KafkaProperties.DEFAULT_VALUE_FORMAT);
+        if (JsonValueFormat.NAME.equalsIgnoreCase(format)) {
+            return new JsonValueFormat();
+        }
+        if (AvroValueFormat.NAME.equalsIgnoreCase(format)) {
+            boolean inHeader = "header".equalsIgnoreCase(props.getProperty(
+                    KafkaProperties.SCHEMA_ID_LOCATION, KafkaProperties.DEFAULT_SCHEMA_ID_LOCATION));
+            return new AvroValueFormat(createRegistryClient(props.getProperty(KafkaProperties.SCHEMA_REGISTRY_URL)),
+                    inHeader);
+        }
+        throw new IllegalArgumentException("不支持的消息格式: " + format);
+    }
+
+    private static SchemaRegistryClient createRegistryClient(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("Avro格式需要配置 " + KafkaProperties.SCHEMA_REGISTRY_URL);
+        }
+        if (url.startsWith(MOCK_SCHEME)) {
+            return InMemorySchemaRegistryClient.forScope(url.substring(MOCK_SCHEME.length()));
+        }
+        return new RestSchemaRegistryClient(url.trim());
+    }
+}
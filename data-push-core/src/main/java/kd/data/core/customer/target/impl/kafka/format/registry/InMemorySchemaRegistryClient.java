@@ -0,0 +1,41 @@
+package kd.data.core.customer.target.impl.kafka.format.registry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于内存的注册中心 用于测试
+ * 通过 mock://{scope} 地址获取同一作用域下的共享实例
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:15
+ */
+@SuppressWarnings("unused")
+public class InMemorySchemaRegistryClient implements SchemaRegistryClient {
+
+    private static final Map<String, InMemorySchemaRegistryClient> SCOPES = new ConcurrentHashMap<>();
+
+    private final AtomicInteger idGenerator = new AtomicInteger(0);
+    private final Map<String, Integer> schemaIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> schemas = new ConcurrentHashMap<>();
+
+    public static InMemorySchemaRegistryClient forScope(String scope) {
+        return SCOPES.computeIfAbsent(scope, k -> new InMemorySchemaRegistryClient());
+    }
+
+    @Override
+    public int register(String subject, String schema) {
+        // 与 Confluent 一致：相同 schema 在不同 subject 下共用同一 id
+        return schemaIds.computeIfAbsent(schema, k -> {
+            int id = idGenerator.incrementAndGet();
+            schemas.put(id, schema);
+            return id;
+        });
+    }
+
+    @Override
+    public String getSchemaById(int id) {
+        return schemas.get(id);
+    }
+}
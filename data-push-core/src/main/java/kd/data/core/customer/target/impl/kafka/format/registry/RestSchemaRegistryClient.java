@@ -0,0 +1,92 @@
+package kd.data.core.customer.target.impl.kafka.format.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.exception.SyncException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Confluent 兼容的 REST 注册中心客户端
+ * 注册结果本地缓存，每个 schema 只在首次使用时访问注册中心
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:20
+ */
+@Slf4j
+public class RestSchemaRegistryClient implements SchemaRegistryClient {
+
+    private static final ContentType SCHEMA_REGISTRY_JSON =
+            ContentType.create("application/vnd.schemaregistry.v1+json", StandardCharsets.UTF_8);
+
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Integer> registered = new ConcurrentHashMap<>();
+    private final Map<Integer, String> schemas = new ConcurrentHashMap<>();
+
+    public RestSchemaRegistryClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public int register(String subject, String schema) {
+        return registered.computeIfAbsent(subject + "\n" + schema, k -> {
+            try {
+                HttpPost post = new HttpPost(baseUrl + "/subjects/"
+                        + URLEncoder.encode(subject, StandardCharsets.UTF_8.name()) + "/versions");
+                post.setEntity(new StringEntity(objectMapper.writeValueAsString(
+                        Collections.singletonMap("schema", schema)), SCHEMA_REGISTRY_JSON));
+                int id = execute(post).path("id").asInt(-1);
+                if (id < 0) {
+                    throw new SyncException("Schema registry returned no id for subject: " + subject);
+                }
+                schemas.put(id, schema);
+                log.info("Registered schema id {} for subject {}", id, subject);
+                return id;
+            } catch (SyncException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SyncException("Failed to register schema for subject: " + subject, e);
+            }
+        });
+    }
+
+    @Override
+    public String getSchemaById(int id) {
+        return schemas.computeIfAbsent(id, k -> {
+            JsonNode node = execute(new HttpGet(baseUrl + "/schemas/ids/" + id));
+            return node.hasNonNull("schema") ? node.get("schema").asText() : null;
+        });
+    }
+
+    private JsonNode execute(HttpUriRequest request) {
+        // 注册只发生在 schema 首次使用时，无需常驻连接池
+        try (CloseableHttpClient client = HttpClients.createDefault();
+             CloseableHttpResponse response = client.execute(request)) {
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            if (status / 100 != 2) {
+                throw new SyncException("Schema registry request failed: " + status + " " + body);
+            }
+            return objectMapper.readTree(body);
+        } catch (SyncException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SyncException("Schema registry request failed: " + request.getURI(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package kd.data.core.customer.target.impl.kafka.format.registry;
+
+/**
+ * Schema 注册中心客户端
+ *
+ * @author gaozw
+ * @date 2026/10/19 10:12
+ */
+public interface SchemaRegistryClient {
+
+    /**
+     * 注册 schema，相同 subject 下重复注册同一 schema 返回同一 id
+     * @param subject 主题（通常为 topic-value）
+     * @param schema schema 文本
+     * @return 全局 schema id
+     */
+    int register(String subject, String schema);
+
+    /**
+     * 按 id 查询 schema
+     * @param id schema id
+     * @return schema 文本，不存在返回 null
+     */
+    String getSchemaById(int id);
+}
@@ -24,6 +24,18 @@ public class KafkaProperties {
     public static final String PRODUCER_ACKS            = "producer-acks";
     public static final String PRODUCER_RETRIES         = "producer-retries";
     public static final String PRODUCER_ENABLE_IDEMPOTENCE = "producer-enable-idempotence";
+    public static final String PRODUCER_MAX_IN_FLIGHT_RECORDS = "producer-max-in-flight-records";
+    public static final String PRODUCER_MAX_IN_FLIGHT_BYTES   = "producer-max-in-flight-bytes";
+
+    /* ========== 事务（精确一次） ========== */
+    public static final String PRODUCER_TRANSACTIONAL  = "producer-transactional";
+    public static final String PRODUCER_TRANSACTION_TIMEOUT_MS = "producer-transaction-timeout-ms";
+    public static final String CHECKPOINT_TOPIC        = "checkpoint-topic";
+
+    /* ========== 消息格式 ========== */
+    public static final String VALUE_FORMAT            = "value-format";
+    public static final String SCHEMA_REGISTRY_URL     = "schema-registry-url";
+    public static final String SCHEMA_ID_LOCATION      = "schema-id-location";
 
     /* ========== 安全 ========== */
     public static final String SECURITY_PROTOCOL       = "security-protocol";
@@ -41,4 +53,11 @@ public class KafkaProperties {
     public static final String DEFAULT_ACKS            = "all";
     public static final String DEFAULT_RETRIES         = "3";
     public static final String DEFAULT_ENABLE_IDEMPOTENCE = "true";
+    public static final String DEFAULT_MAX_IN_FLIGHT_RECORDS = "50000";
+    public static final String DEFAULT_MAX_IN_FLIGHT_BYTES   = "33554432";
+    public static final String DEFAULT_VALUE_FORMAT    = "json";
+    public static final String DEFAULT_SCHEMA_ID_LOCATION = "prefix";
+    public static final String DEFAULT_TRANSACTIONAL   = "false";
+    public static final String DEFAULT_TRANSACTION_TIMEOUT_MS = "60000";
+    public static final String DEFAULT_CHECKPOINT_TOPIC = "data-push-checkpoints";
 }
@@ -0,0 +1,113 @@
+package kd.data.core.customer.target.impl.rabbitmq;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import kd.data.core.exception.SyncException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 开启发布确认的通道
+ * 按 deliveryTag 记录未确认消息，确认回调（含 multiple 批量确认）在连接线程上异步完成，
+ * 发布方无需逐条 waitForConfirms；通道关闭时所有未确认消息失败。
+ * 消息以 mandatory 发布，无法路由时 broker 先退回（basic.return）再确认，
+ * 退回的消息按头部携带的发布序号失败，随后到达的 ack 不再使其成功
+ *
+ * @author gaozw
+ * @date 2026/10/19 16:30
+ */
+class ConfirmChannel {
+
+    /** 消息头：发布序号，用于关联退回消息 */
+    static final String PUBLISH_SEQ_HEADER = "x-publish-seq";
+
+    private final Channel channel;
+    private final NavigableMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<>();
+
+    ConfirmChannel(Channel channel) throws IOException {
+        this.channel = channel;
+        channel.confirmSelect();
+        channel.addConfirmListener((tag, multiple) -> confirmed(tag, multiple, null),
+                (tag, multiple) -> confirmed(tag, multiple, new SyncException("RabbitMQ nack, deliveryTag: " + tag)));
+        channel.addReturnListener(returned -> {
+            Object seq = returned.getProperties().getHeaders() == null
+                    ? null : returned.getProperties().getHeaders().get(PUBLISH_SEQ_HEADER);
+            if (seq != null) {
+                complete(Long.parseLong(seq.toString()), new SyncException("RabbitMQ message returned: "
+                        + returned.getReplyCode() + " " + returned.getReplyText() + ", exchange: "
+                        + returned.getExchange() + ", routingKey: " + returned.getRoutingKey()));
+            }
+        });
+        channel.addShutdownListener(cause -> failAll(new SyncException("RabbitMQ channel closed: " + cause.getMessage(), cause)));
+    }
+
+    /**
+     * 发布一条消息（调用方独占通道）
+     */
+    void publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body,
+                 PendingMessage pending) throws IOException {
+        long seq = channel.getNextPublishSeqNo();
+        Map<String, Object> headers = props.getHeaders() == null
+                ? new HashMap<>() : new HashMap<>(props.getHeaders());
+        headers.put(PUBLISH_SEQ_HEADER, seq);
+        outstanding.put(seq, pending);
+        try {
+            channel.basicPublish(exchange, routingKey, true, props.builder().headers(headers).build(), body);
+        } catch (IOException | RuntimeException e) {
+            outstanding.remove(seq);
+            throw e;
+        }
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    void close() {
+        try {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+        } catch (Exception e) {
+            // 忽略关闭异常
+        }
+    }
+
+    private void confirmed(long tag, boolean multiple, Throwable error) {
+        if (!multiple) {
+            complete(tag, error);
+            return;
+        }
+        Map.Entry<Long, PendingMessage> first;
+        while ((first = outstanding.firstEntry()) != null && first.getKey() <= tag) {
+            complete(first.getKey(), error);
+        }
+    }
+
+    private void failAll(Throwable error) {
+        for (Long tag : outstanding.keySet()) {
+            complete(tag, error);
+        }
+    }
+
+    /**
+     * 移除成功者负责回调，避免确认与关闭并发时重复完成
+     */
+    private void complete(long tag, Throwable error) {
+        PendingMessage pending = outstanding.remove(tag);
+        if (pending != null) {
+            pending.done(error);
+        }
+    }
+
+    /**
+     * 未确认消息：确认后回调所属批次
+     */
+    interface PendingMessage {
+        void done(Throwable error);
+    }
+}
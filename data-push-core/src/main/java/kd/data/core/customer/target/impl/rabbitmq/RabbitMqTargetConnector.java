@@ -0,0 +1,145 @@
+package kd.data.core.customer.target.impl.rabbitmq;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import kd.data.core.customer.target.InFlightLimiter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.impl.rabbitmq.properties.RabbitMqProperties;
+import kd.data.core.customer.target.targetenums.TargetEnums;
+import kd.data.core.exception.SyncException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * rabbitmq
+ * 单连接 + 确认模式通道池，分片线程借用通道发布整批消息后立即归还，确认异步到达；
+ * 未确认消息数/字节数受连接器级限流器约束
+ *
+ * @author gaozw
+ * @date 2026/10/19 16:36
+ */
+@Slf4j
+@Getter
+@SuppressWarnings("unused")
+public class RabbitMqTargetConnector implements TargetConnector {
+
+    private final ConnectionFactory connectionFactory;
+    private final int channelPoolSize;
+    private final InFlightLimiter inFlightLimiter;
+    private final String defaultRoutingKey;
+    private final boolean persistent;
+
+    private volatile Connection connection;
+    private final BlockingQueue<ConfirmChannel> idleChannels = new LinkedBlockingQueue<>();
+    private final AtomicInteger openChannels = new AtomicInteger();
+
+    public RabbitMqTargetConnector(Properties configProperties) {
+        this.connectionFactory = new ConnectionFactory();
+        connectionFactory.setHost(configProperties.getProperty(RabbitMqProperties.HOST, RabbitMqProperties.DEFAULT_HOST));
+        connectionFactory.setPort(Integer.parseInt(configProperties.getProperty(RabbitMqProperties.PORT,
+                RabbitMqProperties.DEFAULT_PORT)));
+        connectionFactory.setUsername(configProperties.getProperty(RabbitMqProperties.USERNAME,
+                RabbitMqProperties.DEFAULT_USERNAME));
+        connectionFactory.setPassword(configProperties.getProperty(RabbitMqProperties.PASSWORD,
+                RabbitMqProperties.DEFAULT_PASSWORD));
+        connectionFactory.setVirtualHost(configProperties.getProperty(RabbitMqProperties.VIRTUAL_HOST,
+                RabbitMqProperties.DEFAULT_VIRTUAL_HOST));
+        connectionFactory.setAutomaticRecoveryEnabled(true);
+
+        this.channelPoolSize = Math.max(1, Integer.parseInt(configProperties.getProperty(
+                RabbitMqProperties.CHANNEL_POOL_SIZE, RabbitMqProperties.DEFAULT_CHANNEL_POOL_SIZE)));
+        this.inFlightLimiter = new InFlightLimiter(Long.parseLong(configProperties.getProperty(
+                RabbitMqProperties.MAX_IN_FLIGHT, RabbitMqProperties.DEFAULT_MAX_IN_FLIGHT)), Long.MAX_VALUE);
+        this.defaultRoutingKey = configProperties.getProperty(RabbitMqProperties.ROUTING_KEY,
+                RabbitMqProperties.DEFAULT_ROUTING_KEY);
+        this.persistent = Boolean.parseBoolean(configProperties.getProperty(RabbitMqProperties.PERSISTENT,
+                RabbitMqProperties.DEFAULT_PERSISTENT));
+    }
+
+    @Override
+    public synchronized void connect() throws SyncException {
+        if (isConnected()) {
+            return;
+        }
+        try {
+            this.connection = connectionFactory.newConnection("data-push");
+        } catch (Exception e) {
+            throw new SyncException("RabbitMQ connection failed", e);
+        }
+    }
+
+    /**
+     * 借用通道：优先复用空闲通道，未达上限时新建，否则等待归还
+     */
+    ConfirmChannel borrowChannel(long timeoutMs) {
+        ConfirmChannel channel = idleChannels.poll();
+        while (channel != null && !channel.isOpen()) {
+            openChannels.decrementAndGet();
+            channel = idleChannels.poll();
+        }
+        if (channel != null) {
+            return channel;
+        }
+        if (openChannels.incrementAndGet() <= channelPoolSize) {
+            try {
+                return new ConfirmChannel(connection.createChannel());
+            } catch (Exception e) {
+                openChannels.decrementAndGet();
+                throw new SyncException("RabbitMQ create channel failed", e);
+            }
+        }
+        openChannels.decrementAndGet();
+        try {
+            channel = idleChannels.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for RabbitMQ channel", e);
+        }
+        if (channel == null) {
+            throw new SyncException("Timed out waiting for RabbitMQ channel");
+        }
+        return channel;
+    }
+
+    void returnChannel(ConfirmChannel channel) {
+        if (channel.isOpen()) {
+            idleChannels.offer(channel);
+        } else {
+            openChannels.decrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        Connection current = connection;
+        return current != null && current.isOpen();
+    }
+
+    @Override
+    public String getType() {
+        return TargetEnums.RABBITMQ.name();
+    }
+
+    @Override
+    public synchronized void close() {
+        ConfirmChannel channel;
+        while ((channel = idleChannels.poll()) != null) {
+            channel.close();
+        }
+        openChannels.set(0);
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.warn("Close RabbitMQ connection failed: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
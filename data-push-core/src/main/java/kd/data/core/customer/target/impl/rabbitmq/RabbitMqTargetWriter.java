@@ -0,0 +1,144 @@
+package kd.data.core.customer.target.impl.rabbitmq;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.MessageProperties;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.InFlightLimiter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.exception.SyncException;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * rabbitmq 写入
+ * 每批次借用一个确认通道连续发布（JSON 消息体，routing key 取 KEY 角色字段，缺省取配置值），
+ * 发布完即归还通道；批次 Future 在全部消息被 broker 确认后完成，任一 nack、无法路由退回或通道关闭则异常完成
+ *
+ * @author gaozw
+ * @date 2026/10/19 16:45
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class RabbitMqTargetWriter<T> implements AsyncTargetWriter<T> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long timeoutMs;
+    private final LongAdder bytesSent = new LongAdder();
+
+    public RabbitMqTargetWriter() {
+        this(30000);
+    }
+
+    /**
+     * @param timeoutMs 等待通道与在途额度的最长时间
+     */
+    public RabbitMqTargetWriter(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        if (!(connector instanceof RabbitMqTargetConnector)) {
+            throw new IllegalArgumentException("RabbitMQ写入器需要RabbitMQ连接器");
+        }
+        if (batch == null || batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        RabbitMqTargetConnector rabbitConnector = (RabbitMqTargetConnector) connector;
+        if (!rabbitConnector.isConnected()) {
+            rabbitConnector.connect();
+        }
+
+        String exchange = metadata.getExchangeName() == null ? "" : metadata.getExchangeName();
+        String keyField = metadata.getKeyField();
+        AMQP.BasicProperties props = rabbitConnector.isPersistent()
+                ? MessageProperties.PERSISTENT_BASIC : MessageProperties.BASIC;
+        InFlightLimiter limiter = rabbitConnector.getInFlightLimiter();
+        BatchConfirm confirm = new BatchConfirm(batch.size());
+
+        ConfirmChannel channel = rabbitConnector.borrowChannel(timeoutMs);
+        try {
+            for (T item : batch) {
+                if (confirm.future.isDone()) {
+                    // 已有消息失败，停止发送，交由上层重试
+                    break;
+                }
+                byte[] body = toJson(item, metadata);
+                Object key = keyField == null ? null : ReflectionUtils.getFieldValue(item, keyField);
+                String routingKey = key == null ? rabbitConnector.getDefaultRoutingKey() : key.toString();
+
+                int size = body.length;
+                limiter.acquire(size, timeoutMs);
+                try {
+                    channel.publish(exchange, routingKey, props, body, error -> {
+                        limiter.release(size);
+                        if (error == null) {
+                            bytesSent.add(size);
+                            confirm.success();
+                        } else {
+                            confirm.fail(error);
+                        }
+                    });
+                } catch (Exception e) {
+                    limiter.release(size);
+                    throw e;
+                }
+            }
+        } catch (Exception e) {
+            log.error("rabbitmq publish error, exchange: {}, {}", exchange, e.getMessage(), e);
+            confirm.fail(e instanceof SyncException ? e : new SyncException("RabbitMQ写入失败: " + e.getMessage(), e));
+        } finally {
+            rabbitConnector.returnChannel(channel);
+        }
+        return confirm.future;
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    private byte[] toJson(T item, ConsumerMetadata metadata) {
+        Map<String, Object> document = new HashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            document.put(field.getEffectiveTargetName(), ReflectionUtils.getFieldValue(item, field.getFieldName()));
+        }
+        try {
+            return objectMapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new SyncException("JSON序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 批次确认跟踪：全部消息确认后完成，首个失败即异常完成
+     */
+    private static final class BatchConfirm {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger pending;
+
+        BatchConfirm(int size) {
+            this.pending = new AtomicInteger(size);
+        }
+
+        void success() {
+            if (pending.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+
+        void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package kd.data.core.customer.target.impl.rabbitmq.properties;
+
+/**
+ * rabbitmq属性
+ *
+ * @author gaozw
+ * @date 2026/10/19 16:24
+ */
+public class RabbitMqProperties {
+
+    private RabbitMqProperties(){}
+
+    /* ========== 连接 ========== */
+    public static final String HOST                    = "host";
+    public static final String PORT                    = "port";
+    public static final String USERNAME                = "username";
+    public static final String PASSWORD                = "password";
+    public static final String VIRTUAL_HOST            = "virtual-host";
+
+    /* ========== 发布 ========== */
+    public static final String ROUTING_KEY             = "routing-key";
+    public static final String PERSISTENT              = "persistent";
+    public static final String CHANNEL_POOL_SIZE       = "channel-pool-size";
+    public static final String MAX_IN_FLIGHT           = "max-in-flight";
+    public static final String CONFIRM_TIMEOUT_MS      = "confirm-timeout-ms";
+
+    /* ========== 默认值 ========== */
+    public static final String DEFAULT_HOST            = "localhost";
+    public static final String DEFAULT_PORT            = "5672";
+    public static final String DEFAULT_USERNAME        = "guest";
+    public static final String DEFAULT_PASSWORD        = "guest";
+    public static final String DEFAULT_VIRTUAL_HOST    = "/";
+    public static final String DEFAULT_ROUTING_KEY     = "";
+    public static final String DEFAULT_PERSISTENT      = "true";
+    public static final String DEFAULT_CHANNEL_POOL_SIZE = "8";
+    public static final String DEFAULT_MAX_IN_FLIGHT   = "10000";
+    public static final String DEFAULT_CONFIRM_TIMEOUT_MS = "30000";
+}
@@ -0,0 +1,201 @@
+package kd.data.core.customer.target.impl.redis;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.impl.redis.properties.RedisProperties;
+import kd.data.core.customer.target.targetenums.TargetEnums;
+import kd.data.core.exception.SyncException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis
+ * 单机或集群客户端 + 固定大小的管道连接池。池内连接关闭自动刷新，
+ * 写入器借用连接后整批排队命令、一次 flush 发出，归还后异步等待响应
+ *
+ * @author gaozw
+ * @date 2026/10/19 18:12
+ */
+@Slf4j
+@Getter
+@SuppressWarnings("unused")
+public class RedisTargetConnector implements TargetConnector {
+
+    private static final String NODE_SEPARATOR = ",";
+
+    private final List<RedisURI> redisUris;
+    private final boolean cluster;
+    private final int poolSize;
+    private final long commandTimeoutMs;
+    /** hash 或 string */
+    private final String dataType;
+    /** 过期秒数，0 表示不过期 */
+    private final long ttlSeconds;
+
+    private volatile Object redisClient;
+    private final List<PipelineConnection> connections = new ArrayList<>();
+    private final BlockingQueue<PipelineConnection> idle = new LinkedBlockingQueue<>();
+    private volatile boolean isConnected = false;
+
+    public RedisTargetConnector(Properties configProperties) {
+        String password = configProperties.getProperty(RedisProperties.PASSWORD);
+        int database = Integer.parseInt(configProperties.getProperty(RedisProperties.DATABASE,
+                RedisProperties.DEFAULT_DATABASE));
+        this.commandTimeoutMs = Long.parseLong(configProperties.getProperty(RedisProperties.COMMAND_TIMEOUT_MS,
+                RedisProperties.DEFAULT_COMMAND_TIMEOUT_MS));
+        this.cluster = Boolean.parseBoolean(configProperties.getProperty(RedisProperties.CLUSTER,
+                RedisProperties.DEFAULT_CLUSTER));
+        this.poolSize = Math.max(1, Integer.parseInt(configProperties.getProperty(
+                RedisProperties.CONNECTION_POOL_SIZE, RedisProperties.DEFAULT_CONNECTION_POOL_SIZE)));
+        this.dataType = configProperties.getProperty(RedisProperties.DATA_TYPE, RedisProperties.DEFAULT_DATA_TYPE);
+        this.ttlSeconds = Long.parseLong(configProperties.getProperty(RedisProperties.TTL_SECONDS,
+                RedisProperties.DEFAULT_TTL_SECONDS));
+
+        this.redisUris = new ArrayList<>();
+        for (String node : configProperties.getProperty(RedisProperties.NODES, RedisProperties.DEFAULT_NODES)
+                .split(NODE_SEPARATOR)) {
+            String trimmed = node.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int idx = trimmed.lastIndexOf(':');
+            RedisURI.Builder builder = RedisURI.builder()
+                    .withHost(idx > 0 ? trimmed.substring(0, idx) : trimmed)
+                    .withPort(idx > 0 ? Integer.parseInt(trimmed.substring(idx + 1)) : RedisURI.DEFAULT_REDIS_PORT)
+                    .withTimeout(Duration.ofMillis(commandTimeoutMs));
+            if (!cluster) {
+                builder.withDatabase(database);
+            }
+            if (password != null && !password.trim().isEmpty()) {
+                builder.withPassword(password.toCharArray());
+            }
+            redisUris.add(builder.build());
+        }
+        if (redisUris.isEmpty()) {
+            throw new IllegalArgumentException("Redis nodes must not be empty");
+        }
+    }
+
+    @Override
+    public synchronized void connect() throws SyncException {
+        if (isConnected) {
+            return;
+        }
+        try {
+            if (cluster) {
+                RedisClusterClient client = RedisClusterClient.create(redisUris);
+                this.redisClient = client;
+                for (int i = 0; i < poolSize; i++) {
+                    StatefulRedisClusterConnection<String, String> conn = client.connect();
+                    addConnection(conn, conn.async());
+                }
+            } else {
+                RedisClient client = RedisClient.create();
+                this.redisClient = client;
+                for (int i = 0; i < poolSize; i++) {
+                    StatefulRedisConnection<String, String> conn = client.connect(redisUris.get(0));
+                    addConnection(conn, conn.async());
+                }
+            }
+            isConnected = true;
+        } catch (Exception e) {
+            close();
+            throw new SyncException("Redis connection failed", e);
+        }
+    }
+
+    private void addConnection(StatefulConnection<String, String> conn, RedisClusterAsyncCommands<String, String> async) {
+        // 由写入器显式 flush，整批命令一次写出
+        conn.setAutoFlushCommands(false);
+        PipelineConnection pipeline = new PipelineConnection(conn, async);
+        connections.add(pipeline);
+        idle.offer(pipeline);
+    }
+
+    /**
+     * 借用管道连接，池空时等待归还
+     */
+    PipelineConnection borrow() {
+        try {
+            PipelineConnection conn = idle.poll(commandTimeoutMs, TimeUnit.MILLISECONDS);
+            if (conn == null) {
+                throw new SyncException("Timed out waiting for Redis connection");
+            }
+            return conn;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for Redis connection", e);
+        }
+    }
+
+    void giveBack(PipelineConnection conn) {
+        idle.offer(conn);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    @Override
+    public String getType() {
+        return TargetEnums.REDIS.name();
+    }
+
+    @Override
+    public synchronized void close() {
+        idle.clear();
+        for (PipelineConnection conn : connections) {
+            try {
+                conn.connection.close();
+            } catch (Exception e) {
+                log.warn("Close Redis connection failed: {}", e.getMessage());
+            }
+        }
+        connections.clear();
+        Object client = redisClient;
+        if (client instanceof RedisClusterClient) {
+            ((RedisClusterClient) client).shutdown();
+        } else if (client instanceof RedisClient) {
+            ((RedisClient) client).shutdown();
+        }
+        redisClient = null;
+        isConnected = false;
+    }
+
+    /**
+     * 关闭自动刷新的连接及其异步命令接口（单机与集群通用）
+     */
+    static final class PipelineConnection {
+        private final StatefulConnection<String, String> connection;
+        private final RedisClusterAsyncCommands<String, String> commands;
+
+        PipelineConnection(StatefulConnection<String, String> connection,
+                           RedisClusterAsyncCommands<String, String> commands) {
+            this.connection = connection;
+            this.commands = commands;
+        }
+
+        RedisClusterAsyncCommands<String, String> commands() {
+            return commands;
+        }
+
+        void flush() {
+            connection.flushCommands();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package kd.data.core.customer.target.impl.redis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.AsyncTargetWriter;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.exception.SyncException;
+import kd.data.core.utils.ReflectionUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis 写入
+ * 每条记录写为 hash（字段 -> 值）或 string（JSON），键为 前缀:KEY字段值；
+ * 整批命令排队后一次 flush，不逐条往返。集群模式下按槽分组连续下发，
+ * 无 TTL 的 string 写入每个槽合并为一条 MSET
+ *
+ * @author gaozw
+ * @date 2026/10/19 18:25
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class RedisTargetWriter<T> implements AsyncTargetWriter<T> {
+
+    private static final String TYPE_STRING = "string";
+    private static final String KEY_SEPARATOR = ":";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LongAdder bytesSent = new LongAdder();
+
+    @Override
+    public CompletableFuture<Void> writeAsync(List<T> batch, TargetConnector connector, ConsumerMetadata metadata) {
+        if (!(connector instanceof RedisTargetConnector)) {
+            throw new IllegalArgumentException("Redis写入器需要Redis连接器");
+        }
+        if (batch == null || batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (metadata.getKeyField() == null) {
+            throw new SyncException("Redis target requires a KEY role field");
+        }
+        RedisTargetConnector redisConnector = (RedisTargetConnector) connector;
+        if (!redisConnector.isConnected()) {
+            redisConnector.connect();
+        }
+
+        boolean asString = TYPE_STRING.equalsIgnoreCase(redisConnector.getDataType());
+        long ttl = redisConnector.getTtlSeconds();
+        Map<Integer, Map<String, Object>> groups = groupBySlot(batch, metadata, redisConnector.isCluster(), asString);
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        long bytes = 0;
+        RedisTargetConnector.PipelineConnection conn = redisConnector.borrow();
+        try {
+            RedisClusterAsyncCommands<String, String> commands = conn.commands();
+            for (Map<String, Object> group : groups.values()) {
+                if (asString && ttl <= 0) {
+                    Map<String, String> values = new LinkedHashMap<>();
+                    group.forEach((key, value) -> values.put(key, (String) value));
+                    futures.add(commands.mset(values).toCompletableFuture());
+                    bytes += estimate(values);
+                    continue;
+                }
+                for (Map.Entry<String, Object> entry : group.entrySet()) {
+                    String key = entry.getKey();
+                    if (asString) {
+                        String value = (String) entry.getValue();
+                        futures.add(commands.set(key, value, SetArgs.Builder.ex(ttl)).toCompletableFuture());
+                        bytes += estimate(Collections.singletonMap(key, value));
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        Map<String, String> hash = (Map<String, String>) entry.getValue();
+                        if (hash.isEmpty()) {
+                            continue;
+                        }
+                        futures.add(commands.hset(key, hash).toCompletableFuture());
+                        if (ttl > 0) {
+                            futures.add(commands.expire(key, ttl).toCompletableFuture());
+                        }
+                        bytes += key.getBytes(StandardCharsets.UTF_8).length + estimate(hash);
+                    }
+                }
+            }
+        } finally {
+            // 无论排队是否完整，都要把已排队命令发出，避免残留到下一个借用者
+            conn.flush();
+            redisConnector.giveBack(conn);
+        }
+
+        long batchBytes = bytes;
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((v, ex) -> {
+                    if (ex == null) {
+                        bytesSent.add(batchBytes);
+                    }
+                });
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * 按槽分组（单机模式全部归入同一组），组内同键以后出现的记录为准
+     * @return 槽 -> (键 -> hash 字段或 string 值)
+     */
+    private Map<Integer, Map<String, Object>> groupBySlot(List<T> batch, ConsumerMetadata metadata,
+                                                          boolean cluster, boolean asString) {
+        Map<Integer, Map<String, Object>> groups = cluster ? new TreeMap<>() : new HashMap<>(1);
+        String prefix = metadata.getKeyPrefix();
+        for (T item : batch) {
+            Object keyValue = ReflectionUtils.getFieldValue(item, metadata.getKeyField());
+            if (keyValue == null) {
+                log.warn("Skip record without key field {}", metadata.getKeyField());
+                continue;
+            }
+            String key = (prefix == null || prefix.isEmpty()) ? keyValue.toString() : prefix + KEY_SEPARATOR + keyValue;
+            int slot = cluster ? SlotHash.getSlot(key) : 0;
+            groups.computeIfAbsent(slot, s -> new LinkedHashMap<>())
+                    .put(key, asString ? toJson(item, metadata) : toHash(item, metadata));
+        }
+        return groups.isEmpty() ? Collections.emptyMap() : groups;
+    }
+
+    private Map<String, String> toHash(T item, ConsumerMetadata metadata) {
+        Map<String, String> hash = new LinkedHashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            Object value = ReflectionUtils.getFieldValue(item, field.getFieldName());
+            // hash 不能存 null，缺失字段即为空
+            if (value != null) {
+                hash.put(field.getEffectiveTargetName(), value.toString());
+            }
+        }
+        return hash;
+    }
+
+    private String toJson(T item, ConsumerMetadata metadata) {
+        Map<String, Object> document = new HashMap<>();
+        for (ConsumerMetadata.ConsumerFieldModel field : metadata.getFields()) {
+            document.put(field.getEffectiveTargetName(), ReflectionUtils.getFieldValue(item, field.getFieldName()));
+        }
+        try {
+            return objectMapper.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new SyncException("JSON序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static long estimate(Map<String, String> values) {
+        long bytes = 0;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            bytes += entry.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+}
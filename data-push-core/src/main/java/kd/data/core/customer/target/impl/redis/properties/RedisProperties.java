@@ -0,0 +1,33 @@
+package kd.data.core.customer.target.impl.redis.properties;
+
+/**
+ * redis属性
+ *
+ * @author gaozw
+ * @date 2026/10/19 18:08
+ */
+public class RedisProperties {
+
+    private RedisProperties(){}
+
+    /* ========== 连接 ========== */
+    public static final String NODES                   = "nodes";
+    public static final String PASSWORD                = "password";
+    public static final String DATABASE                = "database";
+    public static final String CLUSTER                  = "cluster";
+    public static final String COMMAND_TIMEOUT_MS       = "command-timeout-ms";
+    public static final String CONNECTION_POOL_SIZE     = "connection-pool-size";
+
+    /* ========== 写入 ========== */
+    public static final String DATA_TYPE               = "data-type";
+    public static final String TTL_SECONDS             = "ttl-seconds";
+
+    /* ========== 默认值 ========== */
+    public static final String DEFAULT_NODES            = "localhost:6379";
+    public static final String DEFAULT_DATABASE         = "0";
+    public static final String DEFAULT_CLUSTER          = "false";
+    public static final String DEFAULT_COMMAND_TIMEOUT_MS = "10000";
+    public static final String DEFAULT_CONNECTION_POOL_SIZE = "4";
+    public static final String DEFAULT_DATA_TYPE        = "hash";
+    public static final String DEFAULT_TTL_SECONDS      = "0";
+}
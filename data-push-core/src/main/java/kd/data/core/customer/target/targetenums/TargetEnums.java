@@ -12,7 +12,7 @@ import org.springframework.util.StringUtils;
 @Getter
 public enum TargetEnums {
 
-    JDBC,ELASTICSEARCH,KAFKA,RABBITMQ;
+    JDBC,ELASTICSEARCH,KAFKA,RABBITMQ,FILE,REDIS,HTTP;
 
 
 
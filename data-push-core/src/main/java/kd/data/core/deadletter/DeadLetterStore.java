@@ -0,0 +1,267 @@
+package kd.data.core.deadletter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetWriteException;
+import kd.data.core.utils.BlockCodec;
+import kd.data.core.utils.CompressionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地死信存储
+ * 重试耗尽的批次逐批追加写入 dead-letter.log（每批：4 字节头长度、JSON 批次头、{@link CompressionUtil} 压缩的二进制行），
+ * 批次头记录写入失败的目标（{@link TargetWriteException}），回放时只写入这些目标；
+ * dead-letter.idx 为定长索引（偏移、长度、记录数、分片、时间），dead-letter.ack 记录已回放的批次数。
+ * 先写数据再写索引，崩溃时只会留下未被索引引用的尾部字节；全部回放后清空文件
+ *
+ * @author gaozw
+ * @date 2026/10/19 20:30
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class DeadLetterStore {
+
+    private static final String LOG_FILE = "dead-letter.log";
+    private static final String INDEX_FILE = "dead-letter.idx";
+    private static final String ACK_FILE = "dead-letter.ack";
+    /** offset(8) + length(4) + records(4) + shardId(4) + timestamp(8) + reserved(4) */
+    private static final int INDEX_ENTRY_BYTES = 32;
+    /** 死信为冷数据，取压缩率 */
+    private static final BlockCodec CODEC = BlockCodec.ZSTD;
+
+    /** 数值按 Long/BigDecimal 读取，毫秒时间戳与精确小数不失真 */
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_LONG_FOR_INTS)
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    private final Path dir;
+
+    public DeadLetterStore(Path baseDir, String taskId) {
+        this.dir = baseDir.resolve(taskId);
+    }
+
+    /**
+     * 追加失败批次
+     * @param checkpoint 批次检查点（仅记录，回放不推进检查点）
+     */
+    public synchronized void append(int shardId, String checkpoint, List<?> batch, Throwable cause) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        byte[] member = encode(shardId, checkpoint, batch, cause);
+        try {
+            Files.createDirectories(dir);
+            long offset;
+            try (FileChannel data = FileChannel.open(dir.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                offset = data.size();
+                writeFully(data, ByteBuffer.wrap(member));
+                data.force(false);
+            }
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+            entry.putLong(offset).putInt(member.length).putInt(batch.size()).putInt(shardId)
+                    .putLong(System.currentTimeMillis()).putInt(0).flip();
+            try (FileChannel index = FileChannel.open(dir.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeFully(index, entry);
+                index.force(false);
+            }
+        } catch (IOException e) {
+            throw new SyncException("Write dead letter failed: " + dir, e);
+        }
+    }
+
+    /**
+     * 待回放批次数
+     */
+    public synchronized long getPendingBatches() {
+        try {
+            return Math.max(0, entryCount() - readAck());
+        } catch (IOException e) {
+            throw new SyncException("Read dead letter index failed: " + dir, e);
+        }
+    }
+
+    /**
+     * 待回放记录数
+     */
+    public synchronized long getPendingRecords() {
+        try {
+            long total = 0;
+            for (IndexEntry entry : readIndex(readAck())) {
+                total += entry.records;
+            }
+            return total;
+        } catch (IOException e) {
+            throw new SyncException("Read dead letter index failed: " + dir, e);
+        }
+    }
+
+    /**
+     * 按写入顺序回放死信，每批成功后推进已回放位置；某批失败即停止并抛出，下次从该批继续
+     * @param entityType 记录实体类型（字段按名称回填）
+     * @param consumer 接收 (分片ID, 失败的目标, 批次)
+     * @return 本次回放的记录数
+     */
+    public synchronized <T> long replay(Class<T> entityType, ReplayConsumer<T> consumer) {
+        long replayed = 0;
+        try {
+            long acked = readAck();
+            List<IndexEntry> entries = readIndex(acked);
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            try (FileChannel data = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.READ)) {
+                for (IndexEntry entry : entries) {
+                    ByteBuffer member = ByteBuffer.allocate(entry.length);
+                    while (member.hasRemaining()) {
+                        if (data.read(member, entry.offset + member.position()) < 0) {
+                            throw new SyncException("Dead letter log truncated at offset " + entry.offset);
+                        }
+                    }
+                    byte[] bytes = member.array();
+                    consumer.accept(entry.shardId, decodeTargets(bytes), decode(bytes, entityType));
+                    writeAck(++acked);
+                    replayed += entry.records;
+                }
+            }
+            // 全部回放完成，清空死信
+            Files.deleteIfExists(dir.resolve(INDEX_FILE));
+            Files.deleteIfExists(dir.resolve(LOG_FILE));
+            Files.deleteIfExists(dir.resolve(ACK_FILE));
+            log.info("Dead letters of {} fully replayed", dir);
+            return replayed;
+        } catch (IOException e) {
+            throw new SyncException("Replay dead letters failed after " + replayed + " records: " + dir, e);
+        }
+    }
+
+    private byte[] encode(int shardId, String checkpoint, List<?> batch, Throwable cause) {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("shardId", shardId);
+        header.put("checkpoint", checkpoint);
+        header.put("records", batch.size());
+        header.put("targets", TargetWriteException.targetsOf(cause));
+        header.put("reason", cause == null ? null : String.valueOf(cause.getMessage()));
+        try {
+            byte[] headerBytes = objectMapper.writeValueAsBytes(header);
+            byte[] rows = CompressionUtil.compressBatch(batch, CODEC);
+            return ByteBuffer.allocate(4 + headerBytes.length + rows.length)
+                    .putInt(headerBytes.length).put(headerBytes).put(rows).array();
+        } catch (IOException e) {
+            throw new SyncException("Encode dead letter failed: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> List<T> decode(byte[] member, Class<T> entityType) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        int headerLength = buffer.getInt();
+        byte[] rows = Arrays.copyOfRange(member, 4 + headerLength, member.length);
+        return CompressionUtil.decompressBatch(rows, entityType);
+    }
+
+    /**
+     * 批次头中的失败目标，未记录（非目标端失败或旧版本写入）时为空
+     */
+    private List<String> decodeTargets(byte[] member) throws IOException {
+        int headerLength = ByteBuffer.wrap(member).getInt();
+        JsonNode targets = objectMapper.readTree(member, 4, headerLength).path("targets");
+        List<String> result = new ArrayList<>(targets.size());
+        targets.forEach(target -> result.add(target.asText()));
+        return result;
+    }
+
+    private long entryCount() throws IOException {
+        Path index = dir.resolve(INDEX_FILE);
+        // 末尾不完整的索引项（写入中崩溃）忽略
+        return Files.exists(index) ? Files.size(index) / INDEX_ENTRY_BYTES : 0;
+    }
+
+    private List<IndexEntry> readIndex(long fromEntry) throws IOException {
+        long count = entryCount();
+        List<IndexEntry> entries = new ArrayList<>();
+        if (fromEntry >= count) {
+            return entries;
+        }
+        try (FileChannel index = FileChannel.open(dir.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) ((count - fromEntry) * INDEX_ENTRY_BYTES));
+            long position = fromEntry * INDEX_ENTRY_BYTES;
+            while (buffer.hasRemaining()) {
+                if (index.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+                IndexEntry entry = new IndexEntry();
+                entry.offset = buffer.getLong();
+                entry.length = buffer.getInt();
+                entry.records = buffer.getInt();
+                entry.shardId = buffer.getInt();
+                entry.timestamp = buffer.getLong();
+                buffer.getInt();
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private long readAck() throws IOException {
+        Path ack = dir.resolve(ACK_FILE);
+        if (!Files.exists(ack)) {
+            return 0;
+        }
+        String value = new String(Files.readAllBytes(ack), StandardCharsets.UTF_8).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 已回放位置原子替换，避免崩溃后重复回放整个文件
+     */
+    private void writeAck(long acked) throws IOException {
+        Path tmp = dir.resolve(ACK_FILE + ".tmp");
+        Files.write(tmp, Long.toString(acked).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, dir.resolve(ACK_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 死信回放接收器
+     */
+    @FunctionalInterface
+    public interface ReplayConsumer<T> {
+
+        /**
+         * @param targets 写入失败的目标，为空时回放到全部目标
+         */
+        void accept(int shardId, List<String> targets, List<T> batch);
+    }
+
+    private static final class IndexEntry {
+        private long offset;
+        private int length;
+        private int records;
+        private int shardId;
+        private long timestamp;
+    }
+}
@@ -0,0 +1,36 @@
+package kd.data.core.exception;
+
+/**
+ * 目标端拒绝记录（响应状态码非 2xx 且不再重试）
+ * 408/429/5xx 视为目标端暂不可用，其余 4xx 与记录内容相关，属于确定性失败
+ *
+ * @author gaozw
+ * @date 2026/10/20 10:20
+ */
+@SuppressWarnings("unused")
+public class TargetRejectedException extends SyncException {
+
+    private final int statusCode;
+    private final int rejectedRecords;
+
+    public TargetRejectedException(String message, int statusCode, int rejectedRecords) {
+        super(message);
+        this.statusCode = statusCode;
+        this.rejectedRecords = rejectedRecords;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public int getRejectedRecords() {
+        return rejectedRecords;
+    }
+
+    /**
+     * 是否为与记录相关的确定性拒绝
+     */
+    public boolean isDeterministic() {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+}
@@ -0,0 +1,44 @@
+package kd.data.core.exception;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批次写入目标端失败，记录失败的目标ID（死信据此只回放到失败的目标）
+ *
+ * @author gaozw
+ * @date 2026/10/20 11:00
+ */
+@SuppressWarnings("unused")
+public class TargetWriteException extends SyncException {
+
+    private final List<String> targetIds;
+
+    public TargetWriteException(Collection<String> targetIds, Throwable cause) {
+        super("Failed to write batch to " + targetIds, cause);
+        this.targetIds = Collections.unmodifiableList(new ArrayList<>(targetIds));
+    }
+
+    public List<String> getTargetIds() {
+        return targetIds;
+    }
+
+    /**
+     * 沿异常链查找失败的目标
+     * @return 未找到时为空列表
+     */
+    public static List<String> targetsOf(Throwable failure) {
+        int depth = 0;
+        for (Throwable t = failure; t != null && depth < 16; t = t.getCause(), depth++) {
+            if (t instanceof TargetWriteException) {
+                return ((TargetWriteException) t).getTargetIds();
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+}
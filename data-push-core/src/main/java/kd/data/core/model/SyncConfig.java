@@ -26,12 +26,42 @@ public class SyncConfig implements Serializable {
     private int maxRetries = 3;
     private long retryInitialDelay = 1000;
     private double retryBackoffFactor = 2.0;
+    private long retryMaxDelay = 60_000;
+    // 自适应批大小（AIMD）：满批写入延迟低于目标时按步长增大，超时或被限流时减半，
+    // 从 batchSize 开始并限制在 [minBatchSize, maxBatchSize]；同时按估算字节数截断批次
+    private boolean adaptiveBatchSize = false;
+    private int minBatchSize = 100;
+    private int maxBatchSize = 50_000;
+    private int batchSizeIncrement = 500;
+    private long targetBatchLatencyMs = 1_000;
+    private long maxBatchBytes = 16L * 1024 * 1024;
     private boolean idempotentMode = true;
+    // 每个分片已发送未确认的最大批次数（仅异步目标生效）
+    private int maxInFlightBatches = 4;
+    // 确定性失败（约束冲突、数据格式等）时二分批次，只隔离出错记录
+    private boolean isolatePoisonRecords = true;
+    // 单批次最多隔离的记录数，超过视为整体性错误，分片失败
+    private int maxPoisonRecordsPerBatch = 100;
 
     // 分片配置
     private int minShards = 1;
     private int maxShards = 64;
     private long recordsPerShard = 1_000_000L;
+    // 分片工作队列：各节点从协调器中的队列领取分片而非逐个抢锁，分片锁以 shardLeaseSeconds 为超时、续期即心跳，
+    // 锁失效的处理中分片放回队列由任一节点接手并从检查点续传，运行中加入的节点直接领取剩余分片。
+    // 协调器不支持时退回逐分片抢锁
+    private boolean shardQueueEnabled = false;
+    private int shardLeaseSeconds = 30;
+    private long shardQueuePollMs = 1_000;
+    // 单个分片在本节点失败后放回队列重试的次数上限，达到后移出队列（检查点保留，下次任务从检查点续传）
+    private int shardMaxAttempts = 3;
+    // 并发自调：按批次限制同时读写的分片数，周期性根据吞吐与源/目标延迟爬山调整，
+    // 上限为 maxActiveShards（0 表示由线程池与分片数决定）
+    private boolean autoTuneConcurrency = false;
+    private int minActiveShards = 1;
+    private int maxActiveShards = 0;
+    private int initialActiveShards = 4;
+    private long concurrencyTuneIntervalMs = 10_000;
 
     // 超时配置
     private int lockTimeout = 1000 * 60;
@@ -42,15 +72,32 @@ public class SyncConfig implements Serializable {
     // 协调器配置
     private String coordinatorType = "redis";
     private Map<String, String> coordinatorConfig = new HashMap<>();
+    // 检查点合并写入：每个分片只保留最新检查点，每 checkpointFlushIntervalMs 或累计 checkpointFlushBatches 次更新后
+    // 一次往返批量写入（Redis 为 MSET），分片结束与任务结束时强制写入。
+    // 间隔即崩溃后检查点最多落后的时间窗口（续传时重复处理），0 表示每批同步写入
+    private long checkpointFlushIntervalMs = 1_000;
+    private int checkpointFlushBatches = 100;
 
     // 性能优化
+    // 记录数超过 compressionThreshold 的异步批次压缩后发送，在途与扇出队列中只保留压缩字节
     private boolean useCompression = false;
 
     private int compressionThreshold = 10_000;
+    // 二进制行的块压缩算法：none、snappy、lz4、zstd
+    private String compressionCodec = "lz4";
 
     // 监控配置
     private int statsInterval = 5;
 
+    // 熔断配置：同一任务所有分片共享，连续瞬时失败达到阈值后全部分片暂停等待，单批次试探恢复
+    private boolean circuitBreakerEnabled = true;
+    private int circuitFailureThreshold = 5;
+    private long circuitOpenMs = 5_000;
+    private long circuitMaxOpenMs = 60_000;
+
+    // 死信目录（重试耗尽的批次按任务落盘，可回放）
+    private String deadLetterDir = "data/dead-letter";
+
 
     // JDBC特有配置
     private String countQuery;
@@ -15,6 +15,19 @@ public class SyncContext {
 
     private static final ThreadLocal<SyncContext> currentContext = new ThreadLocal<>();
 
+    /** 当前分片锁键（taskId:shard_N） */
+    public static final String LOCK_KEY = "lockKey";
+    /** 当前分片ID */
+    public static final String SHARD_ID = "shardId";
+    /** 当前分片锁租约（{@link kd.data.core.coordinator.LockLease}） */
+    public static final String LOCK_LEASE = "lockLease";
+    /** 当前分片锁的防护令牌，写入端可拒绝令牌小于已见最大值的旧持有者 */
+    public static final String FENCING_TOKEN = "fencingToken";
+    /** 当前批次提交后应推进到的检查点 */
+    public static final String BATCH_CHECKPOINT = "batchCheckpoint";
+    /** 死信回放：批次不对应任何检查点，自行保存检查点的目标端只写数据 */
+    public static final String REPLAY = "replay";
+
     @Getter
     private final String sourceType;
     private final Map<String, Object> attributes = new HashMap<>();
@@ -42,4 +55,23 @@ public class SyncContext {
     public Object getAttribute(String key) {
         return attributes.get(key);
     }
+
+    /**
+     * 复制上下文（属性快照），用于把分片上下文传递到其他线程
+     */
+    public SyncContext copy() {
+        SyncContext copy = new SyncContext(sourceType);
+        copy.attributes.putAll(attributes);
+        return copy;
+    }
+
+    /**
+     * 读取当前线程上下文中的属性
+     * @return 无上下文或属性不存在时返回 null
+     */
+    public static String currentAttribute(String key) {
+        SyncContext context = currentContext.get();
+        Object value = context == null ? null : context.getAttribute(key);
+        return value == null ? null : value.toString();
+    }
 }
@@ -6,9 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 /**
  * 统计模型
@@ -33,20 +31,40 @@ public class SyncStats {
 
     private int shardCount;
 
-    // 添加失败批次上限
-    private int maxFailedBatches = 1000;
-
     private final AtomicLong scannedRecords = new AtomicLong(0);
     private final AtomicLong filteredRecords = new AtomicLong(0);
     private final AtomicLong processedRecords = new AtomicLong(0);
     private final AtomicLong completedShards = new AtomicLong(0);
     private final AtomicLong failedShards = new AtomicLong(0);
     private final AtomicLong skippedShards = new AtomicLong(0);
+    /** 重试次数耗尽、本次不再处理的分片数 */
+    private final AtomicLong abandonedShards = new AtomicLong(0);
     private final AtomicLong retryCount = new AtomicLong(0);
+    /** 自适应批大小：当前批大小、估算行字节数、调整次数 */
+    private final AtomicLong currentBatchSize = new AtomicLong(0);
+    private final AtomicLong estimatedRowBytes = new AtomicLong(0);
+    private final AtomicLong batchSizeAdjustments = new AtomicLong(0);
+    /** 并发自调：当前允许同时处理的分片数、最近一个调节周期的吞吐（记录/秒） */
+    private final AtomicLong activeShardLimit = new AtomicLong(0);
+    private final AtomicLong throughputRecordsPerSec = new AtomicLong(0);
+    /** 压缩发送的批次数及压缩前后字节数 */
+    private final AtomicLong compressedBatches = new AtomicLong(0);
+    private final AtomicLong uncompressedBytes = new AtomicLong(0);
+    private final AtomicLong compressedBytes = new AtomicLong(0);
+    /** 熔断打开次数 */
+    private final AtomicLong circuitBreakerTrips = new AtomicLong(0);
 
     private final ConcurrentHashMap<Integer, Long> shardDurations = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer, Long> batchTimes = new ConcurrentHashMap<>();
-    private final List<Object> failedBatches = new CopyOnWriteArrayList<>();
+    /** 写入死信的批次数与记录数（记录本身落盘，不保留在内存） */
+    private final AtomicLong deadLetterBatches = new AtomicLong(0);
+    private final AtomicLong deadLetterRecords = new AtomicLong(0);
+    /** 批次拆分后被隔离的单条记录数 */
+    private final AtomicLong quarantinedRecords = new AtomicLong(0);
+    /** 各目标已发送字节数 */
+    private final ConcurrentHashMap<String, Long> targetBytesSent = new ConcurrentHashMap<>();
+    /** 各目标已写入记录数 */
+    private final ConcurrentHashMap<String, Long> targetRecordsWritten = new ConcurrentHashMap<>();
 
 
     public void startShard(int shardId) {
@@ -64,6 +82,10 @@ public class SyncStats {
         failedShards.incrementAndGet();
     }
 
+    public void abandonShard() {
+        abandonedShards.incrementAndGet();
+    }
+
     public void incrementScannedRecords() {
         scannedRecords.incrementAndGet();
     }
@@ -84,18 +106,32 @@ public class SyncStats {
         retryCount.incrementAndGet();
     }
 
+    public void recordBatchSize(int batchSize, long rowBytes) {
+        if (currentBatchSize.getAndSet(batchSize) != batchSize) {
+            batchSizeAdjustments.incrementAndGet();
+        }
+        estimatedRowBytes.set(rowBytes);
+    }
+
+    public void recordCompressedBatch(long rawBytes, long compressed) {
+        compressedBatches.incrementAndGet();
+        uncompressedBytes.addAndGet(rawBytes);
+        compressedBytes.addAndGet(compressed);
+    }
+
     public void recordBatchTime(int shardId, long time) {
         batchTimes.put(shardId, time);
     }
 
 
 
-    public void addFailedBatch(Object batch) {
-        if (failedBatches.size() < maxFailedBatches) {
-            failedBatches.add(batch);
-        } else {
-            log.warn("Failed batches storage full");
-        }
+    public void incrementQuarantinedRecords() {
+        quarantinedRecords.incrementAndGet();
+    }
+
+    public void recordDeadLetter(int records) {
+        deadLetterBatches.incrementAndGet();
+        deadLetterRecords.addAndGet(records);
     }
 
 
@@ -0,0 +1,141 @@
+package kd.data.core.utils;
+
+import com.github.luben.zstd.Zstd;
+import kd.data.core.exception.SyncException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 块压缩算法
+ * 输入输出均为直接缓冲区（position..limit 为有效数据），压缩/解压结果写入目标缓冲区的 position 处
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:30
+ */
+public enum BlockCodec {
+
+    NONE(0),
+    SNAPPY(1),
+    LZ4(2),
+    ZSTD(3);
+
+    private static final int ZSTD_LEVEL = 3;
+
+    private final int id;
+
+    BlockCodec(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int maxCompressedLength(int rawLength) {
+        switch (this) {
+            case SNAPPY:
+                return Snappy.maxCompressedLength(rawLength);
+            case LZ4:
+                return Lz4Holder.COMPRESSOR.maxCompressedLength(rawLength);
+            case ZSTD:
+                return (int) Zstd.compressBound(rawLength);
+            default:
+                return rawLength;
+        }
+    }
+
+    /**
+     * 压缩 src 的剩余数据写入 dst
+     * @return 压缩后字节数
+     */
+    public int compress(ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        try {
+            switch (this) {
+                case SNAPPY:
+                    int snappy = Snappy.compress(src, dst);
+                    src.position(src.limit());
+                    dst.limit(dst.capacity()).position(start + snappy);
+                    return snappy;
+                case LZ4:
+                    Lz4Holder.COMPRESSOR.compress(src, dst);
+                    return dst.position() - start;
+                case ZSTD:
+                    int zstd = Zstd.compress(dst, src, ZSTD_LEVEL);
+                    return zstd;
+                default:
+                    int length = src.remaining();
+                    dst.put(src);
+                    return length;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new SyncException(name() + " compress failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 解压 src 的剩余数据写入 dst
+     * @param rawLength 解压后字节数
+     */
+    public void decompress(ByteBuffer src, ByteBuffer dst, int rawLength) {
+        int start = dst.position();
+        try {
+            switch (this) {
+                case SNAPPY:
+                    int snappy = Snappy.uncompress(src, dst);
+                    dst.limit(dst.capacity()).position(start + snappy);
+                    break;
+                case LZ4:
+                    Lz4Holder.DECOMPRESSOR.decompress(src, src.position(), dst, start, rawLength);
+                    dst.position(start + rawLength);
+                    break;
+                case ZSTD:
+                    Zstd.decompress(dst, src);
+                    break;
+                default:
+                    dst.put(src);
+                    break;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new SyncException(name() + " decompress failed: " + e.getMessage(), e);
+        }
+        if (dst.position() - start != rawLength) {
+            throw new SyncException(name() + " decompressed " + (dst.position() - start)
+                    + " bytes, expected " + rawLength);
+        }
+    }
+
+    public static BlockCodec of(int id) {
+        for (BlockCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new SyncException("Unknown block codec: " + id);
+    }
+
+    public static BlockCodec of(String name) {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        for (BlockCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported block codec: " + name);
+    }
+
+    /**
+     * 延迟加载 LZ4 实现，未使用时不初始化
+     */
+    private static final class Lz4Holder {
+        private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    }
+}
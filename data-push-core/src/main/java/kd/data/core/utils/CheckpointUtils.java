@@ -0,0 +1,43 @@
+package kd.data.core.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * 检查点比较
+ * 检查点为游标列的值（分片按 MOD 取模，通常为数值），数值按大小比较，否则按字符串比较；
+ * null 表示从头开始，小于任何检查点
+ *
+ * @author gaozw
+ * @date 2026/10/19 19:40
+ */
+public final class CheckpointUtils {
+
+    private CheckpointUtils() {
+        throw new AssertionError("No CheckpointUtils instances for you!");
+    }
+
+    public static int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        try {
+            return new BigDecimal(a.trim()).compareTo(new BigDecimal(b.trim()));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * 较小的检查点（null 最小）
+     */
+    public static String min(String a, String b) {
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * checkpoint 是否已被 covered 覆盖（covered 为空表示无进度）
+     */
+    public static boolean isCovered(String checkpoint, String covered) {
+        return covered != null && checkpoint != null && compare(checkpoint, covered) <= 0;
+    }
+}
@@ -1,14 +1,16 @@
 package kd.data.core.utils;
 
+import kd.data.core.exception.SyncException;
 import lombok.extern.slf4j.Slf4j;
-import org.xerial.snappy.Snappy;
 
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * 压缩工具
+ * 批次经 {@link RowCodec} 编码为二进制行后按 {@link BlockCodec} 整块压缩，编码与压缩均在池化直接缓冲区中完成。
+ * 帧格式：魔数 'K''R'、版本、块压缩算法、行数、原始长度（均为定长头），其后为压缩数据
  * @author gaozw
  * @date 2025/7/23 18:48
  */
@@ -16,34 +18,80 @@ import java.util.List;
 @SuppressWarnings("unused")
 public class CompressionUtil {
 
+    private static final byte MAGIC_0 = 'K';
+    private static final byte MAGIC_1 = 'R';
+    private static final byte VERSION = 1;
+    /** magic(2) + version(1) + codec(1) + rows(4) + rawLength(4) */
+    private static final int HEADER_BYTES = 12;
 
     private CompressionUtil(){}
 
-    public static <T> byte[] compressBatch(List<T> batch) {
+    public static <T> byte[] compressBatch(List<T> batch, BlockCodec codec) {
         if (batch == null || batch.isEmpty()) {
             return new byte[0];
         }
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
-            objectOutputStream.writeObject(batch);
-            return Snappy.compress(byteArrayOutputStream.toByteArray());
-        } catch (IOException e) {
-            log.error("compressBatch error {}",e.getMessage(),e);
+        ByteBuffer raw = RowCodec.encode(batch);
+        ByteBuffer compressed = null;
+        try {
+            int rawLength = raw.remaining();
+            compressed = DirectBufferPool.acquire(codec.maxCompressedLength(rawLength));
+            int length = codec.compress(raw, compressed);
+            compressed.flip();
+
+            byte[] frame = new byte[HEADER_BYTES + length];
+            ByteBuffer.wrap(frame)
+                    .put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) codec.getId())
+                    .putInt(batch.size()).putInt(rawLength)
+                    .put(compressed);
+            return frame;
+        } finally {
+            DirectBufferPool.release(raw);
+            DirectBufferPool.release(compressed);
         }
-        return new byte[0];
     }
 
-    @SuppressWarnings("unchecked")
-    public static <T> List<T> decompressBatch(byte[] compressed) {
-        if (compressed == null || compressed.length == 0) {
+    public static <T> List<T> decompressBatch(byte[] frame, Class<T> type) {
+        if (frame == null || frame.length == 0) {
             return Collections.emptyList();
         }
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(Snappy.uncompress(compressed));
-             ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream)) {
-            return (List<T>) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            log.error("decompressBatch error {}",e.getMessage(),e);
+        if (!isFrame(frame)) {
+            throw new SyncException("Not a compressed batch frame");
+        }
+        ByteBuffer header = ByteBuffer.wrap(frame, 0, HEADER_BYTES);
+        header.position(3);
+        BlockCodec codec = BlockCodec.of(header.get());
+        int rows = header.getInt();
+        int rawLength = header.getInt();
+
+        ByteBuffer compressed = DirectBufferPool.acquire(frame.length - HEADER_BYTES);
+        ByteBuffer raw = DirectBufferPool.acquire(rawLength);
+        try {
+            compressed.put(frame, HEADER_BYTES, frame.length - HEADER_BYTES).flip();
+            codec.decompress(compressed, raw, rawLength);
+            raw.flip();
+            List<T> records = RowCodec.decode(raw, type);
+            if (records.size() != rows) {
+                throw new SyncException("Compressed batch holds " + records.size() + " rows, expected " + rows);
+            }
+            return records;
+        } finally {
+            DirectBufferPool.release(compressed);
+            DirectBufferPool.release(raw);
         }
-        return Collections.emptyList();
+    }
+
+    /**
+     * 帧中数据压缩前的字节数
+     */
+    public static int rawLength(byte[] frame) {
+        return isFrame(frame) ? ByteBuffer.wrap(frame).getInt(8) : 0;
+    }
+
+    /**
+     * 是否为 compressBatch 产生的帧
+     */
+    public static boolean isFrame(byte[] data) {
+        return data != null && data.length >= HEADER_BYTES && data[0] == MAGIC_0 && data[1] == MAGIC_1
+                && data[2] == VERSION;
     }
 }
@@ -0,0 +1,80 @@
+package kd.data.core.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 直接缓冲区池
+ * 按 2 的幂容量分级复用，避免每个批次分配/回收直接内存；超过最大级别的缓冲区不入池，
+ * 每级保留的数量有上限，池满时归还的缓冲区交由 GC 回收
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:30
+ */
+public final class DirectBufferPool {
+
+    private static final int MIN_SHIFT = 16;
+    private static final int MAX_SHIFT = 26;
+    private static final int MAX_PER_CLASS = 8;
+
+    @SuppressWarnings("unchecked")
+    private static final Queue<ByteBuffer>[] POOLS = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+    private static final AtomicIntegerArray SIZES = new AtomicIntegerArray(POOLS.length);
+
+    static {
+        for (int i = 0; i < POOLS.length; i++) {
+            POOLS[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    private DirectBufferPool() {
+        throw new AssertionError("No DirectBufferPool instances for you!");
+    }
+
+    /**
+     * 获取容量不小于 minCapacity 的已清空缓冲区
+     */
+    public static ByteBuffer acquire(int minCapacity) {
+        int shift = shiftFor(minCapacity);
+        if (shift > MAX_SHIFT) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        int index = shift - MIN_SHIFT;
+        ByteBuffer buffer = POOLS[index].poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(1 << shift);
+        }
+        SIZES.decrementAndGet(index);
+        buffer.clear();
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if (Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(capacity);
+        if (shift < MIN_SHIFT || shift > MAX_SHIFT) {
+            return;
+        }
+        int index = shift - MIN_SHIFT;
+        if (SIZES.incrementAndGet(index) > MAX_PER_CLASS) {
+            SIZES.decrementAndGet(index);
+            return;
+        }
+        POOLS[index].offer(buffer);
+    }
+
+    private static int shiftFor(int capacity) {
+        if (capacity <= 1 << MIN_SHIFT) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+}
@@ -0,0 +1,167 @@
+package kd.data.core.utils;
+
+import kd.data.core.exception.TargetRejectedException;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 写入失败分类
+ * 确定性失败（约束冲突、数据格式、记录过大、4xx 拒绝）与具体记录相关，重试无效，可拆分批次定位；
+ * 瞬时失败（超时、连接中断、429/5xx、死锁）按退避重试。沿异常链检查，出现瞬时特征即按瞬时处理，
+ * 无法识别的失败不视为确定性。本项目目标端的拒绝以 {@link TargetRejectedException} 携带状态码，
+ * 消息匹配仅用于第三方客户端异常
+ *
+ * @author gaozw
+ * @date 2026/10/19 20:50
+ */
+public final class FailureClassifier {
+
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    /** 第三方客户端的瞬时异常（按类名匹配，含父类），避免核心模块依赖具体客户端 */
+    private static final Set<String> TRANSIENT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "RetriableException",
+            "RedisConnectionException",
+            "RedisCommandTimeoutException",
+            "AlreadyClosedException",
+            "ShutdownSignalException")));
+
+    /** 第三方客户端的确定性异常 */
+    private static final Set<String> DETERMINISTIC_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "JsonProcessingException",
+            "RecordTooLargeException",
+            "InvalidRecordException",
+            "SerializationException")));
+
+    /** 数据异常、完整性约束冲突 */
+    private static final Set<String> DETERMINISTIC_SQL_STATES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "22", "23")));
+    /** 连接异常、事务回滚（死锁）、资源不足 */
+    private static final Set<String> TRANSIENT_SQL_STATES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "08", "40", "53", "57", "HY")));
+
+    /** 第三方客户端异常消息中的响应状态码（如 ES 客户端的 HTTP/1.1 400） */
+    private static final Pattern HTTP_STATUS = Pattern.compile("HTTP/\\d(?:\\.\\d)?\\s+(\\d{3})");
+    private static final Set<String> DETERMINISTIC_MESSAGE_PREFIXES = Collections.unmodifiableSet(new HashSet<>(
+            Collections.singletonList("WRONGTYPE")));
+
+    private FailureClassifier() {
+        throw new AssertionError("No FailureClassifier instances for you!");
+    }
+
+    /**
+     * 是否为与记录相关的确定性失败
+     */
+    public static boolean isDeterministic(Throwable failure) {
+        boolean deterministic = false;
+        int depth = 0;
+        for (Throwable t = failure; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            Kind kind = classify(t);
+            if (kind == Kind.TRANSIENT) {
+                return false;
+            }
+            if (kind == Kind.DETERMINISTIC) {
+                deterministic = true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return deterministic;
+    }
+
+    /**
+     * 是否为瞬时失败（目标端不可用、限流、超时）
+     */
+    public static boolean isTransient(Throwable failure) {
+        int depth = 0;
+        for (Throwable t = failure; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            if (classify(t) == Kind.TRANSIENT) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static Kind classify(Throwable t) {
+        if (t instanceof TargetRejectedException) {
+            return ((TargetRejectedException) t).isDeterministic() ? Kind.DETERMINISTIC : Kind.TRANSIENT;
+        }
+        if (t instanceof TimeoutException || t instanceof SQLTransientException
+                || t instanceof SQLRecoverableException || t instanceof InterruptedException) {
+            return Kind.TRANSIENT;
+        }
+        if (t instanceof SQLException) {
+            String state = ((SQLException) t).getSQLState();
+            if (state != null && state.length() >= 2) {
+                String stateClass = state.substring(0, 2);
+                if (TRANSIENT_SQL_STATES.contains(stateClass)) {
+                    return Kind.TRANSIENT;
+                }
+                if (DETERMINISTIC_SQL_STATES.contains(stateClass)) {
+                    return Kind.DETERMINISTIC;
+                }
+            }
+        }
+        for (Class<?> type = t.getClass(); type != null && type != Throwable.class; type = type.getSuperclass()) {
+            String name = type.getSimpleName();
+            if (TRANSIENT_TYPES.contains(name)) {
+                return Kind.TRANSIENT;
+            }
+            if (DETERMINISTIC_TYPES.contains(name)) {
+                return Kind.DETERMINISTIC;
+            }
+        }
+        Kind byMessage = classifyMessage(t.getMessage());
+        if (byMessage != Kind.UNKNOWN) {
+            return byMessage;
+        }
+        if (t instanceof IOException) {
+            return Kind.TRANSIENT;
+        }
+        if (t instanceof IllegalArgumentException || t instanceof ClassCastException
+                || t instanceof ArithmeticException) {
+            return Kind.DETERMINISTIC;
+        }
+        return Kind.UNKNOWN;
+    }
+
+    private static Kind classifyMessage(String message) {
+        if (message == null) {
+            return Kind.UNKNOWN;
+        }
+        Matcher matcher = HTTP_STATUS.matcher(message);
+        if (matcher.find()) {
+            int status = Integer.parseInt(matcher.group(1));
+            if (status == 408 || status == 429 || status >= 500) {
+                return Kind.TRANSIENT;
+            }
+            if (status >= 400) {
+                return Kind.DETERMINISTIC;
+            }
+        }
+        for (String prefix : DETERMINISTIC_MESSAGE_PREFIXES) {
+            if (message.startsWith(prefix)) {
+                return Kind.DETERMINISTIC;
+            }
+        }
+        return Kind.UNKNOWN;
+    }
+
+    private enum Kind {
+        TRANSIENT, DETERMINISTIC, UNKNOWN
+    }
+}
@@ -45,6 +45,14 @@ public final class ReflectionUtils {
         }
     }
 
+    /**
+     * 将任意值转换为指定类型（源实体与目标实体字段类型不一致时使用）
+     */
+    public static Object convertValue(Object value, Class<?> targetType) {
+        requireNonNull(targetType, "targetType");
+        return convertValueToFieldType(value, targetType);
+    }
+
     /**
      * 类型转换：将任意值转换为目标字段类型
      */
@@ -0,0 +1,457 @@
+package kd.data.core.utils;
+
+import kd.data.core.exception.SyncException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制行编码
+ * 按实体字段类型派生 schema，数据区自带 schema（字段名 + 类型），解码时按字段名匹配目标类型，
+ * 源/目标实体类重新生成或字段类型不同时仍可还原（类型不同时经 ReflectionUtils 转换）。
+ * 每行为空值位图 + 非空字段值：整数 zigzag 变长，字符串 UTF-8 带长度，时间按毫秒/纪元秒存储
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:30
+ */
+public final class RowCodec {
+
+    /** schema 随实体类缓存，不阻止动态生成类的卸载 */
+    private static final ClassValue<Column[]> SCHEMAS = new ClassValue<Column[]>() {
+        @Override
+        protected Column[] computeValue(Class<?> type) {
+            return columns(type);
+        }
+    };
+
+    private RowCodec() {
+        throw new AssertionError("No RowCodec instances for you!");
+    }
+
+    /**
+     * 编码批次，行类型取首条记录的类型
+     * @return 池化直接缓冲区（已 flip），调用方用完后归还 {@link DirectBufferPool}
+     */
+    public static ByteBuffer encode(List<?> rows) {
+        Column[] columns = rows.isEmpty() ? new Column[0] : SCHEMAS.get(rows.get(0).getClass());
+        Output out = new Output(DirectBufferPool.acquire(Math.max(1 << 16, rows.size() * 64)));
+        try {
+            out.varLong(columns.length);
+            for (Column column : columns) {
+                out.string(column.name);
+                out.ensure(1);
+                out.buffer.put((byte) column.type.ordinal());
+            }
+            out.varLong(rows.size());
+            int bitmapBytes = (columns.length + 7) >>> 3;
+            byte[] bitmap = new byte[bitmapBytes];
+            Object[] values = new Object[columns.length];
+            for (Object row : rows) {
+                Arrays.fill(bitmap, (byte) 0);
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = columns[i].field.get(row);
+                    if (values[i] == null) {
+                        bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                    }
+                }
+                out.ensure(bitmapBytes);
+                out.buffer.put(bitmap);
+                for (int i = 0; i < columns.length; i++) {
+                    if (values[i] != null) {
+                        write(out, columns[i].type, values[i]);
+                    }
+                }
+            }
+            out.buffer.flip();
+            return out.buffer;
+        } catch (IllegalAccessException | RuntimeException e) {
+            DirectBufferPool.release(out.buffer);
+            throw new SyncException("Encode rows failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 解码为指定类型，数据中不存在于目标类型的字段被忽略
+     */
+    public static <T> List<T> decode(ByteBuffer in, Class<T> type) {
+        try {
+            int columnCount = (int) readVarLong(in);
+            Map<String, Column> targets = new HashMap<>();
+            for (Column column : SCHEMAS.get(type)) {
+                targets.put(column.name, column);
+            }
+            Type[] types = new Type[columnCount];
+            Column[] fields = new Column[columnCount];
+            boolean[] direct = new boolean[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                String name = readString(in);
+                types[i] = Type.values()[in.get()];
+                fields[i] = targets.get(name);
+                // 枚举与其它类型以字符串存储，需经转换
+                direct[i] = fields[i] != null && fields[i].type == types[i]
+                        && types[i] != Type.ENUM && types[i] != Type.OTHER;
+            }
+            int rowCount = (int) readVarLong(in);
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            byte[] bitmap = new byte[(columnCount + 7) >>> 3];
+            List<T> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                in.get(bitmap);
+                T row = constructor.newInstance();
+                for (int i = 0; i < columnCount; i++) {
+                    if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                        continue;
+                    }
+                    Object value = read(in, types[i]);
+                    Column target = fields[i];
+                    if (target != null) {
+                        target.field.set(row, direct[i] ? value : ReflectionUtils.convertValue(value, target.field.getType()));
+                    }
+                }
+                rows.add(row);
+            }
+            return rows;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (e instanceof SyncException) {
+                throw (SyncException) e;
+            }
+            throw new SyncException("Decode rows into " + type.getName() + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void write(Output out, Type type, Object value) {
+        switch (type) {
+            case BOOLEAN:
+                out.ensure(1);
+                out.buffer.put((byte) ((Boolean) value ? 1 : 0));
+                break;
+            case BYTE:
+                out.ensure(1);
+                out.buffer.put((Byte) value);
+                break;
+            case SHORT:
+            case INT:
+            case LONG:
+                out.zigzag(((Number) value).longValue());
+                break;
+            case CHAR:
+                out.varLong((Character) value);
+                break;
+            case FLOAT:
+                out.ensure(4);
+                out.buffer.putFloat((Float) value);
+                break;
+            case DOUBLE:
+                out.ensure(8);
+                out.buffer.putDouble((Double) value);
+                break;
+            case STRING:
+                out.string((String) value);
+                break;
+            case BIG_DECIMAL:
+                BigDecimal decimal = (BigDecimal) value;
+                out.zigzag(decimal.scale());
+                out.bytes(decimal.unscaledValue().toByteArray());
+                break;
+            case BIG_INTEGER:
+                out.bytes(((BigInteger) value).toByteArray());
+                break;
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+                out.zigzag(timestamp.getTime());
+                out.varLong(timestamp.getNanos());
+                break;
+            case DATE:
+            case SQL_DATE:
+            case SQL_TIME:
+                out.zigzag(((Date) value).getTime());
+                break;
+            case LOCAL_DATE_TIME:
+                LocalDateTime dateTime = (LocalDateTime) value;
+                out.zigzag(dateTime.toEpochSecond(ZoneOffset.UTC));
+                out.varLong(dateTime.getNano());
+                break;
+            case LOCAL_DATE:
+                out.zigzag(((LocalDate) value).toEpochDay());
+                break;
+            case LOCAL_TIME:
+                out.varLong(((LocalTime) value).toNanoOfDay());
+                break;
+            case INSTANT:
+                Instant instant = (Instant) value;
+                out.zigzag(instant.getEpochSecond());
+                out.varLong(instant.getNano());
+                break;
+            case BYTES:
+                out.bytes((byte[]) value);
+                break;
+            case ENUM:
+                out.string(((Enum<?>) value).name());
+                break;
+            default:
+                out.string(value.toString());
+                break;
+        }
+    }
+
+    private static Object read(ByteBuffer in, Type type) {
+        switch (type) {
+            case BOOLEAN:
+                return in.get() != 0;
+            case BYTE:
+                return in.get();
+            case SHORT:
+                return (short) readZigzag(in);
+            case INT:
+                return (int) readZigzag(in);
+            case LONG:
+                return readZigzag(in);
+            case CHAR:
+                return (char) readVarLong(in);
+            case FLOAT:
+                return in.getFloat();
+            case DOUBLE:
+                return in.getDouble();
+            case BIG_DECIMAL:
+                int scale = (int) readZigzag(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(readZigzag(in));
+                timestamp.setNanos((int) readVarLong(in));
+                return timestamp;
+            case DATE:
+                return new Date(readZigzag(in));
+            case SQL_DATE:
+                return new java.sql.Date(readZigzag(in));
+            case SQL_TIME:
+                return new java.sql.Time(readZigzag(in));
+            case LOCAL_DATE_TIME:
+                long seconds = readZigzag(in);
+                return LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(in), ZoneOffset.UTC);
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(readZigzag(in));
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(readVarLong(in));
+            case INSTANT:
+                long epochSecond = readZigzag(in);
+                return Instant.ofEpochSecond(epochSecond, readVarLong(in));
+            case BYTES:
+                return readBytes(in);
+            default:
+                // STRING、ENUM、OTHER 均以字符串存储，枚举与其它类型由目标字段类型转换
+                return readString(in);
+        }
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SyncException("Malformed varint in row data");
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Column[] columns(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<Column> columns = new ArrayList<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()
+                        || seen.put(field.getName(), Boolean.TRUE) != null) {
+                    continue;
+                }
+                field.setAccessible(true);
+                columns.add(new Column(field.getName(), field, Type.of(field.getType())));
+            }
+        }
+        return columns.toArray(new Column[0]);
+    }
+
+    /**
+     * 字段值类型（序号即编码值，只能在末尾追加）
+     */
+    private enum Type {
+        BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, BIG_DECIMAL, BIG_INTEGER,
+        DATE, SQL_DATE, TIMESTAMP, SQL_TIME, LOCAL_DATE_TIME, LOCAL_DATE, LOCAL_TIME, INSTANT, BYTES, ENUM, OTHER;
+
+        static Type of(Class<?> type) {
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == byte.class || type == Byte.class) {
+                return BYTE;
+            }
+            if (type == short.class || type == Short.class) {
+                return SHORT;
+            }
+            if (type == char.class || type == Character.class) {
+                return CHAR;
+            }
+            if (type == int.class || type == Integer.class) {
+                return INT;
+            }
+            if (type == long.class || type == Long.class) {
+                return LONG;
+            }
+            if (type == float.class || type == Float.class) {
+                return FLOAT;
+            }
+            if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == String.class) {
+                return STRING;
+            }
+            if (type == BigDecimal.class) {
+                return BIG_DECIMAL;
+            }
+            if (type == BigInteger.class) {
+                return BIG_INTEGER;
+            }
+            // 子类先于 java.util.Date 判断
+            if (java.sql.Timestamp.class.isAssignableFrom(type)) {
+                return TIMESTAMP;
+            }
+            if (java.sql.Date.class.isAssignableFrom(type)) {
+                return SQL_DATE;
+            }
+            if (java.sql.Time.class.isAssignableFrom(type)) {
+                return SQL_TIME;
+            }
+            if (Date.class.isAssignableFrom(type)) {
+                return DATE;
+            }
+            if (type == LocalDateTime.class) {
+                return LOCAL_DATE_TIME;
+            }
+            if (type == LocalDate.class) {
+                return LOCAL_DATE;
+            }
+            if (type == LocalTime.class) {
+                return LOCAL_TIME;
+            }
+            if (type == Instant.class) {
+                return INSTANT;
+            }
+            if (type == byte[].class) {
+                return BYTES;
+            }
+            if (type.isEnum()) {
+                return ENUM;
+            }
+            return OTHER;
+        }
+    }
+
+    private static final class Column {
+        private final String name;
+        private final Field field;
+        private final Type type;
+
+        Column(String name, Field field, Type type) {
+            this.name = name;
+            this.field = field;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 可扩容的直接缓冲区输出，扩容时换用更大的池化缓冲区
+     */
+    private static final class Output {
+        private ByteBuffer buffer;
+
+        Output(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            long required = (long) buffer.position() + bytes;
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new SyncException("Encoded batch exceeds 2 GB");
+            }
+            ByteBuffer larger = DirectBufferPool.acquire((int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(required, (long) buffer.capacity() << 1)));
+            buffer.flip();
+            larger.put(buffer);
+            DirectBufferPool.release(buffer);
+            buffer = larger;
+        }
+
+        void varLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void zigzag(long value) {
+            varLong((value << 1) ^ (value >> 63));
+        }
+
+        void bytes(byte[] bytes) {
+            varLong(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void string(String value) {
+            bytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
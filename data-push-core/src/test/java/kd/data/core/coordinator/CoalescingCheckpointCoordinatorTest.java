@@ -0,0 +1,108 @@
+package kd.data.core.coordinator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 合并写入检查点：租约丢失的待写检查点在写入时丢弃，令牌小于已见值的写入被拒绝
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:55
+ */
+class CoalescingCheckpointCoordinatorTest {
+
+    private final InMemoryCoordinator store = new InMemoryCoordinator();
+    private CoalescingCheckpointCoordinator writer;
+    private String task;
+
+    @BeforeEach
+    void setUp() {
+        task = "task-" + UUID.randomUUID();
+        writer = new CoalescingCheckpointCoordinator(task, store, 60_000, 1_000);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    void flushWritesPendingCheckpoints() {
+        LockLease lease = lease(task + ":shard_0");
+
+        assertThat(writer.saveCheckpoint(task + ":shard_0", "100", lease)).isTrue();
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isNull();
+        assertThat(writer.loadCheckpoint(task + ":shard_0")).isEqualTo("100");
+
+        writer.flush();
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isEqualTo("100");
+    }
+
+    @Test
+    void flushDropsCheckpointsOfLostLease() {
+        LockLease lost = lease(task + ":shard_0");
+        LockLease held = lease(task + ":shard_1");
+        writer.saveCheckpoint(task + ":shard_0", "100", lost);
+        writer.saveCheckpoint(task + ":shard_1", "200", held);
+
+        lost.markLost();
+        writer.flush();
+
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isNull();
+        assertThat(store.loadCheckpoint(task + ":shard_1")).isEqualTo("200");
+        assertThat(writer.saveCheckpoint(task + ":shard_0", "150", lost)).isFalse();
+    }
+
+    @Test
+    void discardDropsUnwrittenCheckpointsOfLease() {
+        LockLease released = lease(task + ":shard_0");
+        writer.saveCheckpoint(task + ":shard_0", "100", released);
+        writer.saveCheckpoint(task + ":shard_0:es", "100", released);
+        writer.saveCheckpoint(task + ":state:x", "v");
+
+        writer.discard(released);
+        writer.flush();
+
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isNull();
+        assertThat(store.loadCheckpoint(task + ":shard_0:es")).isNull();
+        assertThat(store.loadCheckpoint(task + ":state:x")).isEqualTo("v");
+    }
+
+    @Test
+    void staleFenceIsRejectedAndMarksLeaseLost() {
+        LockLease stale = lease(task + ":shard_0", 1L);
+        LockLease current = lease(task + ":shard_0", 2L);
+        assertThat(store.saveCheckpoint(task + ":shard_0", "500", current)).isTrue();
+
+        writer.saveCheckpoint(task + ":shard_0", "100", stale);
+        writer.flush();
+
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isEqualTo("500");
+        assertThat(stale.isLost()).isTrue();
+        assertThat(current.isLost()).isFalse();
+    }
+
+    @Test
+    void writeThroughAfterCloseIsFenced() {
+        LockLease stale = lease(task + ":shard_0", 1L);
+        store.saveCheckpoint(task + ":shard_0", "500", lease(task + ":shard_0", 2L));
+        writer.close();
+
+        assertThat(writer.saveCheckpoint(task + ":shard_0", "100", stale)).isFalse();
+        assertThat(store.loadCheckpoint(task + ":shard_0")).isEqualTo("500");
+    }
+
+    private static LockLease lease(String lockKey) {
+        return lease(lockKey, 1L);
+    }
+
+    private static LockLease lease(String lockKey, long fencingToken) {
+        return new LockLease(lockKey, fencingToken, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,106 @@
+package kd.data.core.customer;
+
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.TargetConnector;
+import kd.data.core.customer.target.TargetWriter;
+import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetRejectedException;
+import kd.data.core.model.SyncContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 扇出通道：瞬时失败在通道内退避重试，确定性失败不重试
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:30
+ */
+class TargetLaneTest {
+
+    private static final String LOCK_KEY = "task:shard_0";
+
+    private TargetLane<String> lane;
+
+    @AfterEach
+    void tearDown() {
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    @Test
+    void transientFailureIsRetriedWithinLane() throws Exception {
+        FlakyWriter writer = new FlakyWriter(2, new SyncException("connect timed out", new IOException("timeout")));
+        lane = new TargetLane<>("es", writer, mock(TargetConnector.class), null, 2, 3, 10);
+
+        lane.submit(LOCK_KEY, batch(), context(), false).get(5, TimeUnit.SECONDS);
+
+        assertThat(writer.attempts.get()).isEqualTo(3);
+        assertThat(lane.getRecordsWritten()).isEqualTo(2);
+        assertThat(lane.isDetached(LOCK_KEY)).isFalse();
+    }
+
+    @Test
+    void failsAfterRetriesExhausted() {
+        FlakyWriter writer = new FlakyWriter(Integer.MAX_VALUE, new SyncException("HTTP/1.1 503 Service Unavailable"));
+        lane = new TargetLane<>("es", writer, mock(TargetConnector.class), null, 2, 2, 10);
+
+        assertThatThrownBy(() -> lane.submit(LOCK_KEY, batch(), context(), false).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("503");
+        assertThat(writer.attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void deterministicFailureIsNotRetried() {
+        FlakyWriter writer = new FlakyWriter(Integer.MAX_VALUE,
+                new TargetRejectedException("Bulk to idx rejected 1 records: 400 mapper_parsing_exception", 400, 1));
+        lane = new TargetLane<>("http", writer, mock(TargetConnector.class), null, 2, 3, 10);
+
+        assertThatThrownBy(() -> lane.submit(LOCK_KEY, batch(), context(), false).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("rejected 1 records");
+        assertThat(writer.attempts.get()).isEqualTo(1);
+    }
+
+    private static List<String> batch() {
+        return Arrays.asList("a", "b");
+    }
+
+    private static SyncContext context() {
+        SyncContext context = new SyncContext("test");
+        context.setAttribute(SyncContext.LOCK_KEY, LOCK_KEY);
+        return context;
+    }
+
+    /** 前 failures 次写入失败 */
+    private static final class FlakyWriter implements TargetWriter<String> {
+        final AtomicInteger attempts = new AtomicInteger();
+        final int failures;
+        final RuntimeException error;
+
+        FlakyWriter(int failures, RuntimeException error) {
+            this.failures = failures;
+            this.error = error;
+        }
+
+        @Override
+        public void write(List<String> batch, TargetConnector connector, ConsumerMetadata metadata) {
+            assertThat(SyncContext.currentAttribute(SyncContext.LOCK_KEY)).isEqualTo(LOCK_KEY);
+            if (attempts.incrementAndGet() <= failures) {
+                throw error;
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package kd.data.core.customer.target.impl.http;
+
+import com.sun.net.httpserver.HttpServer;
+import kd.data.core.customer.annotation.ConsumerField;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.impl.http.properties.HttpProperties;
+import kd.data.core.exception.TargetRejectedException;
+import kd.data.core.utils.FailureClassifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * http 写入：基于本地桩服务验证 429/Retry-After 降速重发、确定性拒绝与重试耗尽
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:05
+ */
+class HttpTargetWriterTest {
+
+    private HttpServer server;
+    private HttpTargetConnector connector;
+    /** 依次返回的响应，空时返回 200 */
+    private final Queue<StubResponse> responses = new ConcurrentLinkedQueue<>();
+    private final List<Received> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ingest", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            received.add(new Received(System.nanoTime(), readAll(in),
+                    exchange.getRequestHeaders().getFirst("Content-Type")));
+            StubResponse response = responses.poll();
+            if (response == null) {
+                response = new StubResponse(200, null);
+            }
+            if (response.retryAfter != null) {
+                exchange.getResponseHeaders().add("Retry-After", response.retryAfter);
+            }
+            exchange.sendResponseHeaders(response.status, -1);
+            exchange.close();
+        });
+        server.start();
+
+        Properties props = new Properties();
+        props.setProperty(HttpProperties.URL, "http://localhost:" + server.getAddress().getPort() + "/ingest");
+        connector = new HttpTargetConnector(props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connector.close();
+        server.stop(0);
+    }
+
+    @Test
+    void retriesAfterRetryAfterOn429() throws Exception {
+        responses.add(new StubResponse(429, "1"));
+        HttpTargetWriter<Row> writer = new HttpTargetWriter<>("json-array", false, 1 << 20, 3, 10, 5_000);
+
+        writer.writeAsync(rows(5), connector, new ConsumerMetadata(Row.class)).get(10, TimeUnit.SECONDS);
+
+        assertThat(received).hasSize(2);
+        assertThat(received.get(1).body).isEqualTo(received.get(0).body);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(received.get(1).atNanos - received.get(0).atNanos);
+        assertThat(waitedMs).isGreaterThanOrEqualTo(900);
+        assertThat(writer.getBytesSent()).isEqualTo(received.get(1).body.length());
+    }
+
+    @Test
+    void throttlePacesFollowingBatches() throws Exception {
+        responses.add(new StubResponse(503, "1"));
+        HttpTargetWriter<Row> writer = new HttpTargetWriter<>("ndjson", true, 1 << 20, 3, 10, 5_000);
+        ConsumerMetadata metadata = new ConsumerMetadata(Row.class);
+
+        writer.writeAsync(rows(3), connector, metadata).get(10, TimeUnit.SECONDS);
+        long delayAfterThrottle = connector.getThrottle().currentDelayMs();
+        writer.writeAsync(rows(3), connector, metadata).get(10, TimeUnit.SECONDS);
+
+        assertThat(received).hasSize(3);
+        assertThat(received.get(0).contentType).startsWith("application/x-ndjson");
+        assertThat(received.get(0).body.split("\n")).hasSize(3);
+        assertThat(delayAfterThrottle).isGreaterThan(0);
+        assertThat(connector.getThrottle().currentDelayMs()).isLessThan(delayAfterThrottle);
+    }
+
+    @Test
+    void clientErrorFailsWithoutRetry() {
+        responses.add(new StubResponse(400, null));
+        HttpTargetWriter<Row> writer = new HttpTargetWriter<>("json-array", false, 1 << 20, 3, 10, 5_000);
+
+        assertThatThrownBy(() -> writer.writeAsync(rows(4), connector, new ConsumerMetadata(Row.class))
+                .get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("rejected 4 records: 400")
+                .getCause()
+                .isInstanceOfSatisfying(TargetRejectedException.class, rejected -> {
+                    assertThat(rejected.getStatusCode()).isEqualTo(400);
+                    assertThat(rejected.getRejectedRecords()).isEqualTo(4);
+                    assertThat(FailureClassifier.isDeterministic(rejected)).isTrue();
+                });
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void failsAfterRetriesExhausted() {
+        for (int i = 0; i < 3; i++) {
+            responses.add(new StubResponse(500, null));
+        }
+        HttpTargetWriter<Row> writer = new HttpTargetWriter<>("json-array", false, 1 << 20, 2, 10, 50);
+
+        assertThatThrownBy(() -> writer.writeAsync(rows(2), connector, new ConsumerMetadata(Row.class))
+                .get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("failed after 2 retries");
+        assertThat(received).hasSize(3);
+    }
+
+    @Test
+    void splitsBatchByRequestBytes() throws Exception {
+        HttpTargetWriter<Row> writer = new HttpTargetWriter<>("json-array", false, 1024, 0, 10, 50);
+
+        writer.writeAsync(rows(100), connector, new ConsumerMetadata(Row.class)).get(10, TimeUnit.SECONDS);
+
+        assertThat(received.size()).isGreaterThan(1);
+        int total = 0;
+        for (Received r : received) {
+            assertThat(r.body.length()).isLessThanOrEqualTo(1024);
+            total += r.body.split("\\},\\{").length;
+        }
+        assertThat(total).isEqualTo(100);
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Row(i, "name-" + i));
+        }
+        return rows;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static class Row {
+        @ConsumerField("id")
+        private final long id;
+        @ConsumerField("name")
+        private final String name;
+
+        Row(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final class StubResponse {
+        final int status;
+        final String retryAfter;
+
+        StubResponse(int status, String retryAfter) {
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    private static final class Received {
+        final long atNanos;
+        final String body;
+        final String contentType;
+
+        Received(long atNanos, String body, String contentType) {
+            this.atNanos = atNanos;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package kd.data.core.customer.target.impl.kafka.format;
+
+import kd.data.core.customer.annotation.ConsumerField;
+import kd.data.core.customer.annotation.KafkaTopic;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.impl.kafka.format.registry.InMemorySchemaRegistryClient;
+import kd.data.core.customer.target.impl.kafka.properties.KafkaProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Avro 格式往返：经 mock:// 注册中心注册 schema，以官方 GenericDatumReader 按注册的 schema 解码
+ *
+ * @author gaozw
+ * @date 2026/10/20 11:40
+ */
+class AvroValueFormatTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 19);
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 10, 19, 8, 30, 15, 123_000_000);
+
+    private final ConsumerMetadata metadata = new ConsumerMetadata(Order.class);
+
+    @Test
+    void schemaIdInMagicBytePrefix() throws IOException {
+        String scope = UUID.randomUUID().toString();
+        KafkaValueFormat format = KafkaValueFormats.create(props(scope, null));
+        RecordHeaders headers = new RecordHeaders();
+
+        ByteBuffer payload = ByteBuffer.wrap(format.serialize(order(), metadata, headers));
+
+        assertThat(format.name()).isEqualTo(AvroValueFormat.NAME);
+        assertThat(headers.toArray()).isEmpty();
+        assertThat(payload.get()).isEqualTo((byte) 0);
+        int schemaId = payload.getInt();
+        byte[] body = new byte[payload.remaining()];
+        payload.get(body);
+        assertDecoded(decode(scope, schemaId, body));
+    }
+
+    @Test
+    void schemaIdInHeader() throws IOException {
+        String scope = UUID.randomUUID().toString();
+        KafkaValueFormat format = KafkaValueFormats.create(props(scope, "header"));
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] body = format.serialize(order(), metadata, headers);
+
+        Header header = headers.lastHeader(AvroValueFormat.SCHEMA_ID_HEADER);
+        assertThat(header).isNotNull();
+        int schemaId = Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
+        assertDecoded(decode(scope, schemaId, body));
+    }
+
+    @Test
+    void sameSchemaIsRegisteredOnce() {
+        String scope = UUID.randomUUID().toString();
+        AvroValueFormat first = (AvroValueFormat) KafkaValueFormats.create(props(scope, null));
+        AvroValueFormat second = (AvroValueFormat) KafkaValueFormats.create(props(scope, null));
+        byte[] a = first.serialize(order(), metadata, new RecordHeaders());
+        byte[] b = second.serialize(order(), metadata, new RecordHeaders());
+
+        assertThat(ByteBuffer.wrap(a, 1, 4).getInt()).isEqualTo(ByteBuffer.wrap(b, 1, 4).getInt());
+        InMemorySchemaRegistryClient registry = InMemorySchemaRegistryClient.forScope(scope);
+        assertThat(registry.register("orders-value", first.deriveSchema(metadata)))
+                .isEqualTo(ByteBuffer.wrap(a, 1, 4).getInt());
+    }
+
+    private static GenericRecord decode(String scope, int schemaId, byte[] body) throws IOException {
+        String registered = InMemorySchemaRegistryClient.forScope(scope).getSchemaById(schemaId);
+        assertThat(registered).isNotNull();
+        Schema schema = new Schema.Parser().parse(registered);
+        GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+        return reader.read(null, DecoderFactory.get().binaryDecoder(body, null));
+    }
+
+    private static void assertDecoded(GenericRecord record) {
+        assertThat(record.getSchema().getName()).isEqualTo("orders");
+        assertThat(record.get("order_id")).isEqualTo(42L);
+        assertThat(record.get("quantity")).isEqualTo(3);
+        assertThat(record.get("customer")).hasToString("客户A");
+        assertThat(record.get("remark")).isNull();
+        assertThat(record.get("amount")).hasToString("1234.50");
+        assertThat(record.get("paid")).isEqualTo(true);
+        assertThat(record.get("rate")).isEqualTo(0.25d);
+        assertThat(record.get("day")).isEqualTo((int) DAY.toEpochDay());
+        assertThat(record.get("created_at")).isEqualTo(CREATED_AT.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    private static Properties props(String scope, String schemaIdLocation) {
+        Properties props = new Properties();
+        props.setProperty(KafkaProperties.VALUE_FORMAT, AvroValueFormat.NAME);
+        props.setProperty(KafkaProperties.SCHEMA_REGISTRY_URL, "mock://" + scope);
+        if (schemaIdLocation != null) {
+            props.setProperty(KafkaProperties.SCHEMA_ID_LOCATION, schemaIdLocation);
+        }
+        return props;
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.orderId = 42L;
+        order.quantity = 3;
+        order.customer = "客户A";
+        order.amount = new BigDecimal("1234.50");
+        order.paid = true;
+        order.rate = 0.25d;
+        order.day = DAY;
+        order.createdAt = CREATED_AT;
+        return order;
+    }
+
+    @KafkaTopic("orders")
+    static class Order {
+        @ConsumerField("order_id")
+        private Long orderId;
+        @ConsumerField
+        private int quantity;
+        @ConsumerField
+        private String customer;
+        @ConsumerField
+        private String remark;
+        @ConsumerField
+        private BigDecimal amount;
+        @ConsumerField
+        private Boolean paid;
+        @ConsumerField
+        private Double rate;
+        @ConsumerField
+        private LocalDate day;
+        @ConsumerField("created_at")
+        private LocalDateTime createdAt;
+    }
+}
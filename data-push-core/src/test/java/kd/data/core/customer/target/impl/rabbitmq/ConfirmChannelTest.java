@@ -0,0 +1,131 @@
+package kd.data.core.customer.target.impl.rabbitmq;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.MessageProperties;
+import com.rabbitmq.client.Return;
+import com.rabbitmq.client.ReturnCallback;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 确认通道：ack/nack/退回/关闭时的回调
+ *
+ * @author gaozw
+ * @date 2026/10/19 22:55
+ */
+class ConfirmChannelTest {
+
+    private Channel channel;
+    private ConfirmCallback ack;
+    private ConfirmCallback nack;
+    private ReturnCallback returns;
+    private ShutdownListener shutdown;
+    private ConfirmChannel confirmChannel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        channel = mock(Channel.class);
+        AtomicLong seq = new AtomicLong(1);
+        when(channel.getNextPublishSeqNo()).thenAnswer(inv -> seq.getAndIncrement());
+        confirmChannel = new ConfirmChannel(channel);
+
+        ArgumentCaptor<ConfirmCallback> ackCaptor = ArgumentCaptor.forClass(ConfirmCallback.class);
+        ArgumentCaptor<ConfirmCallback> nackCaptor = ArgumentCaptor.forClass(ConfirmCallback.class);
+        verify(channel).confirmSelect();
+        verify(channel).addConfirmListener(ackCaptor.capture(), nackCaptor.capture());
+        ArgumentCaptor<ReturnCallback> returnCaptor = ArgumentCaptor.forClass(ReturnCallback.class);
+        verify(channel).addReturnListener(returnCaptor.capture());
+        ArgumentCaptor<ShutdownListener> shutdownCaptor = ArgumentCaptor.forClass(ShutdownListener.class);
+        verify(channel).addShutdownListener(shutdownCaptor.capture());
+        ack = ackCaptor.getValue();
+        nack = nackCaptor.getValue();
+        returns = returnCaptor.getValue();
+        shutdown = shutdownCaptor.getValue();
+    }
+
+    @Test
+    void publishesMandatoryWithSequenceHeader() throws Exception {
+        confirmChannel.publish("ex", "rk", MessageProperties.PERSISTENT_BASIC, new byte[]{1}, error -> { });
+
+        ArgumentCaptor<AMQP.BasicProperties> props = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(channel).basicPublish(eq("ex"), eq("rk"), eq(true), props.capture(), any(byte[].class));
+        assertThat(props.getValue().getHeaders()).containsEntry(ConfirmChannel.PUBLISH_SEQ_HEADER, 1L);
+        assertThat(props.getValue().getDeliveryMode()).isEqualTo(2);
+    }
+
+    @Test
+    void multipleAckCompletesAllUpToTag() throws Exception {
+        List<Throwable> results = publish(3);
+
+        ack.handle(2, true);
+        assertThat(results).hasSize(2).containsOnlyNulls();
+
+        ack.handle(3, false);
+        assertThat(results).hasSize(3).containsOnlyNulls();
+    }
+
+    @Test
+    void nackFailsMessage() throws Exception {
+        List<Throwable> results = publish(2);
+
+        nack.handle(1, false);
+        ack.handle(2, false);
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0)).hasMessageContaining("nack");
+        assertThat(results.get(1)).isNull();
+    }
+
+    @Test
+    void returnedMessageFailsEvenIfAckedAfterwards() throws Exception {
+        List<Throwable> results = new ArrayList<>();
+        confirmChannel.publish("ex", "missing", MessageProperties.BASIC, new byte[]{1}, results::add);
+        ArgumentCaptor<AMQP.BasicProperties> props = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(channel).basicPublish(anyString(), anyString(), anyBoolean(), props.capture(), any(byte[].class));
+
+        // broker 对无法路由的 mandatory 消息先退回再确认
+        returns.handle(new Return(312, "NO_ROUTE", "ex", "missing", props.getValue(), new byte[]{1}));
+        ack.handle(1, false);
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0)).hasMessageContaining("returned").hasMessageContaining("312");
+    }
+
+    @Test
+    void shutdownFailsOutstanding() throws Exception {
+        List<Throwable> results = publish(2);
+
+        ack.handle(1, false);
+        shutdown.shutdownCompleted(new ShutdownSignalException(false, false, null, channel));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0)).isNull();
+        assertThat(results.get(1)).hasMessageContaining("closed");
+    }
+
+    private List<Throwable> publish(int count) throws Exception {
+        List<Throwable> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            confirmChannel.publish("ex", "rk", MessageProperties.BASIC, new byte[]{1}, results::add);
+        }
+        return results;
+    }
+}
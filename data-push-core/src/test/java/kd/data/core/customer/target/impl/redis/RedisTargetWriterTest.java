@@ -0,0 +1,179 @@
+package kd.data.core.customer.target.impl.redis;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import kd.data.core.customer.annotation.ConsumerField;
+import kd.data.core.customer.annotation.RedisKeyPrefix;
+import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.impl.redis.properties.RedisProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis 写入：整批命令排队后一次 flush、按槽合并 MSET、命令失败使批次失败
+ *
+ * @author gaozw
+ * @date 2026/10/19 23:15
+ */
+class RedisTargetWriterTest {
+
+    private StatefulConnection<String, String> connection;
+    private RedisClusterAsyncCommands<String, String> commands;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        connection = mock(StatefulConnection.class);
+        commands = mock(RedisClusterAsyncCommands.class);
+        when(commands.mset(anyMap())).thenAnswer(inv -> done("OK"));
+        when(commands.set(anyString(), anyString(), any(SetArgs.class))).thenAnswer(inv -> done("OK"));
+        when(commands.hset(anyString(), anyMap())).thenAnswer(inv -> done(1L));
+        when(commands.expire(anyString(), anyLong())).thenAnswer(inv -> done(true));
+    }
+
+    @Test
+    void hashWritesAreQueuedAndFlushedOnce() throws Exception {
+        RedisTargetConnector connector = connector(false, "hash", 60);
+
+        new RedisTargetWriter<Row>().writeAsync(rows(3), connector, new ConsumerMetadata(Row.class))
+                .get(5, TimeUnit.SECONDS);
+
+        InOrder order = inOrder(commands, connection);
+        order.verify(commands, times(3)).hset(anyString(), anyMap());
+        order.verify(connection).flushCommands();
+        verify(commands, times(3)).expire(anyString(), eq(60L));
+        verify(commands).hset(eq("user:1"), eq(mapOf("id", "1", "name", "n1")));
+        verify(connection, times(1)).flushCommands();
+    }
+
+    @Test
+    void stringsWithoutTtlMergeIntoOneMsetPerSlot() throws Exception {
+        RedisTargetConnector connector = connector(true, "string", 0);
+
+        new RedisTargetWriter<Row>().writeAsync(rows(50), connector, new ConsumerMetadata(Row.class))
+                .get(5, TimeUnit.SECONDS);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(commands, atLeastOnce()).mset(captor.capture());
+        verify(commands, never()).set(anyString(), anyString(), any(SetArgs.class));
+        int keys = 0;
+        Set<Integer> slots = new HashSet<>();
+        for (Map<String, String> group : captor.getAllValues()) {
+            Set<Integer> groupSlots = new HashSet<>();
+            group.keySet().forEach(key -> groupSlots.add(SlotHash.getSlot(key)));
+            assertThat(groupSlots).hasSize(1);
+            assertThat(slots.addAll(groupSlots)).isTrue();
+            keys += group.size();
+        }
+        assertThat(keys).isEqualTo(50);
+        verify(connection, times(1)).flushCommands();
+    }
+
+    @Test
+    void failedCommandFailsBatch() {
+        RedisTargetConnector connector = connector(false, "string", 30);
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("WRONGTYPE Operation against a key"));
+        when(commands.set(eq("user:2"), anyString(), any(SetArgs.class))).thenAnswer(inv -> future(failed));
+
+        assertThatThrownBy(() -> new RedisTargetWriter<Row>()
+                .writeAsync(rows(3), connector, new ConsumerMetadata(Row.class)).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("WRONGTYPE");
+        verify(connection, times(1)).flushCommands();
+    }
+
+    private RedisTargetConnector connector(boolean cluster, String dataType, long ttl) {
+        Properties props = new Properties();
+        props.setProperty(RedisProperties.CLUSTER, String.valueOf(cluster));
+        props.setProperty(RedisProperties.DATA_TYPE, dataType);
+        props.setProperty(RedisProperties.TTL_SECONDS, String.valueOf(ttl));
+        RedisTargetConnector.PipelineConnection pipeline = new RedisTargetConnector.PipelineConnection(connection, commands);
+        return new RedisTargetConnector(props) {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            PipelineConnection borrow() {
+                return pipeline;
+            }
+
+            @Override
+            void giveBack(PipelineConnection conn) {
+            }
+        };
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Row(i, "n" + i));
+        }
+        return rows;
+    }
+
+    private static Map<String, String> mapOf(String k1, String v1, String k2, String v2) {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+
+    private static <V> RedisFuture<V> done(V value) {
+        return future(CompletableFuture.completedFuture(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> RedisFuture<V> future(CompletableFuture<V> result) {
+        RedisFuture<V> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(result);
+        return future;
+    }
+
+    @RedisKeyPrefix("user")
+    static class Row {
+        @ConsumerField(value = "id", role = ConsumerField.FieldRole.KEY)
+        private final long id;
+        @ConsumerField("name")
+        private final String name;
+
+        Row(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
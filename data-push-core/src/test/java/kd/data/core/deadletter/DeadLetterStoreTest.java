@@ -0,0 +1,58 @@
+package kd.data.core.deadletter;
+
+import kd.data.core.exception.SyncException;
+import kd.data.core.exception.TargetWriteException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 死信：批次头记录失败目标，回放时交给接收器并在全部回放后清空
+ *
+ * @author gaozw
+ * @date 2026/10/20 11:20
+ */
+class DeadLetterStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayReportsFailedTargetsPerBatch() {
+        DeadLetterStore store = new DeadLetterStore(dir, "task");
+        store.append(0, "10", rows(1, 2), new SyncException("shard failed",
+                new TargetWriteException(Collections.singletonList("KAFKA"), new IllegalStateException("boom"))));
+        store.append(1, "20", rows(3), new SyncException("source failed"));
+
+        List<String> replayed = new ArrayList<>();
+        long records = store.replay(Row.class, (shardId, targets, batch) ->
+                replayed.add(shardId + ":" + targets + ":" + batch.size() + ":" + batch.get(0).id));
+
+        assertThat(records).isEqualTo(3);
+        assertThat(replayed).containsExactly("0:[KAFKA]:2:1", "1:[]:1:3");
+        assertThat(store.getPendingBatches()).isZero();
+    }
+
+    private static List<Row> rows(long... ids) {
+        List<Row> rows = new ArrayList<>();
+        Arrays.stream(ids).forEach(id -> {
+            Row row = new Row();
+            row.id = id;
+            row.name = "row-" + id;
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    public static class Row {
+        public long id;
+        public String name;
+    }
+}
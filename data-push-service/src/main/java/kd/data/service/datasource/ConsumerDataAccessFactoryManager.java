@@ -2,20 +2,44 @@ package kd.data.service.datasource;
 
 import kd.data.core.customer.BatchConsumerService;
 import kd.data.core.customer.meta.ConsumerMetadata;
+import kd.data.core.customer.target.SharedConnectorPool;
 import kd.data.core.customer.target.TargetConnector;
 import kd.data.core.customer.target.TargetWriter;
-import kd.data.core.customer.target.impl.es.ElasticsearchWriter;
+import kd.data.core.customer.target.impl.es.EsBulkLoadTuner;
+import kd.data.core.customer.target.impl.es.EsBulkWriter;
+import kd.data.core.customer.target.impl.es.EsReindexHook;
 import kd.data.core.customer.target.impl.es.EsTargetConnector;
+import kd.data.core.customer.target.impl.es.properties.EsProperties;
 import kd.data.core.customer.target.impl.jdbc.JdbcBatchWriter;
 import kd.data.core.customer.target.impl.jdbc.JdbcTargetConnector;
 import kd.data.core.customer.target.impl.kafka.KafkaTargetConnector;
 import kd.data.core.customer.target.impl.kafka.KafkaTargetWriter;
+import kd.data.core.customer.target.impl.kafka.format.KafkaValueFormats;
 import kd.data.core.customer.target.impl.kafka.properties.KafkaProperties;
+import kd.data.core.customer.target.impl.file.FileTargetConnector;
+import kd.data.core.customer.target.impl.file.FileTargetWriter;
+import kd.data.core.customer.target.impl.file.properties.FileProperties;
+import kd.data.core.customer.target.impl.http.HttpTargetConnector;
+import kd.data.core.customer.target.impl.http.HttpTargetWriter;
+import kd.data.core.customer.target.impl.http.properties.HttpProperties;
+import kd.data.core.customer.target.impl.rabbitmq.RabbitMqTargetConnector;
+import kd.data.core.customer.target.impl.redis.RedisTargetConnector;
+import kd.data.core.customer.target.impl.redis.RedisTargetWriter;
+import kd.data.core.customer.target.impl.redis.properties.RedisProperties;
+import kd.data.core.customer.target.impl.rabbitmq.RabbitMqTargetWriter;
+import kd.data.core.customer.target.impl.rabbitmq.properties.RabbitMqProperties;
 import kd.data.core.customer.target.targetenums.TargetEnums;
+import kd.data.service.model.SyncDestination;
 import org.springframework.stereotype.Component;
 import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * @author gaozw
@@ -24,11 +48,29 @@ import java.util.Properties;
 @Component
 public class ConsumerDataAccessFactoryManager {
 
+    /** 多目标扇出时每个目标上单个分片的排队批次数（主目标配置） */
+    public static final String FAN_OUT_QUEUE_CAPACITY = "fan-out-queue-capacity";
+    /** 多目标扇出时单个目标瞬时失败的重试次数，耗尽后才摘除该目标（主目标配置） */
+    public static final String FAN_OUT_MAX_RETRIES = "fan-out-max-retries";
+    public static final String FAN_OUT_RETRY_BACKOFF_MS = "fan-out-retry-backoff-ms";
 
+    /** 跨任务共享的目标连接器（按集群配置） */
+    private final SharedConnectorPool connectorPool = new SharedConnectorPool();
 
     public <T> BatchConsumerService<T> createConsumer(
             Class<T> entityType,
             Map<String, Object> config) {
+        return createConsumer(entityType, config, Collections.emptyList());
+    }
+
+    /**
+     * 创建多目标消费者：主目标与附加目标并行写入，每种目标类型最多一个
+     * @param extraDestinations 附加目标
+     */
+    public <T> BatchConsumerService<T> createConsumer(
+            Class<T> entityType,
+            Map<String, Object> config,
+            List<SyncDestination> extraDestinations) {
 
         BatchConsumerService<T> consumer = new BatchConsumerService<>(entityType);
         ConsumerMetadata metadata = consumer.getMetadata();
@@ -41,6 +83,43 @@ public class ConsumerDataAccessFactoryManager {
         if(targetEnum == null){
             throw new IllegalArgumentException("不支持的目标类型: " + metadata.getTargetType());
         }
+        Set<TargetEnums> registered = EnumSet.of(targetEnum);
+        try {
+            registerTarget(consumer, targetEnum, config);
+            if (extraDestinations != null) {
+                for (SyncDestination destination : extraDestinations) {
+                    TargetEnums extraEnum = TargetEnums.getTargetEnum(destination.getDestinationType());
+                    if (extraEnum == null) {
+                        throw new IllegalArgumentException("不支持的目标类型: " + destination.getDestinationType());
+                    }
+                    if (!registered.add(extraEnum)) {
+                        throw new IllegalArgumentException("重复的目标类型: " + extraEnum);
+                    }
+                    registerTarget(consumer, extraEnum, destination.getDestinationConfig());
+                }
+            }
+        } catch (RuntimeException e) {
+            // 已注册的租约需归还
+            consumer.close();
+            throw e;
+        }
+        Object laneCapacity = config.get(FAN_OUT_QUEUE_CAPACITY);
+        if (laneCapacity != null) {
+            consumer.setLaneCapacity(Integer.parseInt(laneCapacity.toString()));
+        }
+        Object laneRetries = config.get(FAN_OUT_MAX_RETRIES);
+        if (laneRetries != null) {
+            consumer.setLaneMaxRetries(Integer.parseInt(laneRetries.toString()));
+        }
+        Object laneBackoff = config.get(FAN_OUT_RETRY_BACKOFF_MS);
+        if (laneBackoff != null) {
+            consumer.setLaneRetryBackoffMs(Long.parseLong(laneBackoff.toString()));
+        }
+
+        return consumer;
+    }
+
+    private <T> void registerTarget(BatchConsumerService<T> consumer, TargetEnums targetEnum, Map<String, Object> config) {
         switch (targetEnum) {
             case JDBC:
                 registerJdbcTarget(consumer, DataSourceManager.getJdbcDataSource(config));
@@ -51,11 +130,21 @@ public class ConsumerDataAccessFactoryManager {
             case KAFKA:
                 registerKafkaTarget(consumer, config);
                 break;
+            case RABBITMQ:
+                registerRabbitMqTarget(consumer, config);
+                break;
+            case FILE:
+                registerFileTarget(consumer, config);
+                break;
+            case REDIS:
+                registerRedisTarget(consumer, config);
+                break;
+            case HTTP:
+                registerHttpTarget(consumer, config);
+                break;
             default:
-                throw new IllegalArgumentException("不支持的目标类型: " + metadata.getTargetType());
+                throw new IllegalArgumentException("不支持的目标类型: " + targetEnum);
         }
-
-        return consumer;
     }
 
     private <T> void registerJdbcTarget(
@@ -73,16 +162,46 @@ public class ConsumerDataAccessFactoryManager {
     private <T> void registerEsTarget(
             BatchConsumerService<T> consumer,
             Map<String, Object> config) {
-        Object password = config.getOrDefault("password", "");
-        Object username = config.getOrDefault("username", "");
-        Object nodes = config.getOrDefault("clusterNodes", "localhost:9200");
-        // 创建ES连接器
-        EsTargetConnector connector = new EsTargetConnector.Builder().username(String.valueOf(username))
-                .password(String.valueOf(password)).clusterNodes(String.valueOf(nodes)).build();
-
-        ElasticsearchWriter<T> writer = new ElasticsearchWriter<>();
-        consumer.registerConnector(TargetEnums.ELASTICSEARCH.name(), connector);
+        Object password = config.getOrDefault(EsProperties.PASSWORD, "");
+        Object username = config.getOrDefault(EsProperties.USERNAME, "");
+        Object nodes = config.getOrDefault(EsProperties.CLUSTER_NODES, EsProperties.DEFAULT_CLUSTER_NODES);
+        int maxConcurrent = Integer.parseInt(String.valueOf(config.getOrDefault(
+                EsProperties.BULK_MAX_CONCURRENT, EsProperties.DEFAULT_BULK_MAX_CONCURRENT)));
+        long maxInFlightBytes = Long.parseLong(String.valueOf(config.getOrDefault(
+                EsProperties.BULK_MAX_IN_FLIGHT_BYTES, EsProperties.DEFAULT_BULK_MAX_IN_FLIGHT_BYTES)));
+        // 租用ES连接器（同集群同账号的任务共享客户端与在途上限）
+        String poolKey = TargetEnums.ELASTICSEARCH.name() + "|" + nodes + "|" + username + "|" + password
+                + "|" + maxConcurrent + "|" + maxInFlightBytes;
+        SharedConnectorPool.Lease<EsTargetConnector> lease = connectorPool.acquire(poolKey,
+                () -> new EsTargetConnector.Builder().username(String.valueOf(username))
+                        .password(String.valueOf(password)).clusterNodes(splitNodes(String.valueOf(nodes)))
+                        .maxConcurrentBulks(maxConcurrent).maxInFlightBytes(maxInFlightBytes).build());
+
+        // 流式 NDJSON bulk 写入，按字节切分请求，仅重试被限流的文档；确定性拒绝使批次失败并由分片隔离到死信
+        EsBulkWriter<T> writer = new EsBulkWriter<>(
+                Integer.parseInt(String.valueOf(config.getOrDefault(EsProperties.BULK_MAX_BYTES,
+                        EsProperties.DEFAULT_BULK_MAX_BYTES))),
+                Integer.parseInt(String.valueOf(config.getOrDefault(EsProperties.BULK_MAX_RETRIES,
+                        EsProperties.DEFAULT_BULK_MAX_RETRIES))),
+                Long.parseLong(String.valueOf(config.getOrDefault(EsProperties.BULK_RETRY_BACKOFF_MS,
+                        EsProperties.DEFAULT_BULK_RETRY_BACKOFF_MS))));
+        consumer.registerConnector(TargetEnums.ELASTICSEARCH.name(), lease);
         consumer.registerWriter(TargetEnums.ELASTICSEARCH.name(),writer);
+
+        // 可选：重建索引模式写入新版本索引，任务全部分片完成后切换别名（多节点共用同一新索引）；否则可在加载期间关闭刷新与副本，结束后恢复
+        if (Boolean.parseBoolean(String.valueOf(config.getOrDefault(EsProperties.REINDEX,
+                EsProperties.DEFAULT_REINDEX)))) {
+            consumer.registerLoadHook(TargetEnums.ELASTICSEARCH.name(), new EsReindexHook(
+                    Boolean.parseBoolean(String.valueOf(config.getOrDefault(EsProperties.REINDEX_DELETE_OLD,
+                            EsProperties.DEFAULT_REINDEX_DELETE_OLD))),
+                    Integer.parseInt(String.valueOf(config.getOrDefault(EsProperties.REINDEX_REPLICAS,
+                            EsProperties.DEFAULT_REINDEX_REPLICAS)))));
+        } else if (Boolean.parseBoolean(String.valueOf(config.getOrDefault(EsProperties.BULK_LOAD_TUNING,
+                EsProperties.DEFAULT_BULK_LOAD_TUNING)))) {
+            consumer.registerLoadHook(TargetEnums.ELASTICSEARCH.name(), new EsBulkLoadTuner(
+                    Integer.parseInt(String.valueOf(config.getOrDefault(EsProperties.BULK_LOAD_FORCE_MERGE_SEGMENTS,
+                            EsProperties.DEFAULT_BULK_LOAD_FORCE_MERGE_SEGMENTS)))));
+        }
     }
 
     @SuppressWarnings("unused")
@@ -93,10 +212,143 @@ public class ConsumerDataAccessFactoryManager {
         // 创建Kafka连接器
         Properties cfg = new Properties();
         cfg.put(KafkaProperties.BOOTSTRAP_SERVERS, config.get(KafkaProperties.BOOTSTRAP_SERVERS));
-        cfg.put(KafkaProperties.PRODUCER_ACKS, config.get(KafkaProperties.PRODUCER_ACKS));
-        KafkaTargetConnector kafkaTargetConnector = new KafkaTargetConnector(cfg);
-        KafkaTargetWriter<T> writer = new KafkaTargetWriter<>();
-        consumer.registerConnector(TargetEnums.KAFKA.name(), kafkaTargetConnector);
+        putIfPresent(cfg, config, KafkaProperties.PRODUCER_ACKS);
+        putIfPresent(cfg, config, KafkaProperties.PRODUCER_MAX_IN_FLIGHT_RECORDS);
+        putIfPresent(cfg, config, KafkaProperties.PRODUCER_MAX_IN_FLIGHT_BYTES);
+        putIfPresent(cfg, config, KafkaProperties.VALUE_FORMAT);
+        putIfPresent(cfg, config, KafkaProperties.SCHEMA_REGISTRY_URL);
+        putIfPresent(cfg, config, KafkaProperties.SCHEMA_ID_LOCATION);
+        putIfPresent(cfg, config, KafkaProperties.PRODUCER_TRANSACTIONAL);
+        putIfPresent(cfg, config, KafkaProperties.PRODUCER_TRANSACTION_TIMEOUT_MS);
+        putIfPresent(cfg, config, KafkaProperties.CHECKPOINT_TOPIC);
+        // 租用Kafka连接器（生产者配置相同的任务共享生产者）
+        SharedConnectorPool.Lease<KafkaTargetConnector> lease = connectorPool.acquire(
+                kafkaPoolKey(cfg), () -> new KafkaTargetConnector(cfg));
+        KafkaTargetWriter<T> writer = new KafkaTargetWriter<>(true, 5000, KafkaValueFormats.create(cfg));
+        consumer.registerConnector(TargetEnums.KAFKA.name(), lease);
         consumer.registerWriter(TargetEnums.KAFKA.name(), writer);
     }
+
+    @SuppressWarnings("unused")
+    private <T> void registerRabbitMqTarget(
+            BatchConsumerService<T> consumer,
+            Map<String, Object> config) {
+
+        Properties cfg = new Properties();
+        putIfPresent(cfg, config, RabbitMqProperties.HOST);
+        putIfPresent(cfg, config, RabbitMqProperties.PORT);
+        putIfPresent(cfg, config, RabbitMqProperties.USERNAME);
+        putIfPresent(cfg, config, RabbitMqProperties.PASSWORD);
+        putIfPresent(cfg, config, RabbitMqProperties.VIRTUAL_HOST);
+        putIfPresent(cfg, config, RabbitMqProperties.ROUTING_KEY);
+        putIfPresent(cfg, config, RabbitMqProperties.PERSISTENT);
+        putIfPresent(cfg, config, RabbitMqProperties.CHANNEL_POOL_SIZE);
+        putIfPresent(cfg, config, RabbitMqProperties.MAX_IN_FLIGHT);
+
+        // 租用RabbitMQ连接器（同一 broker 的任务共享连接与通道池）
+        SharedConnectorPool.Lease<RabbitMqTargetConnector> lease = connectorPool.acquire(
+                TargetEnums.RABBITMQ.name() + "|" + new TreeMap<>(cfg), () -> new RabbitMqTargetConnector(cfg));
+        RabbitMqTargetWriter<T> writer = new RabbitMqTargetWriter<>(Long.parseLong(String.valueOf(
+                config.getOrDefault(RabbitMqProperties.CONFIRM_TIMEOUT_MS, RabbitMqProperties.DEFAULT_CONFIRM_TIMEOUT_MS))));
+        consumer.registerConnector(TargetEnums.RABBITMQ.name(), lease);
+        consumer.registerWriter(TargetEnums.RABBITMQ.name(), writer);
+    }
+
+    @SuppressWarnings("unused")
+    private <T> void registerFileTarget(
+            BatchConsumerService<T> consumer,
+            Map<String, Object> config) {
+
+        Properties cfg = new Properties();
+        putIfPresent(cfg, config, FileProperties.BASE_PATH);
+        putIfPresent(cfg, config, FileProperties.COMPRESSION);
+        putIfPresent(cfg, config, FileProperties.MAX_FILE_BYTES);
+        putIfPresent(cfg, config, FileProperties.DELIMITER);
+
+        // 分片文件与检查点按任务隔离，不共享连接器
+        consumer.registerConnector(TargetEnums.FILE.name(), new FileTargetConnector(cfg));
+        consumer.registerWriter(TargetEnums.FILE.name(), new FileTargetWriter<>());
+    }
+
+    @SuppressWarnings("unused")
+    private <T> void registerRedisTarget(
+            BatchConsumerService<T> consumer,
+            Map<String, Object> config) {
+
+        Properties cfg = new Properties();
+        putIfPresent(cfg, config, RedisProperties.NODES);
+        putIfPresent(cfg, config, RedisProperties.PASSWORD);
+        putIfPresent(cfg, config, RedisProperties.DATABASE);
+        putIfPresent(cfg, config, RedisProperties.CLUSTER);
+        putIfPresent(cfg, config, RedisProperties.COMMAND_TIMEOUT_MS);
+        putIfPresent(cfg, config, RedisProperties.CONNECTION_POOL_SIZE);
+        putIfPresent(cfg, config, RedisProperties.DATA_TYPE);
+        putIfPresent(cfg, config, RedisProperties.TTL_SECONDS);
+
+        // 租用Redis连接器（同一配置的任务共享管道连接池）
+        SharedConnectorPool.Lease<RedisTargetConnector> lease = connectorPool.acquire(
+                TargetEnums.REDIS.name() + "|" + new TreeMap<>(cfg), () -> new RedisTargetConnector(cfg));
+        consumer.registerConnector(TargetEnums.REDIS.name(), lease);
+        consumer.registerWriter(TargetEnums.REDIS.name(), new RedisTargetWriter<>());
+    }
+
+    @SuppressWarnings("unused")
+    private <T> void registerHttpTarget(
+            BatchConsumerService<T> consumer,
+            Map<String, Object> config) {
+
+        Properties cfg = new Properties();
+        putIfPresent(cfg, config, HttpProperties.URL);
+        putIfPresent(cfg, config, HttpProperties.HEADERS);
+        putIfPresent(cfg, config, HttpProperties.CONNECT_TIMEOUT_MS);
+        putIfPresent(cfg, config, HttpProperties.SOCKET_TIMEOUT_MS);
+        putIfPresent(cfg, config, HttpProperties.MAX_CONCURRENT);
+        putIfPresent(cfg, config, HttpProperties.MAX_IN_FLIGHT_BYTES);
+        putIfPresent(cfg, config, HttpProperties.MAX_BACKOFF_MS);
+
+        // 租用HTTP连接器（同一端点的任务共享连接池与限速状态）
+        SharedConnectorPool.Lease<HttpTargetConnector> lease = connectorPool.acquire(
+                TargetEnums.HTTP.name() + "|" + new TreeMap<>(cfg), () -> new HttpTargetConnector(cfg));
+        HttpTargetWriter<T> writer = new HttpTargetWriter<>(
+                String.valueOf(config.getOrDefault(HttpProperties.FORMAT, HttpProperties.DEFAULT_FORMAT)),
+                Boolean.parseBoolean(String.valueOf(config.getOrDefault(HttpProperties.GZIP, HttpProperties.DEFAULT_GZIP))),
+                Integer.parseInt(String.valueOf(config.getOrDefault(HttpProperties.MAX_REQUEST_BYTES,
+                        HttpProperties.DEFAULT_MAX_REQUEST_BYTES))),
+                Integer.parseInt(String.valueOf(config.getOrDefault(HttpProperties.MAX_RETRIES,
+                        HttpProperties.DEFAULT_MAX_RETRIES))),
+                Long.parseLong(String.valueOf(config.getOrDefault(HttpProperties.RETRY_BACKOFF_MS,
+                        HttpProperties.DEFAULT_RETRY_BACKOFF_MS))),
+                Long.parseLong(String.valueOf(config.getOrDefault(HttpProperties.MAX_BACKOFF_MS,
+                        HttpProperties.DEFAULT_MAX_BACKOFF_MS))));
+        consumer.registerConnector(TargetEnums.HTTP.name(), lease);
+        consumer.registerWriter(TargetEnums.HTTP.name(), writer);
+    }
+
+    /**
+     * 多节点以逗号分隔，bulk 请求在各节点间轮询
+     */
+    private static String[] splitNodes(String nodes) {
+        return Arrays.stream(nodes.split(",")).map(String::trim).filter(n -> !n.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * 连接器共享键：排除仅影响写入器的消息格式配置
+     */
+    private static String kafkaPoolKey(Properties cfg) {
+        Map<String, String> producerCfg = new TreeMap<>();
+        for (String name : cfg.stringPropertyNames()) {
+            if (!KafkaProperties.VALUE_FORMAT.equals(name) && !KafkaProperties.SCHEMA_REGISTRY_URL.equals(name)
+                    && !KafkaProperties.SCHEMA_ID_LOCATION.equals(name)) {
+                producerCfg.put(name, cfg.getProperty(name));
+            }
+        }
+        return TargetEnums.KAFKA.name() + "|" + producerCfg;
+    }
+
+    private static void putIfPresent(Properties target, Map<String, Object> config, String key) {
+        Object value = config.get(key);
+        if (value != null) {
+            target.put(key, String.valueOf(value));
+        }
+    }
 }
@@ -4,6 +4,7 @@ import kd.data.core.customer.annotation.*;
 import kd.data.core.customer.target.targetenums.TargetEnums;
 import kd.data.core.send.adapter.annotation.ColumnMapping;
 import kd.data.core.send.adapter.annotation.TableMapping;
+import kd.data.service.model.SyncDestination;
 import kd.data.service.model.SyncTaskConfig;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.description.annotation.AnnotationDescription;
@@ -13,6 +14,7 @@ import net.bytebuddy.implementation.FieldAccessor;
 import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -20,7 +22,9 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 字段解析生成 - 优化版本，添加类缓存
@@ -77,10 +81,22 @@ public class EntityGenerator {
                 .annotateType(AnnotationDescription.Builder.ofType(ConsumerTarget.class)
                         .define("value", targetType).build());
 
-        // 根据目标类型添加相应的表/索引/主题注解
-        builder = getTargetName(targetType, builder, req.getTargetFieldName());
+        // 根据目标类型添加相应的表/索引/主题注解，附加目标各自追加
+        Set<Class<? extends Annotation>> annotated = new HashSet<>();
+        builder = getTargetName(targetType, builder, req.getTargetFieldName(), annotated);
+        TargetEnums fieldStyle = targetType;
+        if (req.getExtraDestinations() != null) {
+            for (SyncDestination destination : req.getExtraDestinations()) {
+                TargetEnums extraType = getTargetTypeFromString(destination.getDestinationType());
+                builder = getTargetName(extraType, builder, destination.getTargetFieldName(), annotated);
+                // 任一目标为 es 时字段按 es 方式生成（其余目标只读取字段值）
+                if (extraType == TargetEnums.ELASTICSEARCH) {
+                    fieldStyle = extraType;
+                }
+            }
+        }
         //构建字段注解
-        builder = buildFiledMapping(req, targetType, builder);
+        builder = buildFiledMapping(req, fieldStyle, builder);
 
         Class<?> generatedClass = builder.make()
                 .load(BASE_CLASS_LOADER, ClassLoadingStrategy.Default.WRAPPER)
@@ -89,9 +105,16 @@ public class EntityGenerator {
         return generatedClass;
     }
 
-    private static DynamicType.Builder<Object> getTargetName(TargetEnums targetType, DynamicType.Builder<Object> builder, String targetName) {
+    private static DynamicType.Builder<Object> getTargetName(TargetEnums targetType, DynamicType.Builder<Object> builder,
+                                                             String targetName, Set<Class<? extends Annotation>> annotated) {
+        // jdbc/file/http 共用表名注解，先出现的目标为准
+        if (!annotated.add(nameAnnotation(targetType))) {
+            return builder;
+        }
         switch (targetType) {
             case JDBC:
+            case FILE:
+            case HTTP:
                 builder = builder.annotateType(AnnotationDescription.Builder.ofType(CustomerTableName.class)
                         .define("value", targetName).build());
                 break;
@@ -109,12 +132,35 @@ public class EntityGenerator {
                 builder = builder.annotateType(AnnotationDescription.Builder.ofType(KafkaTopic.class)
                         .define("value", targetName).build());
                 break;
+            case RABBITMQ:
+                builder = builder.annotateType(AnnotationDescription.Builder.ofType(RabbitMqExchange.class)
+                        .define("value", targetName).build());
+                break;
+            case REDIS:
+                builder = builder.annotateType(AnnotationDescription.Builder.ofType(RedisKeyPrefix.class)
+                        .define("value", targetName).build());
+                break;
             default:
                 throw new IllegalArgumentException("Unsupported target type: " + targetType);
         }
         return builder;
     }
 
+    private static Class<? extends Annotation> nameAnnotation(TargetEnums targetType) {
+        switch (targetType) {
+            case ELASTICSEARCH:
+                return EsIndex.class;
+            case KAFKA:
+                return KafkaTopic.class;
+            case RABBITMQ:
+                return RabbitMqExchange.class;
+            case REDIS:
+                return RedisKeyPrefix.class;
+            default:
+                return CustomerTableName.class;
+        }
+    }
+
     private static DynamicType.Builder<Object> buildFiledMapping(SyncTaskConfig req, TargetEnums targetType, DynamicType.Builder<Object> builder) {
         for (FieldMapping f : req.getFields()) {
             Class<?> fieldClass;
@@ -123,22 +169,20 @@ public class EntityGenerator {
 
             if (targetType == TargetEnums.ELASTICSEARCH) {
                 fieldClass = toClass(f.getSourceType());
+                // es 字段类型用于派生索引 mapping
                 annotations.add(createElasticsearchFieldAnnotation(f, f.getTargetType()));
             } else {
                 fieldClass = toClass(f.getTargetType());
-                // 添加 ConsumerField 注解
-                annotations.add(AnnotationDescription.Builder.ofType(ConsumerField.class)
-                        .define("value", f.getTargetField())
-                        .define("role", getFieldRoleFromString(f.getRole()))
-                        .build());
             }
+            // 添加 ConsumerField 注解（字段映射与角色，所有目标通用）
+            annotations.add(AnnotationDescription.Builder.ofType(ConsumerField.class)
+                    .define("value", f.getTargetField())
+                    .define("role", getFieldRoleFromString(f.getRole()))
+                    .build());
+
             // 定义字段并添加所有注解
-            DynamicType.Builder<Object> tempBuilder = builder;
-            for (AnnotationDescription annotation : annotations) {
-                tempBuilder = tempBuilder.defineField(f.getJavaField(), fieldClass, Modifier.PRIVATE)
-                        .annotateField(annotation);
-            }
-            builder = tempBuilder;
+            builder = builder.defineField(f.getJavaField(), fieldClass, Modifier.PRIVATE)
+                    .annotateField(annotations);
 
             builder = addGetterSetter(builder, f.getJavaField(), fieldClass);
         }
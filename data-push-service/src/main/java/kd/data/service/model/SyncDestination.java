@@ -0,0 +1,22 @@
+package kd.data.service.model;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 附加同步目标（多目标扇出）
+ * 与主目标共用字段映射，每种目标类型最多一个
+ *
+ * @author gaozw
+ * @date 2026/10/19 20:10
+ */
+@Data
+public class SyncDestination {
+    /**目标类型*/
+    private String destinationType;
+    /**目标配置*/
+    private Map<String, Object> destinationConfig;
+    /**目标名称（表/索引/主题等）*/
+    private String targetFieldName;
+}
@@ -26,6 +26,8 @@ public class SyncTaskConfig {
     private Map<String, Object> sourceConfig;
     /**核心配置*/
     private Map<String, Object> destinationConfig;
+    /**附加目标，与主目标并行写入*/
+    private List<SyncDestination> extraDestinations;
     /**核心配置*/
     private SyncConfig syncConfig;
 
@@ -4,6 +4,9 @@ import kd.data.core.coordinator.factory.CoordinatorFactory;
 import kd.data.core.coordinator.DistributedCoordinator;
 import kd.data.core.core.BigDataSyncTool;
 import kd.data.core.customer.BatchConsumerService;
+import kd.data.core.deadletter.DeadLetterStore;
+import kd.data.core.exception.SyncException;
+import kd.data.core.model.SyncContext;
 import kd.data.core.model.SyncStats;
 import kd.data.core.model.enums.Status;
 import kd.data.core.send.DataAccessor;
@@ -17,8 +20,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import javax.annotation.Resource;
 import javax.sql.DataSource;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author gaozw
@@ -29,6 +34,9 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class SyncTaskManager {
 
+    /** 死信回放任务锁的超时（秒），回放期间按批续期 */
+    private static final int REPLAY_LOCK_SECONDS = 60;
+
     private final Map<String, BigDataSyncTool<?>> runningTasks = new ConcurrentHashMap<>();
     @Resource
     private DataAccessorFactoryManager accessorFactoryManager;
@@ -73,6 +81,7 @@ public class SyncTaskManager {
             throw new TaskException("任务已完成: " + taskId);
         }
 
+        BatchConsumerService<T> batchConsumer = null;
         try {
             // 1. 创建源数据源
             DataSource sourceDataSource = DataSourceManager.getJdbcDataSource(
@@ -91,9 +100,10 @@ public class SyncTaskManager {
                     config.getSyncConfig());
 
             // 4. 创建消费者
-            BatchConsumerService<T> batchConsumer = consumerDataAccessFactoryManager.createConsumer(
+            batchConsumer = consumerDataAccessFactoryManager.createConsumer(
                     targetEntityClass,
-                    config.getDestinationConfig()
+                    config.getDestinationConfig(),
+                    config.getExtraDestinations()
             );
 
             // 5. 创建并启动同步引擎
@@ -106,7 +116,10 @@ public class SyncTaskManager {
             );
 
             // 注册任务结束回调（新增异常处理）
+            BatchConsumerService<T> taskConsumer = batchConsumer;
             syncTool.setOnCompleteCallback(() -> {
+                // 归还共享连接器，最后一个任务结束时关闭
+                taskConsumer.close();
                 try {
                     BigDataSyncTool<?> removed = runningTasks.remove(taskId);
                     if (removed != null) {
@@ -124,6 +137,9 @@ public class SyncTaskManager {
             runningTasks.put(config.getTaskId(), syncTool);
             taskConfigCache.addTask(config);
         } catch (Exception e) {
+            if (batchConsumer != null) {
+                batchConsumer.close();
+            }
             log.error("Failed to start task: {}", config.getTaskId(), e);
             throw new TaskException("Task start failed", e);
         }
@@ -161,6 +177,112 @@ public class SyncTaskManager {
     }
 
 
+    /**
+     * 将任务死信回放到目标端（问题修复后调用），回放不推进任何检查点；
+     * 回放全程持有任务级锁，避免多个节点或多次请求重复回放，每批只写入当初失败的目标
+     * @param taskId 任务ID
+     * @return 本次回放的记录数
+     */
+    public long replayDeadLetters(String taskId) {
+        if (isTaskExist(taskId)) {
+            throw new TaskException("任务运行中，不能回放死信: " + taskId);
+        }
+        SyncTaskConfig config = taskConfigCache.getTask(taskId);
+        if (config == null) {
+            throw new TaskException("任务不存在: " + taskId);
+        }
+        // 批次中的记录为源实体
+        Class<?> sourceEntityClass = EntityGenerator.buildSource("kd.data.service.entity.SourceEntity", config);
+        Class<?> targetEntityClass = EntityGenerator.buildTarget("kd.data.service.entity.TargetEntity", config);
+        return doReplayDeadLetters(config, captureGeneric(sourceEntityClass), captureGeneric(targetEntityClass));
+    }
+
+    private <T> long doReplayDeadLetters(SyncTaskConfig config, Class<T> sourceEntityClass,
+                                         Class<T> targetEntityClass) {
+        String taskId = config.getTaskId();
+        DistributedCoordinator coordinator = coordinatorFactory.createCoordinator(config.getSyncConfig());
+        String taskLockKey = taskId + ":lock:dead_letter";
+        if (!coordinator.tryLock(taskLockKey, REPLAY_LOCK_SECONDS)) {
+            closeQuietly(coordinator);
+            throw new TaskException("死信正在回放: " + taskId);
+        }
+        DeadLetterStore store = new DeadLetterStore(Paths.get(config.getSyncConfig().getDeadLetterDir()), taskId);
+        // 写入器需要的锁键单独使用，避免与正常分片的目标端状态（如文件目录）混用
+        String lockKey = taskId + ":dead_letter";
+        BatchConsumerService<T> consumer = null;
+        SyncContext context = new SyncContext("DeadLetter");
+        context.setAttribute(SyncContext.LOCK_KEY, lockKey);
+        // 不设置批次检查点，事务型目标端只提交数据
+        context.setAttribute(SyncContext.REPLAY, Boolean.TRUE);
+        SyncContext.setCurrent(context);
+        try {
+            BatchConsumerService<T> replayConsumer = consumerDataAccessFactoryManager.createConsumer(
+                    targetEntityClass, config.getDestinationConfig(), config.getExtraDestinations());
+            consumer = replayConsumer;
+            long[] lockedAt = {System.nanoTime()};
+            long renewNanos = TimeUnit.SECONDS.toNanos(REPLAY_LOCK_SECONDS) / 3;
+            long replayed = store.replay(sourceEntityClass, (shardId, targets, batch) -> {
+                if (System.nanoTime() - lockedAt[0] >= renewNanos) {
+                    if (!coordinator.renewLock(taskLockKey, REPLAY_LOCK_SECONDS)) {
+                        throw new SyncException("Dead letter replay lock lost: " + taskLockKey);
+                    }
+                    lockedAt[0] = System.nanoTime();
+                }
+                context.setAttribute(SyncContext.SHARD_ID, shardId);
+                replayConsumer.accept(batch, targets);
+            });
+            log.info("任务[{}]死信回放完成，共{}条", taskId, replayed);
+            return replayed;
+        } catch (Exception e) {
+            log.error("任务[{}]死信回放失败: {}", taskId, e.getMessage(), e);
+            throw new TaskException("死信回放失败: " + e.getMessage(), e);
+        } finally {
+            SyncContext.clear();
+            if (consumer != null) {
+                consumer.releaseShard(lockKey);
+                consumer.close();
+            }
+            coordinator.unlock(taskLockKey);
+            closeQuietly(coordinator);
+        }
+    }
+
+    private static void closeQuietly(DistributedCoordinator coordinator) {
+        if (coordinator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) coordinator).close();
+            } catch (Exception e) {
+                log.warn("Failed to close coordinator: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 恢复目标端加载调优遗留的设置（如崩溃后 es 索引仍关闭刷新与副本）
+     * @param taskId 任务ID
+     */
+    public void recoverTargets(String taskId) {
+        if (isTaskExist(taskId)) {
+            throw new TaskException("任务运行中，不能恢复目标端设置: " + taskId);
+        }
+        SyncTaskConfig config = taskConfigCache.getTask(taskId);
+        if (config == null) {
+            throw new TaskException("任务不存在: " + taskId);
+        }
+        Class<?> targetEntityClass = EntityGenerator.buildTarget("kd.data.service.entity.TargetEntity", config);
+        BatchConsumerService<?> consumer = consumerDataAccessFactoryManager.createConsumer(
+                targetEntityClass, config.getDestinationConfig(), config.getExtraDestinations());
+        try {
+            consumer.recoverLoadHooks();
+            log.info("任务[{}]目标端设置已恢复", taskId);
+        } catch (Exception e) {
+            log.error("任务[{}]目标端设置恢复失败: {}", taskId, e.getMessage(), e);
+            throw new TaskException("目标端设置恢复失败: " + e.getMessage(), e);
+        } finally {
+            consumer.close();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> Class<T> captureGeneric(Class<?> clazz) {
         return (Class<T>) clazz;
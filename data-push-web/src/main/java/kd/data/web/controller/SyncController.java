@@ -76,6 +76,31 @@ public class SyncController {
         }
     }
 
+    /**
+     * 回放任务死信
+     */
+    @PostMapping("/{taskId}/dead-letters/replay")
+    public ApiResponse<Long> replayDeadLetters(@PathVariable String taskId) {
+        try {
+            return ApiResponse.success(syncTaskManager.replayDeadLetters(taskId));
+        } catch (TaskException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 恢复目标端加载调优遗留的设置
+     */
+    @PostMapping("/{taskId}/targets/recover")
+    public ApiResponse<String> recoverTargets(@PathVariable String taskId) {
+        try {
+            syncTaskManager.recoverTargets(taskId);
+            return ApiResponse.success(SUCCESS);
+        } catch (TaskException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     /**
      * 获取任务列表
      */